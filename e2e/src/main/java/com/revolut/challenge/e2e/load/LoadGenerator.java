@@ -0,0 +1,281 @@
+package com.revolut.challenge.e2e.load;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Open-loop load test of a running service: operations start at a fixed rate whether or not the ones before have been
+ * answered, and their latency is measured from the moment they were meant to start, so a service that stalls shows in
+ * the percentiles instead of slowing the test down with it (coordinated omission).
+ * <p>
+ * It creates {@code accounts} accounts, then creates transfers between, and reads, accounts picked with a Zipf skew,
+ * and reports the latency percentiles of {@code POST /transfers}, of the time transfers take to reach a final status
+ * and of {@code GET /accounts/{id}}. It ends by checking that the balances of its accounts still add up to what they
+ * were created with, and exits with 1 when they do not or when transfers did not reach a final status.
+ *
+ * @see LoadTestConfiguration for the options
+ */
+public final class LoadGenerator {
+
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_PER_MILLI = 1e6;
+    private static final int ACCOUNTS_PER_REQUEST = 1000;
+
+    private final LoadTestConfiguration configuration;
+    private final WebTarget service;
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    private final Histogram transferCreationLatencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final Histogram settlementLatencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final Histogram accountReadLatencies = new ConcurrentHistogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS);
+    private final ConcurrentMap<String, LongAdder> responses = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final TransferSettlementTracker settlementTracker;
+
+    private LoadGenerator(LoadTestConfiguration configuration) {
+        this.configuration = configuration;
+        Client client = ClientBuilder.newClient();
+        service = client.target(configuration.url);
+        settlementTracker = new TransferSettlementTracker(configuration.url, settlementLatencies);
+    }
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        LoadTestConfiguration configuration = LoadTestConfiguration.parse(args);
+        System.setProperty("http.maxConnections", String.valueOf(configuration.connections));  //connections kept alive per host by the JDK, 5 by default
+        System.exit(new LoadGenerator(configuration).run() ? 0 : 1);
+    }
+
+    /**
+     * @return whether every transfer reached a final status and the balances were conserved
+     */
+    private boolean run() throws InterruptedException, IOException {
+        System.out.println("Open-loop load: " + configuration);
+        List<String> accountIds = createAccounts();
+        settlementTracker.start();
+        ExecutorService workers = Executors.newFixedThreadPool(configuration.connections);
+        long operations = sendOperations(new ZipfAccountPicker(accountIds, configuration.zipfExponent), workers);
+        workers.shutdown();
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        int unsettledTransfers = pollStatuses(settlementTracker.awaitStatuses(configuration.settleTimeoutNanos));
+        settlementTracker.close();
+        report(operations, unsettledTransfers);
+        return checkBalances(accountIds) && unsettledTransfers == 0;
+    }
+
+    private List<String> createAccounts() throws IOException {
+        List<String> accountIds = new ArrayList<>(configuration.accounts);
+        while (accountIds.size() < configuration.accounts) {
+            int accounts = Math.min(ACCOUNTS_PER_REQUEST, configuration.accounts - accountIds.size());
+            List<Map<String, BigDecimal>> requests = Collections.nCopies(accounts, Collections.singletonMap("initialAmount", configuration.initialBalance));
+            Response response = service.path("accounts").path("bulk").request(MediaType.APPLICATION_JSON)
+                                       .post(Entity.entity(objectMapper.writeValueAsString(requests), MediaType.APPLICATION_JSON));
+            String body = response.readEntity(String.class);
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new IllegalStateException("Failed to create accounts: " + response.getStatus() + " " + body);
+            }
+            for (JsonNode account : objectMapper.readTree(body)) {
+                accountIds.add(account.get("accountId").asText());
+            }
+        }
+        return accountIds;
+    }
+
+    /**
+     * Starts an operation every {@code 1 / rate} seconds on the workers, which run them as soon as one is free: the
+     * latency of an operation is measured from the moment it was scheduled, including its wait for a worker.
+     *
+     * @return the number of operations started, warm-up included
+     */
+    private long sendOperations(ZipfAccountPicker accountPicker, ExecutorService workers) {
+        SplittableRandom random = new SplittableRandom();
+        double periodNanos = TimeUnit.SECONDS.toNanos(1) / configuration.rate;
+        long startNanos = System.nanoTime();
+        long recordedFromNanos = startNanos + configuration.warmupNanos;
+        long endNanos = recordedFromNanos + configuration.durationNanos;
+        long operations = 0;
+        for (long intendedNanos = startNanos; intendedNanos - endNanos < 0; intendedNanos = startNanos + (long) (++operations * periodNanos)) {
+            long delayNanos = intendedNanos - System.nanoTime();
+            if (delayNanos > 0) {
+                LockSupport.parkNanos(delayNanos);
+            }
+            long operationIntendedNanos = intendedNanos;
+            boolean recorded = intendedNanos - recordedFromNanos >= 0;
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            if (random.nextDouble() < configuration.readRatio) {
+                String accountId = accountPicker.pick(random);
+                workers.execute(() -> readAccount(accountId, operationIntendedNanos, recorded));
+            } else {
+                String sourceAccountId = accountPicker.pick(random);
+                String beneficiaryAccountId = accountPicker.pickOtherThan(sourceAccountId, random);
+                workers.execute(() -> createTransfer(sourceAccountId, beneficiaryAccountId, operationIntendedNanos, recorded));
+            }
+        }
+        return operations;
+    }
+
+    private void createTransfer(String sourceAccountId, String beneficiaryAccountId, long intendedNanos, boolean recorded) {
+        try {
+            Map<String, Object> request = new TreeMap<>();
+            request.put("sourceAccountId", sourceAccountId);
+            request.put("beneficiaryAccountId", beneficiaryAccountId);
+            request.put("transferAmount", configuration.transferAmount);
+            Response response = service.path("transfers").request(MediaType.APPLICATION_JSON)
+                                       .post(Entity.entity(objectMapper.writeValueAsString(request), MediaType.APPLICATION_JSON));
+            String body = response.readEntity(String.class);
+            long answeredNanos = System.nanoTime();
+            count("POST /transfers", String.valueOf(response.getStatus()));
+            if (recorded) {
+                transferCreationLatencies.recordValue(answeredNanos - intendedNanos);
+            }
+            if (response.getStatus() == Response.Status.CREATED.getStatusCode()) {
+                settlementTracker.created(objectMapper.readTree(body).get("transferId").asText(), intendedNanos, recorded);
+            }
+        } catch (ProcessingException | IOException e) {
+            count("POST /transfers", e.getClass().getSimpleName());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void readAccount(String accountId, long intendedNanos, boolean recorded) {
+        try {
+            Response response = service.path("accounts").path(accountId).request(MediaType.APPLICATION_JSON).get();
+            response.readEntity(String.class);
+            long answeredNanos = System.nanoTime();
+            count("GET /accounts/{id}", String.valueOf(response.getStatus()));
+            if (recorded) {
+                accountReadLatencies.recordValue(answeredNanos - intendedNanos);
+            }
+        } catch (ProcessingException e) {
+            count("GET /accounts/{id}", e.getClass().getSimpleName());
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    private void count(String operation, String outcome) {
+        responses.computeIfAbsent(operation + " " + outcome, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Reads the status of the transfers the stream did not report.
+     *
+     * @return the number of them still not in a final status
+     */
+    private int pollStatuses(List<String> transferIds) throws IOException {
+        int unsettled = 0;
+        for (String transferId : transferIds) {
+            String status = objectMapper.readTree(service.path("transfers").path(transferId).request(MediaType.APPLICATION_JSON).get(String.class)).get("status").asText();
+            if ("CREATED".equals(status)) {
+                unsettled++;
+            } else {
+                settlementTracker.settledUnobserved(transferId, status);
+            }
+        }
+        return unsettled;
+    }
+
+    private void report(long operations, int unsettledTransfers) throws IOException {
+        System.out.printf("%d operations started, %d at most in flight%n", operations, maxInFlight.get());
+        if (maxInFlight.get() > configuration.connections) {
+            System.out.printf("Operations waited for one of the %d connections: their latency includes that wait, raise --connections to tell it apart from the service's%n",
+                              configuration.connections);
+        }
+        System.out.println("Responses: " + sums(responses));
+        System.out.println("Final statuses: " + sums(settlementTracker.getFinalStatuses()));
+        if (settlementTracker.getMissedStatuses() > 0) {
+            System.out.printf("%d statuses dropped by the stream, polled instead; their settlement time is not recorded%n", settlementTracker.getMissedStatuses());
+        }
+        if (unsettledTransfers > 0) {
+            System.out.printf("%d transfers still not in a final status after %d s%n", unsettledTransfers, TimeUnit.NANOSECONDS.toSeconds(configuration.settleTimeoutNanos));
+        }
+        Path reportDirectory = Paths.get(configuration.reportDirectory);
+        Files.createDirectories(reportDirectory);
+        System.out.printf("%nLatency from the intended start (ms)  %10s %10s %10s %10s %10s %10s%n", "count", "p50", "p90", "p99", "p99.9", "max");
+        reportLatencies("POST /transfers", transferCreationLatencies, reportDirectory.resolve("transfer-creation.hgrm"));
+        reportLatencies("transfer final status", settlementLatencies, reportDirectory.resolve("transfer-settlement.hgrm"));
+        reportLatencies("GET /accounts/{id}", accountReadLatencies, reportDirectory.resolve("account-read.hgrm"));
+        System.out.printf("Percentile distributions written to %s%n", reportDirectory.toAbsolutePath());
+    }
+
+    private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+        Map<String, Long> sums = new TreeMap<>();
+        counters.forEach((name, counter) -> sums.put(name, counter.sum()));
+        return sums;
+    }
+
+    private static void reportLatencies(String name, Histogram latencies, Path file) throws IOException {
+        System.out.printf("%-37s %10d %10.2f %10.2f %10.2f %10.2f %10.2f%n", name, latencies.getTotalCount(),
+                          latencies.getValueAtPercentile(50) / NANOS_PER_MILLI, latencies.getValueAtPercentile(90) / NANOS_PER_MILLI,
+                          latencies.getValueAtPercentile(99) / NANOS_PER_MILLI, latencies.getValueAtPercentile(99.9) / NANOS_PER_MILLI,
+                          latencies.getMaxValue() / NANOS_PER_MILLI);
+        try (PrintStream out = new PrintStream(Files.newOutputStream(file), false, "UTF-8")) {
+            latencies.outputPercentileDistribution(out, NANOS_PER_MILLI);
+        }
+    }
+
+    /**
+     * Transfers only move money between the accounts created here, so once they are all final the balances must add up
+     * to the initial ones, and none may be negative.
+     */
+    private boolean checkBalances(List<String> accountIds) throws InterruptedException {
+        ExecutorService readers = Executors.newFixedThreadPool(configuration.connections);
+        try {
+            List<Future<BigDecimal>> balances = new ArrayList<>(accountIds.size());
+            for (String accountId : accountIds) {
+                balances.add(readers.submit(() -> objectMapper.readTree(service.path("accounts").path(accountId).request(MediaType.APPLICATION_JSON).get(String.class))
+                                                              .get("currentBalance").decimalValue()));
+            }
+            BigDecimal total = BigDecimal.ZERO;
+            int negativeBalances = 0;
+            for (Future<BigDecimal> balance : balances) {
+                total = total.add(balance.get());
+                negativeBalances += balance.get().signum() < 0 ? 1 : 0;
+            }
+            BigDecimal expectedTotal = configuration.initialBalance.multiply(BigDecimal.valueOf(accountIds.size()));
+            boolean conserved = total.compareTo(expectedTotal) == 0 && negativeBalances == 0;
+            System.out.printf("%nBalance conservation: %s expected, %s found across %d accounts, %d negative: %s%n", expectedTotal.toPlainString(), total.toPlainString(),
+                              accountIds.size(), negativeBalances, conserved ? "OK" : "FAILED");
+            return conserved;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to read the balances", e.getCause());
+        } finally {
+            readers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.revolut.challenge.e2e.load;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Options of {@link LoadGenerator}, each given as a {@code --name=value} argument, e.g. {@code --rate=2000 --duration=2m}.
+ */
+final class LoadTestConfiguration {
+
+    private static final Pattern DURATION = Pattern.compile("(\\d+)(ms|s|m)");
+
+    /**
+     * Base URL of the running service.
+     */
+    String url = "http://localhost:8080/";
+
+    /**
+     * Operations started per second, whether or not the ones before have been answered.
+     */
+    double rate = 500;
+
+    long durationNanos = TimeUnit.SECONDS.toNanos(60);
+
+    /**
+     * Operations run first without being recorded, while the service warms up.
+     */
+    long warmupNanos = TimeUnit.SECONDS.toNanos(10);
+
+    int accounts = 1000;
+
+    /**
+     * Skew of the popularity of accounts: 0 picks them uniformly, 1 and above concentrates the operations on a few.
+     */
+    double zipfExponent = 1.0;
+
+    /**
+     * Share of the operations reading an account rather than creating a transfer.
+     */
+    double readRatio = 0.2;
+
+    BigDecimal initialBalance = BigDecimal.valueOf(1000);
+    BigDecimal transferAmount = BigDecimal.ONE;
+
+    /**
+     * Client threads, hence connections: operations beyond them wait for one, which counts in their latency.
+     */
+    int connections = 256;
+
+    /**
+     * How long to wait, after the last operation, for the transfers created to reach a final status.
+     */
+    long settleTimeoutNanos = TimeUnit.SECONDS.toNanos(60);
+
+    String reportDirectory = "build/load";
+
+    static LoadTestConfiguration parse(String[] args) {
+        LoadTestConfiguration configuration = new LoadTestConfiguration();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Invalid argument " + arg + ": expected --name=value");
+            }
+            configuration.set(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        if (configuration.rate <= 0 || configuration.accounts < 2 || configuration.connections < 1 || configuration.readRatio < 0 || configuration.readRatio > 1) {
+            throw new IllegalArgumentException("Expected a positive rate, at least 2 accounts and 1 connection, and a read ratio between 0 and 1");
+        }
+        return configuration;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "url":
+                url = value.endsWith("/") ? value : value + "/";
+                break;
+            case "rate":
+                rate = Double.parseDouble(value);
+                break;
+            case "duration":
+                durationNanos = parseDuration(value);
+                break;
+            case "warmup":
+                warmupNanos = parseDuration(value);
+                break;
+            case "accounts":
+                accounts = Integer.parseInt(value);
+                break;
+            case "zipf":
+                zipfExponent = Double.parseDouble(value);
+                break;
+            case "read-ratio":
+                readRatio = Double.parseDouble(value);
+                break;
+            case "initial-balance":
+                initialBalance = new BigDecimal(value);
+                break;
+            case "amount":
+                transferAmount = new BigDecimal(value);
+                break;
+            case "connections":
+                connections = Integer.parseInt(value);
+                break;
+            case "settle-timeout":
+                settleTimeoutNanos = parseDuration(value);
+                break;
+            case "report-directory":
+                reportDirectory = value;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option --" + name);
+        }
+    }
+
+    private static long parseDuration(String value) {
+        Matcher matcher = DURATION.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid duration " + value + ": expected e.g. 500ms, 30s or 2m");
+        }
+        long amount = Long.parseLong(matcher.group(1));
+        switch (matcher.group(2)) {
+            case "ms":
+                return TimeUnit.MILLISECONDS.toNanos(amount);
+            case "s":
+                return TimeUnit.SECONDS.toNanos(amount);
+            default:
+                return TimeUnit.MINUTES.toNanos(amount);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.0f operations/s for %d s (after %d s of warm-up) against %s: %d accounts of %s, Zipf exponent %s, %.0f%% reads, transfers of %s, %d connections",
+                             rate, TimeUnit.NANOSECONDS.toSeconds(durationNanos), TimeUnit.NANOSECONDS.toSeconds(warmupNanos), url, accounts,
+                             initialBalance.toPlainString(), zipfExponent, readRatio * 100, transferAmount.toPlainString(), connections);
+    }
+}
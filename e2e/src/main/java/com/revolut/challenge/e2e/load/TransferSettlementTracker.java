@@ -0,0 +1,212 @@
+package com.revolut.challenge.e2e.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Times how long transfers take to reach a final status, from the moment they were meant to be sent, by pairing each
+ * transfer created with its status streamed by {@code GET /transfers/events}, whichever of the two arrives first.
+ * Statuses are streamed every {@code challenge.transfers.events.flush-interval} (20ms by default), which bounds the
+ * resolution of these times.
+ */
+final class TransferSettlementTracker implements Closeable {
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 5_000;
+    private static final long RESUBSCRIBE_DELAY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String url;
+    private final Histogram settlementLatencies;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentMap<String, Sighting> unpaired = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> finalStatuses = new ConcurrentHashMap<>();
+    private final LongAdder missedStatuses = new LongAdder();
+    private final CountDownLatch subscribed = new CountDownLatch(1);
+    private final Thread reader;
+    private volatile boolean closed;
+
+    /**
+     * Either side of a transfer seen first: its creation, or its final status.
+     */
+    private static final class Sighting {
+        private final long nanos;
+        private final boolean recorded;
+        private final String status;
+
+        private Sighting(long nanos, boolean recorded, String status) {
+            this.nanos = nanos;
+            this.recorded = recorded;
+            this.status = status;
+        }
+    }
+
+    TransferSettlementTracker(String url, Histogram settlementLatencies) {
+        this.url = url;
+        this.settlementLatencies = settlementLatencies;
+        reader = new Thread(this::readEvents, "transfer-events");
+        reader.setDaemon(true);
+    }
+
+    /**
+     * Subscribes to the status stream, before any transfer is created.
+     */
+    void start() throws InterruptedException {
+        reader.start();
+        if (!subscribed.await(CONNECT_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Could not subscribe to " + url + "transfers/events");
+        }
+    }
+
+    /**
+     * @param intendedNanos when the request creating the transfer was meant to be sent
+     * @param recorded      whether its settlement time is recorded, i.e. it was created after the warm-up
+     */
+    void created(String transferId, long intendedNanos, boolean recorded) {
+        unpaired.compute(transferId, (id, settled) -> {
+            if (settled == null) {
+                return new Sighting(intendedNanos, recorded, null);
+            }
+            settle(intendedNanos, recorded, settled.nanos);
+            return null;
+        });
+    }
+
+    private void settled(String transferId, String status, long settledNanos) {
+        finalStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        unpaired.compute(transferId, (id, created) -> {
+            if (created == null) {
+                return new Sighting(settledNanos, false, status);
+            }
+            settle(created.nanos, created.recorded, settledNanos);
+            return null;
+        });
+    }
+
+    private void settle(long intendedNanos, boolean recorded, long settledNanos) {
+        if (recorded) {
+            settlementLatencies.recordValue(Math.max(0, settledNanos - intendedNanos));
+        }
+    }
+
+    /**
+     * Waits for the statuses of the transfers created, up to {@code timeoutNanos}.
+     *
+     * @return the ids of the transfers whose status has not been streamed: still processing, or missed when the stream
+     * overflowed
+     */
+    List<String> awaitStatuses(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        List<String> unsettled = unsettledTransfers();
+        while (!unsettled.isEmpty() && System.nanoTime() - deadline < 0) {
+            Thread.sleep(100);
+            unsettled = unsettledTransfers();
+        }
+        return unsettled;
+    }
+
+    private List<String> unsettledTransfers() {
+        List<String> unsettled = new ArrayList<>();
+        for (Map.Entry<String, Sighting> transfer : unpaired.entrySet()) {
+            if (transfer.getValue().status == null) {
+                unsettled.add(transfer.getKey());
+            }
+        }
+        return unsettled;
+    }
+
+    /**
+     * Counts the final status of a transfer found otherwise than by the stream, which has no settlement time.
+     */
+    void settledUnobserved(String transferId, String status) {
+        if (unpaired.remove(transferId) != null) {
+            finalStatuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+    }
+
+    Map<String, LongAdder> getFinalStatuses() {
+        return finalStatuses;
+    }
+
+    /**
+     * @return the statuses the stream reported as dropped; the ones lost to an overflow are not counted
+     */
+    long getMissedStatuses() {
+        return missedStatuses.sum();
+    }
+
+    private void readEvents() {
+        while (!closed) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL(url + "transfers/events").openConnection();
+                connection.setRequestProperty("Accept", "text/event-stream");
+                try (BufferedReader events = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+                    subscribed.countDown();
+                    readEvents(events);
+                }
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Transfer status stream failed, subscribing again: " + e);
+                    LockSupport.parkNanos(RESUBSCRIBE_DELAY_NANOS);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the stream until it ends, which an {@code overflow} event does after the statuses buffered before it.
+     */
+    private void readEvents(BufferedReader events) throws IOException {
+        String eventName = null;
+        StringBuilder data = new StringBuilder();
+        for (String line = events.readLine(); line != null && !closed; line = events.readLine()) {
+            if (line.startsWith("event:")) {
+                eventName = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                data.append(line.substring("data:".length()));
+            } else if (line.isEmpty() && data.length() > 0) {
+                onEvent(eventName, objectMapper.readTree(data.toString()), System.nanoTime());
+                eventName = null;
+                data.setLength(0);
+            }
+        }
+    }
+
+    private void onEvent(String eventName, JsonNode data, long receivedNanos) {
+        if ("transfers".equals(eventName)) {
+            for (JsonNode transfer : data) {
+                settled(transfer.get("transferId").asText(), transfer.get("status").asText(), receivedNanos);
+            }
+        } else if ("dropped".equals(eventName)) {
+            missedStatuses.add(data.get("dropped").asLong());
+        } else if ("overflow".equals(eventName)) {
+            System.err.println("Transfer status stream overflowed, subscribing again: the statuses missed are polled at the end");
+        }
+    }
+
+    /**
+     * Stops reading the stream at its next line. Disconnecting would wait for the reader blocked on it, which being a
+     * daemon thread ends with the process anyway.
+     */
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
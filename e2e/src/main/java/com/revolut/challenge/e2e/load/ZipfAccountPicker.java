@@ -0,0 +1,45 @@
+package com.revolut.challenge.e2e.load;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+
+/**
+ * Picks accounts with a probability proportional to {@code 1 / rank^exponent}: uniformly with an exponent of 0, and
+ * mostly among the first few accounts as it grows, like the few merchant and payroll accounts of a real ledger.
+ */
+final class ZipfAccountPicker {
+
+    private final List<String> accountIds;
+    private final double[] cumulativeProbabilities;
+
+    ZipfAccountPicker(List<String> accountIds, double exponent) {
+        this.accountIds = accountIds;
+        cumulativeProbabilities = new double[accountIds.size()];
+        double total = 0;
+        for (int rank = 0; rank < cumulativeProbabilities.length; rank++) {
+            total += 1 / Math.pow(rank + 1, exponent);
+            cumulativeProbabilities[rank] = total;
+        }
+        for (int rank = 0; rank < cumulativeProbabilities.length; rank++) {
+            cumulativeProbabilities[rank] /= total;
+        }
+    }
+
+    String pick(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        return accountIds.get(Math.min(rank < 0 ? -rank - 1 : rank, accountIds.size() - 1));
+    }
+
+    /**
+     * @return an account other than {@code accountId}
+     */
+    String pickOtherThan(String accountId, SplittableRandom random) {
+        String picked = pick(random);
+        while (picked.equals(accountId)) {
+            picked = pick(random);
+        }
+        return picked;
+    }
+}
@@ -7,17 +7,28 @@ import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
 import io.restassured.path.json.JsonPath;
+import org.junit.Assert;
 
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import static io.restassured.RestAssured.get;
@@ -27,8 +38,12 @@ import static org.hamcrest.Matchers.equalTo;
 public class StepsDefinition {
 
     private static final String LOCALHOST_SERVER = "http://localhost:8080/";
+    private static final int MAX_CONCURRENT_REQUESTS = 64;
+    private static final String SETTLEMENT_WAIT = "10s";
     private Map<String, String> accountMap;
     private String transferId;
+    private final Queue<String> launchedTransferIds = new ConcurrentLinkedQueue<>();
+    private List<Float> readBalances;
 
     public StepsDefinition() {
         accountMap = new HashMap<>();
@@ -45,13 +60,29 @@ public class StepsDefinition {
     }
 
     @When("a money transfer is launched from (.+) to (.+) for (.+)")
-    public void money_transfer_is_launched_from_firstAccount_to_secondAccount_for(String sourceAccount, String beneficiaryAccount, Double amount) throws IOException {
+    public void money_transfer_is_launched_from_firstAccount_to_secondAccount_for(String sourceAccount, String beneficiaryAccount, Double amount) throws IOException, InterruptedException {
         String transferResponse = transferMoney(sourceAccount, beneficiaryAccount, amount);
         transferId = JsonPath.from(transferResponse).get("transferId");
     }
 
+    /**
+     * Transfers are processed asynchronously: the balance is checked once every transfer launched has settled.
+     */
     @Then("account (.+) should have a balance of (.+)")
-    public void account_should_have_a_balance_of(String accountReference, Double amount) {
+    public void account_should_have_a_balance_of(String accountReference, Double amount) throws InterruptedException, ExecutionException {
+        ExecutorService executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        List<Future<String>> unsettledTransfers = new ArrayList<>();
+        for (String launchedTransferId = launchedTransferIds.poll(); launchedTransferId != null; launchedTransferId = launchedTransferIds.poll()) {
+            String settledTransferId = launchedTransferId;
+            unsettledTransfers.add(executorService.submit(() -> {
+                String status = get("/transfers/" + settledTransferId + "?waitFor=" + SETTLEMENT_WAIT).then().extract().path("status");
+                return "CREATED".equals(status) ? settledTransferId : null;
+            }));
+        }
+        executorService.shutdown();
+        for (Future<String> unsettledTransfer : unsettledTransfers) {
+            Assert.assertNull("transfer did not settle", unsettledTransfer.get());
+        }
         get("/accounts/" + accountMap.get(accountReference)).then().body("currentBalance", equalTo(amount.floatValue()));
     }
 
@@ -65,23 +96,62 @@ public class StepsDefinition {
         String moneyTransferRequest = loadResource("requests/money_transfer.json").replace("${sourceAccountId}", accountMap.get(sourceAccount)).replace("${beneficiaryAccountId}", accountMap.get(beneficiaryAccount))
                                                                                   .replace("${amount}", String.valueOf(amount));
         Client client = ClientBuilder.newClient();
-        ExecutorService executorService = Executors.newFixedThreadPool(numberOfTransfers);
+        ExecutorService executorService = Executors.newFixedThreadPool(Math.min(numberOfTransfers, MAX_CONCURRENT_REQUESTS));
         for (int i = 0; i < numberOfTransfers; i++) {
             executorService.submit(() -> postMoneyTransferRequest(client, moneyTransferRequest));
         }
         executorService.shutdown();
-        executorService.awaitTermination(30, TimeUnit.SECONDS);
+        executorService.awaitTermination(10, TimeUnit.MINUTES);
+    }
+
+    @When("^(\\d+) reads of (.+) are made while (\\d+) transfers are launched from (.+) to (.+) for (\\d+)$")
+    public void reads_are_made_while_transfers_are_launched(int numberOfReads, String accountReference, int numberOfTransfers, String sourceAccount, String beneficiaryAccount,
+                                                            int amount) throws InterruptedException, ExecutionException {
+        ExecutorService launcher = Executors.newSingleThreadExecutor();
+        Future<?> transfers = launcher.submit(() -> {
+            transfersAreLaunchedFromFirstAccountToSecondAccountFor(numberOfTransfers, sourceAccount, beneficiaryAccount, amount);
+            return null;
+        });
+        launcher.shutdown();
+        readBalances = readBalances(numberOfReads, accountReference);
+        transfers.get();
+    }
+
+    @Then("^every read answered a balance of (.+)$")
+    public void every_read_answered_a_balance_of(Double amount) {
+        Assert.assertEquals(Collections.nCopies(readBalances.size(), amount.floatValue()), readBalances);
+    }
+
+    private List<Float> readBalances(int numberOfReads, String accountReference) {
+        Client client = ClientBuilder.newClient();
+        WebTarget account = client.target(LOCALHOST_SERVER).path("accounts").path(accountMap.get(accountReference));
+        List<Float> balances = new ArrayList<>(numberOfReads);
+        for (int i = 0; i < numberOfReads; i++) {
+            balances.add(JsonPath.from(account.request(MediaType.APPLICATION_JSON).get(String.class)).getFloat("currentBalance"));
+        }
+        client.close();
+        return balances;
     }
 
-    private String transferMoney(String sourceAccount, String beneficiaryAccount, Double amount) throws IOException {
+    private String transferMoney(String sourceAccount, String beneficiaryAccount, Double amount) throws IOException, InterruptedException {
         String moneyTransferRequest = loadResource("requests/money_transfer.json").replace("${sourceAccountId}", accountMap.get(sourceAccount)).replace("${beneficiaryAccountId}", accountMap.get(beneficiaryAccount))
                                                                                   .replace("${amount}", String.valueOf(amount));
         Client client = ClientBuilder.newClient();
         return postMoneyTransferRequest(client, moneyTransferRequest);
     }
 
-    private String postMoneyTransferRequest(Client client, String moneyTransferRequest) {
-        return client.target(LOCALHOST_SERVER).path("transfers").request(MediaType.APPLICATION_JSON).post(Entity.entity(moneyTransferRequest, MediaType.APPLICATION_JSON), String.class);
+    private String postMoneyTransferRequest(Client client, String moneyTransferRequest) throws InterruptedException {
+        while (true) {
+            try {
+                String transferResponse = client.target(LOCALHOST_SERVER).path("transfers").request(MediaType.APPLICATION_JSON)
+                                                .post(Entity.entity(moneyTransferRequest, MediaType.APPLICATION_JSON), String.class);
+                launchedTransferIds.add(JsonPath.from(transferResponse).get("transferId"));
+                return transferResponse;
+            } catch (ServiceUnavailableException e) {  //the processing backlog is full; back off as the server asks
+                Date retryTime = e.getRetryTime(new Date());
+                Thread.sleep(retryTime == null ? 1000 : Math.max(0, retryTime.getTime() - System.currentTimeMillis()));
+            }
+        }
     }
 
     private String loadResource(String path) throws IOException {
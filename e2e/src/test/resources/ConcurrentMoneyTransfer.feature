@@ -8,4 +8,12 @@ Feature: Transfer Money Concurrently between bank accounts
     When In parallel, 1000 transfers are launched from firstAccount to secondAccount for 1
 
     Then account firstAccount should have a balance of 0
-    And account secondAccount should have a balance of 2500
\ No newline at end of file
+    And account secondAccount should have a balance of 2500
+
+  Scenario:
+    Given an Account with initial Balance of 100000 as thirdAccount
+    And an Account with initial Balance of 0 as fourthAccount
+    When In parallel, 100000 transfers are launched from thirdAccount to fourthAccount for 1
+
+    Then account thirdAccount should have a balance of 0
+    And account fourthAccount should have a balance of 100000
@@ -0,0 +1,13 @@
+Feature: Read accounts while transfer creation is saturated
+
+  Background:
+    Given an Account with initial Balance of 1000 as readAccount
+    And an Account with initial Balance of 200000 as sourceAccount
+    And an Account with initial Balance of 0 as beneficiaryAccount
+
+  Scenario:
+    When 2000 reads of readAccount are made while 200000 transfers are launched from sourceAccount to beneficiaryAccount for 1
+
+    Then every read answered a balance of 1000
+    And account sourceAccount should have a balance of 0
+    And account beneficiaryAccount should have a balance of 200000
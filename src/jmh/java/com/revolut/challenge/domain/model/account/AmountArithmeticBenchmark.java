@@ -0,0 +1,65 @@
+package com.revolut.challenge.domain.model.account;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * One debit and one credit with {@link BigDecimalAmount} and with {@link Amount}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AmountArithmeticBenchmark {
+
+    private BigDecimalAmount bigDecimalBalance;
+    private BigDecimalAmount bigDecimalTransferAmount;
+    private Amount balance;
+    private Amount transferAmount;
+    private Account account;
+
+    @Setup
+    public void setup() {
+        bigDecimalBalance = BigDecimalAmount.builder().amount(new BigDecimal("1000000.00")).build();
+        bigDecimalTransferAmount = BigDecimalAmount.builder().amount(new BigDecimal("12.34")).build();
+        balance = Amount.builder().amount(new BigDecimal("1000000.00")).build();
+        transferAmount = Amount.builder().amount(new BigDecimal("12.34")).build();
+        account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).currentBalance(balance).build();
+    }
+
+    @Benchmark
+    public BigDecimalAmount bigDecimalAmount_debitAndCredit() {
+        if (bigDecimalBalance.isLessThan(bigDecimalTransferAmount)) {
+            throw new IllegalStateException();
+        }
+        return bigDecimalBalance.subtract(bigDecimalTransferAmount).add(bigDecimalTransferAmount);
+    }
+
+    @Benchmark
+    public Amount amount_debitAndCredit() {
+        if (balance.isLessThan(transferAmount)) {
+            throw new IllegalStateException();
+        }
+        return balance.subtract(transferAmount).add(transferAmount);
+    }
+
+    @Benchmark
+    public Account account_debitAndCredit() throws InsufficientFundsException {
+        return account.debit(transferAmount).credit(transferAmount);
+    }
+}
@@ -0,0 +1,28 @@
+package com.revolut.challenge.domain.model.account;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+
+
+/**
+ * The former {@link BigDecimal} backed {@link Amount}, kept as the baseline of {@link AmountArithmeticBenchmark}.
+ */
+@Value
+@Builder
+public class BigDecimalAmount {
+    private BigDecimal amount;
+
+    public BigDecimalAmount add(BigDecimalAmount amountToAdd) {
+        return BigDecimalAmount.builder().amount(amount.add(amountToAdd.getAmount())).build();
+    }
+
+    public BigDecimalAmount subtract(BigDecimalAmount amountToSubtract) {
+        return BigDecimalAmount.builder().amount(amount.subtract(amountToSubtract.getAmount())).build();
+    }
+
+    public boolean isLessThan(BigDecimalAmount amountToCompare) {
+        return amount.compareTo(amountToCompare.getAmount()) < 0;
+    }
+}
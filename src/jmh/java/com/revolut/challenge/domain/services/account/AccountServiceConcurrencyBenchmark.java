@@ -0,0 +1,150 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import com.revolut.challenge.infra.repositories.LockFreeAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Transfers between, and debits of, accounts picked uniformly ({@code zipfExponent} 0) or Zipf-skewed towards a few hot
+ * accounts, comparing account locks ({@code pessimistic}) with the repository version check and retries alone ({@code optimistic}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountServiceConcurrencyBenchmark {
+
+    private static final Amount TRANSFER_AMOUNT = Amount.ofMinorUnits(1);
+
+    @Param({"pessimistic", "optimistic"})
+    private String concurrency;
+
+    @Param({"in-memory", "lock-free"})
+    private String repositoryType;
+
+    @Param({"0", "0.8", "1.2"})
+    private double zipfExponent;
+
+    @Param({"10000"})
+    private int numberOfAccounts;
+
+    private AccountService accountService;
+    private AccountId[] accountIds;
+    private double[] cumulativeProbabilities;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setup() {
+        IAccountRepository repository = "lock-free".equals(repositoryType) ? new LockFreeAccountRepository() : new InMemoryAccountRepository();
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            repository.save(Account.builder().accountId(accountIds[i]).currentBalance(Amount.ofMinorUnits(1_000_000_000)).build());
+        }
+        cumulativeProbabilities = new double[numberOfAccounts];
+        double total = 0;
+        for (int rank = 0; rank < numberOfAccounts; rank++) {
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulativeProbabilities[rank] = total;
+        }
+        for (int rank = 0; rank < numberOfAccounts; rank++) {
+            cumulativeProbabilities[rank] /= total;
+        }
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        IAccountLockingService lockingService = "optimistic".equals(concurrency) ? new NoOpAccountLockingService()
+                                                                                : new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry());
+        accountService = new AccountService(repository, lockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transfer_1_thread(ThreadState threadState) throws InvalidAccountException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transfer_8_threads(ThreadState threadState) throws InvalidAccountException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void transfer_64_threads(ThreadState threadState) throws InvalidAccountException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void debit_1_thread(ThreadState threadState) throws InvalidAccountException {
+        debitRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void debit_8_threads(ThreadState threadState) throws InvalidAccountException {
+        debitRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void debit_64_threads(ThreadState threadState) throws InvalidAccountException {
+        debitRandomAccount(threadState);
+    }
+
+    private void transferBetweenRandomAccounts(ThreadState threadState) throws InvalidAccountException {
+        AccountId sourceAccountId = randomAccount(threadState.random);
+        AccountId beneficiaryAccountId = randomAccount(threadState.random);
+        while (beneficiaryAccountId.equals(sourceAccountId)) {
+            beneficiaryAccountId = randomAccount(threadState.random);
+        }
+        try {
+            accountService.transfer(sourceAccountId, beneficiaryAccountId, TRANSFER_AMOUNT);
+        } catch (InsufficientFundsException | ConcurrentModificationException e) {
+            //a drained hot account, or an optimistic update that ran out of retries; both count as processed
+        }
+    }
+
+    private void debitRandomAccount(ThreadState threadState) throws InvalidAccountException {
+        try {
+            accountService.debitAccount(randomAccount(threadState.random), TRANSFER_AMOUNT);
+        } catch (InsufficientFundsException | ConcurrentModificationException e) {
+            //a drained hot account, or an optimistic update that ran out of retries; both count as processed
+        }
+    }
+
+    private AccountId randomAccount(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        return accountIds[Math.min(rank < 0 ? -rank - 1 : rank, numberOfAccounts - 1)];
+    }
+}
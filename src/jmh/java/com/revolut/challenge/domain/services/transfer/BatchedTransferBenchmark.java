@@ -0,0 +1,208 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.AccountLockConfiguration;
+import com.revolut.challenge.domain.services.account.AccountLockingService;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import com.revolut.challenge.infra.repositories.InMemoryMoneyTransferRepository;
+import com.revolut.challenge.infra.repositories.WalAccountRepository;
+import com.revolut.challenge.infra.repositories.WalMoneyTransferRepository;
+import com.revolut.challenge.infra.wal.WalConfiguration;
+import com.revolut.challenge.infra.wal.WalStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Throughput and latency (transfer creation to final status) of many small transfers between a few account pairs,
+ * unbatched ({@code batchWindowMicros} -1, the async engine) and batched with growing windows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(64)
+public class BatchedTransferBenchmark {
+
+    private static final Amount TRANSFER_AMOUNT = Amount.builder().amount(BigDecimal.ONE).build();
+
+    @Param({"-1", "0", "1000", "2000", "5000"})
+    private int batchWindowMicros;
+
+    @Param({"in-memory", "wal"})
+    private String repositoryType;
+
+    @Param({"4"})
+    private int accountPairs;
+
+    private Path directory;
+    private WalStore walStore;
+    private CompletionTrackingRepository moneyTransferRepository;
+    private MoneyTransferBacklog backlog;
+    private MoneyTransferProcessingService processingService;
+    private BatchingMoneyTransferEngine batchingEngine;
+    private AccountId[] sourceAccountIds;
+    private AccountId[] beneficiaryAccountIds;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        IAccountRepository accountRepository;
+        if ("wal".equals(repositoryType)) {
+            directory = Files.createTempDirectory("batched-transfer-benchmark");
+            WalConfiguration walConfiguration = new WalConfiguration();
+            walConfiguration.setDirectory(directory.toString());
+            walStore = new WalStore(walConfiguration);
+            accountRepository = new WalAccountRepository(walStore);
+            moneyTransferRepository = new CompletionTrackingRepository(new WalMoneyTransferRepository(walStore));
+        } else {
+            accountRepository = new InMemoryAccountRepository();
+            moneyTransferRepository = new CompletionTrackingRepository(new InMemoryMoneyTransferRepository());
+        }
+        sourceAccountIds = new AccountId[accountPairs];
+        beneficiaryAccountIds = new AccountId[accountPairs];
+        for (int i = 0; i < accountPairs; i++) {
+            sourceAccountIds[i] = createAccount(accountRepository);
+            beneficiaryAccountIds[i] = createAccount(accountRepository);
+        }
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransferProcessingConfiguration processingConfiguration = new TransferProcessingConfiguration();
+        backlog = new MoneyTransferBacklog(processingConfiguration, meterRegistry);
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        AccountLockingService accountLockingService = new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry());
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferService moneyTransferService = new MoneyTransferService(new AccountService(accountRepository, accountLockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry()), moneyTransferRepository, new TransferTimelines(new TransferTracingConfiguration()), settlements);
+        if (batchWindowMicros < 0) {
+            processingService = new MoneyTransferProcessingService(moneyTransferService, backlog, processingConfiguration, meterRegistry);
+        } else {
+            BatchingEngineConfiguration configuration = new BatchingEngineConfiguration();
+            configuration.setWindow(Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(batchWindowMicros)));
+            batchingEngine = new BatchingMoneyTransferEngine(moneyTransferService, moneyTransferRepository, backlog, processingConfiguration, configuration, meterRegistry);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (processingService != null) {
+            processingService.close();
+        }
+        if (batchingEngine != null) {
+            batchingEngine.close();
+        }
+        if (walStore != null) {
+            walStore.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    @Benchmark
+    public MoneyTransfer transferMoney(ThreadState threadState) throws TransferBacklogFullException {
+        int pair = threadState.random.nextInt(accountPairs);
+        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(sourceAccountIds[pair])
+                                                   .beneficiaryAccountId(beneficiaryAccountIds[pair]).amount(TRANSFER_AMOUNT).build();
+        CompletableFuture<MoneyTransfer> completion = moneyTransferRepository.track(moneyTransfer.getRequestId());
+        backlog.admit();
+        moneyTransferRepository.save(moneyTransfer);
+        MoneyTransferCreatedEvent event = MoneyTransferCreatedEvent.builder().requestId(moneyTransfer.getRequestId()).build();
+        if (batchingEngine != null) {
+            batchingEngine.onMoneyTransferCreated(event);
+        } else {
+            processingService.onMoneyTransferCreated(event);
+        }
+        return completion.join();
+    }
+
+    private static AccountId createAccount(IAccountRepository accountRepository) {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        accountRepository.save(Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.valueOf(1_000_000_000L)).build()).build());
+        return accountId;
+    }
+
+    /**
+     * Completes a transfer's future once it is saved with a final status.
+     */
+    private static final class CompletionTrackingRepository implements IMoneyTransferRepository {
+        private final IMoneyTransferRepository delegate;
+        private final Map<TransferRequestId, CompletableFuture<MoneyTransfer>> completions = new ConcurrentHashMap<>();
+
+        private CompletionTrackingRepository(IMoneyTransferRepository delegate) {
+            this.delegate = delegate;
+        }
+
+        private CompletableFuture<MoneyTransfer> track(TransferRequestId requestId) {
+            CompletableFuture<MoneyTransfer> completion = new CompletableFuture<>();
+            completions.put(requestId, completion);
+            return completion;
+        }
+
+        @Override
+        public void save(MoneyTransfer moneyTransfer) {
+            delegate.save(moneyTransfer);
+            if (moneyTransfer.getStatus() != MoneyTransferStatus.CREATED) {
+                CompletableFuture<MoneyTransfer> completion = completions.remove(moneyTransfer.getRequestId());
+                if (completion != null) {
+                    completion.complete(moneyTransfer);
+                }
+            }
+        }
+
+        @Override
+        public void saveAll(Collection<MoneyTransfer> moneyTransfers) {
+            moneyTransfers.forEach(this::save);
+        }
+
+        @Override
+        public Optional<MoneyTransfer> findById(TransferRequestId requestId) {
+            return delegate.findById(requestId);
+        }
+    }
+}
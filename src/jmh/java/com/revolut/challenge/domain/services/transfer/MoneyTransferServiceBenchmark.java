@@ -0,0 +1,153 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.AccountLockConfiguration;
+import com.revolut.challenge.domain.services.account.AccountLockingService;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import com.revolut.challenge.infra.repositories.InMemoryMoneyTransferRepository;
+import com.revolut.challenge.infra.repositories.LockFreeAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Transfers processed end to end without HTTP: the transfer saved as a request would, then processed by
+ * {@link MoneyTransferService#transferMoney} (both postings and the final status) on the calling thread, between
+ * accounts picked uniformly ({@code zipfExponent} 0) or Zipf-skewed towards a few hot accounts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MoneyTransferServiceBenchmark {
+
+    private static final Amount TRANSFER_AMOUNT = Amount.ofMinorUnits(1);
+    private static final int REQUEST_IDS_PER_THREAD = 4096;
+
+    @Param({"in-memory", "lock-free"})
+    private String repositoryType;
+
+    @Param({"0", "1.2"})
+    private double zipfExponent;
+
+    @Param({"10000"})
+    private int numberOfAccounts;
+
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferService moneyTransferService;
+    private AccountId[] accountIds;
+    private double[] cumulativeProbabilities;
+
+    /**
+     * Reuses its request ids, so the transfers saved replace each other rather than fill the heap.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+        private final TransferRequestId[] requestIds = new TransferRequestId[REQUEST_IDS_PER_THREAD];
+        private int nextRequestId;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < requestIds.length; i++) {
+                requestIds[i] = TransferRequestId.from(UUID.randomUUID());
+            }
+        }
+
+        private TransferRequestId nextRequestId() {
+            nextRequestId = (nextRequestId + 1) % requestIds.length;
+            return requestIds[nextRequestId];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        IAccountRepository accountRepository = "lock-free".equals(repositoryType) ? new LockFreeAccountRepository() : new InMemoryAccountRepository();
+        moneyTransferRepository = new InMemoryMoneyTransferRepository();
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            accountRepository.save(Account.builder().accountId(accountIds[i]).currentBalance(Amount.ofMinorUnits(1_000_000_000)).build());
+        }
+        cumulativeProbabilities = new double[numberOfAccounts];
+        double total = 0;
+        for (int rank = 0; rank < numberOfAccounts; rank++) {
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            cumulativeProbabilities[rank] = total;
+        }
+        for (int rank = 0; rank < numberOfAccounts; rank++) {
+            cumulativeProbabilities[rank] /= total;
+        }
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), meterRegistry);
+        AccountLockingService accountLockingService = new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, meterRegistry);
+        AccountService accountService = new AccountService(accountRepository, accountLockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), meterRegistry);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), meterRegistry);
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), meterRegistry);
+        moneyTransferService = new MoneyTransferService(accountService, moneyTransferRepository, new TransferTimelines(new TransferTracingConfiguration()), settlements);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void transferMoney_1_thread(ThreadState threadState) throws InvalidTransferRequestException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void transferMoney_8_threads(ThreadState threadState) throws InvalidTransferRequestException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void transferMoney_64_threads(ThreadState threadState) throws InvalidTransferRequestException {
+        transferBetweenRandomAccounts(threadState);
+    }
+
+    private void transferBetweenRandomAccounts(ThreadState threadState) throws InvalidTransferRequestException {
+        AccountId sourceAccountId = randomAccount(threadState.random);
+        AccountId beneficiaryAccountId = randomAccount(threadState.random);
+        while (beneficiaryAccountId.equals(sourceAccountId)) {
+            beneficiaryAccountId = randomAccount(threadState.random);
+        }
+        TransferRequestId requestId = threadState.nextRequestId();
+        moneyTransferRepository.save(MoneyTransfer.builder().requestId(requestId).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId)
+                                                  .amount(TRANSFER_AMOUNT).build());
+        moneyTransferService.transferMoney(requestId);
+    }
+
+    private AccountId randomAccount(SplittableRandom random) {
+        int rank = Arrays.binarySearch(cumulativeProbabilities, random.nextDouble());
+        return accountIds[Math.min(rank < 0 ? -rank - 1 : rank, numberOfAccounts - 1)];
+    }
+}
@@ -0,0 +1,140 @@
+package com.revolut.challenge.infra.metrics;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.AccountLockConfiguration;
+import com.revolut.challenge.domain.services.account.AccountLockingService;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.domain.services.transfer.InvalidTransferRequestException;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferService;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferSettlements;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferStatusFeed;
+import com.revolut.challenge.domain.services.transfer.TransferEventsConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferProcessingConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferTimelines;
+import com.revolut.challenge.domain.services.transfer.TransferTracingConfiguration;
+import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import com.revolut.challenge.infra.repositories.InMemoryMoneyTransferRepository;
+import com.revolut.challenge.infra.repositories.MeteredAccountRepository;
+import com.revolut.challenge.infra.repositories.MeteredMoneyTransferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Time of a transfer end to end (saving it, both postings and its completion) on the in-memory repositories, with
+ * every meter a no-op ({@code OFF}: a composite registry without registries) against the production setup ({@code ON}:
+ * the Prometheus registry, metered repositories and the stage timeline of the sampled transfers), to keep the
+ * instrumentation overhead in check.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+
+    private static final Amount TRANSFER_AMOUNT = Amount.builder().amount(BigDecimal.ONE).build();
+    private static final int REQUEST_IDS_PER_THREAD = 4096;
+
+    public enum Metrics {OFF, ON}
+
+    @Param({"OFF", "ON"})
+    private Metrics metrics;
+
+    @Param({"1000"})
+    private int numberOfAccounts;
+
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferService moneyTransferService;
+    private TransferTimelines timelines;
+    private AccountId[] accountIds;
+
+    /**
+     * Reuses its request ids, so the transfers saved replace each other rather than fill the heap and turn the
+     * comparison into one of garbage collections.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+        private final TransferRequestId[] requestIds = new TransferRequestId[REQUEST_IDS_PER_THREAD];
+        private int nextRequestId;
+
+        @Setup
+        public void setup() {
+            for (int i = 0; i < requestIds.length; i++) {
+                requestIds[i] = TransferRequestId.from(UUID.randomUUID());
+            }
+        }
+
+        private TransferRequestId nextRequestId() {
+            nextRequestId = (nextRequestId + 1) % requestIds.length;
+            return requestIds[nextRequestId];
+        }
+    }
+
+    @Setup
+    public void setup() {
+        MeterRegistry meterRegistry = metrics == Metrics.ON ? new PrometheusMeterRegistry(PrometheusConfig.DEFAULT) : new CompositeMeterRegistry();
+        IAccountRepository accountRepository = new InMemoryAccountRepository();
+        moneyTransferRepository = new InMemoryMoneyTransferRepository();
+        if (metrics == Metrics.ON) {
+            accountRepository = new MeteredAccountRepository(accountRepository, meterRegistry);
+            moneyTransferRepository = new MeteredMoneyTransferRepository(moneyTransferRepository, meterRegistry);
+        }
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), meterRegistry);
+        AccountLockingService accountLockingService = new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, meterRegistry);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), meterRegistry);
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), meterRegistry);
+        AccountService accountService = new AccountService(accountRepository, accountLockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), meterRegistry);
+        timelines = new TransferTimelines(new TransferTracingConfiguration());
+        moneyTransferService = new MoneyTransferService(accountService, moneyTransferRepository, timelines, settlements);
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            accountRepository.save(Account.builder().accountId(accountIds[i]).currentBalance(Amount.builder().amount(BigDecimal.valueOf(1_000_000_000L)).build()).build());
+        }
+    }
+
+    @Benchmark
+    public void transferMoney(ThreadState threadState) throws InvalidTransferRequestException {
+        int source = threadState.random.nextInt(numberOfAccounts);
+        int beneficiary = (source + 1 + threadState.random.nextInt(numberOfAccounts - 1)) % numberOfAccounts;
+        TransferRequestId requestId = threadState.nextRequestId();
+        moneyTransferRepository.save(MoneyTransfer.builder().requestId(requestId).sourceAccountId(accountIds[source]).beneficiaryAccountId(accountIds[beneficiary])
+                                                  .amount(TRANSFER_AMOUNT).build());
+        if (metrics == Metrics.ON) {
+            timelines.start(requestId);
+        }
+        moneyTransferService.transferMoney(requestId);
+    }
+}
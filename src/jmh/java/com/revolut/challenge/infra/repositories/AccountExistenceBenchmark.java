@@ -0,0 +1,95 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Account id validation with {@code findById} and with {@code exists}, with and without the Bloom filter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class AccountExistenceBenchmark {
+
+    private static final int UNKNOWN_IDS = 1 << 16;
+
+    @Param({"in-memory", "lock-free"})
+    private String repositoryType;
+
+    @Param({"false", "true"})
+    private boolean bloomFilter;
+
+    @Param({"1000000"})
+    private int numberOfAccounts;
+
+    private IAccountRepository repository;
+    private AccountId[] accountIds;
+    private AccountId[] unknownAccountIds;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setup() {
+        AccountBloomFilterConfiguration bloomFilterConfiguration = new AccountBloomFilterConfiguration();
+        bloomFilterConfiguration.setEnabled(bloomFilter);
+        bloomFilterConfiguration.setExpectedAccounts(numberOfAccounts);
+        repository = "lock-free".equals(repositoryType) ? new LockFreeAccountRepository(bloomFilterConfiguration) : new InMemoryAccountRepository(bloomFilterConfiguration);
+        accountIds = new AccountId[numberOfAccounts];
+        List<Account> accounts = new ArrayList<>(numberOfAccounts);
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.random();
+            accounts.add(Account.builder().accountId(accountIds[i]).build());
+        }
+        repository.insertAll(accounts);
+        unknownAccountIds = new AccountId[UNKNOWN_IDS];
+        for (int i = 0; i < UNKNOWN_IDS; i++) {
+            unknownAccountIds[i] = AccountId.random();
+        }
+    }
+
+    @Benchmark
+    public boolean findById_known(ThreadState threadState) {
+        return repository.findById(accountIds[threadState.random.nextInt(numberOfAccounts)]).isPresent();
+    }
+
+    @Benchmark
+    public boolean findById_unknown(ThreadState threadState) {
+        return repository.findById(unknownAccountIds[threadState.random.nextInt(UNKNOWN_IDS)]).isPresent();
+    }
+
+    @Benchmark
+    public boolean exists_known(ThreadState threadState) {
+        return repository.exists(accountIds[threadState.random.nextInt(numberOfAccounts)]);
+    }
+
+    @Benchmark
+    public boolean exists_unknown(ThreadState threadState) {
+        return repository.exists(unknownAccountIds[threadState.random.nextInt(UNKNOWN_IDS)]);
+    }
+}
@@ -0,0 +1,95 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ConcurrentModificationException;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Credits random accounts through the repository (findById, credit, save; retried on version conflicts)
+ * to compare the repository wide {@link java.util.concurrent.locks.StampedLock} with the per account compare-and-set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountRepositoryContentionBenchmark {
+
+    private static final Amount CREDIT_AMOUNT = Amount.builder().amount(BigDecimal.ONE).build();
+
+    @Param({"in-memory", "lock-free"})
+    private String repositoryType;
+
+    @Param({"10000"})
+    private int numberOfAccounts;
+
+    private IAccountRepository repository;
+    private AccountId[] accountIds;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setup() {
+        repository = "lock-free".equals(repositoryType) ? new LockFreeAccountRepository() : new InMemoryAccountRepository();
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            repository.save(Account.builder().accountId(accountIds[i]).build());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void creditAccount_1_thread(ThreadState threadState) {
+        creditRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void creditAccount_8_threads(ThreadState threadState) {
+        creditRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void creditAccount_64_threads(ThreadState threadState) {
+        creditRandomAccount(threadState);
+    }
+
+    private void creditRandomAccount(ThreadState threadState) {
+        AccountId accountId = accountIds[threadState.random.nextInt(numberOfAccounts)];
+        while (true) {
+            Account account = repository.findById(accountId).get().credit(CREDIT_AMOUNT);
+            try {
+                repository.save(account);
+                return;
+            } catch (ConcurrentModificationException e) {
+                //lost the race on this account; reload and retry
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The two repository operations of every posting on their own: {@code findById} of random accounts, and {@code save}
+ * of accounts only the saving thread writes, so that threads contend on the repository and never on an account version.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountRepositoryOperationBenchmark {
+
+    private static final Amount CREDIT_AMOUNT = Amount.ofMinorUnits(1);
+    private static final int ACCOUNTS_PER_THREAD = 64;
+
+    @Param({"in-memory", "lock-free"})
+    private String repositoryType;
+
+    @Param({"10000"})
+    private int numberOfAccounts;
+
+    private IAccountRepository repository;
+    private AccountId[] accountIds;
+
+    /**
+     * The accounts the thread saves, as last saved: the thread stamps the version the repository does rather than
+     * reading it back, to time the save alone.
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+        private final Account[] accounts = new Account[ACCOUNTS_PER_THREAD];
+        private int nextAccount;
+
+        @Setup
+        public void setup(AccountRepositoryOperationBenchmark benchmark) {
+            for (int i = 0; i < accounts.length; i++) {
+                Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
+                benchmark.repository.save(account);
+                accounts[i] = benchmark.repository.findById(account.getAccountId()).get();
+            }
+        }
+    }
+
+    @Setup
+    public void setup() {
+        repository = "lock-free".equals(repositoryType) ? new LockFreeAccountRepository() : new InMemoryAccountRepository();
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            repository.save(Account.builder().accountId(accountIds[i]).build());
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Optional<Account> findById_1_thread(ThreadState threadState) {
+        return findRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Optional<Account> findById_8_threads(ThreadState threadState) {
+        return findRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public Optional<Account> findById_64_threads(ThreadState threadState) {
+        return findRandomAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void save_1_thread(ThreadState threadState) {
+        saveOwnAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void save_8_threads(ThreadState threadState) {
+        saveOwnAccount(threadState);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public void save_64_threads(ThreadState threadState) {
+        saveOwnAccount(threadState);
+    }
+
+    private Optional<Account> findRandomAccount(ThreadState threadState) {
+        return repository.findById(accountIds[threadState.random.nextInt(numberOfAccounts)]);
+    }
+
+    private void saveOwnAccount(ThreadState threadState) {
+        int index = threadState.nextAccount;
+        threadState.nextAccount = (index + 1) % ACCOUNTS_PER_THREAD;
+        Account account = threadState.accounts[index].credit(CREDIT_AMOUNT);
+        repository.save(account);
+        threadState.accounts[index] = account.toBuilder().version(account.getVersion() + 1).modified(false).build();
+    }
+}
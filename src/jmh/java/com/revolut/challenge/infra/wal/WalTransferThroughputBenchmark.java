@@ -0,0 +1,124 @@
+package com.revolut.challenge.infra.wal;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.services.account.AccountLockConfiguration;
+import com.revolut.challenge.domain.services.account.AccountLockingService;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.domain.services.transfer.InvalidTransferRequestException;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferService;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferSettlements;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferStatusFeed;
+import com.revolut.challenge.domain.services.transfer.TransferEventsConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferProcessingConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferTimelines;
+import com.revolut.challenge.domain.services.transfer.TransferTracingConfiguration;
+import com.revolut.challenge.infra.repositories.WalAccountRepository;
+import com.revolut.challenge.infra.repositories.WalMoneyTransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Transfers per second sustained end to end (transfer creation, both postings and completion; three log appends)
+ * with both repositories on the write-ahead log, for every fsync policy and group commit window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(32)
+public class WalTransferThroughputBenchmark {
+
+    private static final Amount TRANSFER_AMOUNT = Amount.builder().amount(BigDecimal.ONE).build();
+
+    @Param({"GROUP_COMMIT", "INTERVAL", "NONE"})
+    private FsyncPolicy fsyncPolicy;
+
+    @Param({"0", "1", "5"})
+    private int groupCommitWindowMillis;
+
+    @Param({"1000"})
+    private int numberOfAccounts;
+
+    private Path directory;
+    private WalStore walStore;
+    private WalMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferService moneyTransferService;
+    private AccountId[] accountIds;
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setFsyncPolicy(fsyncPolicy);
+        configuration.setGroupCommitWindow(Duration.ofMillis(groupCommitWindowMillis));
+        walStore = new WalStore(configuration);
+        WalAccountRepository accountRepository = new WalAccountRepository(walStore);
+        moneyTransferRepository = new WalMoneyTransferRepository(walStore);
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        AccountLockingService accountLockingService = new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry());
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        moneyTransferService = new MoneyTransferService(new AccountService(accountRepository, accountLockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry()), moneyTransferRepository, new TransferTimelines(new TransferTracingConfiguration()), settlements);
+        accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            accountRepository.save(Account.builder().accountId(accountIds[i]).currentBalance(Amount.builder().amount(BigDecimal.valueOf(1_000_000_000L)).build()).build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        walStore.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void transferMoney(ThreadState threadState) throws InvalidTransferRequestException {
+        int source = threadState.random.nextInt(numberOfAccounts);
+        int beneficiary = (source + 1 + threadState.random.nextInt(numberOfAccounts - 1)) % numberOfAccounts;
+        TransferRequestId requestId = TransferRequestId.from(UUID.randomUUID());
+        moneyTransferRepository.save(MoneyTransfer.builder().requestId(requestId).sourceAccountId(accountIds[source]).beneficiaryAccountId(accountIds[beneficiary]).amount(TRANSFER_AMOUNT).build());
+        moneyTransferService.transferMoney(requestId);
+    }
+}
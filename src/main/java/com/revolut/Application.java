@@ -9,6 +9,6 @@ import io.swagger.v3.oas.annotations.info.Info;
 @OpenAPIDefinition(info = @Info(title = "Money Transfer", version = "1.0", description = "Revolut Challenge API", contact = @Contact(name = "Hussein Monzer", email = "hsen.monzer@gmail.com")))
 public class Application {
     public static void main(String[] args) {
-        Micronaut.run(Application.class);
+        Micronaut.run(Application.class, args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.revolut.challenge.api;
+
+import io.micronaut.http.HttpHeaders;
+import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.hateoas.JsonError;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+
+/**
+ * Responses shared by the controllers.
+ */
+public final class ApiResponses {
+
+    private ApiResponses() {
+    }
+
+    public static HttpResponse<JsonError> serviceUnavailable(Duration retryAfter, String message) {
+        long retryAfterSeconds = Math.max(1, retryAfter.getSeconds());
+        return HttpResponse.<JsonError>status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds)).body(new JsonError(message));
+    }
+
+    /**
+     * Answers work that could not be started because its pool was full with {@code 503 Service Unavailable}, and
+     * rethrows any other failure for the server to answer with {@code 500 Internal Server Error}.
+     */
+    public static HttpResponse<JsonError> rejectedOrRethrow(Throwable failure, Duration retryAfter) {
+        Throwable cause = unwrap(failure);
+        if (cause instanceof RejectedExecutionException) {
+            return serviceUnavailable(retryAfter, "Too many requests in progress");
+        }
+        throw new CompletionException(cause);
+    }
+
+    /**
+     * @return the exception a future failed with, without the wrappers added by dependent stages
+     */
+    public static Throwable unwrap(Throwable failure) {
+        Throwable cause = failure;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
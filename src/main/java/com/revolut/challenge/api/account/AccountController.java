@@ -1,10 +1,11 @@
 package com.revolut.challenge.api.account;
 
+import com.revolut.challenge.api.ApiResponses;
 import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
-import com.revolut.challenge.domain.repositories.IAccountRepository;
-import com.revolut.challenge.domain.services.account.IAccountService;
+import com.revolut.challenge.domain.services.account.IAsyncAccountService;
+import com.revolut.challenge.infra.executors.BlockingWorkConfiguration;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
@@ -13,36 +14,89 @@ import io.micronaut.http.annotation.Post;
 import io.micronaut.http.hateoas.JsonError;
 
 import javax.inject.Inject;
-import java.math.BigDecimal;
-import java.util.Optional;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 
+/**
+ * Answers from the event loop: lookups and account creation run on the pools of {@link IAsyncAccountService}, and are
+ * rejected with {@code 503 Service Unavailable} when those are full.
+ */
 @Controller("/accounts")
 public class AccountController {
+    static final String MISSING_AMOUNT = "Missing Initial Amount";
 
-    private IAccountRepository accountRepository;
-    private IAccountService accountService;
+    private IAsyncAccountService accountService;
+    private final Duration retryAfter;
 
     @Inject
-    public AccountController(IAccountRepository accountRepository, IAccountService accountService) {
-        this.accountRepository = accountRepository;
+    public AccountController(IAsyncAccountService accountService, BlockingWorkConfiguration blockingWorkConfiguration) {
         this.accountService = accountService;
+        retryAfter = blockingWorkConfiguration.getRetryAfter();
     }
 
     @Get("/{accountId}")
-    public HttpResponse findAccountById(UUID accountId) {
-        Optional<Account> account = accountRepository.findById(AccountId.from(accountId));
-        return account.isPresent() ? HttpResponse.ok(toDTO(account.get())) : HttpResponse.notFound(new JsonError("Account Not Found"));
+    public CompletableFuture<HttpResponse> findAccountById(UUID accountId) {
+        return accountService.findAccount(AccountId.from(accountId)).handle((account, failure) -> {
+            if (failure != null) {
+                return ApiResponses.rejectedOrRethrow(failure, retryAfter);
+            }
+            return account.isPresent() ? HttpResponse.ok(toDTO(account.get())) : HttpResponse.notFound(new JsonError("Account Not Found"));
+        });
     }
 
     @Post
-    public HttpResponse createAccount(@Body AccountCreationApiRequest request) {
-        AccountId accountId = accountService.createAccount(Amount.builder().amount(BigDecimal.valueOf(request.getInitialAmount())).build());
-        return HttpResponse.created(AccountCreationApiResponse.builder().accountId(accountId.getId()).build());
+    public CompletableFuture<HttpResponse> createAccount(@Body AccountCreationApiRequest request) {
+        if (request.getInitialAmount() == null) {
+            return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError(MISSING_AMOUNT)));
+        }
+        Amount initialAmount;
+        try {
+            initialAmount = Amount.builder().amount(request.getInitialAmount()).build();
+        } catch (ArithmeticException e) {
+            return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError("Invalid Amount: " + request.getInitialAmount().toPlainString())));
+        }
+        return accountService.createAccount(initialAmount).handle((accountId, failure) -> {
+            if (failure != null) {
+                return ApiResponses.rejectedOrRethrow(failure, retryAfter);
+            }
+            return HttpResponse.created(AccountCreationApiResponse.builder().accountId(accountId.getId()).build());
+        });
+    }
+
+    /**
+     * Creates an account per request with one repository operation, answering their ids in the same order. Either all
+     * accounts are created or, when an amount is missing or invalid, none is.
+     */
+    @Post("/bulk")
+    public CompletableFuture<HttpResponse> createAccounts(@Body List<AccountCreationApiRequest> requests) {
+        List<Amount> initialAmounts = new ArrayList<>(requests.size());
+        for (AccountCreationApiRequest request : requests) {
+            if (request.getInitialAmount() == null) {
+                return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError(MISSING_AMOUNT + " at index " + initialAmounts.size())));
+            }
+            try {
+                initialAmounts.add(Amount.builder().amount(request.getInitialAmount()).build());
+            } catch (ArithmeticException e) {
+                return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError("Invalid Amount at index " + initialAmounts.size() + ": " + request.getInitialAmount().toPlainString())));
+            }
+        }
+        return accountService.createAccounts(initialAmounts).handle((accountIds, failure) -> {
+            if (failure != null) {
+                return ApiResponses.rejectedOrRethrow(failure, retryAfter);
+            }
+            List<AccountCreationApiResponse> responses = new ArrayList<>(accountIds.size());
+            for (AccountId accountId : accountIds) {
+                responses.add(AccountCreationApiResponse.builder().accountId(accountId.getId()).build());
+            }
+            return HttpResponse.created(responses);
+        });
     }
 
     private AccountDTO toDTO(Account account) {
-        return AccountDTO.builder().accountId(account.getAccountId().getId()).currentBalance(account.getCurrentBalance().getAmount().doubleValue()).build();
+        return AccountDTO.builder().accountId(account.getAccountId().getId()).currentBalance(account.getCurrentBalance().getAmount()).build();
     }
 }
@@ -7,6 +7,7 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 
 
 @Getter
@@ -15,5 +16,5 @@ import java.io.Serializable;
 @NoArgsConstructor
 @AllArgsConstructor
 public class AccountCreationApiRequest implements Serializable {
-    private double initialAmount;
+    private BigDecimal initialAmount = BigDecimal.ZERO;
 }
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.util.UUID;
 
 
@@ -19,5 +20,5 @@ import java.util.UUID;
 @Builder
 public class AccountDTO implements Serializable {
     private UUID accountId;
-    private double currentBalance;
+    private BigDecimal currentBalance;
 }
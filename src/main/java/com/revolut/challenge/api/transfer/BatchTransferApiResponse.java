@@ -0,0 +1,29 @@
+package com.revolut.challenge.api.transfer;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+
+/**
+ * The result of one request of a batch submission: its position in the submission and either the created transfer
+ * or the status and error it would have been rejected with on its own.
+ */
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+@ToString
+public class BatchTransferApiResponse implements Serializable {
+    private long index;
+    private UUID transferId;
+    private Integer status;
+    private String error;
+}
@@ -0,0 +1,125 @@
+package com.revolut.challenge.api.transfer;
+
+import io.reactivex.FlowableOperator;
+import io.reactivex.FlowableSubscriber;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Reads a streamed JSON body one HTTP chunk at a time. The body emits every object of a chunk it receives, however
+ * few were requested, so the objects beyond the demand are queued here and the next chunk is only requested once they
+ * are consumed: the queue never holds more than about a chunk, and operators with bounded queues downstream do not
+ * overflow.
+ */
+class BodyChunkDemand<T> implements FlowableOperator<T, T> {
+
+    @Override
+    public Subscriber<? super T> apply(Subscriber<? super T> downstream) {
+        return new ChunkDemandSubscriber<>(downstream);
+    }
+
+    private static final class ChunkDemandSubscriber<T> implements FlowableSubscriber<T>, Subscription {
+        private final Subscriber<? super T> downstream;
+        private final Queue<T> objects = new ConcurrentLinkedQueue<>();
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger drains = new AtomicInteger();
+        private Subscription upstream;
+        private volatile boolean chunkRequested;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private Throwable error;
+
+        private ChunkDemandSubscriber(Subscriber<? super T> downstream) {
+            this.downstream = downstream;
+        }
+
+        @Override
+        public void onSubscribe(Subscription subscription) {
+            upstream = subscription;
+            downstream.onSubscribe(this);
+        }
+
+        @Override
+        public void onNext(T object) {
+            objects.offer(object);
+            chunkRequested = false;
+            drain();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void onComplete() {
+            done = true;
+            drain();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancel();
+                downstream.onError(new IllegalArgumentException("Requested " + n + " objects, expected a positive number"));
+                return;
+            }
+            requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            upstream.cancel();
+        }
+
+        private void drain() {
+            if (drains.getAndIncrement() != 0) {
+                return;  //the thread draining will loop once more
+            }
+            int missed = 1;
+            do {
+                long emitted = 0;
+                long demand = requested.get();
+                while (emitted != demand && !cancelled) {
+                    T object = objects.poll();
+                    if (object == null) {
+                        break;
+                    }
+                    downstream.onNext(object);
+                    emitted++;
+                }
+                if (cancelled) {
+                    objects.clear();
+                    return;
+                }
+                if (emitted != 0) {
+                    requested.addAndGet(-emitted);
+                }
+                if (done && objects.isEmpty()) {
+                    cancelled = true;
+                    if (error != null) {
+                        downstream.onError(error);
+                    } else {
+                        downstream.onComplete();
+                    }
+                    return;
+                }
+                if (!done && objects.isEmpty() && requested.get() != 0 && !chunkRequested) {
+                    chunkRequested = true;
+                    upstream.request(1);
+                }
+                missed = drains.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
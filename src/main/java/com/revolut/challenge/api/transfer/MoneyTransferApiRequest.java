@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
 import java.util.UUID;
 
 
@@ -19,5 +20,5 @@ import java.util.UUID;
 public class MoneyTransferApiRequest implements Serializable {
     private UUID sourceAccountId;
     private UUID beneficiaryAccountId;
-    private double transferAmount;
+    private BigDecimal transferAmount = BigDecimal.ZERO;
 }
@@ -1,5 +1,7 @@
 package com.revolut.challenge.api.transfer;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -19,4 +21,9 @@ import java.util.UUID;
 @ToString
 public class MoneyTransferApiResponse implements Serializable {
     private UUID transferId;
+    /**
+     * Only answered to requests that waited for the transfer to be processed.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private MoneyTransferStatus status;
 }
@@ -1,72 +1,338 @@
 package com.revolut.challenge.api.transfer;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.revolut.challenge.api.ApiResponses;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
-import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
 import com.revolut.challenge.domain.services.account.InvalidAccountException;
-import com.revolut.challenge.domain.services.transfer.IMoneyTransferCreationService;
+import com.revolut.challenge.domain.services.transfer.IAsyncMoneyTransferCreationService;
+import com.revolut.challenge.domain.services.transfer.IdempotencyKeyReusedException;
 import com.revolut.challenge.domain.services.transfer.InvalidTransferAmountException;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferCreationResult;
 import com.revolut.challenge.domain.services.transfer.MoneyTransferRequest;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferStatusFeed;
+import com.revolut.challenge.domain.services.transfer.TransferBacklogFullException;
+import com.revolut.challenge.domain.services.transfer.TransferEventsConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferProcessingConfiguration;
+import com.revolut.challenge.domain.services.transfer.TransferTimelines;
+import com.revolut.challenge.infra.executors.BlockingWorkConfiguration;
 import io.micronaut.http.HttpResponse;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.annotation.Body;
 import io.micronaut.http.annotation.Controller;
 import io.micronaut.http.annotation.Get;
+import io.micronaut.http.annotation.Header;
 import io.micronaut.http.annotation.Post;
+import io.micronaut.http.annotation.QueryValue;
 import io.micronaut.http.hateoas.JsonError;
+import io.micronaut.http.sse.Event;
+import io.reactivex.Flowable;
+import io.reactivex.Single;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Answers from the event loop: lookups and transfer creation run on the pools of
+ * {@link IAsyncMoneyTransferCreationService}, and are rejected with {@code 503 Service Unavailable} when those are full.
+ */
 @Slf4j
 @Controller("/transfers")
 public class MoneyTransferController {
-    private IMoneyTransferCreationService moneyTransferCreationService;
-    private IMoneyTransferRepository moneyTransferRepository;
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int SUBMISSION_CHUNKS_PREFETCHED = 2;
+    static final String TRANSFERS_EVENT = "transfers";
+    static final String DROPPED_EVENT = "dropped";
+    static final String OVERFLOW_EVENT = "overflow";
+    static final String MISSING_TRANSFER_AMOUNT = "Missing Transfer Amount";
+
+    private IAsyncMoneyTransferCreationService moneyTransferCreationService;
+    private ObjectMapper objectMapper;
+    private MoneyTransferStatusFeed statusFeed;
+    private TransferTimelines timelines;
+    private final int submissionChunkSize;
+    private final Duration retryAfter;
+    private final Duration eventsFlushInterval;
+    private final int maxEventsBatchSize;
 
     @Inject
-    public MoneyTransferController(IMoneyTransferCreationService moneyTransferCreationService, IMoneyTransferRepository moneyTransferRepository) {
+    public MoneyTransferController(IAsyncMoneyTransferCreationService moneyTransferCreationService, ObjectMapper objectMapper, MoneyTransferStatusFeed statusFeed,
+                                   TransferTimelines timelines, TransferProcessingConfiguration configuration, TransferEventsConfiguration eventsConfiguration,
+                                   BlockingWorkConfiguration blockingWorkConfiguration) {
         this.moneyTransferCreationService = moneyTransferCreationService;
-        this.moneyTransferRepository = moneyTransferRepository;
+        this.objectMapper = objectMapper;
+        this.statusFeed = statusFeed;
+        this.timelines = timelines;
+        submissionChunkSize = configuration.getSubmissionChunkSize();
+        retryAfter = blockingWorkConfiguration.getRetryAfter();
+        eventsFlushInterval = eventsConfiguration.getFlushInterval();
+        maxEventsBatchSize = eventsConfiguration.getMaxBatchSize();
+    }
+
+    /**
+     * Streams the final status of every transfer, or of the transfers from or to {@code accountId}, as server-sent events.
+     * Every {@code challenge.transfers.events.flush-interval} the buffered changes are sent as one {@code transfers} event
+     * carrying a JSON array of up to {@code max-batch-size} of them. A client that falls behind never slows transfers
+     * down: once its buffer is full it either gets a {@code dropped} event with the number of changes it missed, or an
+     * {@code overflow} event after the changes buffered before, which ends the stream.
+     */
+    @Get(value = "/events", produces = MediaType.TEXT_EVENT_STREAM)
+    public Flowable<Event<Object>> streamMoneyTransferEvents(@Nullable @QueryValue UUID accountId) {
+        AccountId filter = accountId == null ? null : AccountId.from(accountId);
+        return Flowable.using(() -> statusFeed.subscribe(filter),
+                              subscription -> Flowable.interval(eventsFlushInterval.toNanos(), TimeUnit.NANOSECONDS)
+                                                      .onBackpressureDrop()  //ticks missed while the client is slow are covered by the next one
+                                                      .concatMapIterable(tick -> pollEvents(subscription), 1)
+                                                      .takeUntil((Event<Object> event) -> OVERFLOW_EVENT.equals(event.getName())),
+                              MoneyTransferStatusFeed.Subscription::close);
+    }
+
+    private List<Event<Object>> pollEvents(MoneyTransferStatusFeed.Subscription subscription) {
+        boolean overflowed = subscription.isOverflowed();  //read first: nothing is buffered after it is set
+        List<Event<Object>> events = new ArrayList<>(3);
+        long dropped = subscription.takeDropped();
+        if (dropped > 0) {
+            events.add(Event.<Object>of(Collections.singletonMap("dropped", dropped)).name(DROPPED_EVENT));
+        }
+        List<MoneyTransfer> changes = subscription.poll(maxEventsBatchSize);
+        if (!changes.isEmpty()) {
+            List<MoneyTransferEventDTO> transfers = new ArrayList<>(changes.size());
+            for (MoneyTransfer moneyTransfer : changes) {
+                transfers.add(toEventDTO(moneyTransfer));
+            }
+            events.add(Event.<Object>of(transfers).name(TRANSFERS_EVENT));
+        }
+        if (overflowed && changes.size() < maxEventsBatchSize) {
+            events.add(Event.<Object>of(new JsonError("Too many status changes buffered, subscribe again")).name(OVERFLOW_EVENT));
+        }
+        return events;
     }
 
+    /**
+     * With {@code waitFor}, e.g. {@code 5s}, a transfer still {@code CREATED} is answered once it reaches a final status
+     * or once the duration, capped at {@code challenge.transfers.processing.max-settlement-wait}, has elapsed, whichever
+     * comes first; no thread is held meanwhile.
+     * <p>
+     * With {@code trace=true}, the response adds the microseconds from the creation of the transfer to each stage it
+     * reached, for the transfers created since the application started that were sampled for tracing, while their
+     * timeline is retained.
+     */
     @Get("{transferId}")
-    public HttpResponse getMoneyTransferById(UUID transferId) {
-        Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(TransferRequestId.from(transferId));
-        return moneyTransfer.isPresent() ? HttpResponse.ok(toDTO(moneyTransfer.get())) : HttpResponse.notFound(new JsonError("Transfer Request Not Found"));
+    public CompletableFuture<HttpResponse> getMoneyTransferById(UUID transferId, @Nullable @QueryValue Duration waitFor, @Nullable @QueryValue Boolean trace) {
+        TransferRequestId requestId = TransferRequestId.from(transferId);
+        CompletableFuture<Optional<MoneyTransfer>> moneyTransfer = isWaiting(waitFor) ? moneyTransferCreationService.awaitSettlement(requestId, waitFor)
+                                                                                      : moneyTransferCreationService.findMoneyTransfer(requestId);
+        return moneyTransfer.handle((foundTransfer, failure) -> {
+            if (failure != null) {
+                return ApiResponses.rejectedOrRethrow(failure, retryAfter);
+            }
+            return foundTransfer.isPresent() ? HttpResponse.ok(toDTO(foundTransfer.get(), Boolean.TRUE.equals(trace)))
+                                             : HttpResponse.notFound(new JsonError("Transfer Request Not Found"));
+        });
     }
 
+    /**
+     * With {@code wait}, e.g. {@code 5s}, the response is delayed until the created transfer reaches a final status or
+     * the duration has elapsed, like {@code waitFor} of {@link #getMoneyTransferById}, and carries its status.
+     */
     @Post
-    public HttpResponse createMoneyTransfer(@Body MoneyTransferApiRequest request) {
+    public CompletableFuture<HttpResponse> createMoneyTransfer(@Body MoneyTransferApiRequest request, @Nullable @Header(IDEMPOTENCY_KEY) String idempotencyKey,
+                                                               @Nullable @QueryValue Duration wait) {
+        if (idempotencyKey != null && (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH)) {
+            return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError("Invalid " + IDEMPOTENCY_KEY + ": expected 1 to " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters")));
+        }
+        if (request.getTransferAmount() == null) {
+            return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError(MISSING_TRANSFER_AMOUNT)));
+        }
+        MoneyTransferRequest moneyTransferRequest;
         try {
-            TransferRequestId transferRequestId = requestMoneyTransfer(request);
-            return HttpResponse.created(MoneyTransferApiResponse.builder().transferId(transferRequestId.getId()).build());
-        } catch (InvalidAccountException | InvalidTransferAmountException e) {
+            moneyTransferRequest = toMoneyTransferRequest(request);
+        } catch (ArithmeticException e) {
             log.error("Failed to create Money Transfer {}", request, e);
-            return HttpResponse.badRequest(new JsonError(e.getMessage()));
+            return CompletableFuture.completedFuture(HttpResponse.badRequest(new JsonError("Invalid Transfer Amount: " + request.getTransferAmount().toPlainString())));
         }
+        return moneyTransferCreationService.requestMoneyTransfer(moneyTransferRequest, idempotencyKey)
+                                           .thenCompose(transferRequestId -> isWaiting(wait) ? awaitCreatedResponse(transferRequestId, wait)
+                                                                                             : CompletableFuture.completedFuture(createdResponse(transferRequestId, null)))
+                                           .handle((response, failure) -> failure != null ? toFailureResponse(request, ApiResponses.unwrap(failure)) : response);
     }
 
-    private TransferRequestId requestMoneyTransfer(@Body MoneyTransferApiRequest request) throws InvalidAccountException, InvalidTransferAmountException {
-        return moneyTransferCreationService.requestMoneyTransfer(toMoneyTransferRequest(request));
+    /**
+     * The transfer is created by then, so a wait that cannot be started is answered without its status rather than as
+     * a failure.
+     */
+    private CompletableFuture<HttpResponse> awaitCreatedResponse(TransferRequestId transferRequestId, Duration wait) {
+        return moneyTransferCreationService.awaitSettlement(transferRequestId, wait).handle((moneyTransfer, failure) -> {
+            MoneyTransferStatus status = failure == null ? moneyTransfer.map(MoneyTransfer::getStatus).orElse(null) : null;
+            return createdResponse(transferRequestId, status);
+        });
+    }
+
+    private HttpResponse createdResponse(TransferRequestId transferRequestId, MoneyTransferStatus status) {
+        return HttpResponse.created(MoneyTransferApiResponse.builder().transferId(transferRequestId.getId()).status(status).build());
+    }
+
+    private static boolean isWaiting(Duration wait) {
+        return wait != null && !wait.isNegative() && !wait.isZero();
+    }
+
+    private HttpResponse toFailureResponse(MoneyTransferApiRequest request, Throwable failure) {
+        if (failure instanceof InvalidAccountException || failure instanceof InvalidTransferAmountException) {
+            log.error("Failed to create Money Transfer {}", request, failure);
+            return HttpResponse.badRequest(new JsonError(failure.getMessage()));
+        }
+        if (failure instanceof IdempotencyKeyReusedException) {
+            log.warn("Rejected Money Transfer {}: {}", request, failure.getMessage());
+            return HttpResponse.status(HttpStatus.UNPROCESSABLE_ENTITY).body(new JsonError(failure.getMessage()));
+        }
+        if (failure instanceof TransferBacklogFullException) {
+            log.warn("Rejected Money Transfer {}: {}", request, failure.getMessage());
+            return ApiResponses.serviceUnavailable(((TransferBacklogFullException) failure).getRetryAfter(), failure.getMessage());
+        }
+        return ApiResponses.rejectedOrRethrow(failure, retryAfter);
+    }
+
+    /**
+     * Accepts a JSON array or a stream of JSON objects ({@code application/x-json-stream}) and streams back one result per
+     * line, in order, as soon as its chunk of {@code challenge.transfers.processing.submission-chunk-size} requests is
+     * created. The body is read only as fast as the chunks are created, so a submission of any size takes the memory of a
+     * few chunks. Requests of the chunks already created stay created if the body turns out to be malformed further on.
+     */
+    @Post(value = "/batch", consumes = {MediaType.APPLICATION_JSON, MediaType.APPLICATION_JSON_STREAM}, produces = MediaType.APPLICATION_JSON_STREAM)
+    public Flowable<byte[]> createMoneyTransfers(@Body Flowable<MoneyTransferApiRequest> requests) {
+        return Flowable.defer(() -> {
+            long[] nextIndex = new long[1];
+            return requests.lift(new BodyChunkDemand<>())
+                           .buffer(submissionChunkSize)
+                           .concatMapSingle(chunk -> {
+                               long firstIndex = nextIndex[0];
+                               nextIndex[0] += chunk.size();
+                               return requestMoneyTransfers(chunk, firstIndex);
+                           }, SUBMISSION_CHUNKS_PREFETCHED)
+                           .concatMapIterable(lines -> lines, SUBMISSION_CHUNKS_PREFETCHED);
+        });
+    }
+
+    /**
+     * A chunk the writes pool has no room for is answered with every request rejected, like the requests the backlog
+     * has no room for, and a chunk that failed to be saved with every request failed, none of them being created.
+     */
+    private Single<List<byte[]>> requestMoneyTransfers(List<MoneyTransferApiRequest> chunk, long firstIndex) {
+        BatchTransferApiResponse[] responses = new BatchTransferApiResponse[chunk.size()];
+        List<MoneyTransferRequest> requests = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            if (chunk.get(i).getTransferAmount() == null) {
+                responses[i] = rejected(firstIndex + i, HttpStatus.BAD_REQUEST, MISSING_TRANSFER_AMOUNT);
+                continue;
+            }
+            try {
+                requests.add(toMoneyTransferRequest(chunk.get(i)));
+                positions.add(i);
+            } catch (ArithmeticException e) {
+                responses[i] = rejected(firstIndex + i, HttpStatus.BAD_REQUEST, "Invalid Transfer Amount: " + chunk.get(i).getTransferAmount().toPlainString());
+            }
+        }
+        CompletableFuture<List<MoneyTransferCreationResult>> results = requests.isEmpty() ? CompletableFuture.completedFuture(new ArrayList<>())
+                                                                                          : moneyTransferCreationService.requestMoneyTransfers(requests);
+        return Single.create(emitter -> results.whenComplete((createdResults, failure) -> {
+            if (failure != null && !(ApiResponses.unwrap(failure) instanceof RejectedExecutionException)) {
+                log.error("Failed to create a chunk of {} money transfers", positions.size(), failure);
+            }
+            try {
+                for (int i = 0; i < positions.size(); i++) {
+                    int position = positions.get(i);
+                    responses[position] = failure == null ? toBatchResponse(firstIndex + position, createdResults.get(i)) : toBatchResponse(firstIndex + position, failure);
+                }
+                List<byte[]> lines = new ArrayList<>(responses.length);
+                for (BatchTransferApiResponse response : responses) {
+                    lines.add(toLine(response));
+                }
+                emitter.onSuccess(lines);
+            } catch (Exception e) {
+                emitter.onError(e);
+            }
+        }));
+    }
+
+    private byte[] toLine(BatchTransferApiResponse response) throws JsonProcessingException {
+        byte[] json = objectMapper.writeValueAsBytes(response);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private BatchTransferApiResponse toBatchResponse(long index, MoneyTransferCreationResult result) {
+        Optional<TransferRequestId> requestId = result.getRequestId();
+        if (requestId.isPresent()) {
+            return BatchTransferApiResponse.builder().index(index).transferId(requestId.get().getId()).build();
+        }
+        Exception rejection = result.getRejection();
+        HttpStatus status = rejection instanceof TransferBacklogFullException ? HttpStatus.SERVICE_UNAVAILABLE : HttpStatus.BAD_REQUEST;
+        return rejected(index, status, rejection.getMessage());
+    }
+
+    private BatchTransferApiResponse toBatchResponse(long index, Throwable failure) {
+        Throwable cause = ApiResponses.unwrap(failure);
+        if (cause instanceof RejectedExecutionException) {
+            return rejected(index, HttpStatus.SERVICE_UNAVAILABLE, "Too many requests in progress");
+        }
+        return rejected(index, HttpStatus.INTERNAL_SERVER_ERROR, "Failed to create the transfer");
+    }
+
+    private BatchTransferApiResponse rejected(long index, HttpStatus status, String error) {
+        return BatchTransferApiResponse.builder().index(index).status(status.getCode()).error(error).build();
     }
 
     private MoneyTransferRequest toMoneyTransferRequest(MoneyTransferApiRequest apiRequest) {
         AccountId sourceAccountID = AccountId.from(apiRequest.getSourceAccountId());
         AccountId beneficiaryAccountID = AccountId.from(apiRequest.getBeneficiaryAccountId());
-        Amount amount = Amount.builder().amount(BigDecimal.valueOf(apiRequest.getTransferAmount())).build();
+        Amount amount = Amount.builder().amount(apiRequest.getTransferAmount()).build();
         return MoneyTransferRequest.builder().sourceAccountId(sourceAccountID).beneficiaryAccountId(beneficiaryAccountID).amount(amount).build();
     }
 
-    private MoneyTransferDTO toDTO(MoneyTransfer moneyTransfer) {
+    private MoneyTransferEventDTO toEventDTO(MoneyTransfer moneyTransfer) {
+        return MoneyTransferEventDTO.builder().transferId(moneyTransfer.getRequestId().getId()).sourceAccountId(moneyTransfer.getSourceAccountId().getId())
+                                    .beneficiaryAccountId(moneyTransfer.getBeneficiaryAccountId().getId()).amount(moneyTransfer.getAmount().getAmount())
+                                    .status(moneyTransfer.getStatus()).build();
+    }
+
+    private MoneyTransferDTO toDTO(MoneyTransfer moneyTransfer, boolean trace) {
+        TransferTimeline timeline = trace ? timelines.of(moneyTransfer.getRequestId()) : TransferTimeline.untracked();
         return MoneyTransferDTO.builder().sourceAccountId(moneyTransfer.getSourceAccountId().getId()).beneficiaryAccountId(moneyTransfer.getBeneficiaryAccountId().getId())
-                               .amount(moneyTransfer.getAmount().getAmount().doubleValue()).status(moneyTransfer.getStatus()).build();
+                               .amount(moneyTransfer.getAmount().getAmount()).status(moneyTransfer.getStatus())
+                               .timeline(timeline.isTracked() ? toMicrosSinceCreation(timeline) : null).build();
+    }
+
+    private static Map<TransferStage, Long> toMicrosSinceCreation(TransferTimeline timeline) {
+        Map<TransferStage, Long> microsSinceCreation = new LinkedHashMap<>();
+        for (TransferStage stage : TransferStage.values()) {
+            if (timeline.hasReached(stage)) {
+                microsSinceCreation.put(stage, TimeUnit.NANOSECONDS.toMicros(timeline.nanosBetween(TransferStage.CREATED, stage)));
+            }
+        }
+        return microsSinceCreation;
     }
 }
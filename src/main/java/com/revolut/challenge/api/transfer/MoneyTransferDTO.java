@@ -1,6 +1,8 @@
 package com.revolut.challenge.api.transfer;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -9,6 +11,8 @@ import lombok.NoArgsConstructor;
 import lombok.ToString;
 
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -22,5 +26,10 @@ public class MoneyTransferDTO implements Serializable {
     private UUID sourceAccountId;
     private UUID beneficiaryAccountId;
     private MoneyTransferStatus status;
-    private double amount;
+    private BigDecimal amount;
+    /**
+     * Microseconds from the creation of the transfer to each stage it reached, only when asked for with {@code trace}.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<TransferStage, Long> timeline;
 }
@@ -2,13 +2,17 @@ package com.revolut.challenge.domain.model.account;
 
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
-import lombok.Getter;
+import lombok.Value;
 
-import java.math.BigDecimal;
+import java.util.Optional;
 
 
-@EqualsAndHashCode
-@Getter
+/**
+ * Immutable snapshot of an account.
+ * Debiting or crediting returns a new, modified snapshot; the repository stamps the next version when it is saved,
+ * which lets repositories hand out stored snapshots without copying them.
+ */
+@Value
 @Builder(toBuilder = true)
 public class Account {
     private AccountId accountId;
@@ -19,19 +23,41 @@ public class Account {
     @EqualsAndHashCode.Exclude
     private boolean modified;
 
-    @Builder.Default
-    private Amount currentBalance = Amount.builder().amount(BigDecimal.ZERO).build();
+    /**
+     * Balance in minor units of {@link Amount}.
+     */
+    private long balance;
+
+    public Amount getCurrentBalance() {
+        return Amount.ofMinorUnits(balance);
+    }
+
+    public Account debit(Amount amountToDebit) throws InsufficientFundsException {
+        return tryDebit(amountToDebit).orElseThrow(() -> new InsufficientFundsException(amountToDebit.getAmount()));
+    }
 
-    public void debit(Amount amountToDebit) throws InsufficientFundsException {
-        if (currentBalance.isLessThan(amountToDebit)) {
-            throw new InsufficientFundsException(amountToDebit.getAmount());
+    /**
+     * Like {@link #debit}, for callers to whom insufficient funds is an expected outcome rather than an error.
+     *
+     * @return the debited account, or empty if the balance does not cover the amount
+     */
+    public Optional<Account> tryDebit(Amount amountToDebit) {
+        if (balance < amountToDebit.getMinorUnits()) {
+            return Optional.empty();
         }
-        currentBalance = currentBalance.subtract(amountToDebit);
-        modified = true;
+        return Optional.of(new Account(accountId, version, true, balance - amountToDebit.getMinorUnits()));
+    }
+
+    /**
+     * @throws ArithmeticException if the balance overflows
+     */
+    public Account credit(Amount amountToCredit) {
+        return new Account(accountId, version, true, Math.addExact(balance, amountToCredit.getMinorUnits()));
     }
 
-    public void credit(Amount amountToCredit) {
-        currentBalance = currentBalance.add(amountToCredit);
-        modified = true;
+    public static class AccountBuilder {
+        public AccountBuilder currentBalance(Amount currentBalance) {
+            return balance(currentBalance.getMinorUnits());
+        }
     }
 }
@@ -2,13 +2,36 @@ package com.revolut.challenge.domain.model.account;
 
 import lombok.Value;
 
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.util.UUID;
 
 @Value
 public class AccountId {
+    private static final ThreadLocal<SecureRandom> GENERATORS = ThreadLocal.withInitial(AccountId::newGenerator);
+
     private UUID id;
 
     public static AccountId from(UUID uuid) {
         return new AccountId(uuid);
     }
+
+    /**
+     * A random (version 4) id like {@link UUID#randomUUID()}, but drawn from a generator of the calling thread: the one
+     * {@link UUID#randomUUID()} shares reads the OS source under a lock, which serializes threads creating many accounts.
+     */
+    public static AccountId random() {
+        SecureRandom generator = GENERATORS.get();
+        long mostSignificantBits = generator.nextLong() & ~0xF000L | 0x4000L;
+        long leastSignificantBits = generator.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L;
+        return new AccountId(new UUID(mostSignificantBits, leastSignificantBits));
+    }
+
+    private static SecureRandom newGenerator() {
+        try {
+            return SecureRandom.getInstance("SHA1PRNG");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("No SHA1PRNG generator for account ids", e);
+        }
+    }
 }
@@ -1,31 +1,67 @@
 package com.revolut.challenge.domain.model.account;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Value;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 
+/**
+ * Amount of money as a long count of minor units at a fixed {@link #SCALE}.
+ */
 @Value
-@Builder
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Amount {
-    private BigDecimal amount;
+    public static final int SCALE = 2;
 
+    private long minorUnits;
+
+    /**
+     * @throws ArithmeticException if the amount has more than {@link #SCALE} decimal places or does not fit in a long
+     */
+    @Builder
+    private static Amount fromDecimal(BigDecimal amount) {
+        return new Amount(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    public static Amount ofMinorUnits(long minorUnits) {
+        return new Amount(minorUnits);
+    }
+
+    @JsonIgnore
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * @throws ArithmeticException if the result overflows
+     */
     public Amount add(Amount amountToAdd) {
-        return Amount.builder().amount(amount.add(amountToAdd.getAmount())).build();
+        return new Amount(Math.addExact(minorUnits, amountToAdd.minorUnits));
     }
 
+    /**
+     * @throws ArithmeticException if the result overflows
+     */
     public Amount subtract(Amount amountToSubtract) {
-        return Amount.builder().amount(amount.subtract(amountToSubtract.getAmount())).build();
+        return new Amount(Math.subtractExact(minorUnits, amountToSubtract.minorUnits));
     }
 
     public boolean isLessThan(Amount amountToCompare) {
-        return amount.compareTo(amountToCompare.getAmount()) < 0;
+        return minorUnits < amountToCompare.minorUnits;
     }
 
     @JsonIgnore
     public boolean isNegative() {
-        return amount.signum() < 0;
+        return minorUnits < 0;
+    }
+
+    @Override
+    public String toString() {
+        return getAmount().toPlainString();
     }
 }
@@ -3,10 +3,14 @@ package com.revolut.challenge.domain.model.transfer;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
+
+/**
+ * Immutable snapshot of a money transfer; every status change returns a new snapshot.
+ */
 @Builder(toBuilder = true)
-@Data
+@Value
 public class MoneyTransfer {
     private TransferRequestId requestId;
     private AccountId beneficiaryAccountId;
@@ -15,19 +19,23 @@ public class MoneyTransfer {
     @Builder.Default
     private MoneyTransferStatus status = MoneyTransferStatus.CREATED;
 
-    public void complete() {
-        this.status = MoneyTransferStatus.COMPLETED;
+    public MoneyTransfer complete() {
+        return withStatus(MoneyTransferStatus.COMPLETED);
+    }
+
+    public MoneyTransfer failDueToInsufficientFunds() {
+        return withStatus(MoneyTransferStatus.INSUFFICIENT_FUNDS);
     }
 
-    public void failDueToInsufficientFunds() {
-        this.status = MoneyTransferStatus.INSUFFICIENT_FUNDS;
+    public MoneyTransfer failWhileDebitingSource() {
+        return withStatus(MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE);
     }
 
-    public void failWhileDebitingSource() {
-        this.status = MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE;
+    public MoneyTransfer failWhileCreditingBeneficiary() {
+        return withStatus(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY);
     }
 
-    public void failWhileCreditingBeneficiary() {
-        this.status = MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY;
+    private MoneyTransfer withStatus(MoneyTransferStatus newStatus) {
+        return new MoneyTransfer(requestId, beneficiaryAccountId, sourceAccountId, amount, newStatus);
     }
 }
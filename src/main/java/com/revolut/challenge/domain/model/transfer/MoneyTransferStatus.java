@@ -1,5 +1,12 @@
 package com.revolut.challenge.domain.model.transfer;
 
 public enum MoneyTransferStatus {
-    CREATED, COMPLETED, INSUFFICIENT_FUNDS, FAILED_TO_CREDIT_BENEFICIARY, FAILED_TO_DEBIT_SOURCE
+    CREATED, COMPLETED, INSUFFICIENT_FUNDS, FAILED_TO_CREDIT_BENEFICIARY, FAILED_TO_DEBIT_SOURCE;
+
+    /**
+     * @return whether the transfer has been processed, successfully or not; a final status never changes
+     */
+    public boolean isFinal() {
+        return this != CREATED;
+    }
 }
@@ -0,0 +1,29 @@
+package com.revolut.challenge.domain.model.transfer;
+
+
+/**
+ * Points of the life of a money transfer recorded in its {@link TransferTimeline}, in the order they are reached.
+ */
+public enum TransferStage {
+    CREATED,
+    /**
+     * Picked up by the engine.
+     */
+    DEQUEUED,
+    /**
+     * Holds the locks of its accounts; engines that do not lock accounts skip it.
+     */
+    DEBIT_LOCKED,
+    /**
+     * The source covers the amount and is debited, not saved yet.
+     */
+    DEBITED,
+    /**
+     * The beneficiary is credited and the postings are saved.
+     */
+    CREDITED,
+    /**
+     * The final status, successful or not, is saved.
+     */
+    SETTLED
+}
@@ -0,0 +1,62 @@
+package com.revolut.challenge.domain.model.transfer;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * {@link System#nanoTime()} at which a money transfer last reached each {@link TransferStage}.
+ */
+public final class TransferTimeline {
+
+    private static final long NOT_REACHED = Long.MIN_VALUE;
+    private static final TransferTimeline UNTRACKED = new TransferTimeline(null);
+
+    private final AtomicLongArray stageNanos;
+
+    private TransferTimeline(AtomicLongArray stageNanos) {
+        this.stageNanos = stageNanos;
+    }
+
+    /**
+     * @return a timeline that has just reached {@link TransferStage#CREATED}
+     */
+    public static TransferTimeline start() {
+        AtomicLongArray stageNanos = new AtomicLongArray(TransferStage.values().length);
+        for (int i = 1; i < stageNanos.length(); i++) {
+            stageNanos.lazySet(i, NOT_REACHED);
+        }
+        stageNanos.lazySet(TransferStage.CREATED.ordinal(), System.nanoTime());
+        return new TransferTimeline(stageNanos);
+    }
+
+    /**
+     * @return the timeline of transfers that are not tracked, which ignores what is recorded
+     */
+    public static TransferTimeline untracked() {
+        return UNTRACKED;
+    }
+
+    public boolean isTracked() {
+        return stageNanos != null;
+    }
+
+    public void record(TransferStage stage) {
+        if (stageNanos != null) {
+            stageNanos.lazySet(stage.ordinal(), System.nanoTime());
+        }
+    }
+
+    public boolean hasReached(TransferStage stage) {
+        return stageNanos != null && stageNanos.get(stage.ordinal()) != NOT_REACHED;
+    }
+
+    /**
+     * @return the nanoseconds from one stage to the other, or -1 if either was not reached
+     */
+    public long nanosBetween(TransferStage from, TransferStage to) {
+        if (!hasReached(from) || !hasReached(to)) {
+            return -1;
+        }
+        return stageNanos.get(to.ordinal()) - stageNanos.get(from.ordinal());
+    }
+}
@@ -2,12 +2,47 @@ package com.revolut.challenge.domain.repositories;
 
 import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 
 
 public interface IAccountRepository {
     void save(Account account);
 
+    /**
+     * Saves the accounts as one operation: either all of them are saved and become visible together, or, when one was
+     * concurrently modified, none is and {@link java.util.ConcurrentModificationException} is thrown.
+     * The accounts must have distinct ids and already exist; unmodified accounts are only checked for concurrent modifications.
+     *
+     * @throws IllegalArgumentException if one of the accounts does not exist
+     */
+    void saveAll(Collection<Account> accounts);
+
+    /**
+     * Like {@link #saveAll(Collection)}, for the postings of money transfers: a durable repository saves the transfers,
+     * in the final status the postings give them, and the changes to the credits pending in the credit cells of hot
+     * accounts in the same operation, so that none of them is recovered without the others. Other repositories only
+     * save the accounts and leave the transfers to the money transfer repository.
+     *
+     * @param pendingCreditChanges credits added to the cells of an account, or drained from them when negative, in minor units
+     */
+    void saveAll(Collection<Account> accounts, Collection<MoneyTransfer> settledMoneyTransfers, Map<AccountId, Long> pendingCreditChanges);
+
+    /**
+     * Inserts new accounts at their first version with one repository operation, e.g. one lock or one log record,
+     * instead of one per account. Meant for creating many accounts at once; concurrent inserts may run in parallel.
+     *
+     * @throws IllegalArgumentException if one of the accounts already exists; the accounts before it may have been inserted
+     */
+    void insertAll(Collection<Account> accounts);
+
     Optional<Account> findById(AccountId accountId);
+
+    /**
+     * Whether the account exists, without reading it: cheaper than {@link #findById} for validating ids, most of all unknown ones.
+     */
+    boolean exists(AccountId accountId);
 }
@@ -3,11 +3,17 @@ package com.revolut.challenge.domain.repositories;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
 
+import java.util.Collection;
 import java.util.Optional;
 
 
 public interface IMoneyTransferRepository {
     void save(MoneyTransfer account);
 
+    /**
+     * Saves the money transfers as one operation, e.g. all the transfers of a batch submission.
+     */
+    void saveAll(Collection<MoneyTransfer> moneyTransfers);
+
     Optional<MoneyTransfer> findById(TransferRequestId accountId);
 }
@@ -0,0 +1,16 @@
+package com.revolut.challenge.domain.services.account;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.accounts.locks")
+public class AccountLockConfiguration {
+    /**
+     * Locks of the striped lock table, rounded up to a power of two.
+     */
+    private int stripes = 1024;
+}
@@ -0,0 +1,105 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Lock wait and hold times, overall, per stripe and per hot account.
+ */
+class AccountLockMetrics {
+
+    private static final int HOLD_SAMPLING_RATE = 64;
+
+    private final MeterRegistry meterRegistry;
+    private final HotAccountCredits hotAccountCredits;
+    private final LongAdder acquisitions = new LongAdder();
+    private final Timer waitTime;
+    private final Timer holdTime;
+    private final AtomicLongArray stripeWaitCounts;
+    private final AtomicLongArray stripeWaitNanos;
+    private final AtomicLongArray stripeHoldCounts;
+    private final AtomicLongArray stripeHoldNanos;
+    private final Map<AccountId, Timer> hotAccountWaitTimes = new ConcurrentHashMap<>();
+    private final Map<AccountId, Timer> hotAccountHoldTimes = new ConcurrentHashMap<>();
+
+    AccountLockMetrics(MeterRegistry meterRegistry, HotAccountCredits hotAccountCredits, int stripes) {
+        this.meterRegistry = meterRegistry;
+        this.hotAccountCredits = hotAccountCredits;
+        FunctionCounter.builder("accounts.lock.acquisitions", acquisitions, LongAdder::sum).description("Account locks acquired").register(meterRegistry);
+        waitTime = withPercentiles(Timer.builder("accounts.lock.wait").description("Time waited for account locks held by another thread"));
+        holdTime = withPercentiles(Timer.builder("accounts.lock.hold").description("Time a sample of the account locks is held"));
+        stripeWaitCounts = new AtomicLongArray(stripes);
+        stripeWaitNanos = new AtomicLongArray(stripes);
+        stripeHoldCounts = new AtomicLongArray(stripes);
+        stripeHoldNanos = new AtomicLongArray(stripes);
+    }
+
+    boolean isHot(AccountId accountId) {
+        return hotAccountCredits.isHot(accountId);
+    }
+
+    void recordAcquisition() {
+        acquisitions.increment();
+    }
+
+    /**
+     * Whether the hold time of the lock just acquired for the account should be measured.
+     */
+    boolean sampleHold(AccountId accountId) {
+        return ThreadLocalRandom.current().nextInt(HOLD_SAMPLING_RATE) == 0 || isHot(accountId);
+    }
+
+    void recordWait(long nanos) {
+        waitTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordHold(long nanos) {
+        holdTime.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordStripeWait(int stripe, long nanos) {
+        stripeWaitNanos.addAndGet(stripe, nanos);
+        if (stripeWaitCounts.getAndIncrement(stripe) == 0) {
+            registerStripeTimer("accounts.lock.stripe.wait", stripe, stripeWaitCounts, stripeWaitNanos);
+        }
+    }
+
+    void recordStripeHold(int stripe, long nanos) {
+        stripeHoldNanos.addAndGet(stripe, nanos);
+        if (stripeHoldCounts.getAndIncrement(stripe) == 0) {
+            registerStripeTimer("accounts.lock.stripe.hold", stripe, stripeHoldCounts, stripeHoldNanos);
+        }
+    }
+
+    void recordHotAccountWait(AccountId accountId, long nanos) {
+        hotAccountWaitTimes.computeIfAbsent(accountId, id -> withPercentiles(Timer.builder("accounts.hot.lock.wait").tag("account", id.getId().toString())))
+                           .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordHotAccountHold(AccountId accountId, long nanos) {
+        hotAccountHoldTimes.computeIfAbsent(accountId, id -> withPercentiles(Timer.builder("accounts.hot.lock.hold").tag("account", id.getId().toString())))
+                           .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    private void registerStripeTimer(String name, int stripe, AtomicLongArray counts, AtomicLongArray nanos) {
+        FunctionTimer.builder(name, this, metrics -> counts.get(stripe), metrics -> nanos.get(stripe), TimeUnit.NANOSECONDS)
+                     .tag("stripe", String.valueOf(stripe)).register(meterRegistry);
+    }
+
+    private Timer withPercentiles(Timer.Builder builder) {
+        return builder.publishPercentiles(0.5, 0.99, 0.999).publishPercentileHistogram()
+                      .minimumExpectedValue(Duration.ofNanos(100)).maximumExpectedValue(Duration.ofSeconds(10)).register(meterRegistry);
+    }
+}
@@ -0,0 +1,51 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+
+/**
+ * Flight recorder event of a wait for an account lock held by another thread. Unlike the park events of the
+ * {@link java.util.concurrent.locks.ReentrantLock} underneath, it names the account, so hot accounts and lock convoys
+ * can be found in a recording. Waits shorter than the threshold of the recording, 1 ms unless set, are not recorded.
+ */
+@Name("com.revolut.challenge.AccountLockWait")
+@Label("Account Lock Wait")
+@Category({"Challenge", "Accounts"})
+@Description("Wait for an account lock held by another thread")
+@Threshold("1 ms")
+@StackTrace(false)
+class AccountLockWaitEvent extends Event {
+
+    static final int NO_STRIPE = -1;
+
+    @Label("Account Id")
+    String accountId;
+
+    @Label("Lock Stripe")
+    @Description("Stripe of the lock table the account hashes to, -1 with per account locks")
+    int stripe;
+
+    @Label("Acquired")
+    @Description("Whether the lock was acquired, rather than given up on at the deadline")
+    boolean acquired;
+
+    /**
+     * Ends the wait begun with {@link #begin()} and records it if it lasted long enough, only then naming the account.
+     */
+    void commit(AccountId accountId, int stripe, boolean acquired) {
+        end();
+        if (shouldCommit()) {
+            this.accountId = accountId.getId().toString();
+            this.stripe = stripe;
+            this.acquired = acquired;
+            commit();
+        }
+    }
+}
@@ -1,30 +1,179 @@
 package com.revolut.challenge.domain.services.account;
 
-import com.google.common.util.concurrent.Striped;
 import com.revolut.challenge.domain.model.account.AccountId;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import lombok.extern.slf4j.Slf4j;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
-import java.util.concurrent.locks.Lock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 
+/**
+ * Fixed table of lock stripes shared by the accounts hashing to them.
+ */
+@Slf4j
 @Singleton
+@Requires(property = "challenge.accounts.concurrency", value = "pessimistic", defaultValue = "pessimistic")
+@Requires(property = "challenge.accounts.locks.table", value = "striped", defaultValue = "striped")
 public class AccountLockingService implements IAccountLockingService {
 
-    private final Striped<Lock> lockStripes;
+    private final ReentrantLock[] stripes;
+    private final long[] acquiredAt;  //0 unless the hold time is sampled; written and read by the owner of the stripe only
+    private final AccountLockMetrics metrics;
 
-    public AccountLockingService() {
-        lockStripes = Striped.lock(100);
+    @Inject
+    public AccountLockingService(AccountLockConfiguration configuration, HotAccountCredits hotAccountCredits, MeterRegistry meterRegistry) {
+        int size = configuration.getStripes() <= 1 ? 1 : Integer.highestOneBit(configuration.getStripes() - 1) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        acquiredAt = new long[size];
+        metrics = new AccountLockMetrics(meterRegistry, hotAccountCredits, size);
+        log.info("Locking accounts with {} lock stripes", size);
     }
 
     @Override
     public void lockAccount(AccountId accountId) {
-        Lock lock = this.lockStripes.get(accountId);
-        lock.lock();
+        lockStripe(stripeOf(accountId), accountId);
+    }
+
+    @Override
+    public boolean tryLockAccount(AccountId accountId, Duration timeout) throws InterruptedException {
+        return tryLockStripe(stripeOf(accountId), accountId, System.nanoTime() + timeout.toNanos());
     }
 
     @Override
     public void unlockAccount(AccountId accountId) {
-        Lock lock = this.lockStripes.get(accountId);
+        unlockStripe(stripeOf(accountId), accountId);
+    }
+
+    @Override
+    public boolean isLocked(AccountId accountId) {
+        return stripes[stripeOf(accountId)].isLocked();
+    }
+
+    @Override
+    public void lockAccounts(AccountId... accountIds) {
+        AccountId[] accountIdsInStripeOrder = inStripeOrder(accountIds);
+        for (int i = 0; i < accountIdsInStripeOrder.length; i++) {  //a stripe shared by several accounts is locked once
+            if (i == 0 || stripeOf(accountIdsInStripeOrder[i]) != stripeOf(accountIdsInStripeOrder[i - 1])) {
+                lockStripe(stripeOf(accountIdsInStripeOrder[i]), accountIdsInStripeOrder[i]);
+            }
+        }
+    }
+
+    @Override
+    public boolean tryLockAccounts(Duration timeout, AccountId... accountIds) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        AccountId[] accountIdsInStripeOrder = inStripeOrder(accountIds);
+        for (int i = 0; i < accountIdsInStripeOrder.length; i++) {
+            if (i == 0 || stripeOf(accountIdsInStripeOrder[i]) != stripeOf(accountIdsInStripeOrder[i - 1])) {
+                boolean locked = false;
+                try {
+                    locked = tryLockStripe(stripeOf(accountIdsInStripeOrder[i]), accountIdsInStripeOrder[i], deadline);
+                } finally {
+                    if (!locked) {
+                        unlockAccounts(Arrays.copyOf(accountIdsInStripeOrder, i));
+                    }
+                }
+                if (!locked) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void unlockAccounts(AccountId... accountIds) {
+        AccountId[] accountIdsInStripeOrder = inStripeOrder(accountIds);
+        for (int i = accountIdsInStripeOrder.length - 1; i >= 0; i--) {
+            if (i == 0 || stripeOf(accountIdsInStripeOrder[i]) != stripeOf(accountIdsInStripeOrder[i - 1])) {
+                unlockStripe(stripeOf(accountIdsInStripeOrder[i]), accountIdsInStripeOrder[i]);
+            }
+        }
+    }
+
+    private void lockStripe(int stripe, AccountId accountId) {
+        ReentrantLock lock = stripes[stripe];
+        if (lock.tryLock()) {
+            acquired(stripe, accountId, 0);
+            return;
+        }
+        AccountLockWaitEvent waitEvent = new AccountLockWaitEvent();
+        waitEvent.begin();
+        long start = System.nanoTime();
+        lock.lock();
+        acquired(stripe, accountId, Math.max(1, System.nanoTime() - start));
+        waitEvent.commit(accountId, stripe, true);
+    }
+
+    private boolean tryLockStripe(int stripe, AccountId accountId, long deadline) throws InterruptedException {
+        ReentrantLock lock = stripes[stripe];
+        if (lock.tryLock()) {
+            acquired(stripe, accountId, 0);
+            return true;
+        }
+        AccountLockWaitEvent waitEvent = new AccountLockWaitEvent();
+        waitEvent.begin();
+        long start = System.nanoTime();
+        if (!lock.tryLock(deadline - start, TimeUnit.NANOSECONDS)) {
+            waitEvent.commit(accountId, stripe, false);
+            return false;
+        }
+        acquired(stripe, accountId, Math.max(1, System.nanoTime() - start));
+        waitEvent.commit(accountId, stripe, true);
+        return true;
+    }
+
+    /**
+     * @param waitNanos 0 when the lock was free
+     */
+    private void acquired(int stripe, AccountId accountId, long waitNanos) {
+        if (stripes[stripe].getHoldCount() > 1) {  //reentrant locks are neither waited for nor timed again
+            return;
+        }
+        metrics.recordAcquisition();
+        if (waitNanos > 0) {
+            metrics.recordWait(waitNanos);
+            metrics.recordStripeWait(stripe, waitNanos);
+            if (metrics.isHot(accountId)) {
+                metrics.recordHotAccountWait(accountId, waitNanos);
+            }
+        }
+        acquiredAt[stripe] = metrics.sampleHold(accountId) ? System.nanoTime() : 0;
+    }
+
+    private void unlockStripe(int stripe, AccountId accountId) {
+        ReentrantLock lock = stripes[stripe];
+        if (lock.getHoldCount() == 1 && acquiredAt[stripe] != 0) {
+            long holdNanos = System.nanoTime() - acquiredAt[stripe];
+            metrics.recordHold(holdNanos);
+            metrics.recordStripeHold(stripe, holdNanos);
+            if (metrics.isHot(accountId)) {
+                metrics.recordHotAccountHold(accountId, holdNanos);
+            }
+        }
         lock.unlock();
     }
+
+    private AccountId[] inStripeOrder(AccountId[] accountIds) {
+        AccountId[] accountIdsInStripeOrder = accountIds.clone();
+        Arrays.sort(accountIdsInStripeOrder, Comparator.comparingInt(this::stripeOf));
+        return accountIdsInStripeOrder;
+    }
+
+    private int stripeOf(AccountId accountId) {
+        int hash = accountId.hashCode();
+        hash ^= (hash >>> 20) ^ (hash >>> 12);  //spread the bits the mask keeps
+        hash ^= (hash >>> 7) ^ (hash >>> 4);
+        return hash & (stripes.length - 1);
+    }
 }
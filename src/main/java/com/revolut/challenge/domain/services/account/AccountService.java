@@ -4,32 +4,107 @@ import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
 import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 
+/**
+ * Account updates run under the locks of {@link IAccountLockingService} and are retried, with a jittered backoff, when
+ * they still lose the version check of the repository; with {@code challenge.accounts.concurrency: optimistic} the
+ * locks are no-ops and the version check alone keeps concurrent updates apart.
+ * <p>
+ * Credits to hot accounts (see {@link HotAccountCredits}) go to their credit cells without locking the account; the
+ * cells are taken into the balance before a debit the balance alone cannot cover, and by {@link #foldPendingCredits()}.
+ * A credit is only added to the cells once it is saved with its debit as a pending credit change, and every save of
+ * drained credits records them as taken, so a durable repository reports no transfer completed before its credit is durable.
+ */
+@Slf4j
 public class AccountService implements IAccountService {
 
+    private static final Duration FOLD_LOCK_TIMEOUT = Duration.ofMillis(100);
+
     private IAccountRepository accountRepository;
     private IAccountLockingService accountLockingService;
+    private HotAccountCredits hotAccountCredits;
+    private AccountUpdateRetryConfiguration retryConfiguration;
+    private Counter retries;
+    private Counter exhaustedRetries;
 
     @Inject
-    public AccountService(IAccountRepository accountRepository, IAccountLockingService accountLockingService) {
+    public AccountService(IAccountRepository accountRepository, IAccountLockingService accountLockingService, HotAccountCredits hotAccountCredits,
+                          AccountUpdateRetryConfiguration retryConfiguration, MeterRegistry meterRegistry) {
         this.accountRepository = accountRepository;
         this.accountLockingService = accountLockingService;
+        this.hotAccountCredits = hotAccountCredits;
+        this.retryConfiguration = retryConfiguration;
+        retries = Counter.builder("accounts.update.retries").description("Account updates retried after losing the version check").register(meterRegistry);
+        exhaustedRetries = Counter.builder("accounts.update.retries.exhausted").description("Account updates that gave up after max-attempts").register(meterRegistry);
+    }
+
+    @Override
+    public Optional<Account> findAccount(AccountId accountId) {
+        if (!hotAccountCredits.isHot(accountId)) {
+            return accountRepository.findById(accountId);
+        }
+        try {
+            accountLockingService.lockAccount(accountId);  //credits are drained into the balance, and saved or restored, under the lock
+            Optional<Account> account = accountRepository.findById(accountId);
+            long pendingCredits = hotAccountCredits.pendingCredits(accountId);
+            return pendingCredits == 0 ? account : account.map(foundAccount -> foundAccount.toBuilder().balance(Math.addExact(foundAccount.getBalance(), pendingCredits)).build());
+        } finally {
+            accountLockingService.unlockAccount(accountId);
+        }
     }
 
     @Override
     public void creditAccount(AccountId accountId, Amount amount) throws InvalidAccountException {
+        recordContention(accountId);
+        if (hotAccountCredits.isHot(accountId)) {
+            Account account = accountRepository.findById(accountId).orElseThrow(() -> new InvalidAccountException(accountId));
+            credit(account, amount);  //only checks that the balance can take the credit; it goes to the cells once logged
+            accountRepository.saveAll(Collections.emptyList(), Collections.emptyList(), Collections.singletonMap(accountId, amount.getMinorUnits()));
+            hotAccountCredits.credit(accountId, amount);
+            return;
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                creditAccountOnce(accountId, amount);
+                return;
+            } catch (ConcurrentModificationException e) {
+                if (!backOff(attempt)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void creditAccountOnce(AccountId accountId, Amount amount) throws InvalidAccountException {
         try {
             accountLockingService.lockAccount(accountId);
             Optional<Account> account = this.accountRepository.findById(accountId);
             Account accountToCredit = account.orElseThrow(() -> new InvalidAccountException(accountId));
-            accountToCredit.credit(amount);
-            accountRepository.save(accountToCredit);
+            accountRepository.save(accountToCredit.credit(amount));
         } finally {
             accountLockingService.unlockAccount(accountId);
         }
@@ -37,27 +112,391 @@ public class AccountService implements IAccountService {
 
     @Override
     public void debitAccount(AccountId accountId, Amount amount) throws InvalidAccountException, InsufficientFundsException {
+        switch (tryDebitAccount(accountId, amount)) {
+            case DEBITED:
+                return;
+            case INSUFFICIENT_FUNDS:
+                throw new InsufficientFundsException(amount.getAmount());
+            case INVALID_ACCOUNT:
+                throw new InvalidAccountException(accountId);
+            default:
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public DebitOutcome tryDebitAccount(AccountId accountId, Amount amount) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return debitAccountOnce(accountId, amount);
+            } catch (ConcurrentModificationException e) {
+                if (!backOff(attempt)) {
+                    return DebitOutcome.CONCURRENT_UPDATES;
+                }
+            }
+        }
+    }
+
+    private DebitOutcome debitAccountOnce(AccountId accountId, Amount amount) {
         try {
             accountLockingService.lockAccount(accountId);
             Optional<Account> account = this.accountRepository.findById(accountId);
-            Account accountToDebit = account.orElseThrow(() -> new InvalidAccountException(accountId));
-            accountToDebit.debit(amount);
-            accountRepository.save(accountToDebit);
+            if (!account.isPresent()) {
+                return DebitOutcome.INVALID_ACCOUNT;
+            }
+            Map<AccountId, Long> drainedCredits = new HashMap<>();
+            Optional<Account> debitedAccount = debit(withPendingCreditsFor(amount, account.get(), drainedCredits), amount, drainedCredits);
+            if (!debitedAccount.isPresent()) {
+                return DebitOutcome.INSUFFICIENT_FUNDS;
+            }
+            saveAll(Collections.singletonList(debitedAccount.get()), Collections.emptyList(), drainedCredits);
+            return DebitOutcome.DEBITED;
         } finally {
             accountLockingService.unlockAccount(accountId);
         }
     }
 
+    @Override
+    public void transfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount) throws InvalidAccountException, InsufficientFundsException {
+        switch (tryTransfer(sourceAccountId, beneficiaryAccountId, amount)) {
+            case COMPLETED:
+                return;
+            case INSUFFICIENT_FUNDS:
+                throw new InsufficientFundsException(amount.getAmount());
+            case INVALID_SOURCE_ACCOUNT:
+                throw new InvalidAccountException(sourceAccountId);
+            case INVALID_BENEFICIARY_ACCOUNT:
+                throw new InvalidAccountException(beneficiaryAccountId);
+            case BALANCE_OVERFLOW:
+                throw new ArithmeticException("Crediting " + amount.getAmount().toPlainString() + " overflows the balance of " + beneficiaryAccountId);
+            default:
+                throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount) {
+        return tryTransfer(sourceAccountId, beneficiaryAccountId, amount, TransferTimeline.untracked());
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount, TransferTimeline timeline) {
+        return tryTransfer(sourceAccountId, beneficiaryAccountId, amount, Collections.emptyList(), timeline);
+    }
+
+    @Override
+    public TransferOutcome tryTransfer(MoneyTransfer moneyTransfer, TransferTimeline timeline) {
+        return tryTransfer(moneyTransfer.getSourceAccountId(), moneyTransfer.getBeneficiaryAccountId(), moneyTransfer.getAmount(),
+                           Collections.singletonList(moneyTransfer.complete()), timeline);
+    }
+
+    private TransferOutcome tryTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount, List<MoneyTransfer> completedMoneyTransfers,
+                                        TransferTimeline timeline) {
+        recordContention(beneficiaryAccountId);
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transferOnce(sourceAccountId, beneficiaryAccountId, amount, completedMoneyTransfers, timeline);
+            } catch (ConcurrentModificationException e) {
+                if (!backOff(attempt)) {
+                    return TransferOutcome.CONCURRENT_UPDATES;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param completedMoneyTransfers saved with the postings, the transfer completed by them if any
+     */
+    private TransferOutcome transferOnce(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount, List<MoneyTransfer> completedMoneyTransfers,
+                                         TransferTimeline timeline) {
+        boolean creditToCells = hotAccountCredits.isHot(beneficiaryAccountId) && !sourceAccountId.equals(beneficiaryAccountId);
+        AccountId[] accountIdsToLock = creditToCells ? new AccountId[]{sourceAccountId} : new AccountId[]{sourceAccountId, beneficiaryAccountId};
+        try {
+            accountLockingService.lockAccounts(accountIdsToLock);
+            timeline.record(TransferStage.DEBIT_LOCKED);
+            Optional<Account> sourceAccount = accountRepository.findById(sourceAccountId);
+            if (!sourceAccount.isPresent()) {
+                return TransferOutcome.INVALID_SOURCE_ACCOUNT;
+            }
+            Optional<Account> beneficiaryAccount = accountRepository.findById(beneficiaryAccountId);
+            if (!beneficiaryAccount.isPresent()) {
+                return TransferOutcome.INVALID_BENEFICIARY_ACCOUNT;
+            }
+            Map<AccountId, Long> drainedCredits = new HashMap<>();
+            Optional<Account> debitedSourceAccount = debit(withPendingCreditsFor(amount, sourceAccount.get(), drainedCredits), amount, drainedCredits);
+            if (!debitedSourceAccount.isPresent()) {
+                return TransferOutcome.INSUFFICIENT_FUNDS;
+            }
+            timeline.record(TransferStage.DEBITED);
+            if (sourceAccountId.equals(beneficiaryAccountId)) {  //debit only checks funds; the balance is left untouched
+                drainedCredits.forEach(hotAccountCredits::restore);
+                timeline.record(TransferStage.CREDITED);
+                return TransferOutcome.COMPLETED;
+            }
+            if (creditToCells) {
+                try {
+                    credit(beneficiaryAccount.get(), amount);  //only checks that the balance can take the credit; it goes to the cells once logged
+                } catch (ArithmeticException e) {
+                    drainedCredits.forEach(hotAccountCredits::restore);
+                    return TransferOutcome.BALANCE_OVERFLOW;
+                }
+                saveAll(Collections.singletonList(debitedSourceAccount.get()), completedMoneyTransfers, drainedCredits,
+                        Collections.singletonMap(beneficiaryAccountId, amount.getMinorUnits()));
+                hotAccountCredits.credit(beneficiaryAccountId, amount);
+                timeline.record(TransferStage.CREDITED);
+                return TransferOutcome.COMPLETED;
+            }
+            Account creditedBeneficiaryAccount;
+            try {
+                creditedBeneficiaryAccount = credit(beneficiaryAccount.get(), amount);
+            } catch (ArithmeticException e) {
+                drainedCredits.forEach(hotAccountCredits::restore);
+                return TransferOutcome.BALANCE_OVERFLOW;
+            }
+            saveAll(Arrays.asList(debitedSourceAccount.get(), creditedBeneficiaryAccount), completedMoneyTransfers, drainedCredits);
+            timeline.record(TransferStage.CREDITED);
+            return TransferOutcome.COMPLETED;
+        } finally {
+            accountLockingService.unlockAccounts(accountIdsToLock);
+        }
+    }
+
+    @Override
+    public List<TransferOutcome> transferAll(List<MoneyTransfer> moneyTransfers) {
+        return transferAll(moneyTransfers, Collections.nCopies(moneyTransfers.size(), TransferTimeline.untracked()));
+    }
+
+    @Override
+    public List<TransferOutcome> transferAll(List<MoneyTransfer> moneyTransfers, List<TransferTimeline> timelines) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transferAllOnce(moneyTransfers, timelines);
+            } catch (ConcurrentModificationException e) {
+                if (!backOff(attempt)) {
+                    return Collections.nCopies(moneyTransfers.size(), TransferOutcome.CONCURRENT_UPDATES);
+                }
+            }
+        }
+    }
+
+    private List<TransferOutcome> transferAllOnce(List<MoneyTransfer> moneyTransfers, List<TransferTimeline> timelines) {
+        AccountId[] accountIds = moneyTransfers.stream().flatMap(moneyTransfer -> Stream.of(moneyTransfer.getSourceAccountId(), moneyTransfer.getBeneficiaryAccountId()))
+                                               .distinct().toArray(AccountId[]::new);
+        try {
+            accountLockingService.lockAccounts(accountIds);
+            for (TransferTimeline timeline : timelines) {
+                timeline.record(TransferStage.DEBIT_LOCKED);
+            }
+            Map<AccountId, Account> accounts = new HashMap<>();
+            for (AccountId accountId : accountIds) {
+                accountRepository.findById(accountId).ifPresent(account -> accounts.put(accountId, account));
+            }
+            Map<AccountId, Long> drainedCredits = new HashMap<>();
+            List<TransferOutcome> outcomes = new ArrayList<>(moneyTransfers.size());
+            for (int i = 0; i < moneyTransfers.size(); i++) {
+                outcomes.add(applyTransfer(moneyTransfers.get(i), timelines.get(i), accounts, drainedCredits));
+            }
+            List<Account> modifiedAccounts = accounts.values().stream().filter(Account::isModified).collect(Collectors.toList());
+            if (!modifiedAccounts.isEmpty()) {
+                List<MoneyTransfer> completedMoneyTransfers = new ArrayList<>(moneyTransfers.size());
+                for (int i = 0; i < moneyTransfers.size(); i++) {
+                    if (outcomes.get(i) == TransferOutcome.COMPLETED) {
+                        completedMoneyTransfers.add(moneyTransfers.get(i).complete());
+                    }
+                }
+                saveAll(modifiedAccounts, completedMoneyTransfers, drainedCredits);
+            }
+            for (int i = 0; i < moneyTransfers.size(); i++) {
+                if (outcomes.get(i) == TransferOutcome.COMPLETED) {
+                    timelines.get(i).record(TransferStage.CREDITED);
+                }
+            }
+            return outcomes;
+        } finally {
+            accountLockingService.unlockAccounts(accountIds);
+        }
+    }
+
+    private TransferOutcome applyTransfer(MoneyTransfer moneyTransfer, TransferTimeline timeline, Map<AccountId, Account> accounts, Map<AccountId, Long> drainedCredits) {
+        Account sourceAccount = accounts.get(moneyTransfer.getSourceAccountId());
+        Account beneficiaryAccount = accounts.get(moneyTransfer.getBeneficiaryAccountId());
+        if (sourceAccount == null) {
+            return TransferOutcome.INVALID_SOURCE_ACCOUNT;
+        }
+        if (beneficiaryAccount == null) {
+            return TransferOutcome.INVALID_BENEFICIARY_ACCOUNT;
+        }
+        sourceAccount = withPendingCreditsFor(moneyTransfer.getAmount(), sourceAccount, drainedCredits);
+        accounts.put(sourceAccount.getAccountId(), sourceAccount);
+        Optional<Account> debitedSourceAccount = sourceAccount.tryDebit(moneyTransfer.getAmount());
+        if (!debitedSourceAccount.isPresent()) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+        timeline.record(TransferStage.DEBITED);
+        if (moneyTransfer.getSourceAccountId().equals(moneyTransfer.getBeneficiaryAccountId())) {  //debit only checks funds; the balance is left untouched
+            return TransferOutcome.COMPLETED;
+        }
+        Account creditedBeneficiaryAccount;
+        try {
+            creditedBeneficiaryAccount = credit(beneficiaryAccount, moneyTransfer.getAmount());
+        } catch (ArithmeticException e) {
+            return TransferOutcome.BALANCE_OVERFLOW;
+        }
+        accounts.put(debitedSourceAccount.get().getAccountId(), debitedSourceAccount.get());
+        accounts.put(creditedBeneficiaryAccount.getAccountId(), creditedBeneficiaryAccount);
+        return TransferOutcome.COMPLETED;
+    }
+
+    @Override
+    public void foldPendingCredits() {
+        for (AccountId accountId : hotAccountCredits.getHotAccounts()) {
+            try {
+                if (!accountLockingService.tryLockAccount(accountId, FOLD_LOCK_TIMEOUT)) {  //busy accounts are folded next time, or by their next debit
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                Optional<Account> account = accountRepository.findById(accountId);
+                if (!account.isPresent()) {
+                    log.error("Hot account {} does not exist; its credits stay in its credit cells", accountId);
+                    continue;
+                }
+                long drainedCredits = hotAccountCredits.drain(accountId);
+                try {
+                    if (drainedCredits != 0) {
+                        accountRepository.saveAll(Collections.singletonList(account.get().credit(Amount.ofMinorUnits(drainedCredits))), Collections.emptyList(),
+                                                  Collections.singletonMap(accountId, -drainedCredits));
+                    }
+                } catch (RuntimeException e) {
+                    hotAccountCredits.restore(accountId, drainedCredits);
+                    throw e;
+                }
+            } catch (ConcurrentModificationException e) {
+                log.debug("Hot account {} was updated while folding its credit cells; they are kept for the next attempt", accountId);
+            } catch (RuntimeException e) {
+                log.error("Failed to fold the credit cells of hot account {}; they are kept for the next attempt", accountId, e);
+            } finally {
+                accountLockingService.unlockAccount(accountId);
+            }
+        }
+    }
+
     @Override
     public AccountId createAccount(Amount initialAmount) {
-        Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).currentBalance(initialAmount).build();
+        Account account = Account.builder().accountId(AccountId.random()).currentBalance(initialAmount).build();
         accountRepository.save(account);
         return account.getAccountId();
     }
 
+    @Override
+    public List<AccountId> createAccounts(List<Amount> initialAmounts) {
+        List<Account> accounts = new ArrayList<>(initialAmounts.size());
+        List<AccountId> accountIds = new ArrayList<>(initialAmounts.size());
+        for (Amount initialAmount : initialAmounts) {
+            Account account = Account.builder().accountId(AccountId.random()).currentBalance(initialAmount).build();
+            accounts.add(account);
+            accountIds.add(account.getAccountId());
+        }
+        accountRepository.insertAll(accounts);
+        return accountIds;
+    }
+
     @Override
     public boolean isAccountValid(AccountId accountId) {
-        Optional<Account> account = accountRepository.findById(accountId);
-        return account.isPresent();
+        return accountRepository.exists(accountId);
+    }
+
+    /**
+     * Pauses for a random time under an exponentially growing bound after an update lost the version check, so that
+     * the updates that collided do not collide again, or gives up after the configured number of attempts.
+     *
+     * @return whether to attempt the update again
+     */
+    private boolean backOff(int attempt) {
+        if (attempt >= retryConfiguration.getMaxAttempts()) {
+            exhaustedRetries.increment();
+            return false;
+        }
+        retries.increment();
+        long bound = Math.min(retryConfiguration.getMaxBackoff().toNanos(), retryConfiguration.getBackoff().toNanos() << Math.min(attempt - 1, 30));
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(bound + 1));
+        return true;
+    }
+
+    private void recordContention(AccountId accountId) {
+        if (accountLockingService.isLocked(accountId)) {
+            hotAccountCredits.recordContention(accountId);
+        }
+    }
+
+    /**
+     * Takes the credits pending in a hot account's cells into the account when its balance alone cannot cover the debit,
+     * adding them to drainedCredits so that they can be restored if the account is not saved.
+     */
+    private Account withPendingCreditsFor(Amount amountToDebit, Account account, Map<AccountId, Long> drainedCredits) {
+        if (account.getBalance() >= amountToDebit.getMinorUnits() || !hotAccountCredits.isHot(account.getAccountId())) {
+            return account;
+        }
+        long pendingCredits = hotAccountCredits.drain(account.getAccountId());
+        if (pendingCredits == 0) {
+            return account;
+        }
+        Account accountWithPendingCredits;
+        try {
+            accountWithPendingCredits = account.credit(Amount.ofMinorUnits(pendingCredits));
+        } catch (ArithmeticException e) {
+            hotAccountCredits.restore(account.getAccountId(), pendingCredits);
+            return account;
+        }
+        drainedCredits.merge(account.getAccountId(), pendingCredits, Long::sum);
+        return accountWithPendingCredits;
+    }
+
+    /**
+     * @return the debited account, or empty with the drained credits restored if the balance does not cover the amount
+     */
+    private Optional<Account> debit(Account account, Amount amount, Map<AccountId, Long> drainedCredits) {
+        Optional<Account> debitedAccount = account.tryDebit(amount);
+        if (!debitedAccount.isPresent()) {
+            drainedCredits.forEach(hotAccountCredits::restore);
+        }
+        return debitedAccount;
+    }
+
+    /**
+     * Credits the account, checking that its balance also takes the credits pending in its cells if it is hot.
+     *
+     * @throws ArithmeticException if the balance overflows
+     */
+    private Account credit(Account account, Amount amount) {
+        Account creditedAccount = account.credit(amount);
+        Math.addExact(creditedAccount.getBalance(), hotAccountCredits.pendingCredits(account.getAccountId()));
+        return creditedAccount;
+    }
+
+    private void saveAll(Collection<Account> accounts, List<MoneyTransfer> completedMoneyTransfers, Map<AccountId, Long> drainedCredits) {
+        saveAll(accounts, completedMoneyTransfers, drainedCredits, Collections.emptyMap());
+    }
+
+    /**
+     * Saves the accounts with the transfers they complete, the credits drained from the cells of hot accounts into them
+     * and the credits about to be added to the cells, restoring the drained credits if the save fails.
+     */
+    private void saveAll(Collection<Account> accounts, List<MoneyTransfer> completedMoneyTransfers, Map<AccountId, Long> drainedCredits, Map<AccountId, Long> cellCredits) {
+        try {
+            if (completedMoneyTransfers.isEmpty() && drainedCredits.isEmpty() && cellCredits.isEmpty()) {
+                accountRepository.saveAll(accounts);
+            } else {
+                Map<AccountId, Long> pendingCreditChanges = new HashMap<>(cellCredits);
+                drainedCredits.forEach((accountId, credits) -> pendingCreditChanges.merge(accountId, -credits, Long::sum));
+                accountRepository.saveAll(accounts, completedMoneyTransfers, pendingCreditChanges);
+            }
+        } catch (RuntimeException e) {
+            drainedCredits.forEach(hotAccountCredits::restore);
+            throw e;
+        }
     }
 }
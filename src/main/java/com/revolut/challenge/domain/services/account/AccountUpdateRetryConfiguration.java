@@ -0,0 +1,24 @@
+package com.revolut.challenge.domain.services.account;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.accounts.retry")
+public class AccountUpdateRetryConfiguration {
+    /**
+     * Attempts of an account update that keeps losing the version check before it fails with a
+     * {@link java.util.ConcurrentModificationException}.
+     */
+    private int maxAttempts = 16;
+    /**
+     * Upper bound of the random pause before the first retry, doubled on every retry up to {@link #maxBackoff}.
+     */
+    private Duration backoff = Duration.ofNanos(50_000);
+    private Duration maxBackoff = Duration.ofMillis(5);
+}
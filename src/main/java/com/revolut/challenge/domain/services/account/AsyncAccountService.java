@@ -0,0 +1,48 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.infra.executors.BlockingWork;
+import com.revolut.challenge.infra.executors.BlockingWorkFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Runs lookups on the reads pool and account creation on the writes pool.
+ */
+@Singleton
+public class AsyncAccountService implements IAsyncAccountService {
+
+    private final IAccountService accountService;
+    private final BlockingWork reads;
+    private final BlockingWork writes;
+
+    @Inject
+    public AsyncAccountService(IAccountService accountService, @Named(BlockingWorkFactory.READS) BlockingWork reads, @Named(BlockingWorkFactory.WRITES) BlockingWork writes) {
+        this.accountService = accountService;
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Account>> findAccount(AccountId accountId) {
+        return reads.submit(() -> accountService.findAccount(accountId));
+    }
+
+    @Override
+    public CompletableFuture<AccountId> createAccount(Amount initialAmount) {
+        return writes.submit(() -> accountService.createAccount(initialAmount));
+    }
+
+    @Override
+    public CompletableFuture<List<AccountId>> createAccounts(List<Amount> initialAmounts) {
+        return writes.submit(() -> accountService.createAccounts(initialAmounts));
+    }
+}
@@ -0,0 +1,15 @@
+package com.revolut.challenge.domain.services.account;
+
+
+/**
+ * How {@link IAccountService#tryDebitAccount} ended.
+ */
+public enum DebitOutcome {
+    DEBITED,
+    INSUFFICIENT_FUNDS,
+    INVALID_ACCOUNT,
+    /**
+     * Every attempt lost the version check of the repository; nothing was saved.
+     */
+    CONCURRENT_UPDATES
+}
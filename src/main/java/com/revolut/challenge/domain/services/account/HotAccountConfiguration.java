@@ -0,0 +1,29 @@
+package com.revolut.challenge.domain.services.account;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.accounts.hot")
+public class HotAccountConfiguration {
+    /**
+     * Accounts in hot mode from startup.
+     */
+    private List<UUID> accounts = new ArrayList<>();
+    private int cells = 16;
+    private boolean autoPromote = false;
+    /**
+     * Credits that must find the account's lock taken within {@link #contentionWindow} for it to be promoted.
+     */
+    private int contentionThreshold = 64;
+    private Duration contentionWindow = Duration.ofSeconds(1);
+    private Duration foldInterval = Duration.ofSeconds(1);
+}
@@ -0,0 +1,131 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Credits of hot accounts that are not in the account's balance yet. Each hot account has a few credit cells, in the
+ * style of {@link java.util.concurrent.atomic.LongAdder}: a credit adds to the cell of the crediting thread without
+ * taking the account's lock or saving the account, so concurrent credits to the same beneficiary do not serialize.
+ * <p>
+ * The cells are summed for reads and drained back into the balance by {@link AccountService} when a debit needs them
+ * and every {@code fold-interval}. The credits and drains are logged with the postings by a durable account repository,
+ * so that the credits not in a balance yet survive a restart.
+ */
+@Slf4j
+@Singleton
+public class HotAccountCredits {
+
+    private static final int CELL_STRIDE = 8;  //one cell per 64 byte cache line
+
+    private final HotAccountConfiguration configuration;
+    private final Map<AccountId, AtomicLongArray> creditCells = new ConcurrentHashMap<>();
+    private final Cache<AccountId, AtomicInteger> contendedCredits;
+
+    @Inject
+    public HotAccountCredits(HotAccountConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        contendedCredits = CacheBuilder.newBuilder().expireAfterWrite(configuration.getContentionWindow().toNanos(), TimeUnit.NANOSECONDS).maximumSize(10_000).build();
+        configuration.getAccounts().forEach(accountId -> promote(AccountId.from(accountId)));
+        Gauge.builder("accounts.hot", creditCells, Map::size).description("Accounts whose credits go to credit cells").register(meterRegistry);
+    }
+
+    public boolean isHot(AccountId accountId) {
+        return creditCells.containsKey(accountId);
+    }
+
+    public void promote(AccountId accountId) {
+        if (creditCells.putIfAbsent(accountId, new AtomicLongArray(configuration.getCells() * CELL_STRIDE)) == null) {
+            log.info("Account {} is now hot; its credits go to {} credit cells", accountId, configuration.getCells());
+        }
+    }
+
+    /**
+     * Counts a credit that found the account's lock taken, promoting the account once they reach the contention threshold.
+     */
+    public void recordContention(AccountId accountId) {
+        if (configuration.isAutoPromote() && !isHot(accountId)
+                && contendedCredits.asMap().computeIfAbsent(accountId, id -> new AtomicInteger()).incrementAndGet() >= configuration.getContentionThreshold()) {
+            promote(accountId);
+            contendedCredits.invalidate(accountId);
+        }
+    }
+
+    public Set<AccountId> getHotAccounts() {
+        return creditCells.keySet();
+    }
+
+    /**
+     * @throws IllegalStateException if the account is not hot
+     * @throws ArithmeticException if the cell overflows; the credit is not added
+     */
+    public void credit(AccountId accountId, Amount amount) {
+        add(cellsOf(accountId), amount.getMinorUnits());
+    }
+
+    /**
+     * Sum of the credits not drained yet, in minor units; 0 for accounts that are not hot.
+     *
+     * @throws ArithmeticException if the sum overflows
+     */
+    public long pendingCredits(AccountId accountId) {
+        AtomicLongArray cells = creditCells.get(accountId);
+        long pendingCredits = 0;
+        for (int i = 0; cells != null && i < cells.length(); i += CELL_STRIDE) {
+            pendingCredits = Math.addExact(pendingCredits, cells.get(i));
+        }
+        return pendingCredits;
+    }
+
+    /**
+     * Takes the credits out of the cells and returns their sum in minor units; credits added meanwhile stay for the next drain.
+     */
+    public long drain(AccountId accountId) {
+        AtomicLongArray cells = creditCells.get(accountId);
+        long drainedCredits = 0;
+        for (int i = 0; cells != null && i < cells.length(); i += CELL_STRIDE) {
+            drainedCredits += cells.getAndSet(i, 0);
+        }
+        return drainedCredits;
+    }
+
+    /**
+     * Puts drained credits back, when they could not be saved.
+     */
+    public void restore(AccountId accountId, long minorUnits) {
+        add(cellsOf(accountId), minorUnits);
+    }
+
+    private AtomicLongArray cellsOf(AccountId accountId) {
+        AtomicLongArray cells = creditCells.get(accountId);
+        if (cells == null) {
+            throw new IllegalStateException("Account is not hot " + accountId);
+        }
+        return cells;
+    }
+
+    private static void add(AtomicLongArray cells, long minorUnits) {
+        int cell = (int) (mix(Thread.currentThread().getId()) % (cells.length() / CELL_STRIDE));
+        cells.getAndUpdate(cell * CELL_STRIDE, credits -> Math.addExact(credits, minorUnits));
+    }
+
+    private static long mix(long value) {
+        long mixed = value * 0x9E3779B97F4A7C15L;
+        return (mixed ^ (mixed >>> 32)) & Long.MAX_VALUE;
+    }
+}
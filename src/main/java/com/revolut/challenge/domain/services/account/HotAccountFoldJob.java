@@ -0,0 +1,21 @@
+package com.revolut.challenge.domain.services.account;
+
+import io.micronaut.scheduling.annotation.Scheduled;
+
+import javax.inject.Singleton;
+
+
+@Singleton
+public class HotAccountFoldJob {
+
+    private IAccountService accountService;
+
+    public HotAccountFoldJob(IAccountService accountService) {
+        this.accountService = accountService;
+    }
+
+    @Scheduled(fixedDelay = "${challenge.accounts.hot.fold-interval:1s}", initialDelay = "${challenge.accounts.hot.fold-interval:1s}")
+    public void foldPendingCredits() {
+        accountService.foldPendingCredits();
+    }
+}
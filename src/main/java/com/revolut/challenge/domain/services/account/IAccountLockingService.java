@@ -2,9 +2,37 @@ package com.revolut.challenge.domain.services.account;
 
 import com.revolut.challenge.domain.model.account.AccountId;
 
+import java.time.Duration;
+
 
 public interface IAccountLockingService {
     void lockAccount(AccountId accountId);
 
+    /**
+     * @return false if the account could not be locked within the timeout
+     */
+    boolean tryLockAccount(AccountId accountId, Duration timeout) throws InterruptedException;
+
     void unlockAccount(AccountId accountId);
+
+    /**
+     * Whether some thread holds the lock of the account, which may be shared with other accounts.
+     */
+    boolean isLocked(AccountId accountId);
+
+    /**
+     * Locks all the accounts in an order that is the same for every caller, so that two callers locking overlapping
+     * accounts cannot deadlock.
+     */
+    void lockAccounts(AccountId... accountIds);
+
+    /**
+     * Locks all the accounts in the same order as {@link #lockAccounts(AccountId...)}, or none of them if they could not
+     * all be locked within the timeout.
+     *
+     * @return false if no account was locked
+     */
+    boolean tryLockAccounts(Duration timeout, AccountId... accountIds) throws InterruptedException;
+
+    void unlockAccounts(AccountId... accountIds);
 }
@@ -1,14 +1,81 @@
 package com.revolut.challenge.domain.services.account;
 
+import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 
 public interface IAccountService {
     boolean isAccountValid(AccountId accountId);
+
+    /**
+     * The account as stored, with the credits still pending in its credit cells when it is a hot account.
+     */
+    Optional<Account> findAccount(AccountId accountId);
+
     void creditAccount(AccountId accountId, Amount amount) throws InvalidAccountException;
     void debitAccount(AccountId accountId, Amount amount) throws InvalidAccountException, InsufficientFundsException;
 
+    /**
+     * Like {@link #debitAccount}, returning the expected failures instead of throwing them, which is cheaper when they are frequent.
+     */
+    DebitOutcome tryDebitAccount(AccountId accountId, Amount amount);
+
+    /**
+     * Debits the source and credits the beneficiary as one repository operation: either both postings are saved or neither.
+     */
+    void transfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount) throws InvalidAccountException, InsufficientFundsException;
+
+    /**
+     * Like {@link #transfer}, returning the expected failures, insufficient funds first of all, instead of throwing them.
+     */
+    TransferOutcome tryTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount);
+
+    /**
+     * Like {@link #tryTransfer(AccountId, AccountId, Amount)}, recording in the timeline when the accounts were locked,
+     * the source debited and the postings saved.
+     */
+    TransferOutcome tryTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, Amount amount, TransferTimeline timeline);
+
+    /**
+     * Like {@link #tryTransfer(AccountId, AccountId, Amount, TransferTimeline)} for the money transfer, which is saved
+     * completed with its postings by a durable account repository, see {@link IAccountRepository#saveAll(Collection, Collection)}.
+     */
+    TransferOutcome tryTransfer(MoneyTransfer moneyTransfer, TransferTimeline timeline);
+
+    /**
+     * Applies the transfers in order, each deciding on funds against the balances left by the ones before it, and saves
+     * every account they change once, with its net balance, as one repository operation together with the transfers
+     * completed. Like {@link #tryTransfer}, expected failures are returned rather than thrown.
+     *
+     * @return the outcome of each transfer, in the same order
+     */
+    List<TransferOutcome> transferAll(List<MoneyTransfer> moneyTransfers);
+
+    /**
+     * Like {@link #transferAll(List)}, recording the stages reached by each transfer in its timeline, in the same order.
+     */
+    List<TransferOutcome> transferAll(List<MoneyTransfer> moneyTransfers, List<TransferTimeline> timelines);
+
     AccountId createAccount(Amount initialAmount);
+
+    /**
+     * Creates an account per initial amount with one repository operation.
+     *
+     * @return the ids of the accounts, in the same order
+     */
+    List<AccountId> createAccounts(List<Amount> initialAmounts);
+
+    /**
+     * Saves the credits pending in the credit cells of every hot account into its balance.
+     */
+    void foldPendingCredits();
 }
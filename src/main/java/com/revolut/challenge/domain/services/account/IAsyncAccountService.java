@@ -0,0 +1,29 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * {@link IAccountService} operations run off the calling thread. The futures fail with a
+ * {@link java.util.concurrent.RejectedExecutionException} when there is no room to run the operation.
+ */
+public interface IAsyncAccountService {
+
+    /**
+     * @see IAccountService#findAccount(AccountId)
+     */
+    CompletableFuture<Optional<Account>> findAccount(AccountId accountId);
+
+    CompletableFuture<AccountId> createAccount(Amount initialAmount);
+
+    /**
+     * @see IAccountService#createAccounts(List)
+     */
+    CompletableFuture<List<AccountId>> createAccounts(List<Amount> initialAmounts);
+}
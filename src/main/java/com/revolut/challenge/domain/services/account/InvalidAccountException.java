@@ -1,10 +1,15 @@
 package com.revolut.challenge.domain.services.account;
 
 import com.revolut.challenge.domain.model.account.AccountId;
+import lombok.Getter;
 
 
+@Getter
 public class InvalidAccountException extends Exception {
+    private final AccountId accountId;
+
     public InvalidAccountException(AccountId accountId) {
         super(String.format("Invalid Account Specified %s", accountId.toString()));
+        this.accountId = accountId;
     }
 }
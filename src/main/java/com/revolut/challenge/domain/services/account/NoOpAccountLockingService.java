@@ -0,0 +1,48 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import io.micronaut.context.annotation.Requires;
+
+import javax.inject.Singleton;
+import java.time.Duration;
+
+
+/**
+ * Optimistic concurrency: accounts are never locked and concurrent updates are only caught by the version check of the
+ * repository, after which {@link AccountService} retries the update.
+ */
+@Singleton
+@Requires(property = "challenge.accounts.concurrency", value = "optimistic")
+public class NoOpAccountLockingService implements IAccountLockingService {
+
+    @Override
+    public void lockAccount(AccountId accountId) {
+    }
+
+    @Override
+    public boolean tryLockAccount(AccountId accountId, Duration timeout) {
+        return true;
+    }
+
+    @Override
+    public void unlockAccount(AccountId accountId) {
+    }
+
+    @Override
+    public boolean isLocked(AccountId accountId) {
+        return false;
+    }
+
+    @Override
+    public void lockAccounts(AccountId... accountIds) {
+    }
+
+    @Override
+    public boolean tryLockAccounts(Duration timeout, AccountId... accountIds) {
+        return true;
+    }
+
+    @Override
+    public void unlockAccounts(AccountId... accountIds) {
+    }
+}
@@ -0,0 +1,178 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * One lock per account, kept in the table only while some thread holds or waits for it.
+ */
+@Singleton
+@Requires(property = "challenge.accounts.concurrency", value = "pessimistic", defaultValue = "pessimistic")
+@Requires(property = "challenge.accounts.locks.table", value = "per-account")
+public class PerAccountLockingService implements IAccountLockingService {
+
+    private static final Comparator<AccountId> LOCK_ORDER = Comparator.comparing(AccountId::getId);
+
+    private final Map<AccountId, AccountLock> locks = new ConcurrentHashMap<>();
+    private final AccountLockMetrics metrics;
+
+    @Inject
+    public PerAccountLockingService(HotAccountCredits hotAccountCredits, MeterRegistry meterRegistry) {
+        metrics = new AccountLockMetrics(meterRegistry, hotAccountCredits, 0);
+        Gauge.builder("accounts.lock.table.size", locks, Map::size).description("Account locks held or waited for").register(meterRegistry);
+    }
+
+    @Override
+    public void lockAccount(AccountId accountId) {
+        AccountLock lock = reference(accountId);
+        if (lock.tryLock()) {
+            acquired(lock, accountId, 0);
+            return;
+        }
+        AccountLockWaitEvent waitEvent = new AccountLockWaitEvent();
+        waitEvent.begin();
+        long start = System.nanoTime();
+        lock.lock();
+        acquired(lock, accountId, Math.max(1, System.nanoTime() - start));
+        waitEvent.commit(accountId, AccountLockWaitEvent.NO_STRIPE, true);
+    }
+
+    @Override
+    public boolean tryLockAccount(AccountId accountId, Duration timeout) throws InterruptedException {
+        return tryLockAccount(accountId, System.nanoTime() + timeout.toNanos());
+    }
+
+    @Override
+    public void unlockAccount(AccountId accountId) {
+        AccountLock lock = locks.get(accountId);
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            throw new IllegalMonitorStateException("Account is not locked by this thread " + accountId);
+        }
+        if (lock.getHoldCount() == 1 && lock.acquiredAt != 0) {
+            long holdNanos = System.nanoTime() - lock.acquiredAt;
+            metrics.recordHold(holdNanos);
+            if (metrics.isHot(accountId)) {
+                metrics.recordHotAccountHold(accountId, holdNanos);
+            }
+        }
+        lock.unlock();
+        dereference(accountId);
+    }
+
+    @Override
+    public boolean isLocked(AccountId accountId) {
+        AccountLock lock = locks.get(accountId);
+        return lock != null && lock.isLocked();
+    }
+
+    @Override
+    public void lockAccounts(AccountId... accountIds) {
+        for (AccountId accountId : inLockOrder(accountIds)) {
+            lockAccount(accountId);
+        }
+    }
+
+    @Override
+    public boolean tryLockAccounts(Duration timeout, AccountId... accountIds) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        AccountId[] accountIdsInLockOrder = inLockOrder(accountIds);
+        for (int i = 0; i < accountIdsInLockOrder.length; i++) {
+            boolean locked = false;
+            try {
+                locked = tryLockAccount(accountIdsInLockOrder[i], deadline);
+            } finally {
+                if (!locked) {
+                    unlockAccounts(Arrays.copyOf(accountIdsInLockOrder, i));
+                }
+            }
+            if (!locked) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void unlockAccounts(AccountId... accountIds) {
+        AccountId[] accountIdsInLockOrder = inLockOrder(accountIds);
+        for (int i = accountIdsInLockOrder.length - 1; i >= 0; i--) {
+            unlockAccount(accountIdsInLockOrder[i]);
+        }
+    }
+
+    private boolean tryLockAccount(AccountId accountId, long deadline) throws InterruptedException {
+        AccountLock lock = reference(accountId);
+        boolean locked = false;
+        try {
+            if (lock.tryLock()) {
+                acquired(lock, accountId, 0);
+                locked = true;
+                return true;
+            }
+            AccountLockWaitEvent waitEvent = new AccountLockWaitEvent();
+            waitEvent.begin();
+            long start = System.nanoTime();
+            locked = lock.tryLock(deadline - start, TimeUnit.NANOSECONDS);
+            if (locked) {
+                acquired(lock, accountId, Math.max(1, System.nanoTime() - start));
+            }
+            waitEvent.commit(accountId, AccountLockWaitEvent.NO_STRIPE, locked);
+            return locked;
+        } finally {
+            if (!locked) {
+                dereference(accountId);
+            }
+        }
+    }
+
+    /**
+     * @param waitNanos 0 when the lock was free
+     */
+    private void acquired(AccountLock lock, AccountId accountId, long waitNanos) {
+        if (lock.getHoldCount() > 1) {  //reentrant locks are neither waited for nor timed again
+            return;
+        }
+        metrics.recordAcquisition();
+        if (waitNanos > 0) {
+            metrics.recordWait(waitNanos);
+            if (metrics.isHot(accountId)) {
+                metrics.recordHotAccountWait(accountId, waitNanos);
+            }
+        }
+        lock.acquiredAt = metrics.sampleHold(accountId) ? System.nanoTime() : 0;
+    }
+
+    private AccountLock reference(AccountId accountId) {
+        return locks.compute(accountId, (id, lock) -> {
+            AccountLock referencedLock = lock == null ? new AccountLock() : lock;
+            referencedLock.references++;
+            return referencedLock;
+        });
+    }
+
+    private void dereference(AccountId accountId) {
+        locks.computeIfPresent(accountId, (id, lock) -> --lock.references == 0 ? null : lock);
+    }
+
+    private static AccountId[] inLockOrder(AccountId[] accountIds) {
+        return Arrays.stream(accountIds).distinct().sorted(LOCK_ORDER).toArray(AccountId[]::new);
+    }
+
+    private static class AccountLock extends ReentrantLock {
+        private int references;  //threads holding or waiting for the lock, guarded by the table entry
+        private long acquiredAt;  //0 unless the hold time is sampled; written and read by the owner only
+    }
+}
@@ -0,0 +1,20 @@
+package com.revolut.challenge.domain.services.account;
+
+
+/**
+ * How {@link IAccountService#tryTransfer} settled a transfer, or {@link IAccountService#transferAll} one transfer of a batch.
+ */
+public enum TransferOutcome {
+    COMPLETED,
+    INSUFFICIENT_FUNDS,
+    INVALID_SOURCE_ACCOUNT,
+    INVALID_BENEFICIARY_ACCOUNT,
+    /**
+     * Crediting the beneficiary would overflow its balance.
+     */
+    BALANCE_OVERFLOW,
+    /**
+     * Every attempt lost the version check of the repository; nothing was saved. Returned for every transfer of a batch by {@link IAccountService#transferAll}.
+     */
+    CONCURRENT_UPDATES
+}
@@ -0,0 +1,66 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.infra.executors.BlockingWork;
+import com.revolut.challenge.infra.executors.BlockingWorkFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * Runs transfer creation on the writes pool and lookups on the reads pool.
+ */
+@Singleton
+public class AsyncMoneyTransferCreationService implements IAsyncMoneyTransferCreationService {
+
+    private final IMoneyTransferCreationService moneyTransferCreationService;
+    private final IMoneyTransferRepository moneyTransferRepository;
+    private final MoneyTransferSettlements settlements;
+    private final BlockingWork reads;
+    private final BlockingWork writes;
+
+    @Inject
+    public AsyncMoneyTransferCreationService(IMoneyTransferCreationService moneyTransferCreationService, IMoneyTransferRepository moneyTransferRepository,
+                                             MoneyTransferSettlements settlements, @Named(BlockingWorkFactory.READS) BlockingWork reads,
+                                             @Named(BlockingWorkFactory.WRITES) BlockingWork writes) {
+        this.moneyTransferCreationService = moneyTransferCreationService;
+        this.moneyTransferRepository = moneyTransferRepository;
+        this.settlements = settlements;
+        this.reads = reads;
+        this.writes = writes;
+    }
+
+    @Override
+    public CompletableFuture<TransferRequestId> requestMoneyTransfer(MoneyTransferRequest request, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return writes.submit(() -> moneyTransferCreationService.requestMoneyTransfer(request));
+        }
+        return writes.submit(() -> moneyTransferCreationService.requestMoneyTransfer(request, idempotencyKey));
+    }
+
+    @Override
+    public CompletableFuture<List<MoneyTransferCreationResult>> requestMoneyTransfers(List<MoneyTransferRequest> requests) {
+        return writes.submit(() -> moneyTransferCreationService.requestMoneyTransfers(requests));
+    }
+
+    @Override
+    public CompletableFuture<Optional<MoneyTransfer>> findMoneyTransfer(TransferRequestId requestId) {
+        return reads.submit(() -> moneyTransferRepository.findById(requestId));
+    }
+
+    /**
+     * Only the registration, which reads the transfer, takes a thread of the reads pool; the wait itself takes none.
+     */
+    @Override
+    public CompletableFuture<Optional<MoneyTransfer>> awaitSettlement(TransferRequestId requestId, Duration timeout) {
+        return reads.submit(() -> settlements.awaitSettlement(requestId, timeout)).thenCompose(settlement -> settlement);
+    }
+}
@@ -0,0 +1,19 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.batched")
+public class BatchingEngineConfiguration {
+    /**
+     * How long a batch keeps collecting transfers after its first one arrived.
+     */
+    private Duration window = Duration.ofMillis(2);
+    private int maxBatchSize = 256;
+}
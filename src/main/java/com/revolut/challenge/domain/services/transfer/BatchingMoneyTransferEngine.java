@@ -0,0 +1,160 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.runtime.event.annotation.EventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Collects created money transfers into batches, closed once {@code challenge.transfers.batched.window} has passed
+ * since their first transfer or once they hold {@code max-batch-size} transfers, and processes each batch with
+ * {@link IMoneyTransferService#transferAll} on the worker pool. Many small transfers between the same accounts then
+ * cost one lock, load and save per account and batch instead of one per transfer.
+ * <p>
+ * A batch starts only once the batches before it sharing one of its accounts are processed, so the transfers of an
+ * account are applied in arrival order across batches as well as within one. Batches left pending are processed on close.
+ * <p>
+ * Replaces {@link MoneyTransferProcessingService} when {@code challenge.transfers.engine} is {@code batched}.
+ * The queue of pending transfers is bounded by {@link MoneyTransferBacklog}.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.transfers.engine", value = "batched")
+public class BatchingMoneyTransferEngine {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private IMoneyTransferService moneyTransferService;
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferBacklog backlog;
+    private final BatchingEngineConfiguration configuration;
+    private final BlockingQueue<TransferRequestId> pendingTransfers = new LinkedBlockingQueue<>();
+    private final Map<AccountId, CompletableFuture<Void>> lastBatchByAccount = new ConcurrentHashMap<>();
+    private final ExecutorService workers;
+    private final Thread collector;
+    private final DistributionSummary batchSizes;
+    private volatile boolean running = true;
+
+    @Inject
+    public BatchingMoneyTransferEngine(IMoneyTransferService moneyTransferService, IMoneyTransferRepository moneyTransferRepository, MoneyTransferBacklog backlog,
+                                       TransferProcessingConfiguration processingConfiguration, BatchingEngineConfiguration configuration, MeterRegistry meterRegistry) {
+        this.moneyTransferService = moneyTransferService;
+        this.moneyTransferRepository = moneyTransferRepository;
+        this.backlog = backlog;
+        this.configuration = configuration;
+        workers = Executors.newFixedThreadPool(processingConfiguration.getWorkers(), new ThreadFactoryBuilder().setNameFormat("transfer-worker-%d").setDaemon(true).build());
+        new ExecutorServiceMetrics(workers, "transfer-workers", Tags.empty()).bindTo(meterRegistry);
+        batchSizes = DistributionSummary.builder("transfers.batch.size").description("Money transfers processed per batch").register(meterRegistry);
+        collector = new Thread(this::collectBatches, "transfer-batch-collector");
+        collector.setDaemon(true);
+        collector.start();
+        log.info("Batching money transfers over {} or up to {} transfers", configuration.getWindow(), configuration.getMaxBatchSize());
+    }
+
+    @EventListener
+    public void onMoneyTransferCreated(MoneyTransferCreatedEvent event) {
+        pendingTransfers.add(event.getRequestId());
+    }
+
+    @EventListener
+    public void onMoneyTransfersCreated(MoneyTransfersCreatedEvent event) {
+        pendingTransfers.addAll(event.getRequestIds());
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        try {
+            collector.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        CompletableFuture.allOf(lastBatchByAccount.values().toArray(new CompletableFuture<?>[0])).join();
+        workers.shutdown();
+    }
+
+    private void collectBatches() {
+        while (running || !pendingTransfers.isEmpty()) {
+            try {
+                List<TransferRequestId> batch = nextBatch();
+                if (!batch.isEmpty()) {
+                    dispatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private List<TransferRequestId> nextBatch() throws InterruptedException {
+        List<TransferRequestId> batch = new ArrayList<>();
+        TransferRequestId requestId = pendingTransfers.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        long deadline = System.nanoTime() + configuration.getWindow().toNanos();
+        while (requestId != null) {
+            batch.add(requestId);
+            pendingTransfers.drainTo(batch, configuration.getMaxBatchSize() - batch.size());
+            long remainingNanos = deadline - System.nanoTime();
+            if (batch.size() >= configuration.getMaxBatchSize() || remainingNanos <= 0) {
+                break;
+            }
+            requestId = pendingTransfers.poll(remainingNanos, TimeUnit.NANOSECONDS);
+        }
+        return batch;
+    }
+
+    /**
+     * Hands the batch to the workers once every batch dispatched before it that shares one of its accounts is processed.
+     */
+    private void dispatch(List<TransferRequestId> batch) {
+        Set<AccountId> accountIds = new HashSet<>();
+        for (TransferRequestId requestId : batch) {
+            moneyTransferRepository.findById(requestId).ifPresent(moneyTransfer -> {
+                accountIds.add(moneyTransfer.getSourceAccountId());
+                accountIds.add(moneyTransfer.getBeneficiaryAccountId());
+            });
+        }
+        CompletableFuture<?>[] previousBatches = accountIds.stream().map(lastBatchByAccount::get).filter(Objects::nonNull).distinct().toArray(CompletableFuture<?>[]::new);
+        CompletableFuture<Void> processed = CompletableFuture.allOf(previousBatches).exceptionally(e -> null).thenRunAsync(() -> process(batch), workers);
+        for (AccountId accountId : accountIds) {
+            lastBatchByAccount.put(accountId, processed);
+        }
+        processed.whenComplete((ignored, e) -> accountIds.forEach(accountId -> lastBatchByAccount.remove(accountId, processed)));
+    }
+
+    private void process(List<TransferRequestId> batch) {
+        batchSizes.record(batch.size());
+        try {
+            moneyTransferService.transferAll(batch);
+        } catch (RuntimeException e) {
+            log.error("Failed to process a batch of {} money transfers {}", batch.size(), batch, e);
+        } finally {
+            backlog.release(batch.size());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+
+/**
+ * {@link IMoneyTransferCreationService} operations run off the calling thread. The futures fail with the exceptions
+ * the blocking operations throw, or with a {@link java.util.concurrent.RejectedExecutionException} when there is no
+ * room to run the operation.
+ */
+public interface IAsyncMoneyTransferCreationService {
+
+    /**
+     * @param idempotencyKey null when the request is not to be deduplicated
+     * @see IMoneyTransferCreationService#requestMoneyTransfer(MoneyTransferRequest, String)
+     */
+    CompletableFuture<TransferRequestId> requestMoneyTransfer(MoneyTransferRequest request, String idempotencyKey);
+
+    /**
+     * @see IMoneyTransferCreationService#requestMoneyTransfers(List)
+     */
+    CompletableFuture<List<MoneyTransferCreationResult>> requestMoneyTransfers(List<MoneyTransferRequest> requests);
+
+    CompletableFuture<Optional<MoneyTransfer>> findMoneyTransfer(TransferRequestId requestId);
+
+    /**
+     * @see MoneyTransferSettlements#awaitSettlement(TransferRequestId, Duration)
+     */
+    CompletableFuture<Optional<MoneyTransfer>> awaitSettlement(TransferRequestId requestId, Duration timeout);
+}
@@ -3,7 +3,27 @@ package com.revolut.challenge.domain.services.transfer;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
 import com.revolut.challenge.domain.services.account.InvalidAccountException;
 
+import java.util.List;
+
 
 public interface IMoneyTransferCreationService {
-    TransferRequestId requestMoneyTransfer(MoneyTransferRequest request) throws InvalidAccountException, InvalidTransferAmountException;
+    TransferRequestId requestMoneyTransfer(MoneyTransferRequest request) throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException;
+
+    /**
+     * Like {@link #requestMoneyTransfer(MoneyTransferRequest)}, but returns the transfer already created for the key
+     * when the request is repeated, without validating it again.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    TransferRequestId requestMoneyTransfer(MoneyTransferRequest request, String idempotencyKey)
+            throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException;
+
+    /**
+     * Validates the requests, checking each distinct account once, saves the transfers of the valid ones with one
+     * repository call and hands them to the engine as one unit. Once the backlog rejects a request, the rest of the
+     * requests are rejected too, without waiting for room again.
+     *
+     * @return the result of each request, in the same order
+     */
+    List<MoneyTransferCreationResult> requestMoneyTransfers(List<MoneyTransferRequest> requests);
 }
@@ -2,7 +2,14 @@ package com.revolut.challenge.domain.services.transfer;
 
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
 
+import java.util.List;
+
 
 public interface IMoneyTransferService {
     void transferMoney(TransferRequestId requestId) throws InvalidTransferRequestException;
+
+    /**
+     * Processes the transfers as one batch, netting their postings per account; unknown request ids are skipped.
+     */
+    void transferAll(List<TransferRequestId> requestIds);
 }
@@ -0,0 +1,9 @@
+package com.revolut.challenge.domain.services.transfer;
+
+
+public class IdempotencyKeyReusedException extends Exception {
+
+    public IdempotencyKeyReusedException(String idempotencyKey) {
+        super(String.format("Idempotency key %s was already used for a different money transfer", idempotencyKey));
+    }
+}
@@ -0,0 +1,73 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Bounds the number of money transfers accepted but not processed yet. A transfer is admitted before it is created and
+ * released by the engine once it reaches a final status, so a spike turns into rejected requests instead of an
+ * ever growing queue.
+ */
+@Singleton
+public class MoneyTransferBacklog {
+
+    private final TransferProcessingConfiguration configuration;
+    private final Semaphore permits;
+    private final Counter rejectedTransfers;
+
+    @Inject
+    public MoneyTransferBacklog(TransferProcessingConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        permits = new Semaphore(configuration.getQueueCapacity());
+        Gauge.builder("transfers.backlog.depth", this, MoneyTransferBacklog::getDepth).description("Money transfers accepted but not processed yet").register(meterRegistry);
+        rejectedTransfers = Counter.builder("transfers.backlog.rejected").description("Money transfers rejected because the backlog was full").register(meterRegistry);
+    }
+
+    /**
+     * @throws TransferBacklogFullException if the backlog is full, after waiting for room when the policy is {@link OverloadPolicy#WAIT}
+     */
+    public void admit() throws TransferBacklogFullException {
+        if (!tryAcquire()) {
+            rejectedTransfers.increment();
+            throw new TransferBacklogFullException(configuration.getQueueCapacity(), configuration.getRetryAfter());
+        }
+    }
+
+    /**
+     * Admits a transfer accepted before a restart, waiting as long as it takes for room rather than rejecting it.
+     */
+    public void readmit() {
+        permits.acquireUninterruptibly();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public void release(int transfers) {
+        permits.release(transfers);
+    }
+
+    public int getDepth() {
+        return configuration.getQueueCapacity() - permits.availablePermits();
+    }
+
+    private boolean tryAcquire() {
+        if (configuration.getOverloadPolicy() == OverloadPolicy.REJECT) {
+            return permits.tryAcquire();
+        }
+        try {
+            return permits.tryAcquire(configuration.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.Optional;
+
+
+/**
+ * The result of one request of a batch submission: the transfer created for it, or why it was rejected.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class MoneyTransferCreationResult {
+    private TransferRequestId requestId;
+    private Exception rejection;
+
+    public static MoneyTransferCreationResult created(TransferRequestId requestId) {
+        return new MoneyTransferCreationResult(requestId, null);
+    }
+
+    /**
+     * @param rejection {@link com.revolut.challenge.domain.services.account.InvalidAccountException}, {@link InvalidTransferAmountException}
+     *                  or {@link TransferBacklogFullException}, as thrown for a single request
+     */
+    public static MoneyTransferCreationResult rejected(Exception rejection) {
+        return new MoneyTransferCreationResult(null, rejection);
+    }
+
+    public Optional<TransferRequestId> getRequestId() {
+        return Optional.ofNullable(requestId);
+    }
+}
@@ -10,6 +10,10 @@ import io.micronaut.context.event.ApplicationEventPublisher;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 
@@ -19,32 +23,100 @@ public class MoneyTransferCreationService implements IMoneyTransferCreationServi
     private IMoneyTransferRepository moneyTransferRepository;
     private IAccountService accountService;
     private ApplicationEventPublisher publisher;
+    private MoneyTransferBacklog backlog;
+    private TransferIdempotencyKeys idempotencyKeys;
+    private TransferTimelines timelines;
 
     @Inject
-    public MoneyTransferCreationService(IMoneyTransferRepository moneyTransferRepository, IAccountService accountService, ApplicationEventPublisher publisher) {
+    public MoneyTransferCreationService(IMoneyTransferRepository moneyTransferRepository, IAccountService accountService, ApplicationEventPublisher publisher, MoneyTransferBacklog backlog,
+                                        TransferIdempotencyKeys idempotencyKeys, TransferTimelines timelines) {
         this.moneyTransferRepository = moneyTransferRepository;
         this.accountService = accountService;
         this.publisher = publisher;
+        this.backlog = backlog;
+        this.idempotencyKeys = idempotencyKeys;
+        this.timelines = timelines;
     }
 
     @Override
-    public TransferRequestId requestMoneyTransfer(MoneyTransferRequest request) throws InvalidAccountException, InvalidTransferAmountException {
+    public TransferRequestId requestMoneyTransfer(MoneyTransferRequest request, String idempotencyKey)
+            throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        return idempotencyKeys.transferFor(idempotencyKey, request, () -> requestMoneyTransfer(request));
+    }
+
+    @Override
+    public TransferRequestId requestMoneyTransfer(MoneyTransferRequest request) throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
         throwIfRequestInvalid(request);
-        TransferRequestId transferRequestId = createMoneyTransfer(request);
-        publishMoneyTransferCreatedEvent(transferRequestId);
+        backlog.admit();
+        TransferRequestId transferRequestId;
+        try {
+            transferRequestId = createMoneyTransfer(request);
+        } catch (RuntimeException e) {
+            backlog.release();
+            throw e;
+        }
+        publishMoneyTransferCreatedEvent(transferRequestId);  //the engine releases the backlog once the transfer is processed
         return transferRequestId;
     }
 
+    @Override
+    public List<MoneyTransferCreationResult> requestMoneyTransfers(List<MoneyTransferRequest> requests) {
+        Map<AccountId, Boolean> validAccounts = new HashMap<>();
+        List<MoneyTransferCreationResult> results = new ArrayList<>(requests.size());
+        List<MoneyTransfer> moneyTransfers = new ArrayList<>(requests.size());
+        TransferBacklogFullException backlogFull = null;
+        for (MoneyTransferRequest request : requests) {
+            try {
+                throwIfRequestInvalid(request, validAccounts);
+                if (backlogFull != null) {
+                    throw backlogFull;
+                }
+                backlog.admit();
+                MoneyTransfer moneyTransfer = newMoneyTransfer(request);
+                moneyTransfers.add(moneyTransfer);
+                results.add(MoneyTransferCreationResult.created(moneyTransfer.getRequestId()));
+            } catch (TransferBacklogFullException e) {
+                backlogFull = e;
+                results.add(MoneyTransferCreationResult.rejected(e));
+            } catch (InvalidAccountException | InvalidTransferAmountException e) {
+                results.add(MoneyTransferCreationResult.rejected(e));
+            }
+        }
+        if (!moneyTransfers.isEmpty()) {
+            saveAndPublish(moneyTransfers);
+        }
+        return results;
+    }
+
+    private void saveAndPublish(List<MoneyTransfer> moneyTransfers) {
+        try {
+            moneyTransferRepository.saveAll(moneyTransfers);
+        } catch (RuntimeException e) {
+            backlog.release(moneyTransfers.size());
+            throw e;
+        }
+        List<TransferRequestId> requestIds = new ArrayList<>(moneyTransfers.size());
+        for (MoneyTransfer moneyTransfer : moneyTransfers) {
+            requestIds.add(moneyTransfer.getRequestId());
+        }
+        publisher.publishEvent(MoneyTransfersCreatedEvent.builder().requestIds(requestIds).build());
+    }
+
     private void publishMoneyTransferCreatedEvent(TransferRequestId transferRequestId) {
         publisher.publishEvent(MoneyTransferCreatedEvent.builder().requestId(transferRequestId).build());
     }
 
     private TransferRequestId createMoneyTransfer(MoneyTransferRequest request) {
-        TransferRequestId transferRequestId = TransferRequestId.from(UUID.randomUUID());
-        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(transferRequestId).amount(request.getAmount()).beneficiaryAccountId(request.getBeneficiaryAccountId()).sourceAccountId(request.getSourceAccountId())
-                                                   .build();
+        MoneyTransfer moneyTransfer = newMoneyTransfer(request);
         moneyTransferRepository.save(moneyTransfer);
-        return transferRequestId;
+        return moneyTransfer.getRequestId();
+    }
+
+    private MoneyTransfer newMoneyTransfer(MoneyTransferRequest request) {
+        TransferRequestId transferRequestId = TransferRequestId.from(UUID.randomUUID());
+        timelines.start(transferRequestId);
+        return MoneyTransfer.builder().requestId(transferRequestId).amount(request.getAmount()).beneficiaryAccountId(request.getBeneficiaryAccountId()).sourceAccountId(request.getSourceAccountId())
+                            .build();
     }
 
     private void throwIfRequestInvalid(MoneyTransferRequest request) throws InvalidAccountException, InvalidTransferAmountException {
@@ -53,6 +125,18 @@ public class MoneyTransferCreationService implements IMoneyTransferCreationServi
         throwIfAmountNegative(request);
     }
 
+    private void throwIfRequestInvalid(MoneyTransferRequest request, Map<AccountId, Boolean> validAccounts) throws InvalidAccountException, InvalidTransferAmountException {
+        throwIfAccountInvalid(request.getSourceAccountId(), validAccounts);
+        throwIfAccountInvalid(request.getBeneficiaryAccountId(), validAccounts);
+        throwIfAmountNegative(request);
+    }
+
+    private void throwIfAccountInvalid(AccountId accountId, Map<AccountId, Boolean> validAccounts) throws InvalidAccountException {
+        if (!validAccounts.computeIfAbsent(accountId, accountService::isAccountValid)) {
+            throw new InvalidAccountException(accountId);
+        }
+    }
+
     private void throwIfAmountNegative(MoneyTransferRequest request) throws InvalidTransferAmountException {
         if (request.getAmount().isNegative()) {
             throw new InvalidTransferAmountException(request.getAmount());
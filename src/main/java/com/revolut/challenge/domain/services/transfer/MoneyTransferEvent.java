@@ -0,0 +1,93 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+
+/**
+ * Flight recorder event of the processing of a money transfer, from its pick up by the engine to its settlement, so
+ * that the lock waits and repository operations recorded on the same thread meanwhile can be put down to it. The
+ * transfers traced by {@code challenge.transfers.tracing.sample-rate} also carry the spans between their
+ * {@link TransferStage}s, as {@link TransferStageTimers} time them. Transfers processed faster than the threshold of the
+ * recording, 1 ms unless set, are not recorded.
+ */
+@Name("com.revolut.challenge.MoneyTransfer")
+@Label("Money Transfer")
+@Category({"Challenge", "Transfers"})
+@Description("Processing of a money transfer, from its pick up to its settlement")
+@Threshold("1 ms")
+@StackTrace(false)
+class MoneyTransferEvent extends Event {
+
+    @Label("Transfer Id")
+    String transferId;
+
+    @Label("Source Account Id")
+    String sourceAccountId;
+
+    @Label("Beneficiary Account Id")
+    String beneficiaryAccountId;
+
+    @Label("Status")
+    @Description("Final status of the transfer")
+    String status;
+
+    @Label("Traced")
+    @Description("Whether the transfer has a timeline, hence the spans between its stages")
+    boolean traced;
+
+    @Label("Queued")
+    @Description("From its creation to its pick up, -1 if not traced")
+    @Timespan(Timespan.NANOSECONDS)
+    long queued;
+
+    @Label("Locking")
+    @Description("From its pick up to holding the locks of its accounts, -1 if not traced or not locked")
+    @Timespan(Timespan.NANOSECONDS)
+    long locking;
+
+    @Label("Debiting")
+    @Description("From holding the locks to debiting the source, -1 if not traced or not debited")
+    @Timespan(Timespan.NANOSECONDS)
+    long debiting;
+
+    @Label("Saving")
+    @Description("From debiting the source to saving the postings, -1 if not traced or not credited")
+    @Timespan(Timespan.NANOSECONDS)
+    long saving;
+
+    @Label("Settling")
+    @Description("From saving the postings to saving the final status, -1 if not traced or not credited")
+    @Timespan(Timespan.NANOSECONDS)
+    long settling;
+
+    /**
+     * Ends the processing of the settled transfer and records it if it lasted long enough, only then reading its
+     * timeline.
+     */
+    void commit(MoneyTransfer moneyTransfer, TransferTimeline timeline) {
+        end();
+        if (shouldCommit()) {
+            transferId = moneyTransfer.getRequestId().getId().toString();
+            sourceAccountId = moneyTransfer.getSourceAccountId().getId().toString();
+            beneficiaryAccountId = moneyTransfer.getBeneficiaryAccountId().getId().toString();
+            status = moneyTransfer.getStatus().name();
+            traced = timeline.isTracked();
+            queued = timeline.nanosBetween(TransferStage.CREATED, TransferStage.DEQUEUED);
+            locking = timeline.nanosBetween(TransferStage.DEQUEUED, TransferStage.DEBIT_LOCKED);
+            debiting = timeline.nanosBetween(TransferStage.DEBIT_LOCKED, TransferStage.DEBITED);
+            saving = timeline.nanosBetween(TransferStage.DEBITED, TransferStage.CREDITED);
+            settling = timeline.nanosBetween(TransferStage.CREDITED, TransferStage.SETTLED);
+            commit();
+        }
+    }
+}
@@ -1,26 +1,96 @@
 package com.revolut.challenge.domain.services.transfer;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import io.micronaut.context.annotation.Requires;
 import io.micronaut.runtime.event.annotation.EventListener;
-import io.micronaut.scheduling.annotation.Async;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 
+/**
+ * Processes each money transfer on a fixed pool of {@code challenge.transfers.processing.workers} threads.
+ * The pool's queue is bounded by {@link MoneyTransferBacklog}, which admitted the transfer before it was created.
+ */
 @Singleton
 @Slf4j
+@Requires(property = "challenge.transfers.engine", value = "async", defaultValue = "async")
 public class MoneyTransferProcessingService {
 
     private IMoneyTransferService moneyTransferService;
+    private MoneyTransferBacklog backlog;
+    private final ExecutorService workers;
+    private final Timer queueTime;
 
-    public MoneyTransferProcessingService(IMoneyTransferService moneyTransferService) {
+    @Inject
+    public MoneyTransferProcessingService(IMoneyTransferService moneyTransferService, MoneyTransferBacklog backlog, TransferProcessingConfiguration configuration, MeterRegistry meterRegistry) {
         this.moneyTransferService = moneyTransferService;
+        this.backlog = backlog;
+        workers = Executors.newFixedThreadPool(configuration.getWorkers(), new ThreadFactoryBuilder().setNameFormat("transfer-worker-%d").setDaemon(true).build());
+        new ExecutorServiceMetrics(workers, "transfer-workers", Tags.empty()).bindTo(meterRegistry);
+        queueTime = Timer.builder("transfers.processing.queue.time").description("Time money transfers wait for a worker").register(meterRegistry);
     }
 
-    @Async
     @EventListener
-    public void onMoneyTransferCreated(MoneyTransferCreatedEvent event) throws Throwable {
-        log.info("Processing money transfer created: {}", event);
-        moneyTransferService.transferMoney(event.getRequestId());
+    public void onMoneyTransferCreated(MoneyTransferCreatedEvent event) {
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> process(event, queuedAt));
+        } catch (RejectedExecutionException e) {
+            backlog.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Processes the transfers of a batch submission together with {@link IMoneyTransferService#transferAll} on one worker.
+     */
+    @EventListener
+    public void onMoneyTransfersCreated(MoneyTransfersCreatedEvent event) {
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> processAll(event, queuedAt));
+        } catch (RejectedExecutionException e) {
+            backlog.release(event.getRequestIds().size());
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        workers.shutdown();
+    }
+
+    private void process(MoneyTransferCreatedEvent event, long queuedAt) {
+        queueTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        try {
+            log.info("Processing money transfer created: {}", event);
+            moneyTransferService.transferMoney(event.getRequestId());
+        } catch (InvalidTransferRequestException | RuntimeException e) {
+            log.error("Failed to process money transfer {}", event, e);
+        } finally {
+            backlog.release();
+        }
+    }
+
+    private void processAll(MoneyTransfersCreatedEvent event, long queuedAt) {
+        queueTime.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        try {
+            moneyTransferService.transferAll(event.getRequestIds());
+        } catch (RuntimeException e) {
+            log.error("Failed to process a batch of {} money transfers", event.getRequestIds().size(), e);
+        } finally {
+            backlog.release(event.getRequestIds().size());
+        }
     }
 }
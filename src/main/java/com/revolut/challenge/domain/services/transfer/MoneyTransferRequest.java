@@ -6,7 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 
 
-@Builder
+@Builder(toBuilder = true)
 @Data
 public class MoneyTransferRequest {
     private AccountId beneficiaryAccountId;
@@ -1,96 +1,105 @@
 package com.revolut.challenge.domain.services.transfer;
 
-import com.revolut.challenge.domain.model.account.InsufficientFundsException;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
 import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
 import com.revolut.challenge.domain.services.account.IAccountService;
-import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import com.revolut.challenge.domain.services.account.TransferOutcome;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 
+/**
+ * Settles transfers through the outcome returning operations of {@link IAccountService}: insufficient funds and the
+ * other expected failures cost no exception and are counted by {@link MoneyTransferSettlements} rather than logged.
+ * Each transfer processed is a {@link MoneyTransferEvent}, committed to a flight recording when it is slow.
+ */
 @Slf4j
 public class MoneyTransferService implements IMoneyTransferService {
 
     private IAccountService accountService;
     private IMoneyTransferRepository moneyTransferRepository;
+    private TransferTimelines timelines;
+    private MoneyTransferSettlements settlements;
 
     @Inject
-    public MoneyTransferService(IAccountService accountService, IMoneyTransferRepository moneyTransferRepository) {
+    public MoneyTransferService(IAccountService accountService, IMoneyTransferRepository moneyTransferRepository, TransferTimelines timelines, MoneyTransferSettlements settlements) {
         this.accountService = accountService;
         this.moneyTransferRepository = moneyTransferRepository;
+        this.timelines = timelines;
+        this.settlements = settlements;
     }
 
     @Override
     public void transferMoney(TransferRequestId requestId) throws InvalidTransferRequestException {
+        MoneyTransferEvent event = new MoneyTransferEvent();
+        event.begin();
         Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(requestId);
         if (moneyTransfer.isPresent()) {
-            runMoneyTransfer(moneyTransfer.get());
+            TransferTimeline timeline = timelines.of(requestId);
+            timeline.record(TransferStage.DEQUEUED);
+            runMoneyTransfer(moneyTransfer.get(), timeline, event);
         } else {
             throw new InvalidTransferRequestException(requestId);
         }
     }
 
-    private void runMoneyTransfer(MoneyTransfer moneyTransfer) {
-        if (debitSourceAccount(moneyTransfer) && creditBeneficiary(moneyTransfer)) {
-            markTransferComplete(moneyTransfer);
+    @Override
+    public void transferAll(List<TransferRequestId> requestIds) {
+        List<MoneyTransfer> moneyTransfers = new ArrayList<>(requestIds.size());
+        List<TransferTimeline> transferTimelines = new ArrayList<>(requestIds.size());
+        List<MoneyTransferEvent> events = new ArrayList<>(requestIds.size());
+        for (TransferRequestId requestId : requestIds) {
+            MoneyTransferEvent event = new MoneyTransferEvent();
+            event.begin();
+            Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(requestId);
+            if (moneyTransfer.isPresent()) {
+                TransferTimeline timeline = timelines.of(requestId);
+                timeline.record(TransferStage.DEQUEUED);
+                moneyTransfers.add(moneyTransfer.get());
+                transferTimelines.add(timeline);
+                events.add(event);
+            } else {
+                log.error("Skipping unknown money transfer {}", requestId);
+            }
         }
-    }
-
-    private void markTransferComplete(MoneyTransfer moneyTransfer) {
-        moneyTransfer.complete();
-        moneyTransferRepository.save(moneyTransfer);
-    }
-
-    private boolean creditBeneficiary(MoneyTransfer moneyTransfer) {
-        try {
-            accountService.creditAccount(moneyTransfer.getBeneficiaryAccountId(), moneyTransfer.getAmount());
-            return true;
-        } catch (Exception e) {
-            log.error("Failed to credit beneficiary account {}", moneyTransfer, e);
-            markTransferFailedWhileCrediting(moneyTransfer);
-            compensateSourceAccount(moneyTransfer);
+        List<TransferOutcome> outcomes = accountService.transferAll(moneyTransfers, transferTimelines);
+        for (int i = 0; i < moneyTransfers.size(); i++) {
+            saveSettled(settle(moneyTransfers.get(i), outcomes.get(i)), transferTimelines.get(i), events.get(i));
         }
-        return false;
     }
 
-    private void compensateSourceAccount(MoneyTransfer moneyTransfer) {
-        try {
-            accountService.creditAccount(moneyTransfer.getSourceAccountId(), moneyTransfer.getAmount());
-        } catch (Exception e) {
-            log.error("Failed to compensate source account again. Manual Intervention needed {}", moneyTransfer, e);
+    private MoneyTransfer settle(MoneyTransfer moneyTransfer, TransferOutcome outcome) {
+        switch (outcome) {
+            case COMPLETED:
+                return moneyTransfer.complete();
+            case INSUFFICIENT_FUNDS:
+                return moneyTransfer.failDueToInsufficientFunds();
+            case INVALID_SOURCE_ACCOUNT:
+                log.error("Failed to debit source account, which does not exist {}", moneyTransfer);
+                return moneyTransfer.failWhileDebitingSource();
+            case CONCURRENT_UPDATES:  //counted in accounts.update.retries.exhausted; no posting was saved
+                return moneyTransfer.failWhileDebitingSource();
+            default:
+                log.error("Failed to credit beneficiary account ({}) {}", outcome, moneyTransfer);
+                return moneyTransfer.failWhileCreditingBeneficiary();
         }
     }
 
-    private boolean debitSourceAccount(MoneyTransfer moneyTransfer) {
-        try {
-            accountService.debitAccount(moneyTransfer.getSourceAccountId(), moneyTransfer.getAmount());
-            return true;
-        } catch (InsufficientFundsException e) {
-            log.error("Failed to debit source account due to insufficient funds {}", moneyTransfer, e);
-            markTransferFailedDueToInsufficientFunds(moneyTransfer);
-        } catch (InvalidAccountException e) {
-            log.error("Failed to debit source account {}", moneyTransfer, e);
-            markTransferFailedWhileDebitingSource(moneyTransfer);
-        }
-        return false;
-    }
-
-    private void markTransferFailedWhileDebitingSource(MoneyTransfer moneyTransfer) {
-        moneyTransfer.failWhileDebitingSource();
-        moneyTransferRepository.save(moneyTransfer);
-    }
-
-    private void markTransferFailedDueToInsufficientFunds(MoneyTransfer moneyTransfer) {
-        moneyTransfer.failDueToInsufficientFunds();
-        moneyTransferRepository.save(moneyTransfer);
+    private void runMoneyTransfer(MoneyTransfer moneyTransfer, TransferTimeline timeline, MoneyTransferEvent event) {
+        TransferOutcome outcome = accountService.tryTransfer(moneyTransfer, timeline);
+        saveSettled(settle(moneyTransfer, outcome), timeline, event);
     }
 
-    private void markTransferFailedWhileCrediting(MoneyTransfer moneyTransfer) {
-        moneyTransfer.failWhileCreditingBeneficiary();
+    private void saveSettled(MoneyTransfer moneyTransfer, TransferTimeline timeline, MoneyTransferEvent event) {
         moneyTransferRepository.save(moneyTransfer);
+        settlements.settled(moneyTransfer, timeline);
+        event.commit(moneyTransfer, timeline);
     }
 }
@@ -0,0 +1,128 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Futures completed when money transfers reach a final status, so requests can wait for it without holding a thread.
+ */
+@Singleton
+public class MoneyTransferSettlements {
+
+    private final IMoneyTransferRepository moneyTransferRepository;
+    private final MoneyTransferStatusFeed statusFeed;
+    private final Duration maxWait;
+    private final Map<TransferRequestId, List<CompletableFuture<Optional<MoneyTransfer>>>> waiters = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<MoneyTransferStatus, Counter> settledTransfers = new EnumMap<>(MoneyTransferStatus.class);
+    private final TransferStageTimers stageTimers;
+
+    @Inject
+    public MoneyTransferSettlements(IMoneyTransferRepository moneyTransferRepository, MoneyTransferStatusFeed statusFeed, TransferProcessingConfiguration configuration,
+                                    MeterRegistry meterRegistry) {
+        this.moneyTransferRepository = moneyTransferRepository;
+        this.statusFeed = statusFeed;
+        maxWait = configuration.getMaxSettlementWait();
+        timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder().setNameFormat("transfer-settlement-timer").setDaemon(true).build());
+        timer.setRemoveOnCancelPolicy(true);  //a waiter completed early must not keep its timeout queued
+        Gauge.builder("transfers.settlement.waits", waiters, Map::size).description("Money transfers with requests waiting for their final status").register(meterRegistry);
+        for (MoneyTransferStatus status : MoneyTransferStatus.values()) {
+            if (status.isFinal()) {
+                settledTransfers.put(status, Counter.builder("transfers.settled").tag("status", status.name()).description("Money transfers that reached a final status")
+                                                    .register(meterRegistry));
+            }
+        }
+        stageTimers = new TransferStageTimers(meterRegistry);
+    }
+
+    /**
+     * @param timeout capped at {@code challenge.transfers.processing.max-settlement-wait}
+     * @return a future completed with the transfer once it reaches a final status, or with the transfer still
+     * {@link com.revolut.challenge.domain.model.transfer.MoneyTransferStatus#CREATED} once the timeout expires, or
+     * empty if there is no such transfer
+     */
+    public CompletableFuture<Optional<MoneyTransfer>> awaitSettlement(TransferRequestId requestId, Duration timeout) {
+        CompletableFuture<Optional<MoneyTransfer>> waiter = new CompletableFuture<>();
+        waiters.compute(requestId, (id, requestWaiters) -> {
+            List<CompletableFuture<Optional<MoneyTransfer>>> updatedWaiters = requestWaiters == null ? new ArrayList<>(1) : requestWaiters;
+            updatedWaiters.add(waiter);
+            return updatedWaiters;
+        });
+        Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(requestId);  //read once registered, not to miss a settlement in between
+        if (!moneyTransfer.isPresent() || moneyTransfer.get().getStatus().isFinal()) {
+            remove(requestId, waiter);
+            waiter.complete(moneyTransfer);
+            return waiter;
+        }
+        long timeoutNanos = Math.min(timeout.toNanos(), maxWait.toNanos());
+        ScheduledFuture<?> timeoutTask = timer.schedule(() -> {
+            remove(requestId, waiter);
+            waiter.complete(moneyTransfer);
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+        waiter.whenComplete((settledTransfer, failure) -> timeoutTask.cancel(false));
+        return waiter;
+    }
+
+    /**
+     * Counts, publishes and completes the waiters of a transfer once its final status is saved.
+     */
+    public void settled(MoneyTransfer moneyTransfer, TransferTimeline timeline) {
+        timeline.record(TransferStage.SETTLED);
+        stageTimers.record(timeline);
+        Counter settledWithStatus = settledTransfers.get(moneyTransfer.getStatus());
+        if (settledWithStatus != null) {
+            settledWithStatus.increment();
+        }
+        statusFeed.publish(moneyTransfer);
+        if (waiters.isEmpty()) {
+            return;
+        }
+        List<CompletableFuture<Optional<MoneyTransfer>>> requestWaiters = waiters.remove(moneyTransfer.getRequestId());
+        if (requestWaiters != null) {
+            Optional<MoneyTransfer> settledTransfer = Optional.of(moneyTransfer);
+            for (CompletableFuture<Optional<MoneyTransfer>> waiter : requestWaiters) {
+                waiter.complete(settledTransfer);
+            }
+        }
+    }
+
+    int getWaitingTransfers() {
+        return waiters.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void remove(TransferRequestId requestId, CompletableFuture<Optional<MoneyTransfer>> waiter) {
+        waiters.computeIfPresent(requestId, (id, requestWaiters) -> {
+            requestWaiters.remove(waiter);
+            return requestWaiters.isEmpty() ? null : requestWaiters;
+        });
+    }
+}
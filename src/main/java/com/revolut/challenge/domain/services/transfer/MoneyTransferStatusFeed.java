@@ -0,0 +1,118 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Fans the final status of every money transfer out to subscribers, each with its own bounded buffer. Publishing never
+ * waits for a subscriber: one that lets its buffer fill up loses status changes or its subscription, as set by
+ * {@link SlowSubscriberPolicy}, while the engine and the other subscribers carry on.
+ */
+@Singleton
+public class MoneyTransferStatusFeed {
+
+    private final TransferEventsConfiguration configuration;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final Counter droppedChanges;
+    private final Counter disconnectedSubscribers;
+
+    @Inject
+    public MoneyTransferStatusFeed(TransferEventsConfiguration configuration, MeterRegistry meterRegistry) {
+        this.configuration = configuration;
+        Gauge.builder("transfers.events.subscribers", subscriptions, List::size).description("Subscribers to money transfer status changes").register(meterRegistry);
+        droppedChanges = Counter.builder("transfers.events.dropped").description("Status changes dropped because a subscriber's buffer was full").register(meterRegistry);
+        disconnectedSubscribers = Counter.builder("transfers.events.disconnected").description("Subscribers disconnected because their buffer was full").register(meterRegistry);
+    }
+
+    /**
+     * @param accountId only the transfers from or to this account, or all transfers if null
+     */
+    public Subscription subscribe(AccountId accountId) {
+        Subscription subscription = new Subscription(accountId, configuration.getBufferSize());
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void publish(MoneyTransfer moneyTransfer) {
+        for (Subscription subscription : subscriptions) {
+            if (subscription.accepts(moneyTransfer)) {
+                subscription.offer(moneyTransfer);
+            }
+        }
+    }
+
+    /**
+     * Status changes buffered for one subscriber, drained by whoever delivers them. Closing it unsubscribes.
+     */
+    public final class Subscription implements AutoCloseable {
+        private final AccountId accountId;
+        private final BlockingQueue<MoneyTransfer> buffer;
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile boolean overflowed;
+
+        private Subscription(AccountId accountId, int bufferSize) {
+            this.accountId = accountId;
+            buffer = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        /**
+         * @return up to {@code maxChanges} status changes, oldest first
+         */
+        public List<MoneyTransfer> poll(int maxChanges) {
+            List<MoneyTransfer> changes = new ArrayList<>(Math.min(maxChanges, buffer.size()));
+            buffer.drainTo(changes, maxChanges);
+            return changes;
+        }
+
+        /**
+         * @return the status changes dropped since the last call
+         */
+        public long takeDropped() {
+            return dropped.getAndSet(0);
+        }
+
+        /**
+         * @return whether the subscription was ended by a full buffer; the changes buffered before can still be polled
+         */
+        public boolean isOverflowed() {
+            return overflowed;
+        }
+
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+
+        private boolean accepts(MoneyTransfer moneyTransfer) {
+            return accountId == null || accountId.equals(moneyTransfer.getSourceAccountId()) || accountId.equals(moneyTransfer.getBeneficiaryAccountId());
+        }
+
+        private void offer(MoneyTransfer moneyTransfer) {
+            if (buffer.offer(moneyTransfer)) {
+                return;
+            }
+            droppedChanges.increment();
+            if (configuration.getSlowSubscriberPolicy() == SlowSubscriberPolicy.DISCONNECT) {
+                overflowed = true;
+                if (subscriptions.remove(this)) {
+                    disconnectedSubscribers.increment();
+                }
+            } else {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+}
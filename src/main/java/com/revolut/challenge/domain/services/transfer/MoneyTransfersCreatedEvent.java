@@ -0,0 +1,17 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import lombok.Builder;
+import lombok.Value;
+
+import java.util.List;
+
+
+/**
+ * Money transfers created together by a batch submission, handed to the engine as one unit.
+ */
+@Value
+@Builder
+public class MoneyTransfersCreatedEvent {
+    private List<TransferRequestId> requestIds;
+}
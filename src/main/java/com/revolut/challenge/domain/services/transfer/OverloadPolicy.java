@@ -0,0 +1,16 @@
+package com.revolut.challenge.domain.services.transfer;
+
+
+/**
+ * What {@link MoneyTransferBacklog} does with a new transfer when the backlog is full.
+ */
+public enum OverloadPolicy {
+    /**
+     * Rejects the transfer right away.
+     */
+    REJECT,
+    /**
+     * Waits up to {@code max-wait} for a transfer to finish before rejecting it.
+     */
+    WAIT
+}
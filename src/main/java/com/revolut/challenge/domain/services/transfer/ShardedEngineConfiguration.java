@@ -0,0 +1,14 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.sharded")
+public class ShardedEngineConfiguration {
+    private int shards = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = 1024;
+}
@@ -0,0 +1,66 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.env.Environment;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.core.value.PropertyResolver;
+import io.micronaut.runtime.event.annotation.EventListener;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * Fails the startup when the sharded engine is combined with account settings it would silently ignore: its shards
+ * own their accounts, so they neither lock them, retry optimistic saves nor credit hot accounts through cells. Nor do
+ * they log the postings of a transfer with its final status, which the {@code wal} account repository relies on.
+ */
+@Singleton
+@Requires(property = "challenge.transfers.engine", value = "sharded")
+public class ShardedEngineSettingsCheck {
+
+    private final PropertyResolver properties;
+    private final HotAccountConfiguration hotAccountConfiguration;
+
+    @Inject
+    public ShardedEngineSettingsCheck(Environment environment, HotAccountConfiguration hotAccountConfiguration) {
+        this((PropertyResolver) environment, hotAccountConfiguration);
+    }
+
+    ShardedEngineSettingsCheck(PropertyResolver properties, HotAccountConfiguration hotAccountConfiguration) {
+        this.properties = properties;
+        this.hotAccountConfiguration = hotAccountConfiguration;
+    }
+
+    @EventListener
+    public void onStartup(StartupEvent event) {
+        List<String> ignoredSettings = ignoredSettings();
+        if (!ignoredSettings.isEmpty()) {
+            throw new IllegalStateException("The sharded transfer engine does not apply " + String.join(", ", ignoredSettings)
+                                            + ": remove them or choose another challenge.transfers.engine");
+        }
+    }
+
+    List<String> ignoredSettings() {
+        List<String> ignoredSettings = new ArrayList<>();
+        if (properties.getProperty("challenge.accounts.concurrency", String.class).filter("optimistic"::equals).isPresent()) {
+            ignoredSettings.add("challenge.accounts.concurrency=optimistic");
+        }
+        if (properties.getProperty("challenge.accounts.locks.table", String.class).filter("per-account"::equals).isPresent()) {
+            ignoredSettings.add("challenge.accounts.locks.table=per-account");
+        }
+        if (properties.getProperty("challenge.repository.accounts", String.class).filter("wal"::equals).isPresent()) {
+            ignoredSettings.add("challenge.repository.accounts=wal");
+        }
+        if (!hotAccountConfiguration.getAccounts().isEmpty()) {
+            ignoredSettings.add("challenge.accounts.hot.accounts");
+        }
+        if (hotAccountConfiguration.isAutoPromote()) {
+            ignoredSettings.add("challenge.accounts.hot.auto-promote");
+        }
+        return ignoredSettings;
+    }
+}
@@ -0,0 +1,303 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.runtime.event.annotation.EventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Processes money transfers on a fixed set of shard threads, each owning the accounts whose id hashes to it.
+ * An account is only read and saved by its owning shard, so account state needs no locks: a transfer is a debit
+ * message handled by the source account's shard followed by a credit message handled by the beneficiary's shard.
+ * <p>
+ * New transfers are put on the source shard's bounded queue, blocking the publisher while that shard is behind.
+ * Shards never block on each other: a message that does not fit in another shard's queue is kept by the sending shard
+ * and offered again on its next iteration. A transfer leaves the {@link MoneyTransferBacklog} once it reaches a final
+ * status, or after its refund when the beneficiary could not be credited.
+ * <p>
+ * Closing the engine stops it from accepting transfers and lets the shards run until every message sent is handled,
+ * so that no transfer is left debited but not credited.
+ * <p>
+ * Replaces {@link MoneyTransferProcessingService} when {@code challenge.transfers.engine} is {@code sharded};
+ * accounts must then only be debited and credited through this engine, and {@link ShardedEngineSettingsCheck} rejects
+ * the account settings it does not apply.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.transfers.engine", value = "sharded")
+public class ShardedMoneyTransferEngine {
+
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final long PENDING_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private IAccountRepository accountRepository;
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferBacklog backlog;
+    private TransferTimelines timelines;
+    private MoneyTransferSettlements settlements;
+    private final Shard[] shards;
+    /**
+     * Messages put on a shard's queue or kept pending for it, until they are handled.
+     */
+    private final AtomicLong unhandledMessages = new AtomicLong();
+    private volatile boolean running = true;
+
+    @Inject
+    public ShardedMoneyTransferEngine(IAccountRepository accountRepository, IMoneyTransferRepository moneyTransferRepository, MoneyTransferBacklog backlog,
+                                      TransferTimelines timelines, MoneyTransferSettlements settlements, ShardedEngineConfiguration configuration) {
+        this.accountRepository = accountRepository;
+        this.moneyTransferRepository = moneyTransferRepository;
+        this.backlog = backlog;
+        this.timelines = timelines;
+        this.settlements = settlements;
+        shards = new Shard[configuration.getShards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new Shard(i, configuration.getQueueCapacity());
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("Started {} transfer shards with queues of {} messages", shards.length, configuration.getQueueCapacity());
+    }
+
+    @EventListener
+    public void onMoneyTransferCreated(MoneyTransferCreatedEvent event) throws InvalidTransferRequestException {
+        submit(event.getRequestId());
+    }
+
+    @EventListener
+    public void onMoneyTransfersCreated(MoneyTransfersCreatedEvent event) throws InvalidTransferRequestException {
+        for (TransferRequestId requestId : event.getRequestIds()) {
+            submit(requestId);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.join();
+        }
+    }
+
+    private void submit(TransferRequestId requestId) throws InvalidTransferRequestException {
+        MoneyTransfer moneyTransfer = moneyTransferRepository.findById(requestId).orElseThrow(() -> new InvalidTransferRequestException(requestId));
+        shardOf(moneyTransfer.getSourceAccountId()).submit(new Message(Step.DEBIT, moneyTransfer));
+    }
+
+    private Shard shardOf(AccountId accountId) {
+        return shards[Math.floorMod(accountId.hashCode(), shards.length)];
+    }
+
+    private enum Step {
+        DEBIT, CREDIT, REFUND
+    }
+
+    private static final class Message {
+        private final Step step;
+        private final MoneyTransfer moneyTransfer;
+
+        private Message(Step step, MoneyTransfer moneyTransfer) {
+            this.step = step;
+            this.moneyTransfer = moneyTransfer;
+        }
+
+        private AccountId accountId() {
+            return step == Step.CREDIT ? moneyTransfer.getBeneficiaryAccountId() : moneyTransfer.getSourceAccountId();
+        }
+    }
+
+    private final class Shard implements Runnable {
+        private final BlockingQueue<Message> queue;
+        private final Deque<Message> pendingMessages = new ArrayDeque<>();
+        private final Thread thread;
+
+        private Shard(int index, int queueCapacity) {
+            queue = new ArrayBlockingQueue<>(queueCapacity);
+            thread = new Thread(this, "transfer-shard-" + index);
+            thread.setDaemon(true);
+        }
+
+        private void submit(Message message) {
+            unhandledMessages.incrementAndGet();
+            if (!running) {  //read after counting the message: either the shards wait for it or it is not put
+                unhandledMessages.decrementAndGet();
+                backlog.release();
+                throw new IllegalStateException("Transfer engine is closed, money transfer " + message.moneyTransfer.getRequestId() + " is left CREATED");
+            }
+            try {
+                queue.put(message);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unhandledMessages.decrementAndGet();
+                backlog.release();
+                throw new IllegalStateException("Interrupted while submitting money transfer " + message.moneyTransfer.getRequestId(), e);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running || unhandledMessages.get() > 0) {
+                offerPendingMessages();
+                Message message = pendingMessages.isEmpty() ? pollIdle() : queue.poll();
+                if (message != null) {
+                    try {
+                        handle(message);
+                    } finally {
+                        unhandledMessages.decrementAndGet();
+                    }
+                } else if (!pendingMessages.isEmpty()) {
+                    LockSupport.parkNanos(this, PENDING_RETRY_NANOS);
+                }
+            }
+        }
+
+        private Message pollIdle() {
+            try {
+                return queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+
+        private void handle(Message message) {
+            try {
+                switch (message.step) {
+                    case DEBIT:
+                        debitSourceAccount(message.moneyTransfer);
+                        break;
+                    case CREDIT:
+                        creditBeneficiary(message.moneyTransfer);
+                        break;
+                    case REFUND:
+                        compensateSourceAccount(message.moneyTransfer);
+                        break;
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to process {} of money transfer {}", message.step, message.moneyTransfer, e);
+                backlog.release();
+            }
+        }
+
+        /**
+         * Insufficient funds is an expected outcome, counted by {@link MoneyTransferSettlements}, so it costs no exception.
+         */
+        private void debitSourceAccount(MoneyTransfer moneyTransfer) {
+            TransferTimeline timeline = timelines.of(moneyTransfer.getRequestId());
+            timeline.record(TransferStage.DEQUEUED);
+            Optional<Account> sourceAccount = accountRepository.findById(moneyTransfer.getSourceAccountId());
+            if (!sourceAccount.isPresent()) {
+                log.error("Failed to debit source account, which does not exist {}", moneyTransfer);
+                finish(moneyTransfer.failWhileDebitingSource());
+                return;
+            }
+            Optional<Account> debitedSourceAccount = sourceAccount.get().tryDebit(moneyTransfer.getAmount());
+            if (!debitedSourceAccount.isPresent()) {
+                finish(moneyTransfer.failDueToInsufficientFunds());
+                return;
+            }
+            timeline.record(TransferStage.DEBITED);
+            accountRepository.save(debitedSourceAccount.get());
+            send(new Message(Step.CREDIT, moneyTransfer));
+        }
+
+        private void creditBeneficiary(MoneyTransfer moneyTransfer) {
+            try {
+                creditAccount(moneyTransfer.getBeneficiaryAccountId(), moneyTransfer.getAmount());
+            } catch (Exception e) {
+                log.error("Failed to credit beneficiary account {}", moneyTransfer, e);
+                send(new Message(Step.REFUND, moneyTransfer));  //first, so that the source is refunded even if the failure cannot be saved
+                try {
+                    saveSettled(moneyTransfer.failWhileCreditingBeneficiary());
+                } catch (RuntimeException saveFailure) {
+                    log.error("Failed to save the failure to credit beneficiary account {}", moneyTransfer, saveFailure);
+                }
+                return;
+            }
+            timelines.of(moneyTransfer.getRequestId()).record(TransferStage.CREDITED);
+            finish(moneyTransfer.complete());
+        }
+
+        private void compensateSourceAccount(MoneyTransfer moneyTransfer) {
+            try {
+                creditAccount(moneyTransfer.getSourceAccountId(), moneyTransfer.getAmount());
+            } catch (Exception e) {
+                log.error("Failed to compensate source account again. Manual Intervention needed {}", moneyTransfer, e);
+            } finally {
+                backlog.release();
+            }
+        }
+
+        private void finish(MoneyTransfer moneyTransfer) {
+            saveSettled(moneyTransfer);
+            backlog.release();
+        }
+
+        private void saveSettled(MoneyTransfer moneyTransfer) {
+            moneyTransferRepository.save(moneyTransfer);
+            settlements.settled(moneyTransfer, timelines.of(moneyTransfer.getRequestId()));
+        }
+
+        private void creditAccount(AccountId accountId, Amount amount) throws InvalidAccountException {
+            accountRepository.save(findAccount(accountId).credit(amount));
+        }
+
+        private Account findAccount(AccountId accountId) throws InvalidAccountException {
+            return accountRepository.findById(accountId).orElseThrow(() -> new InvalidAccountException(accountId));
+        }
+
+        /**
+         * Handles the message right away when this shard owns its account, otherwise hands it to the owning shard,
+         * keeping it pending (in order) when that shard's queue is full.
+         */
+        private void send(Message message) {
+            Shard shard = shardOf(message.accountId());
+            if (shard == this) {
+                handle(message);
+                return;
+            }
+            unhandledMessages.incrementAndGet();
+            if (!pendingMessages.isEmpty() || !shard.queue.offer(message)) {
+                pendingMessages.addLast(message);
+            }
+        }
+
+        private void offerPendingMessages() {
+            Message message;
+            while ((message = pendingMessages.peekFirst()) != null && shardOf(message.accountId()).queue.offer(message)) {
+                pendingMessages.removeFirst();
+            }
+        }
+
+        private void join() {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.revolut.challenge.domain.services.transfer;
+
+
+/**
+ * What {@link MoneyTransferStatusFeed} does when a subscriber's buffer is full, the subscriber having fallen behind.
+ */
+public enum SlowSubscriberPolicy {
+    /**
+     * Drops the new status changes and tells the subscriber how many were dropped once it catches up.
+     */
+    DROP,
+    /**
+     * Ends the subscription once the changes already buffered are delivered.
+     */
+    DISCONNECT
+}
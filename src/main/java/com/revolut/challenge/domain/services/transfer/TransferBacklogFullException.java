@@ -0,0 +1,16 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+
+@Getter
+public class TransferBacklogFullException extends Exception {
+    private final Duration retryAfter;
+
+    public TransferBacklogFullException(int capacity, Duration retryAfter) {
+        super(String.format("Money transfer processing backlog is full (%d transfers), retry after %s", capacity, retryAfter));
+        this.retryAfter = retryAfter;
+    }
+}
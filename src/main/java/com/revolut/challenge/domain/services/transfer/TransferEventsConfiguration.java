@@ -0,0 +1,24 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.events")
+public class TransferEventsConfiguration {
+    /**
+     * Status changes buffered per subscriber while they wait to be delivered.
+     */
+    private int bufferSize = 65_536;
+    private SlowSubscriberPolicy slowSubscriberPolicy = SlowSubscriberPolicy.DISCONNECT;
+    /**
+     * How often the buffered status changes are delivered, each delivery carrying up to {@code max-batch-size} of them.
+     */
+    private Duration flushInterval = Duration.ofMillis(20);
+    private int maxBatchSize = 4096;
+}
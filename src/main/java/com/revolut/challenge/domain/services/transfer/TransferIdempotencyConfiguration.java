@@ -0,0 +1,23 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.idempotency")
+public class TransferIdempotencyConfiguration {
+    /**
+     * Idempotency keys remembered; the least recently used are evicted beyond it.
+     */
+    private long maximumSize = 100_000;
+    private Duration expireAfter = Duration.ofHours(1);
+    /**
+     * Independently locked segments of the cache.
+     */
+    private int concurrencyLevel = 4 * Runtime.getRuntime().availableProcessors();
+}
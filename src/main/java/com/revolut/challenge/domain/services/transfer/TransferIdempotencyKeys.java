@@ -0,0 +1,66 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import lombok.Value;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Money transfers created for the {@code Idempotency-Key}s seen recently.
+ */
+@Singleton
+public class TransferIdempotencyKeys {
+
+    private final Cache<String, IdempotentTransfer> transfers;
+
+    @Inject
+    public TransferIdempotencyKeys(TransferIdempotencyConfiguration configuration, MeterRegistry meterRegistry) {
+        transfers = CacheBuilder.newBuilder().maximumSize(configuration.getMaximumSize()).expireAfterWrite(configuration.getExpireAfter().toNanos(), TimeUnit.NANOSECONDS)
+                                .concurrencyLevel(configuration.getConcurrencyLevel()).recordStats().build();
+        GuavaCacheMetrics.monitor(meterRegistry, transfers, "transfers.idempotency");
+    }
+
+    /**
+     * The transfer created for the key, creating it on the first request with the key; failed creations are not kept.
+     *
+     * @throws IdempotencyKeyReusedException if the key was used for a different request
+     */
+    public TransferRequestId transferFor(String idempotencyKey, MoneyTransferRequest request, TransferCreation creation)
+            throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        IdempotentTransfer transfer;
+        try {
+            transfer = transfers.get(idempotencyKey, () -> new IdempotentTransfer(request, creation.create()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfInstanceOf(e.getCause(), InvalidAccountException.class);
+            Throwables.throwIfInstanceOf(e.getCause(), InvalidTransferAmountException.class);
+            Throwables.throwIfInstanceOf(e.getCause(), TransferBacklogFullException.class);
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+        if (!transfer.getRequest().equals(request)) {
+            throw new IdempotencyKeyReusedException(idempotencyKey);
+        }
+        return transfer.getRequestId();
+    }
+
+    public interface TransferCreation {
+        TransferRequestId create() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException;
+    }
+
+    @Value
+    private static class IdempotentTransfer {
+        private MoneyTransferRequest request;
+        private TransferRequestId requestId;
+    }
+}
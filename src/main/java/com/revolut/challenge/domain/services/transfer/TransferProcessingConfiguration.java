@@ -0,0 +1,30 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.processing")
+public class TransferProcessingConfiguration {
+    private int workers = Runtime.getRuntime().availableProcessors();
+    /**
+     * Transfers accepted but not processed yet, whether queued or running.
+     */
+    private int queueCapacity = 10_000;
+    private OverloadPolicy overloadPolicy = OverloadPolicy.REJECT;
+    private Duration maxWait = Duration.ofMillis(100);
+    private Duration retryAfter = Duration.ofSeconds(1);
+    /**
+     * Requests of a batch submission validated, saved and handed to the engine together.
+     */
+    private int submissionChunkSize = 256;
+    /**
+     * Longest a request may wait for a transfer to reach a final status.
+     */
+    private Duration maxSettlementWait = Duration.ofSeconds(30);
+}
@@ -0,0 +1,59 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Times the spans between the {@link TransferStage}s a settled money transfer reached in {@code transfers.stage}.
+ */
+class TransferStageTimers {
+
+    private static final Span[] SPANS = {
+            new Span("queued", TransferStage.CREATED, TransferStage.DEQUEUED),
+            new Span("locking", TransferStage.DEQUEUED, TransferStage.DEBIT_LOCKED),
+            new Span("debiting", TransferStage.DEBIT_LOCKED, TransferStage.DEBITED),
+            new Span("saving", TransferStage.DEBITED, TransferStage.CREDITED),
+            new Span("settling", TransferStage.CREDITED, TransferStage.SETTLED),
+            new Span("total", TransferStage.CREATED, TransferStage.SETTLED)
+    };
+
+    private final Timer[] timers = new Timer[SPANS.length];
+
+    TransferStageTimers(MeterRegistry meterRegistry) {
+        for (int i = 0; i < SPANS.length; i++) {
+            timers[i] = Timer.builder("transfers.stage").tag("stage", SPANS[i].name).description("Time a sample of the money transfers spend between two stages of their life")
+                             .publishPercentileHistogram()
+                             .minimumExpectedValue(Duration.ofNanos(100)).maximumExpectedValue(Duration.ofSeconds(10)).register(meterRegistry);
+        }
+    }
+
+    void record(TransferTimeline timeline) {
+        if (!timeline.isTracked()) {
+            return;
+        }
+        for (int i = 0; i < SPANS.length; i++) {
+            long nanos = timeline.nanosBetween(SPANS[i].from, SPANS[i].to);
+            if (nanos >= 0) {
+                timers[i].record(nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private static final class Span {
+        private final String name;
+        private final TransferStage from;
+        private final TransferStage to;
+
+        private Span(String name, TransferStage from, TransferStage to) {
+            this.name = name;
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.concurrent.ThreadLocalRandom;
+
+
+/**
+ * Timelines of the sampled money transfers, kept under their ids.
+ */
+@Singleton
+public class TransferTimelines {
+
+    private final int sampleRate;
+    private final Cache<TransferRequestId, TransferTimeline> timelines;
+
+    @Inject
+    public TransferTimelines(TransferTracingConfiguration configuration) {
+        sampleRate = configuration.getSampleRate();
+        timelines = CacheBuilder.newBuilder().maximumSize(configuration.getRetained()).build();
+    }
+
+    /**
+     * Starts the timeline of a transfer just created, if it is sampled.
+     */
+    public void start(TransferRequestId requestId) {
+        if (sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0) {
+            timelines.put(requestId, TransferTimeline.start());
+        }
+    }
+
+    /**
+     * @return the timeline of the transfer, or the untracked one if it was not sampled or is no longer retained
+     */
+    public TransferTimeline of(TransferRequestId requestId) {
+        TransferTimeline timeline = timelines.getIfPresent(requestId);
+        return timeline == null ? TransferTimeline.untracked() : timeline;
+    }
+}
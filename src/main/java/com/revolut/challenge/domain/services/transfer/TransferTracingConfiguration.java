@@ -0,0 +1,20 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.transfers.tracing")
+public class TransferTracingConfiguration {
+    /**
+     * One transfer created in {@code sample-rate} is traced; 1 traces them all.
+     */
+    private int sampleRate = 64;
+    /**
+     * Timelines kept; beyond that the least recently used are dropped and their transfers are no longer traced.
+     */
+    private int retained = 10_000;
+}
@@ -0,0 +1,62 @@
+package com.revolut.challenge.infra.executors;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Fixed pool with a bounded queue running blocking work off the event loop. Work submitted while the queue is full is
+ * not queued: its future fails at once with a {@link RejectedExecutionException}, so callers can shed load instead of
+ * piling up requests.
+ */
+public class BlockingWork implements AutoCloseable {
+    private final ThreadPoolExecutor executor;
+    private final Counter rejected;
+
+    public BlockingWork(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                                          new ThreadFactoryBuilder().setNameFormat("blocking-" + name + "-%d").setDaemon(true).build());
+        Tags tags = Tags.of("pool", name);
+        Gauge.builder("blocking.queue.depth", executor, pool -> pool.getQueue().size()).tags(tags).register(meterRegistry);
+        Gauge.builder("blocking.active", executor, ThreadPoolExecutor::getActiveCount).tags(tags).register(meterRegistry);
+        new ExecutorServiceMetrics(executor, "blocking-" + name, Tags.empty()).bindTo(meterRegistry);
+        rejected = meterRegistry.counter("blocking.rejected", tags);
+    }
+
+    /**
+     * @return a future completed with the result of the work or failed with what it threw, checked exceptions and
+     * errors included, or with a {@link RejectedExecutionException} when the queue is full
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(work.call());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,26 @@
+package com.revolut.challenge.infra.executors;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+/**
+ * Pools the controllers hand blocking work to, reads apart from writes so that lookups do not queue behind saturated
+ * transfer creation.
+ */
+@Getter
+@Setter
+@ConfigurationProperties("challenge.blocking")
+public class BlockingWorkConfiguration {
+    private int readThreads = Runtime.getRuntime().availableProcessors();
+    private int readQueueCapacity = 1000;
+    private int writeThreads = Runtime.getRuntime().availableProcessors();
+    private int writeQueueCapacity = 1000;
+    /**
+     * Suggested to clients whose request was rejected because a pool queue was full.
+     */
+    private Duration retryAfter = Duration.ofSeconds(1);
+}
@@ -0,0 +1,29 @@
+package com.revolut.challenge.infra.executors;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+
+@Factory
+public class BlockingWorkFactory {
+    public static final String READS = "reads";
+    public static final String WRITES = "writes";
+
+    @Singleton
+    @Named(READS)
+    @Bean(preDestroy = "close")
+    BlockingWork reads(BlockingWorkConfiguration configuration, MeterRegistry meterRegistry) {
+        return new BlockingWork(READS, configuration.getReadThreads(), configuration.getReadQueueCapacity(), meterRegistry);
+    }
+
+    @Singleton
+    @Named(WRITES)
+    @Bean(preDestroy = "close")
+    BlockingWork writes(BlockingWorkConfiguration configuration, MeterRegistry meterRegistry) {
+        return new BlockingWork(WRITES, configuration.getWriteThreads(), configuration.getWriteQueueCapacity(), meterRegistry);
+    }
+}
@@ -0,0 +1,87 @@
+package com.revolut.challenge.infra.jfr;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * Starts a flight recording named {@code challenge} at startup, with the JDK settings of {@code challenge.jfr.settings}
+ * and the events of the challenge as {@code jfr/challenge.jfc} sets them. The recording is kept on disk up to
+ * {@code max-age} and {@code max-size}, can be dumped at any time with
+ * {@code jcmd <pid> JFR.dump name=challenge filename=<file>}, and is dumped to {@code destination} when the process
+ * exits.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.jfr.enabled", value = "true")
+public class ContinuousFlightRecording {
+
+    static final String NAME = "challenge";
+    private static final String CHALLENGE_SETTINGS = "/jfr/challenge.jfc";
+
+    private final FlightRecordingConfiguration configuration;
+
+    @Inject
+    public ContinuousFlightRecording(FlightRecordingConfiguration configuration) {
+        this.configuration = configuration;
+    }
+
+    @EventListener
+    public void onStartup(StartupEvent event) {
+        start();
+    }
+
+    Recording start() {
+        Map<String, String> settings = new HashMap<>(jdkSettings());
+        settings.putAll(challengeSettings());
+        Recording recording = new Recording(settings);
+        recording.setName(NAME);
+        recording.setToDisk(true);
+        recording.setMaxAge(configuration.getMaxAge());
+        recording.setMaxSize(configuration.getMaxSize());
+        recording.setDumpOnExit(true);
+        try {
+            recording.setDestination(Paths.get(configuration.getDestination()));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Invalid flight recording destination " + configuration.getDestination(), e);
+        }
+        recording.start();
+        log.info("Started flight recording {} with {} settings, kept for {} up to {} bytes", NAME, configuration.getSettings(), configuration.getMaxAge(),
+                 configuration.getMaxSize());
+        return recording;
+    }
+
+    private Map<String, String> jdkSettings() {
+        try {
+            return Configuration.getConfiguration(configuration.getSettings()).getSettings();
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Failed to read the flight recorder settings " + configuration.getSettings(), e);
+        }
+    }
+
+    private static Map<String, String> challengeSettings() {
+        try (InputStream input = ContinuousFlightRecording.class.getResourceAsStream(CHALLENGE_SETTINGS);
+             Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader).getSettings();
+        } catch (IOException | ParseException e) {
+            throw new IllegalStateException("Failed to read the flight recorder settings " + CHALLENGE_SETTINGS, e);
+        }
+    }
+}
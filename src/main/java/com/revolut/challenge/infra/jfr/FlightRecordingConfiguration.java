@@ -0,0 +1,29 @@
+package com.revolut.challenge.infra.jfr;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.jfr")
+public class FlightRecordingConfiguration {
+    private boolean enabled = false;
+    /**
+     * JDK settings the events of the challenge are added to: {@code default}, which costs about 1% of the CPU, or
+     * {@code profile}.
+     */
+    private String settings = "default";
+    /**
+     * How far back the recording kept on disk goes, bounded by {@code max-size} too.
+     */
+    private Duration maxAge = Duration.ofHours(6);
+    private long maxSize = 268_435_456;
+    /**
+     * File the recording is dumped to when the process exits.
+     */
+    private String destination = "challenge.jfr";
+}
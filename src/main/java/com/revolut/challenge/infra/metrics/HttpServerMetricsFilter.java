@@ -0,0 +1,54 @@
+package com.revolut.challenge.infra.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micronaut.http.HttpAttributes;
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MutableHttpResponse;
+import io.micronaut.http.annotation.Filter;
+import io.micronaut.http.filter.HttpServerFilter;
+import io.micronaut.http.filter.ServerFilterChain;
+import io.reactivex.Flowable;
+import org.reactivestreams.Publisher;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Times every request in {@code http.server.requests}, tagged with the method, the route template and the status.
+ */
+@Filter("/**")
+public class HttpServerMetricsFilter implements HttpServerFilter {
+
+    private static final String UNMATCHED_URI = "UNMATCHED";
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    public HttpServerMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Publisher<MutableHttpResponse<?>> doFilter(HttpRequest<?> request, ServerFilterChain chain) {
+        long startTime = System.nanoTime();
+        return Flowable.fromPublisher(chain.proceed(request))
+                       .doOnNext(response -> record(request, response.getStatus(), startTime))
+                       .doOnError(failure -> record(request, HttpStatus.INTERNAL_SERVER_ERROR, startTime));
+    }
+
+    private void record(HttpRequest<?> request, HttpStatus status, long startTime) {
+        String method = request.getMethod().name();
+        String uri = request.getAttribute(HttpAttributes.URI_TEMPLATE, String.class).orElse(UNMATCHED_URI);
+        String code = String.valueOf(status.getCode());
+        timers.computeIfAbsent(method + ' ' + uri + ' ' + code, key -> Timer.builder("http.server.requests").description("Time to answer HTTP requests")
+                                                                          .tag("method", method).tag("uri", uri).tag("status", code).publishPercentileHistogram()
+                                                                          .minimumExpectedValue(Duration.ofNanos(100)).maximumExpectedValue(Duration.ofSeconds(10))
+                                                                          .register(meterRegistry))
+              .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+}
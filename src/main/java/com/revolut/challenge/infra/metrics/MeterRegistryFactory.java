@@ -0,0 +1,21 @@
+package com.revolut.challenge.infra.metrics;
+
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.micronaut.context.annotation.Factory;
+
+import javax.inject.Singleton;
+
+
+/**
+ * One registry for every meter, read by {@link MetricsEndpoint} and scraped by {@link PrometheusEndpoint}: its counters
+ * and timers are lock-free adders, so they are cheap enough to stay on.
+ */
+@Factory
+public class MeterRegistryFactory {
+
+    @Singleton
+    PrometheusMeterRegistry meterRegistry() {
+        return new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    }
+}
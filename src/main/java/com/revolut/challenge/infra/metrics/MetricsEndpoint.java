@@ -0,0 +1,45 @@
+package com.revolut.challenge.infra.metrics;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Measurement;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+
+/**
+ * Current value of every meter, keyed by name and tags, served on {@code GET /metrics}.
+ */
+@Endpoint(id = "metrics", defaultSensitive = false)
+public class MetricsEndpoint {
+
+    private final MeterRegistry meterRegistry;
+
+    public MetricsEndpoint(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Read
+    public Map<String, Map<String, Double>> metrics() {
+        Map<String, Map<String, Double>> metrics = new TreeMap<>();
+        for (Meter meter : meterRegistry.getMeters()) {
+            Map<String, Double> measurements = new TreeMap<>();
+            for (Measurement measurement : meter.measure()) {
+                measurements.put(measurement.getStatistic().getTagValueRepresentation(), measurement.getValue());
+            }
+            metrics.put(key(meter.getId()), measurements);
+        }
+        return metrics;
+    }
+
+    private static String key(Meter.Id id) {
+        if (id.getTags().isEmpty()) {
+            return id.getName();
+        }
+        return id.getTags().stream().map(tag -> tag.getKey() + "=" + tag.getValue()).collect(Collectors.joining(",", id.getName() + "{", "}"));
+    }
+}
@@ -0,0 +1,25 @@
+package com.revolut.challenge.infra.metrics;
+
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.micronaut.management.endpoint.annotation.Endpoint;
+import io.micronaut.management.endpoint.annotation.Read;
+import io.prometheus.client.exporter.common.TextFormat;
+
+
+/**
+ * Every meter in the Prometheus text format, served on {@code GET /prometheus} to be scraped.
+ */
+@Endpoint(id = "prometheus", defaultSensitive = false)
+public class PrometheusEndpoint {
+
+    private final PrometheusMeterRegistry meterRegistry;
+
+    public PrometheusEndpoint(PrometheusMeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Read(produces = TextFormat.CONTENT_TYPE_004)
+    public String scrape() {
+        return meterRegistry.scrape();
+    }
+}
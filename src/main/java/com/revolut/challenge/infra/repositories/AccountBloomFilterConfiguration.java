@@ -0,0 +1,18 @@
+package com.revolut.challenge.infra.repositories;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.repository.account-bloom-filter")
+public class AccountBloomFilterConfiguration {
+    private boolean enabled = false;
+    /**
+     * Accounts the filter is sized for; beyond them its false positive rate grows.
+     */
+    private long expectedAccounts = 1_000_000;
+    private double falsePositiveRate = 0.01;
+}
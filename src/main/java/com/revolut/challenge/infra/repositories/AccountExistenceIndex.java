@@ -0,0 +1,44 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnel;
+import com.revolut.challenge.domain.model.account.AccountId;
+
+import java.util.function.Predicate;
+
+
+/**
+ * Whether an account exists, answered for most unknown ids by an optional Bloom filter before the repository is asked.
+ */
+class AccountExistenceIndex {
+
+    private static final Funnel<AccountId> ACCOUNT_ID_FUNNEL = (accountId, sink) -> sink.putLong(accountId.getId().getMostSignificantBits())
+                                                                                        .putLong(accountId.getId().getLeastSignificantBits());
+
+    private final Predicate<AccountId> accountIds;
+    private final BloomFilter<AccountId> bloomFilter;
+
+    /**
+     * @param accountIds exact lookup of the ids of the repository
+     */
+    AccountExistenceIndex(AccountBloomFilterConfiguration configuration, Predicate<AccountId> accountIds) {
+        this.accountIds = accountIds;
+        bloomFilter = configuration.isEnabled() ? BloomFilter.create(ACCOUNT_ID_FUNNEL, configuration.getExpectedAccounts(), configuration.getFalsePositiveRate()) : null;
+    }
+
+    /**
+     * Must be called before the account becomes visible in the repository.
+     */
+    void add(AccountId accountId) {
+        if (bloomFilter != null) {
+            bloomFilter.put(accountId);
+        }
+    }
+
+    boolean exists(AccountId accountId) {
+        if (bloomFilter != null && !bloomFilter.mightContain(accountId)) {
+            return false;
+        }
+        return accountIds.test(accountId);
+    }
+}
@@ -2,28 +2,48 @@ package com.revolut.challenge.infra.repositories;
 
 import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micronaut.context.annotation.Requires;
 import lombok.extern.slf4j.Slf4j;
 
+import javax.inject.Inject;
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.StampedLock;
 
 
+/**
+ * Account repository guarding all accounts with one {@link StampedLock}. The ids are also kept in a concurrent set, so
+ * {@link #exists} takes no lock.
+ */
 @Slf4j
 @Singleton
+@Requires(property = "challenge.repository.accounts", value = "in-memory", defaultValue = "in-memory")
 public class InMemoryAccountRepository implements IAccountRepository {
 
     private Map<AccountId, Account> accounts;
     private StampedLock lock;
+    private Set<AccountId> accountIds;
+    private AccountExistenceIndex existenceIndex;
 
     public InMemoryAccountRepository() {
+        this(new AccountBloomFilterConfiguration());
+    }
+
+    @Inject
+    public InMemoryAccountRepository(AccountBloomFilterConfiguration bloomFilterConfiguration) {
         accounts = Collections.synchronizedMap(new HashMap<>());
         lock = new StampedLock();
+        accountIds = ConcurrentHashMap.newKeySet();
+        existenceIndex = new AccountExistenceIndex(bloomFilterConfiguration, accountIds::contains);
     }
 
     @Override
@@ -32,19 +52,67 @@ public class InMemoryAccountRepository implements IAccountRepository {
         try {
             Account currentAccount = accounts.get(account.getAccountId());
             if (currentAccount == null) {
+                existenceIndex.add(account.getAccountId());
                 accounts.put(account.getAccountId(), account.toBuilder().version(1).build());
+                accountIds.add(account.getAccountId());
             } else if (account.isModified()) {
-                verifyConcurrencyAndSave(account, currentAccount);
+                verifyConcurrency(account, currentAccount);
+                saveNextVersion(account, currentAccount);
             }
         } finally {
             lock.unlock(writeLockStamp);
         }
     }
 
-    private void verifyConcurrencyAndSave(Account account, Account currentAccount) {
+    @Override
+    public void saveAll(Collection<Account> accountsToSave) {
+        long writeLockStamp = lock.writeLock();
+        try {
+            for (Account account : accountsToSave) {
+                Account currentAccount = accounts.get(account.getAccountId());
+                if (currentAccount == null) {
+                    throw new IllegalArgumentException("Unknown account " + account.getAccountId());
+                }
+                verifyConcurrency(account, currentAccount);
+            }
+            for (Account account : accountsToSave) {
+                if (account.isModified()) {
+                    saveNextVersion(account, accounts.get(account.getAccountId()));
+                }
+            }
+        } finally {
+            lock.unlock(writeLockStamp);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accountsToSave, Collection<MoneyTransfer> settledMoneyTransfers, Map<AccountId, Long> pendingCreditChanges) {
+        saveAll(accountsToSave);
+    }
+
+    @Override
+    public void insertAll(Collection<Account> accountsToInsert) {
+        long writeLockStamp = lock.writeLock();
+        try {
+            for (Account account : accountsToInsert) {
+                existenceIndex.add(account.getAccountId());
+                if (accounts.putIfAbsent(account.getAccountId(), account.toBuilder().version(1).modified(false).build()) != null) {
+                    throw new IllegalArgumentException("Account already exists " + account.getAccountId());
+                }
+                accountIds.add(account.getAccountId());
+            }
+        } finally {
+            lock.unlock(writeLockStamp);
+        }
+    }
+
+    private void verifyConcurrency(Account account, Account currentAccount) {
         if (wasConcurrentlyModified(account, currentAccount)) {
             throw new ConcurrentModificationException();
         }
+    }
+
+    private void saveNextVersion(Account account, Account currentAccount) {
         accounts.put(account.getAccountId(), account.toBuilder().version(currentAccount.getVersion() + 1).modified(false).build());
     }
 
@@ -56,10 +124,14 @@ public class InMemoryAccountRepository implements IAccountRepository {
     public Optional<Account> findById(AccountId accountId) {
         long readLockStamp = lock.readLock();
         try {
-            Account account = accounts.get(accountId);
-            return accounts.containsKey(accountId) ? Optional.of(account.toBuilder().build()) : Optional.empty();
+            return Optional.ofNullable(accounts.get(accountId));
         } finally {
             lock.unlock(readLockStamp);
         }
     }
+
+    @Override
+    public boolean exists(AccountId accountId) {
+        return existenceIndex.exists(accountId);
+    }
 }
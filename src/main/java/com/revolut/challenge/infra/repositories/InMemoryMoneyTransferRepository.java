@@ -3,9 +3,11 @@ package com.revolut.challenge.infra.repositories;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
 import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import io.micronaut.context.annotation.Requires;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.inject.Singleton;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -14,6 +16,7 @@ import java.util.concurrent.locks.StampedLock;
 
 @Slf4j
 @Singleton
+@Requires(property = "challenge.repository.transfers", value = "in-memory", defaultValue = "in-memory")
 public class InMemoryMoneyTransferRepository implements IMoneyTransferRepository {
 
     private Map<TransferRequestId, MoneyTransfer> moneyTransfers;
@@ -28,7 +31,19 @@ public class InMemoryMoneyTransferRepository implements IMoneyTransferRepository
     public void save(MoneyTransfer moneyTransfer) {
         long writeLockStamp = lock.writeLock();
         try {
-            moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer.toBuilder().build());
+            moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer);
+        } finally {
+            lock.unlock(writeLockStamp);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<MoneyTransfer> moneyTransfersToSave) {
+        long writeLockStamp = lock.writeLock();
+        try {
+            for (MoneyTransfer moneyTransfer : moneyTransfersToSave) {
+                moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer);
+            }
         } finally {
             lock.unlock(writeLockStamp);
         }
@@ -38,8 +53,7 @@ public class InMemoryMoneyTransferRepository implements IMoneyTransferRepository
     public Optional<MoneyTransfer> findById(TransferRequestId transferRequestId) {
         long readLockStamp = lock.readLock();
         try {
-            MoneyTransfer moneyTransfer = moneyTransfers.get(transferRequestId);
-            return moneyTransfers.containsKey(transferRequestId) ? Optional.of(moneyTransfer.toBuilder().build()) : Optional.empty();
+            return Optional.ofNullable(moneyTransfers.get(transferRequestId));
         } finally {
             lock.unlock(readLockStamp);
         }
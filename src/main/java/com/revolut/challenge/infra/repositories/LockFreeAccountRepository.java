@@ -0,0 +1,192 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micronaut.context.annotation.Requires;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Account repository without a repository wide lock.
+ * Every account lives in its own slot and is replaced with a compare-and-set on the instance read,
+ * so writers on unrelated accounts never contend with each other.
+ * A save based on a stale version still fails with {@link ConcurrentModificationException}.
+ * <p>
+ * {@link #saveAll} swaps every slot, in account id order, from the instance read to a {@link PendingWrite} of one
+ * shared {@link Commit}, decides the commit with a single volatile write and then replaces the pending writes with
+ * their outcome. Readers never wait: they see the previous instances until the commit is decided and the new ones
+ * after. A writer meeting an undecided pending write fails as it would on a newer version.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.repository.accounts", value = "lock-free")
+public class LockFreeAccountRepository implements IAccountRepository {
+
+    private static final Comparator<Account> ACCOUNT_ID_ORDER = Comparator.comparing(account -> account.getAccountId().getId());
+
+    private ConcurrentMap<AccountId, AtomicReference<Object>> accounts;
+    private AccountExistenceIndex existenceIndex;
+
+    public LockFreeAccountRepository() {
+        this(new AccountBloomFilterConfiguration());
+    }
+
+    @Inject
+    public LockFreeAccountRepository(AccountBloomFilterConfiguration bloomFilterConfiguration) {
+        accounts = new ConcurrentHashMap<>();
+        existenceIndex = new AccountExistenceIndex(bloomFilterConfiguration, accounts::containsKey);
+    }
+
+    @Override
+    public void save(Account account) {
+        AtomicReference<Object> accountSlot = accounts.get(account.getAccountId());
+        if (accountSlot == null) {
+            existenceIndex.add(account.getAccountId());
+            accountSlot = accounts.putIfAbsent(account.getAccountId(), new AtomicReference<>(account.toBuilder().version(1).build()));
+            if (accountSlot == null) {
+                return;
+            }
+        }
+        if (account.isModified()) {
+            verifyConcurrencyAndSave(account, accountSlot);
+        }
+    }
+
+    private void verifyConcurrencyAndSave(Account account, AtomicReference<Object> accountSlot) {
+        Account currentAccount = currentAccount(accountSlot);
+        if (wasConcurrentlyModified(account, currentAccount)) {
+            throw new ConcurrentModificationException();
+        }
+        Account accountToSave = account.toBuilder().version(currentAccount.getVersion() + 1).modified(false).build();
+        if (!accountSlot.compareAndSet(currentAccount, accountToSave)) {  //another writer committed a newer version in between
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Account> accountsToInsert) {
+        for (Account account : accountsToInsert) {
+            existenceIndex.add(account.getAccountId());
+            if (accounts.putIfAbsent(account.getAccountId(), new AtomicReference<>(account.toBuilder().version(1).modified(false).build())) != null) {
+                throw new IllegalArgumentException("Account already exists " + account.getAccountId());
+            }
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accountsToSave) {
+        List<Account> sortedAccounts = new ArrayList<>(accountsToSave);
+        sortedAccounts.sort(ACCOUNT_ID_ORDER);
+        Commit commit = new Commit();
+        List<AtomicReference<Object>> acquiredSlots = new ArrayList<>();
+        List<PendingWrite> pendingWrites = new ArrayList<>();
+        try {
+            for (Account account : sortedAccounts) {
+                AtomicReference<Object> accountSlot = accounts.get(account.getAccountId());
+                if (accountSlot == null) {
+                    throw new IllegalArgumentException("Unknown account " + account.getAccountId());
+                }
+                Account currentAccount = currentAccount(accountSlot);
+                if (wasConcurrentlyModified(account, currentAccount)) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!account.isModified()) {
+                    continue;
+                }
+                PendingWrite pendingWrite = new PendingWrite(currentAccount, account.toBuilder().version(currentAccount.getVersion() + 1).modified(false).build(), commit);
+                if (!accountSlot.compareAndSet(currentAccount, pendingWrite)) {
+                    throw new ConcurrentModificationException();
+                }
+                acquiredSlots.add(accountSlot);
+                pendingWrites.add(pendingWrite);
+            }
+            commit.committed = true;
+        } finally {
+            commit.decided = true;
+            for (int i = 0; i < acquiredSlots.size(); i++) {
+                acquiredSlots.get(i).compareAndSet(pendingWrites.get(i), pendingWrites.get(i).outcome());
+            }
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accountsToSave, Collection<MoneyTransfer> settledMoneyTransfers, Map<AccountId, Long> pendingCreditChanges) {
+        saveAll(accountsToSave);
+    }
+
+    /**
+     * Returns the committed account held by the slot, finishing a decided pending write left by another writer.
+     *
+     * @throws ConcurrentModificationException if another writer's commit is still undecided
+     */
+    private Account currentAccount(AtomicReference<Object> accountSlot) {
+        Object current = accountSlot.get();
+        if (current instanceof PendingWrite) {
+            PendingWrite pendingWrite = (PendingWrite) current;
+            if (!pendingWrite.commit.decided) {
+                throw new ConcurrentModificationException();
+            }
+            accountSlot.compareAndSet(pendingWrite, pendingWrite.outcome());
+            current = accountSlot.get();
+            if (current instanceof PendingWrite) {
+                throw new ConcurrentModificationException();
+            }
+        }
+        return (Account) current;
+    }
+
+    private boolean wasConcurrentlyModified(Account account, Account currentAccount) {
+        return currentAccount.getVersion() != account.getVersion();
+    }
+
+    @Override
+    public Optional<Account> findById(AccountId accountId) {
+        AtomicReference<Object> accountSlot = accounts.get(accountId);
+        return accountSlot != null ? Optional.of(visibleAccount(accountSlot.get())) : Optional.empty();
+    }
+
+    @Override
+    public boolean exists(AccountId accountId) {
+        return existenceIndex.exists(accountId);
+    }
+
+    private static Account visibleAccount(Object slotValue) {
+        return slotValue instanceof PendingWrite ? ((PendingWrite) slotValue).outcome() : (Account) slotValue;
+    }
+
+    private static final class Commit {
+        private volatile boolean committed;  //written before decided
+        private volatile boolean decided;
+    }
+
+    private static final class PendingWrite {
+        private final Account previousAccount;
+        private final Account nextAccount;
+        private final Commit commit;
+
+        private PendingWrite(Account previousAccount, Account nextAccount, Commit commit) {
+            this.previousAccount = previousAccount;
+            this.nextAccount = nextAccount;
+            this.commit = commit;
+        }
+
+        private Account outcome() {
+            return commit.committed ? nextAccount : previousAccount;
+        }
+    }
+}
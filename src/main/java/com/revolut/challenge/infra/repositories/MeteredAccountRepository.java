@@ -0,0 +1,119 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * Account repository measuring the operations of another, except {@link #insertAll}.
+ */
+public class MeteredAccountRepository implements IAccountRepository {
+
+    private final IAccountRepository accountRepository;
+    private final RepositoryOperationMetrics save;
+    private final RepositoryOperationMetrics saveAll;
+    private final RepositoryOperationMetrics findById;
+    private final RepositoryOperationMetrics exists;
+
+    public MeteredAccountRepository(IAccountRepository accountRepository, MeterRegistry meterRegistry) {
+        this.accountRepository = accountRepository;
+        save = new RepositoryOperationMetrics(meterRegistry, "accounts", "save");
+        saveAll = new RepositoryOperationMetrics(meterRegistry, "accounts", "saveAll");
+        findById = new RepositoryOperationMetrics(meterRegistry, "accounts", "findById");
+        exists = new RepositoryOperationMetrics(meterRegistry, "accounts", "exists");
+    }
+
+    @Override
+    public void save(Account account) {
+        RepositoryOperationEvent event = save.start();
+        try {
+            accountRepository.save(account);
+        } catch (ConcurrentModificationException e) {
+            save.recordConcurrentModification(event);
+            throw e;
+        } finally {
+            save.stop(event, account.getAccountId().getId());
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accounts) {
+        RepositoryOperationEvent event = saveAll.start();
+        try {
+            accountRepository.saveAll(accounts);
+        } catch (ConcurrentModificationException e) {
+            saveAll.recordConcurrentModification(event);
+            throw e;
+        } finally {
+            saveAll.stop(event, null);
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accounts, Collection<MoneyTransfer> settledMoneyTransfers, Map<AccountId, Long> pendingCreditChanges) {
+        RepositoryOperationEvent event = saveAll.start();
+        try {
+            accountRepository.saveAll(accounts, settledMoneyTransfers, pendingCreditChanges);
+        } catch (ConcurrentModificationException e) {
+            saveAll.recordConcurrentModification(event);
+            throw e;
+        } finally {
+            saveAll.stop(event, null);
+        }
+    }
+
+    @Override
+    public void insertAll(Collection<Account> accounts) {
+        accountRepository.insertAll(accounts);
+    }
+
+    @Override
+    public Optional<Account> findById(AccountId accountId) {
+        RepositoryOperationEvent event = findById.start();
+        try {
+            return accountRepository.findById(accountId);
+        } finally {
+            findById.stop(event, accountId.getId());
+        }
+    }
+
+    @Override
+    public boolean exists(AccountId accountId) {
+        RepositoryOperationEvent event = exists.start();
+        try {
+            return accountRepository.exists(accountId);
+        } finally {
+            exists.stop(event, accountId.getId());
+        }
+    }
+
+    /**
+     * Measures the account repository in use, unless {@code challenge.metrics.repositories.enabled} is false.
+     */
+    @Singleton
+    @Requires(property = "challenge.metrics.repositories.enabled", value = "true", defaultValue = "true")
+    static class Decorator implements BeanCreatedEventListener<IAccountRepository> {
+        private final MeterRegistry meterRegistry;
+
+        Decorator(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public IAccountRepository onCreated(BeanCreatedEvent<IAccountRepository> event) {
+            return new MeteredAccountRepository(event.getBean(), meterRegistry);
+        }
+    }
+}
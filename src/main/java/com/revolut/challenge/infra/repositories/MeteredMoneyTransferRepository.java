@@ -0,0 +1,80 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.BeanCreatedEvent;
+import io.micronaut.context.event.BeanCreatedEventListener;
+
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Optional;
+
+
+/**
+ * Money transfer repository measuring the operations of another.
+ */
+public class MeteredMoneyTransferRepository implements IMoneyTransferRepository {
+
+    private final IMoneyTransferRepository moneyTransferRepository;
+    private final RepositoryOperationMetrics save;
+    private final RepositoryOperationMetrics saveAll;
+    private final RepositoryOperationMetrics findById;
+
+    public MeteredMoneyTransferRepository(IMoneyTransferRepository moneyTransferRepository, MeterRegistry meterRegistry) {
+        this.moneyTransferRepository = moneyTransferRepository;
+        save = new RepositoryOperationMetrics(meterRegistry, "transfers", "save");
+        saveAll = new RepositoryOperationMetrics(meterRegistry, "transfers", "saveAll");
+        findById = new RepositoryOperationMetrics(meterRegistry, "transfers", "findById");
+    }
+
+    @Override
+    public void save(MoneyTransfer moneyTransfer) {
+        RepositoryOperationEvent event = save.start();
+        try {
+            moneyTransferRepository.save(moneyTransfer);
+        } finally {
+            save.stop(event, moneyTransfer.getRequestId().getId());
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<MoneyTransfer> moneyTransfers) {
+        RepositoryOperationEvent event = saveAll.start();
+        try {
+            moneyTransferRepository.saveAll(moneyTransfers);
+        } finally {
+            saveAll.stop(event, null);
+        }
+    }
+
+    @Override
+    public Optional<MoneyTransfer> findById(TransferRequestId requestId) {
+        RepositoryOperationEvent event = findById.start();
+        try {
+            return moneyTransferRepository.findById(requestId);
+        } finally {
+            findById.stop(event, requestId.getId());
+        }
+    }
+
+    /**
+     * Measures the money transfer repository in use, unless {@code challenge.metrics.repositories.enabled} is false.
+     */
+    @Singleton
+    @Requires(property = "challenge.metrics.repositories.enabled", value = "true", defaultValue = "true")
+    static class Decorator implements BeanCreatedEventListener<IMoneyTransferRepository> {
+        private final MeterRegistry meterRegistry;
+
+        Decorator(MeterRegistry meterRegistry) {
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public IMoneyTransferRepository onCreated(BeanCreatedEvent<IMoneyTransferRepository> event) {
+            return new MeteredMoneyTransferRepository(event.getBean(), meterRegistry);
+        }
+    }
+}
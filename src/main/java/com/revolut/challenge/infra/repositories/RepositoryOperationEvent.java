@@ -0,0 +1,59 @@
+package com.revolut.challenge.infra.repositories;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+import java.util.UUID;
+
+
+/**
+ * Flight recorder event of a repository operation, begun by {@link RepositoryOperationMetrics#start()} for every call
+ * while a recording enables it, so that a slow one can be told apart from the sample the timers see, along with the
+ * account or transfer it was on.
+ * Operations shorter than the threshold of the recording, 1 ms unless set, are not recorded.
+ */
+@Name("com.revolut.challenge.RepositoryOperation")
+@Label("Repository Operation")
+@Category({"Challenge", "Repositories"})
+@Description("Operation of the account or transfer repository")
+@Threshold("1 ms")
+@StackTrace(false)
+class RepositoryOperationEvent extends Event {
+
+    @Label("Repository")
+    String repository;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Id")
+    @Description("Id of the account or transfer operated on, none for batches")
+    String id;
+
+    @Label("Conflict")
+    @Description("Whether the operation failed on a concurrent modification")
+    boolean conflict;
+
+    /**
+     * When the call is timed by {@link RepositoryOperationMetrics}, not recorded with the event.
+     */
+    transient long sampledStartTime;
+
+    /**
+     * Ends the operation and records it if it lasted long enough, only then naming the entity.
+     */
+    void commit(String repository, String operation, UUID id) {
+        end();
+        if (shouldCommit()) {
+            this.repository = repository;
+            this.operation = operation;
+            this.id = id == null ? null : id.toString();
+            commit();
+        }
+    }
+}
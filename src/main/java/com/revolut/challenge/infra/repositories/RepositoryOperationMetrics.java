@@ -0,0 +1,89 @@
+package com.revolut.challenge.infra.repositories;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jdk.jfr.EventType;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Calls to one operation of a repository: all counted, one in {@link #TIME_SAMPLING_RATE} timed.
+ */
+class RepositoryOperationMetrics {
+
+    private static final int TIME_SAMPLING_RATE = 64;
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+    private static final EventType EVENT_TYPE = EventType.getEventType(RepositoryOperationEvent.class);
+    /**
+     * Stands for the calls neither timed nor recorded, so that they allocate no event.
+     */
+    private static final RepositoryOperationEvent UNRECORDED = new RepositoryOperationEvent();
+
+    static {
+        UNRECORDED.sampledStartTime = NOT_SAMPLED;
+    }
+
+    private final String repository;
+    private final String operation;
+    private final LongAdder calls = new LongAdder();
+    private final Timer time;
+    private final Counter concurrentModifications;
+
+    RepositoryOperationMetrics(MeterRegistry meterRegistry, String repository, String operation) {
+        this.repository = repository;
+        this.operation = operation;
+        Tags tags = Tags.of("repository", repository, "operation", operation);
+        FunctionCounter.builder("repository.operations", calls, LongAdder::sum).tags(tags).description("Repository operations called").register(meterRegistry);
+        time = Timer.builder("repository.operation.time").tags(tags).description("Time a sample of the repository operations take")
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(100)).maximumExpectedValue(Duration.ofSeconds(10)).register(meterRegistry);
+        concurrentModifications = Counter.builder("repository.concurrent.modifications").tags(tags)
+                                         .description("Repository operations that failed on a concurrent modification").register(meterRegistry);
+    }
+
+    /**
+     * Counts a call and begins its event.
+     *
+     * @return the event of the call, to pass to {@link #stop}, holding the time it starts at if it is sampled; a shared
+     * one if the call is not sampled and no recording is enabling the event
+     */
+    RepositoryOperationEvent start() {
+        calls.increment();
+        boolean sampled = ThreadLocalRandom.current().nextInt(TIME_SAMPLING_RATE) == 0;
+        if (!sampled && !EVENT_TYPE.isEnabled()) {
+            return UNRECORDED;
+        }
+        RepositoryOperationEvent event = new RepositoryOperationEvent();
+        event.sampledStartTime = sampled ? System.nanoTime() : NOT_SAMPLED;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param id the account or transfer operated on, null for batches
+     */
+    void stop(RepositoryOperationEvent event, UUID id) {
+        if (event == UNRECORDED) {
+            return;
+        }
+        if (event.sampledStartTime != NOT_SAMPLED) {
+            time.record(System.nanoTime() - event.sampledStartTime, TimeUnit.NANOSECONDS);
+        }
+        event.commit(repository, operation, id);
+    }
+
+    void recordConcurrentModification(RepositoryOperationEvent event) {
+        concurrentModifications.increment();
+        if (event != UNRECORDED) {
+            event.conflict = true;
+        }
+    }
+}
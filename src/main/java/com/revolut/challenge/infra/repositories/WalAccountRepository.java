@@ -0,0 +1,240 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.google.common.util.concurrent.Striped;
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.infra.wal.WalRecords;
+import com.revolut.challenge.infra.wal.WalStore;
+import io.micronaut.context.annotation.Requires;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+
+/**
+ * Account repository backed by the write-ahead log.
+ * A save is version-checked in memory, appended to the log and only then applied to the map, so an append that fails
+ * leaves the account as it was; it returns once the log's fsync policy is satisfied.
+ * <p>
+ * Saves of an account are serialized by a stripe of {@link #accountLocks}, held from the version check to the map
+ * update, while saves of other accounts append concurrently and share group commits. The accounts of a {@link #saveAll}
+ * are applied under the write side of a {@link StampedLock} so that they change together; readers only fall back to
+ * the lock when such an update overlaps them. All accounts of a {@link #saveAll} or of an {@link #insertAll} are logged
+ * as one record, together with the money transfers settled by the postings and the changes to pending credits.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.repository.accounts", value = "wal")
+public class WalAccountRepository implements IAccountRepository {
+
+    private static final int ACCOUNT_LOCK_STRIPES = 1024;
+
+    private Map<AccountId, Account> accounts;
+    private Map<TransferRequestId, MoneyTransfer> moneyTransfers;
+    private WalStore walStore;
+    private Striped<Lock> accountLocks;
+    private StampedLock lock;
+    private AccountExistenceIndex existenceIndex;
+
+    public WalAccountRepository(WalStore walStore) {
+        this(walStore, new AccountBloomFilterConfiguration());
+    }
+
+    @Inject
+    public WalAccountRepository(WalStore walStore, AccountBloomFilterConfiguration bloomFilterConfiguration) {
+        accounts = walStore.getAccounts();
+        moneyTransfers = walStore.getMoneyTransfers();
+        this.walStore = walStore;
+        accountLocks = Striped.lock(ACCOUNT_LOCK_STRIPES);
+        lock = new StampedLock();
+        existenceIndex = new AccountExistenceIndex(bloomFilterConfiguration, accounts::containsKey);
+        accounts.keySet().forEach(existenceIndex::add);  //recovered from the log
+    }
+
+    @Override
+    public void save(Account account) {
+        if (!account.isModified() && accounts.containsKey(account.getAccountId())) {
+            return;
+        }
+        existenceIndex.add(account.getAccountId());
+        Lock accountLock = accountLocks.get(account.getAccountId());
+        accountLock.lock();
+        try {
+            Account currentAccount = accounts.get(account.getAccountId());
+            Account savedAccount = nextVersion(account, currentAccount);
+            if (savedAccount == currentAccount) {
+                return;
+            }
+            walStore.append(WalRecords.encode(savedAccount), () -> {
+                long readLockStamp = lock.readLock();
+                try {
+                    accounts.put(savedAccount.getAccountId(), savedAccount);
+                } finally {
+                    lock.unlock(readLockStamp);
+                }
+            });
+        } finally {
+            accountLock.unlock();
+        }
+    }
+
+    @Override
+    public void saveAll(Collection<Account> accountsToSave) {
+        saveAll(accountsToSave, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * Logs the accounts, the money transfers and the pending credit changes as one record, then applies the transfers
+     * to the map of {@link WalStore#getMoneyTransfers()}, ahead of the save of their status by the money transfer
+     * repository, and the changes to {@link WalStore#changePendingCredits}.
+     */
+    @Override
+    public void saveAll(Collection<Account> accountsToSave, Collection<MoneyTransfer> settledMoneyTransfers, Map<AccountId, Long> pendingCreditChanges) {
+        List<Lock> locks = lockAll(accountsToSave);
+        try {
+            List<Account> savedAccounts = new ArrayList<>(accountsToSave.size());
+            for (Account account : accountsToSave) {
+                Account currentAccount = accounts.get(account.getAccountId());
+                if (currentAccount == null) {
+                    throw new IllegalArgumentException("Unknown account " + account.getAccountId());
+                }
+                if (currentAccount.getVersion() != account.getVersion()) {
+                    throw new ConcurrentModificationException();
+                }
+                if (account.isModified()) {
+                    savedAccounts.add(nextVersion(account, currentAccount));
+                }
+            }
+            if (savedAccounts.isEmpty() && pendingCreditChanges.isEmpty()) {
+                return;
+            }
+            byte[] record = settledMoneyTransfers.isEmpty() && pendingCreditChanges.isEmpty() ? WalRecords.encode(savedAccounts)
+                                                                                              : WalRecords.encodePostings(savedAccounts, settledMoneyTransfers, pendingCreditChanges);
+            walStore.append(record, () -> {
+                long writeLockStamp = lock.writeLock();
+                try {
+                    for (Account savedAccount : savedAccounts) {
+                        accounts.put(savedAccount.getAccountId(), savedAccount);
+                    }
+                } finally {
+                    lock.unlock(writeLockStamp);
+                }
+                for (MoneyTransfer moneyTransfer : settledMoneyTransfers) {
+                    moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer);
+                }
+                pendingCreditChanges.forEach(walStore::changePendingCredits);
+            });
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * Inserts all the accounts or none: an id already taken fails the call before anything is logged.
+     */
+    @Override
+    public void insertAll(Collection<Account> accountsToInsert) {
+        List<Lock> locks = lockAll(accountsToInsert);
+        try {
+            Set<AccountId> insertedIds = new HashSet<>();
+            List<Account> insertedAccounts = new ArrayList<>(accountsToInsert.size());
+            for (Account account : accountsToInsert) {
+                if (accounts.containsKey(account.getAccountId()) || !insertedIds.add(account.getAccountId())) {
+                    throw new IllegalArgumentException("Account already exists " + account.getAccountId());
+                }
+                insertedAccounts.add(account.toBuilder().version(1).modified(false).build());
+            }
+            if (insertedAccounts.isEmpty()) {
+                return;
+            }
+            walStore.append(WalRecords.encode(insertedAccounts), () -> {
+                long readLockStamp = lock.readLock();
+                try {
+                    for (Account insertedAccount : insertedAccounts) {
+                        existenceIndex.add(insertedAccount.getAccountId());
+                        accounts.put(insertedAccount.getAccountId(), insertedAccount);
+                    }
+                } finally {
+                    lock.unlock(readLockStamp);
+                }
+            });
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    /**
+     * Locks the stripes of the accounts in stripe order, which keeps calls sharing stripes from deadlocking.
+     */
+    private List<Lock> lockAll(Collection<Account> accountsToLock) {
+        List<AccountId> accountIds = new ArrayList<>(accountsToLock.size());
+        for (Account account : accountsToLock) {
+            accountIds.add(account.getAccountId());
+        }
+        List<Lock> locks = new ArrayList<>();
+        for (Lock accountLock : accountLocks.bulkGet(accountIds)) {
+            if (locks.isEmpty() || locks.get(locks.size() - 1) != accountLock) {
+                accountLock.lock();
+                locks.add(accountLock);
+            }
+        }
+        return locks;
+    }
+
+    private static void unlockAll(List<Lock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private Account nextVersion(Account account, Account currentAccount) {
+        if (currentAccount == null) {
+            return account.toBuilder().version(1).build();
+        }
+        if (!account.isModified()) {
+            return currentAccount;
+        }
+        if (currentAccount.getVersion() != account.getVersion()) {
+            throw new ConcurrentModificationException();
+        }
+        return account.toBuilder().version(currentAccount.getVersion() + 1).modified(false).build();
+    }
+
+    @Override
+    public Optional<Account> findById(AccountId accountId) {
+        long optimisticReadStamp = lock.tryOptimisticRead();
+        Account account = accounts.get(accountId);
+        if (!lock.validate(optimisticReadStamp)) {
+            long readLockStamp = lock.readLock();
+            try {
+                account = accounts.get(accountId);
+            } finally {
+                lock.unlock(readLockStamp);
+            }
+        }
+        return Optional.ofNullable(account);
+    }
+
+    /**
+     * Existence does not change with {@link #saveAll}, so this needs no lock.
+     */
+    @Override
+    public boolean exists(AccountId accountId) {
+        return existenceIndex.exists(accountId);
+    }
+}
@@ -0,0 +1,60 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.infra.wal.WalRecords;
+import com.revolut.challenge.infra.wal.WalStore;
+import io.micronaut.context.annotation.Requires;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * Money transfer repository backed by the write-ahead log: transfers are appended to the log first and only then
+ * stored, so a transfer whose append fails is not found.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.repository.transfers", value = "wal")
+public class WalMoneyTransferRepository implements IMoneyTransferRepository {
+
+    private Map<TransferRequestId, MoneyTransfer> moneyTransfers;
+    private WalStore walStore;
+
+    @Inject
+    public WalMoneyTransferRepository(WalStore walStore) {
+        moneyTransfers = walStore.getMoneyTransfers();
+        this.walStore = walStore;
+    }
+
+    /**
+     * Logs nothing for a transfer already logged in the same status, with its postings by {@link WalAccountRepository}.
+     */
+    @Override
+    public void save(MoneyTransfer moneyTransfer) {
+        if (moneyTransfer.equals(moneyTransfers.get(moneyTransfer.getRequestId()))) {
+            return;
+        }
+        walStore.append(WalRecords.encode(moneyTransfer), () -> moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer));
+    }
+
+    @Override
+    public void saveAll(Collection<MoneyTransfer> moneyTransfersToSave) {
+        walStore.append(WalRecords.encodeMoneyTransfers(moneyTransfersToSave), () -> {
+            for (MoneyTransfer moneyTransfer : moneyTransfersToSave) {
+                moneyTransfers.put(moneyTransfer.getRequestId(), moneyTransfer);
+            }
+        });
+    }
+
+    @Override
+    public Optional<MoneyTransfer> findById(TransferRequestId transferRequestId) {
+        return Optional.ofNullable(moneyTransfers.get(transferRequestId));
+    }
+}
@@ -0,0 +1,22 @@
+package com.revolut.challenge.infra.seed;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.accounts.seed")
+public class AccountSeedConfiguration {
+    private String file;
+    /**
+     * Inferred from the file name when not set: {@link SeedFileFormat#CSV} for {@code .csv} files, {@link SeedFileFormat#BINARY} otherwise.
+     */
+    private SeedFileFormat format;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    /**
+     * Accounts parsed and inserted together by one thread.
+     */
+    private int chunkSize = 4096;
+}
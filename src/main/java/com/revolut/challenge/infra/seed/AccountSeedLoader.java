@@ -0,0 +1,182 @@
+package com.revolut.challenge.infra.seed;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Loads the accounts of {@code challenge.accounts.seed.file} at startup, before the server accepts requests.
+ * The file is read sequentially in chunks of {@code chunk-size} accounts, which {@code threads} threads parse and insert
+ * straight into the repository with {@link IAccountRepository#insertAll}, one repository operation per chunk.
+ * A file that cannot be loaded fails the startup; the accounts of the chunks inserted before are kept.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.accounts.seed.file")
+public class AccountSeedLoader {
+
+    private static final int BINARY_RECORD_SIZE = 2 * Long.BYTES + Long.BYTES;
+
+    private final IAccountRepository accountRepository;
+    private final AccountSeedConfiguration configuration;
+
+    @Inject
+    public AccountSeedLoader(IAccountRepository accountRepository, AccountSeedConfiguration configuration) {
+        this.accountRepository = accountRepository;
+        this.configuration = configuration;
+    }
+
+    @EventListener
+    public void onStartup(StartupEvent event) {
+        load();
+    }
+
+    /**
+     * @return the number of accounts loaded
+     */
+    public long load() {
+        Path file = Paths.get(configuration.getFile());
+        int threads = configuration.getThreads();
+        ThreadPoolExecutor workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads),
+                                                            new ThreadFactoryBuilder().setNameFormat("account-seed-%d").setDaemon(true).build(),
+                                                            new ThreadPoolExecutor.CallerRunsPolicy());  //the reader parses a chunk too once the workers are behind
+        long startTime = System.nanoTime();
+        try {
+            List<Future<Integer>> chunks = formatOf(file) == SeedFileFormat.CSV ? submitCsvChunks(file, workers) : submitBinaryChunks(file, workers);
+            long accounts = 0;
+            for (Future<Integer> chunk : chunks) {
+                accounts += chunk.get();
+            }
+            long elapsedNanos = System.nanoTime() - startTime;
+            log.info("Seeded {} accounts from {} in {} ms with {} threads: {} accounts/s", accounts, file, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), threads,
+                     accounts * TimeUnit.SECONDS.toNanos(1) / Math.max(1, elapsedNanos));
+            return accounts;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read account seed file " + file, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to load account seed file " + file, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading account seed file " + file, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private SeedFileFormat formatOf(Path file) {
+        if (configuration.getFormat() != null) {
+            return configuration.getFormat();
+        }
+        return file.getFileName().toString().toLowerCase().endsWith(".csv") ? SeedFileFormat.CSV : SeedFileFormat.BINARY;
+    }
+
+    private List<Future<Integer>> submitCsvChunks(Path file, ThreadPoolExecutor workers) throws IOException {
+        List<Future<Integer>> chunks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long firstLineNumber = 1;
+            List<String> lines = new ArrayList<>(configuration.getChunkSize());
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                lines.add(line);
+                if (lines.size() == configuration.getChunkSize()) {
+                    chunks.add(submitCsvChunk(workers, lines, firstLineNumber));
+                    firstLineNumber += lines.size();
+                    lines = new ArrayList<>(configuration.getChunkSize());
+                }
+            }
+            if (!lines.isEmpty()) {
+                chunks.add(submitCsvChunk(workers, lines, firstLineNumber));
+            }
+        }
+        return chunks;
+    }
+
+    private Future<Integer> submitCsvChunk(ThreadPoolExecutor workers, List<String> lines, long firstLineNumber) {
+        return workers.submit(() -> insertCsvChunk(lines, firstLineNumber));
+    }
+
+    private int insertCsvChunk(List<String> lines, long firstLineNumber) {
+        List<Account> accounts = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            try {
+                accounts.add(parseCsvLine(line));
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException("Invalid account on line " + (firstLineNumber + i) + ": " + line, e);
+            }
+        }
+        accountRepository.insertAll(accounts);
+        return accounts.size();
+    }
+
+    private static Account parseCsvLine(String line) {
+        int separator = line.indexOf(',');
+        AccountId accountId = separator < 0 ? AccountId.random() : AccountId.from(UUID.fromString(line.substring(0, separator).trim()));
+        Amount initialBalance = Amount.builder().amount(new BigDecimal(line.substring(separator + 1).trim())).build();
+        return Account.builder().accountId(accountId).currentBalance(initialBalance).build();
+    }
+
+    private List<Future<Integer>> submitBinaryChunks(Path file, ThreadPoolExecutor workers) throws IOException {
+        List<Future<Integer>> chunks = new ArrayList<>();
+        long remainingRecords = Files.size(file) / BINARY_RECORD_SIZE;
+        if (Files.size(file) % BINARY_RECORD_SIZE != 0) {
+            throw new EOFException(String.format("Account seed file %s ends with a partial record of %d bytes", file, Files.size(file) % BINARY_RECORD_SIZE));
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            DataInputStream input = new DataInputStream(inputStream);
+            while (remainingRecords > 0) {
+                int records = (int) Math.min(configuration.getChunkSize(), remainingRecords);
+                byte[] chunk = new byte[records * BINARY_RECORD_SIZE];
+                input.readFully(chunk);
+                chunks.add(workers.submit(() -> insertBinaryChunk(chunk)));
+                remainingRecords -= records;
+            }
+        }
+        return chunks;
+    }
+
+    private int insertBinaryChunk(byte[] chunk) {
+        ByteBuffer records = ByteBuffer.wrap(chunk);
+        List<Account> accounts = new ArrayList<>(chunk.length / BINARY_RECORD_SIZE);
+        while (records.hasRemaining()) {
+            long mostSignificantBits = records.getLong();
+            long leastSignificantBits = records.getLong();
+            AccountId accountId = mostSignificantBits == 0 && leastSignificantBits == 0 ? AccountId.random() : AccountId.from(new UUID(mostSignificantBits, leastSignificantBits));
+            accounts.add(Account.builder().accountId(accountId).balance(records.getLong()).build());
+        }
+        accountRepository.insertAll(accounts);
+        return accounts.size();
+    }
+}
@@ -0,0 +1,18 @@
+package com.revolut.challenge.infra.seed;
+
+
+/**
+ * Formats of the account seed file.
+ */
+public enum SeedFileFormat {
+    /**
+     * A line per account: its initial balance, e.g. {@code 100.50}, or its id and initial balance, e.g.
+     * {@code 3f1c...,100.50}. Blank lines and lines starting with {@code #} are skipped.
+     */
+    CSV,
+    /**
+     * A 24 byte big-endian record per account: the two longs of its id, all zeros for a generated id, then its initial
+     * balance in minor units.
+     */
+    BINARY
+}
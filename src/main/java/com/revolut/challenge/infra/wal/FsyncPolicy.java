@@ -0,0 +1,20 @@
+package com.revolut.challenge.infra.wal;
+
+
+/**
+ * When appended records are forced to disk, and whether {@link WriteAheadLog#append(byte[])} waits for it.
+ */
+public enum FsyncPolicy {
+    /**
+     * Appends wait until the batch they belong to is forced; one fsync per group commit window.
+     */
+    GROUP_COMMIT,
+    /**
+     * Appends return immediately and the log is forced every group commit window; a crash may lose the last window.
+     */
+    INTERVAL,
+    /**
+     * The log is never forced explicitly; the operating system writes dirty pages back on its own schedule.
+     */
+    NONE
+}
@@ -0,0 +1,98 @@
+package com.revolut.challenge.infra.wal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+
+/**
+ * Binary image of the store: the log position it covers followed by a stream of {@link WalRecords}, so loading a
+ * snapshot goes through the same code as replaying the log.
+ * <p>
+ * Layout: [magic][format version][checkpoint lsn] ([length][record])* [-1][record count][crc32 of everything before].
+ * A snapshot is written to a temporary file, forced and then atomically renamed, so a crash never leaves a partial one.
+ */
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x534E4150;
+    private static final byte FORMAT_VERSION = 1;
+    private static final int END_OF_RECORDS = -1;
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Writes the records and returns how many were written.
+     */
+    static long write(Path file, long checkpointLsn, Iterator<byte[]> records) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long recordCount = 0;
+        try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            CheckedOutputStream checkedOutputStream = new CheckedOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), new CRC32());
+            DataOutputStream output = new DataOutputStream(checkedOutputStream);
+            output.writeInt(MAGIC);
+            output.writeByte(FORMAT_VERSION);
+            output.writeLong(checkpointLsn);
+            while (records.hasNext()) {
+                byte[] record = records.next();
+                output.writeInt(record.length);
+                output.write(record);
+                recordCount++;
+            }
+            output.writeInt(END_OF_RECORDS);
+            output.writeLong(recordCount);
+            output.writeLong(checkedOutputStream.getChecksum().getValue());
+            output.flush();
+            channel.force(true);
+        }
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return recordCount;
+    }
+
+    /**
+     * Hands every record of the snapshot to the consumer and returns the log position the snapshot covers.
+     *
+     * @throws IllegalStateException if the snapshot is corrupted
+     */
+    static long read(Path file, Consumer<ByteBuffer> recordConsumer) throws IOException {
+        try (CheckedInputStream checkedInputStream = new CheckedInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), new CRC32())) {
+            DataInputStream input = new DataInputStream(checkedInputStream);
+            if (input.readInt() != MAGIC || input.readByte() != FORMAT_VERSION) {
+                throw new IllegalStateException("Not a snapshot file: " + file);
+            }
+            long checkpointLsn = input.readLong();
+            long recordCount = 0;
+            int length;
+            while ((length = input.readInt()) != END_OF_RECORDS) {
+                if (length < 0) {
+                    throw new IllegalStateException("Corrupted snapshot file: " + file);
+                }
+                byte[] record = new byte[length];
+                input.readFully(record);
+                recordConsumer.accept(ByteBuffer.wrap(record).asReadOnlyBuffer());
+                recordCount++;
+            }
+            long writtenRecordCount = input.readLong();
+            long checksum = checkedInputStream.getChecksum().getValue();
+            if (writtenRecordCount != recordCount || input.readLong() != checksum) {
+                throw new IllegalStateException("Corrupted snapshot file: " + file);
+            }
+            return checkpointLsn;
+        }
+    }
+}
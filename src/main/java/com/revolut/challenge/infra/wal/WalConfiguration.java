@@ -0,0 +1,18 @@
+package com.revolut.challenge.infra.wal;
+
+import io.micronaut.context.annotation.ConfigurationProperties;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+
+
+@Getter
+@Setter
+@ConfigurationProperties("challenge.wal")
+public class WalConfiguration {
+    private String directory = "data/wal";
+    private int segmentSize = 64 * 1024 * 1024;
+    private Duration groupCommitWindow = Duration.ofMillis(1);
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.GROUP_COMMIT;
+}
@@ -0,0 +1,27 @@
+package com.revolut.challenge.infra.wal;
+
+import io.micronaut.context.condition.Condition;
+import io.micronaut.context.condition.ConditionContext;
+import io.micronaut.core.value.PropertyResolver;
+
+
+/**
+ * Matches when at least one repository is configured to be backed by the write-ahead log.
+ */
+public class WalEnabledCondition implements Condition {
+
+    private static final String WAL = "wal";
+
+    @Override
+    public boolean matches(ConditionContext context) {
+        if (!(context.getBeanContext() instanceof PropertyResolver)) {
+            return false;
+        }
+        PropertyResolver propertyResolver = (PropertyResolver) context.getBeanContext();
+        return isWal(propertyResolver, "challenge.repository.accounts") || isWal(propertyResolver, "challenge.repository.transfers");
+    }
+
+    private static boolean isWal(PropertyResolver propertyResolver, String property) {
+        return propertyResolver.getProperty(property, String.class).map(WAL::equals).orElse(false);
+    }
+}
@@ -0,0 +1,196 @@
+package com.revolut.challenge.infra.wal;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+
+/**
+ * Binary encoding of the records written to the {@link WriteAheadLog}; every record starts with its type.
+ */
+public final class WalRecords {
+
+    public static final byte ACCOUNT = 1;
+    public static final byte MONEY_TRANSFER = 2;
+    public static final byte ACCOUNTS = 3;
+    public static final byte MONEY_TRANSFERS = 4;
+    public static final byte POSTINGS = 5;
+
+    private static final int UUID_SIZE = 16;
+    private static final int ACCOUNT_SIZE = UUID_SIZE + 4 + 8;
+    private static final int MONEY_TRANSFER_SIZE = 3 * UUID_SIZE + 1 + 8;
+    private static final int PENDING_CREDIT_CHANGE_SIZE = UUID_SIZE + 8;
+    private static final MoneyTransferStatus[] STATUSES = MoneyTransferStatus.values();
+
+    private WalRecords() {
+    }
+
+    public static byte typeOf(ByteBuffer record) {
+        return record.get(record.position());
+    }
+
+    public static byte[] encode(Account account) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + ACCOUNT_SIZE);
+        buffer.put(ACCOUNT);
+        putAccount(buffer, account);
+        return buffer.array();
+    }
+
+    public static Account decodeAccount(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.get();
+        return getAccount(buffer);
+    }
+
+    /**
+     * Encodes accounts saved together as one record, so they are replayed all or none.
+     */
+    public static byte[] encode(Collection<Account> accounts) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + accounts.size() * ACCOUNT_SIZE);
+        buffer.put(ACCOUNTS);
+        buffer.putInt(accounts.size());
+        for (Account account : accounts) {
+            putAccount(buffer, account);
+        }
+        return buffer.array();
+    }
+
+    public static List<Account> decodeAccounts(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.get();
+        int numberOfAccounts = buffer.getInt();
+        List<Account> accounts = new ArrayList<>(numberOfAccounts);
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accounts.add(getAccount(buffer));
+        }
+        return accounts;
+    }
+
+    public static byte[] encode(MoneyTransfer moneyTransfer) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + MONEY_TRANSFER_SIZE);
+        buffer.put(MONEY_TRANSFER);
+        putMoneyTransfer(buffer, moneyTransfer);
+        return buffer.array();
+    }
+
+    public static MoneyTransfer decodeMoneyTransfer(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.get();
+        return getMoneyTransfer(buffer);
+    }
+
+    /**
+     * Encodes money transfers saved together as one record.
+     */
+    public static byte[] encodeMoneyTransfers(Collection<MoneyTransfer> moneyTransfers) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + moneyTransfers.size() * MONEY_TRANSFER_SIZE);
+        buffer.put(MONEY_TRANSFERS);
+        buffer.putInt(moneyTransfers.size());
+        for (MoneyTransfer moneyTransfer : moneyTransfers) {
+            putMoneyTransfer(buffer, moneyTransfer);
+        }
+        return buffer.array();
+    }
+
+    public static List<MoneyTransfer> decodeMoneyTransfers(ByteBuffer record) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.get();
+        int numberOfMoneyTransfers = buffer.getInt();
+        List<MoneyTransfer> moneyTransfers = new ArrayList<>(numberOfMoneyTransfers);
+        for (int i = 0; i < numberOfMoneyTransfers; i++) {
+            moneyTransfers.add(getMoneyTransfer(buffer));
+        }
+        return moneyTransfers;
+    }
+
+    /**
+     * Encodes accounts saved together with the money transfers their postings settle and the changes to the credits
+     * pending in the cells of hot accounts as one record, so that none of them is replayed without the others.
+     */
+    public static byte[] encodePostings(Collection<Account> accounts, Collection<MoneyTransfer> moneyTransfers, Map<AccountId, Long> pendingCreditChanges) {
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + accounts.size() * ACCOUNT_SIZE + 4 + moneyTransfers.size() * MONEY_TRANSFER_SIZE
+                                                + 4 + pendingCreditChanges.size() * PENDING_CREDIT_CHANGE_SIZE);
+        buffer.put(POSTINGS);
+        buffer.putInt(accounts.size());
+        for (Account account : accounts) {
+            putAccount(buffer, account);
+        }
+        buffer.putInt(moneyTransfers.size());
+        for (MoneyTransfer moneyTransfer : moneyTransfers) {
+            putMoneyTransfer(buffer, moneyTransfer);
+        }
+        buffer.putInt(pendingCreditChanges.size());
+        for (Map.Entry<AccountId, Long> pendingCreditChange : pendingCreditChanges.entrySet()) {
+            putUuid(buffer, pendingCreditChange.getKey().getId());
+            buffer.putLong(pendingCreditChange.getValue());
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a {@link #POSTINGS} record, passing its accounts, money transfers and pending credit changes in that order.
+     */
+    public static void decodePostings(ByteBuffer record, Consumer<Account> accounts, Consumer<MoneyTransfer> moneyTransfers, BiConsumer<AccountId, Long> pendingCreditChanges) {
+        ByteBuffer buffer = record.duplicate();
+        buffer.get();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            accounts.accept(getAccount(buffer));
+        }
+        for (int i = buffer.getInt(); i > 0; i--) {
+            moneyTransfers.accept(getMoneyTransfer(buffer));
+        }
+        for (int i = buffer.getInt(); i > 0; i--) {
+            pendingCreditChanges.accept(AccountId.from(getUuid(buffer)), buffer.getLong());
+        }
+    }
+
+    private static void putMoneyTransfer(ByteBuffer buffer, MoneyTransfer moneyTransfer) {
+        putUuid(buffer, moneyTransfer.getRequestId().getId());
+        putUuid(buffer, moneyTransfer.getSourceAccountId().getId());
+        putUuid(buffer, moneyTransfer.getBeneficiaryAccountId().getId());
+        buffer.put((byte) moneyTransfer.getStatus().ordinal());
+        buffer.putLong(moneyTransfer.getAmount().getMinorUnits());
+    }
+
+    private static MoneyTransfer getMoneyTransfer(ByteBuffer buffer) {
+        TransferRequestId requestId = TransferRequestId.from(getUuid(buffer));
+        AccountId sourceAccountId = AccountId.from(getUuid(buffer));
+        AccountId beneficiaryAccountId = AccountId.from(getUuid(buffer));
+        MoneyTransferStatus status = STATUSES[buffer.get()];
+        return MoneyTransfer.builder().requestId(requestId).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId).amount(Amount.ofMinorUnits(buffer.getLong())).status(status)
+                            .build();
+    }
+
+    private static void putAccount(ByteBuffer buffer, Account account) {
+        putUuid(buffer, account.getAccountId().getId());
+        buffer.putInt(account.getVersion());
+        buffer.putLong(account.getBalance());
+    }
+
+    private static Account getAccount(ByteBuffer buffer) {
+        AccountId accountId = AccountId.from(getUuid(buffer));
+        int version = buffer.getInt();
+        return Account.builder().accountId(accountId).version(version).balance(buffer.getLong()).build();
+    }
+
+    private static void putUuid(ByteBuffer buffer, UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
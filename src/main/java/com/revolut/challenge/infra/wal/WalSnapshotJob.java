@@ -0,0 +1,29 @@
+package com.revolut.challenge.infra.wal;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.scheduling.annotation.Scheduled;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Singleton;
+
+
+@Slf4j
+@Singleton
+@Requires(condition = WalEnabledCondition.class)
+public class WalSnapshotJob {
+
+    private WalStore walStore;
+
+    public WalSnapshotJob(WalStore walStore) {
+        this.walStore = walStore;
+    }
+
+    @Scheduled(fixedDelay = "${challenge.wal.snapshot-interval:5m}", initialDelay = "${challenge.wal.snapshot-interval:5m}")
+    public void takeSnapshot() {
+        try {
+            walStore.takeSnapshot();
+        } catch (RuntimeException e) {
+            log.error("Failed to take snapshot; the log is kept until the next attempt", e);
+        }
+    }
+}
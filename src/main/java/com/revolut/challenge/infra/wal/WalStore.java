@@ -0,0 +1,194 @@
+package com.revolut.challenge.infra.wal;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.google.common.collect.Iterators;
+import io.micronaut.context.annotation.Requires;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.annotation.PreDestroy;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+
+/**
+ * Owns the {@link WriteAheadLog} shared by the durable repositories and the state rebuilt from it on startup.
+ * On startup the latest snapshot is loaded and the log is replayed from the position the snapshot covers;
+ * the recovered maps become the live maps of the repositories.
+ * <p>
+ * Snapshots are fuzzy: the log position is taken first and the live maps are then scanned while saves go on, so a
+ * snapshot may already contain changes from the log tail after that position. Replaying the tail on top of it is
+ * harmless because of the two rules below. The position is only taken once the records appended before it are in the
+ * maps, see {@link #append}.
+ * <p>
+ * Records of one account may reach the log out of version order, so replay keeps the highest version.
+ * A transfer only moves once from {@link MoneyTransferStatus#CREATED} to a final status, so replay never lets a
+ * CREATED record overwrite a final one.
+ * <p>
+ * The postings of a transfer are logged in one record with the transfer in its final status, see
+ * {@link WalRecords#POSTINGS}, so a transfer recovered still CREATED moved no money and is safe to process again.
+ * The same record logs the credits a transfer adds to the credit cells of a hot account, and the saves that drain the
+ * cells into the balance log the credits they took: the credits still pending are recovered as their sum, and folded
+ * into the balance on startup. A snapshot keeps that sum as of its position.
+ */
+@Slf4j
+@Singleton
+@Requires(condition = WalEnabledCondition.class)
+public class WalStore {
+
+    private static final String SNAPSHOT_FILE_NAME = "snapshot.bin";
+
+    @Getter
+    private final WriteAheadLog writeAheadLog;
+    @Getter
+    private final ConcurrentMap<AccountId, Account> accounts;
+    @Getter
+    private final ConcurrentMap<TransferRequestId, MoneyTransfer> moneyTransfers;
+    /**
+     * Credits logged to the credit cells of hot accounts and not saved into their balance yet, in minor units.
+     */
+    private final ConcurrentMap<AccountId, Long> pendingCredits;
+    private final Path snapshotFile;
+    /**
+     * Held shared from the append of a record to its map update, and exclusively while a snapshot takes its position.
+     */
+    private final ReadWriteLock snapshotGate = new ReentrantReadWriteLock();
+
+    public WalStore(WalConfiguration configuration) {
+        accounts = new ConcurrentHashMap<>();
+        moneyTransfers = new ConcurrentHashMap<>();
+        pendingCredits = new ConcurrentHashMap<>();
+        snapshotFile = Paths.get(configuration.getDirectory()).resolve(SNAPSHOT_FILE_NAME);
+        long startTime = System.nanoTime();
+        try {
+            long checkpointLsn = Files.exists(snapshotFile) ? SnapshotFile.read(snapshotFile, this::replay) : 0;
+            log.info("Loaded snapshot covering the log up to {} in {} ms", checkpointLsn, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+            writeAheadLog = WriteAheadLog.open(configuration, checkpointLsn, this::replay);
+            foldRecoveredPendingCredits();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to recover the store from " + configuration.getDirectory(), e);
+        }
+        log.info("Recovered {} accounts and {} money transfers; startup took {} ms", accounts.size(), moneyTransfers.size(),
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+    }
+
+    /**
+     * Appends the record to the log and then applies it to the live maps, out of the way of a snapshot taking its
+     * position in between, which would leave the record out of both the snapshot and the replay.
+     */
+    public void append(byte[] record, Runnable apply) {
+        snapshotGate.readLock().lock();
+        try {
+            writeAheadLog.append(record);
+            apply.run();
+        } finally {
+            snapshotGate.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds the credits of a logged record to the credits pending in the cells of the account, or takes the drained ones away.
+     */
+    public void changePendingCredits(AccountId accountId, long minorUnits) {
+        pendingCredits.merge(accountId, minorUnits, (pending, change) -> pending + change == 0 ? null : pending + change);
+    }
+
+    /**
+     * Writes a snapshot of every account and every money transfer still {@link MoneyTransferStatus#CREATED} without
+     * blocking saves, then deletes the log segments it covers. Transfers in a final status stay available until restart.
+     */
+    public synchronized void takeSnapshot() {
+        long checkpointLsn;
+        Map<AccountId, Long> checkpointPendingCredits;
+        snapshotGate.writeLock().lock();
+        try {
+            checkpointLsn = writeAheadLog.getWrittenLsn();
+            checkpointPendingCredits = new HashMap<>(pendingCredits);  //unlike the accounts, pending credits are sums and must be taken as of the position
+        } finally {
+            snapshotGate.writeLock().unlock();
+        }
+        long startTime = System.nanoTime();
+        Iterator<byte[]> records = Iterators.concat(
+                Iterators.transform(accounts.values().iterator(), WalRecords::encode),
+                Iterators.transform(Iterators.filter(moneyTransfers.values().iterator(), moneyTransfer -> moneyTransfer.getStatus() == MoneyTransferStatus.CREATED),
+                                    WalRecords::encode),
+                Iterators.singletonIterator(WalRecords.encodePostings(Collections.emptyList(), Collections.emptyList(), checkpointPendingCredits)));
+        try {
+            long recordCount = SnapshotFile.write(snapshotFile, checkpointLsn, records);
+            int deletedSegments = writeAheadLog.truncateBefore(checkpointLsn);
+            log.info("Wrote snapshot of {} records covering the log up to {} in {} ms; deleted {} log segments", recordCount, checkpointLsn,
+                     TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), deletedSegments);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + snapshotFile, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        writeAheadLog.close();
+    }
+
+    /**
+     * Saves the credits recovered pending into the balance of their accounts, as the credit cells they were in are gone.
+     */
+    private void foldRecoveredPendingCredits() {
+        for (Map.Entry<AccountId, Long> pendingCredit : new HashMap<>(pendingCredits).entrySet()) {
+            AccountId accountId = pendingCredit.getKey();
+            Account account = accounts.get(accountId);
+            Account foldedAccount = account.toBuilder().balance(Math.addExact(account.getBalance(), pendingCredit.getValue())).version(account.getVersion() + 1).build();
+            append(WalRecords.encodePostings(Collections.singletonList(foldedAccount), Collections.emptyList(), Collections.singletonMap(accountId, -pendingCredit.getValue())), () -> {
+                accounts.put(accountId, foldedAccount);
+                changePendingCredits(accountId, -pendingCredit.getValue());
+            });
+            log.info("Folded {} pending credits recovered into hot account {}", pendingCredit.getValue(), accountId);
+        }
+    }
+
+    private void replay(ByteBuffer record) {
+        switch (WalRecords.typeOf(record)) {
+            case WalRecords.ACCOUNT:
+                replayAccount(WalRecords.decodeAccount(record));
+                break;
+            case WalRecords.ACCOUNTS:
+                WalRecords.decodeAccounts(record).forEach(this::replayAccount);
+                break;
+            case WalRecords.MONEY_TRANSFER:
+                replayMoneyTransfer(WalRecords.decodeMoneyTransfer(record));
+                break;
+            case WalRecords.MONEY_TRANSFERS:
+                WalRecords.decodeMoneyTransfers(record).forEach(this::replayMoneyTransfer);
+                break;
+            case WalRecords.POSTINGS:
+                WalRecords.decodePostings(record, this::replayAccount, this::replayMoneyTransfer, this::changePendingCredits);
+                break;
+            default:
+                throw new IllegalStateException("Unknown WAL record type " + WalRecords.typeOf(record));
+        }
+    }
+
+    private void replayAccount(Account account) {
+        accounts.merge(account.getAccountId(), account, (current, replayed) -> replayed.getVersion() > current.getVersion() ? replayed : current);
+    }
+
+    private void replayMoneyTransfer(MoneyTransfer moneyTransfer) {
+        moneyTransfers.merge(moneyTransfer.getRequestId(), moneyTransfer, (current, replayed) -> replayed.getStatus() == MoneyTransferStatus.CREATED ? current : replayed);
+    }
+}
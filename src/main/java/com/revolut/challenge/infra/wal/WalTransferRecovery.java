@@ -0,0 +1,60 @@
+package com.revolut.challenge.infra.wal;
+
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferBacklog;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferCreatedEvent;
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import io.micronaut.context.event.StartupEvent;
+import io.micronaut.runtime.event.annotation.EventListener;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.List;
+import java.util.stream.Collectors;
+
+
+/**
+ * Submits again at startup the money transfers recovered from the log still {@link MoneyTransferStatus#CREATED}, which
+ * were accepted but not processed before the restart. Their postings are logged in one record with their final status,
+ * so a transfer recovered CREATED moved no money and is processed once.
+ */
+@Slf4j
+@Singleton
+@Requires(property = "challenge.repository.transfers", value = "wal")
+public class WalTransferRecovery {
+
+    private final WalStore walStore;
+    private final MoneyTransferBacklog backlog;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Inject
+    public WalTransferRecovery(WalStore walStore, MoneyTransferBacklog backlog, ApplicationEventPublisher eventPublisher) {
+        this.walStore = walStore;
+        this.backlog = backlog;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener
+    public void onStartup(StartupEvent event) {
+        resubmit();
+    }
+
+    /**
+     * @return the number of transfers submitted again
+     */
+    public int resubmit() {
+        List<MoneyTransfer> createdMoneyTransfers = walStore.getMoneyTransfers().values().stream().filter(moneyTransfer -> moneyTransfer.getStatus() == MoneyTransferStatus.CREATED)
+                                                            .collect(Collectors.toList());
+        for (MoneyTransfer moneyTransfer : createdMoneyTransfers) {
+            backlog.readmit();  //the backlog drains while the transfers before are processed
+            eventPublisher.publishEvent(MoneyTransferCreatedEvent.builder().requestId(moneyTransfer.getRequestId()).build());
+        }
+        if (!createdMoneyTransfers.isEmpty()) {
+            log.info("Submitted {} money transfers recovered unprocessed again", createdMoneyTransfers.size());
+        }
+        return createdMoneyTransfers.size();
+    }
+}
@@ -0,0 +1,400 @@
+package com.revolut.challenge.infra.wal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+
+/**
+ * Append-only log made of fixed size, memory-mapped segment files.
+ * Every record is framed as [length][crc32][payload]; a record never spans two segments.
+ * Positions in the log (LSNs) are the segment base position plus the offset inside the segment,
+ * and segment files are named after their base position.
+ * <p>
+ * Appenders copy their record into the mapped segment under a short lock; a single flusher thread forces the segment
+ * once per group commit window, so concurrent appends share one fsync.
+ */
+@Slf4j
+public class WriteAheadLog implements Closeable {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final long IDLE_FLUSHER_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long MIN_FLUSH_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+    private final long groupCommitWindowNanos;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Object durabilityMonitor = new Object();
+    private volatile Segment activeSegment;
+    private volatile long writtenLsn;
+    private volatile long durableLsn;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    private WriteAheadLog(WalConfiguration configuration) {
+        this.directory = Paths.get(configuration.getDirectory());
+        this.segmentSize = configuration.getSegmentSize();
+        this.fsyncPolicy = configuration.getFsyncPolicy();
+        this.groupCommitWindowNanos = configuration.getGroupCommitWindow().toNanos();
+    }
+
+    /**
+     * Opens the log, handing every valid record to the replay consumer in log order, and positions it for appending
+     * right after the last valid record. A torn record at the tail of the last segment is discarded.
+     */
+    public static WriteAheadLog open(WalConfiguration configuration, Consumer<ByteBuffer> replayConsumer) throws IOException {
+        return open(configuration, 0, replayConsumer);
+    }
+
+    /**
+     * Opens the log like {@link #open(WalConfiguration, Consumer)}, replaying only the records that end after
+     * {@code fromLsn}; earlier records are already covered by a snapshot.
+     */
+    public static WriteAheadLog open(WalConfiguration configuration, long fromLsn, Consumer<ByteBuffer> replayConsumer) throws IOException {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(configuration);
+        writeAheadLog.recover(fromLsn, replayConsumer);
+        writeAheadLog.startFlusher();
+        return writeAheadLog;
+    }
+
+    /**
+     * Appends a record and returns the log position right after it.
+     * With {@link FsyncPolicy#GROUP_COMMIT} this returns only once the record is on disk.
+     */
+    public long append(byte[] record) {
+        int recordSize = HEADER_SIZE + record.length;
+        if (recordSize > segmentSize) {
+            throw new IllegalArgumentException(String.format("Record of %d bytes does not fit in a segment of %d bytes", record.length, segmentSize));
+        }
+        long recordEndLsn;
+        appendLock.lock();
+        try {
+            throwIfClosed();
+            if (activeSegment.remaining() < recordSize) {
+                rollSegment();
+            }
+            recordEndLsn = activeSegment.write(record);
+            writtenLsn = recordEndLsn;
+        } finally {
+            appendLock.unlock();
+        }
+        if (fsyncPolicy == FsyncPolicy.GROUP_COMMIT) {
+            LockSupport.unpark(flusher);
+            awaitDurable(recordEndLsn);
+        }
+        return recordEndLsn;
+    }
+
+    /**
+     * Deletes the segments holding only records that end at or before {@code lsn}. The active segment is always kept.
+     *
+     * @return the number of deleted segments
+     */
+    public int truncateBefore(long lsn) {
+        int deletedSegments = 0;
+        try {
+            for (Path segmentFile : listSegmentFiles()) {
+                long baseLsn = baseLsnOf(segmentFile);
+                if (baseLsn + segmentSize > lsn || baseLsn >= activeSegment.baseLsn) {
+                    break;
+                }
+                Files.delete(segmentFile);
+                deletedSegments++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to truncate write ahead log before " + lsn, e);
+        }
+        return deletedSegments;
+    }
+
+    public long getWrittenLsn() {
+        return writtenLsn;
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            joinFlusher();
+        }
+        flush();
+        activeSegment.close();
+        synchronized (durabilityMonitor) {
+            durabilityMonitor.notifyAll();
+        }
+    }
+
+    private void recover(long fromLsn, Consumer<ByteBuffer> replayConsumer) throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segmentFiles = listSegmentFiles();
+        long startTime = System.nanoTime();
+        long replayedRecords = 0;
+        for (int i = 0; i < segmentFiles.size(); i++) {
+            boolean lastSegment = i == segmentFiles.size() - 1;
+            long baseLsn = baseLsnOf(segmentFiles.get(i));
+            if (!lastSegment && baseLsn + segmentSize <= fromLsn) {
+                continue;
+            }
+            Segment segment = Segment.open(segmentFiles.get(i), baseLsn, segmentSize);
+            replayedRecords += segment.replay(replayConsumer, fromLsn, lastSegment);
+            if (lastSegment) {
+                activeSegment = segment;
+            } else {
+                segment.close();
+            }
+        }
+        if (activeSegment == null) {
+            activeSegment = Segment.open(segmentPath(fromLsn), fromLsn, segmentSize);
+        }
+        writtenLsn = activeSegment.endLsn();
+        durableLsn = writtenLsn;
+        log.info("Replayed {} records from {} segments in {} ms; appending at {}", replayedRecords, segmentFiles.size(),
+                 TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime), writtenLsn);
+    }
+
+    private List<Path> listSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private void rollSegment() {
+        Segment nextSegment = openSegment(activeSegment.baseLsn + segmentSize);
+        flushLock.lock();
+        try {
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                activeSegment.force();
+            }
+            activeSegment.close();
+            activeSegment = nextSegment;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private Segment openSegment(long baseLsn) {
+        try {
+            return Segment.open(segmentPath(baseLsn), baseLsn, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open WAL segment " + baseLsn, e);
+        }
+    }
+
+    private void startFlusher() {
+        if (fsyncPolicy == FsyncPolicy.NONE) {
+            return;
+        }
+        flusher = new Thread(this::runFlusher, "wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    private void runFlusher() {
+        while (!closed) {
+            if (writtenLsn == durableLsn) {
+                LockSupport.parkNanos(this, fsyncPolicy == FsyncPolicy.GROUP_COMMIT ? IDLE_FLUSHER_PARK_NANOS : Math.max(groupCommitWindowNanos, MIN_FLUSH_INTERVAL_NANOS));
+                continue;
+            }
+            awaitGroupCommitWindow();
+            flush();
+        }
+    }
+
+    private void awaitGroupCommitWindow() {
+        long deadline = System.nanoTime() + groupCommitWindowNanos;
+        long remainingNanos;
+        while (!closed && (remainingNanos = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(this, remainingNanos);
+        }
+    }
+
+    private void flush() {
+        flushLock.lock();
+        try {
+            long flushedLsn = writtenLsn;  //records of previous segments were forced when rolling
+            if (fsyncPolicy != FsyncPolicy.NONE) {
+                activeSegment.force();
+            }
+            synchronized (durabilityMonitor) {
+                durableLsn = Math.max(durableLsn, flushedLsn);
+                durabilityMonitor.notifyAll();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long lsn) {
+        synchronized (durabilityMonitor) {
+            while (durableLsn < lsn) {
+                try {
+                    durabilityMonitor.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for group commit", e);
+                }
+            }
+        }
+    }
+
+    private void joinFlusher() {
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void throwIfClosed() {
+        if (closed) {
+            throw new IllegalStateException("Write ahead log is closed");
+        }
+    }
+
+    private Path segmentPath(long baseLsn) {
+        return directory.resolve(String.format("%020d%s", baseLsn, SEGMENT_SUFFIX));
+    }
+
+    private static long baseLsnOf(Path segmentFile) {
+        String fileName = segmentFile.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long baseLsn;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private int position;
+
+        private Segment(Path path, long baseLsn, FileChannel channel, MappedByteBuffer buffer) {
+            this.path = path;
+            this.baseLsn = baseLsn;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment open(Path path, long baseLsn, int segmentSize) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(path, baseLsn, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize));
+        }
+
+        long replay(Consumer<ByteBuffer> replayConsumer, long fromLsn, boolean lastSegment) {
+            long replayedRecords = 0;
+            while (position + HEADER_SIZE <= buffer.capacity()) {
+                int length = buffer.getInt(position);
+                if (length <= 0 || position + HEADER_SIZE + length > buffer.capacity()) {
+                    break;
+                }
+                ByteBuffer payload = slice(position + HEADER_SIZE, length);
+                if (crc(payload.duplicate()) != buffer.getInt(position + 4)) {
+                    if (!lastSegment) {
+                        throw new IllegalStateException(String.format("Corrupted record in WAL segment %s at offset %d", path, position));
+                    }
+                    log.warn("Discarding torn record at the tail of WAL segment {} at offset {}", path, position);
+                    break;
+                }
+                position += HEADER_SIZE + length;
+                if (endLsn() > fromLsn) {
+                    replayConsumer.accept(payload.asReadOnlyBuffer());
+                    replayedRecords++;
+                }
+            }
+            if (lastSegment) {
+                zeroTail();
+            }
+            return replayedRecords;
+        }
+
+        long write(byte[] record) {
+            ByteBuffer payload = slice(position + HEADER_SIZE, record.length);
+            payload.put(record);
+            buffer.putInt(position + 4, crc(ByteBuffer.wrap(record)));
+            buffer.putInt(position, record.length);
+            position += HEADER_SIZE + record.length;
+            return endLsn();
+        }
+
+        int remaining() {
+            return buffer.capacity() - position;
+        }
+
+        long endLsn() {
+            return baseLsn + position;
+        }
+
+        void force() {
+            buffer.force();
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close WAL segment {}", path, e);
+            }
+        }
+
+        /**
+         * Pages of a mapped file reach the disk in any order, so bytes of unacknowledged records may survive past the
+         * first invalid one; clear them so they cannot be mistaken for records once new ones are appended in front.
+         */
+        private void zeroTail() {
+            int dirtyEnd = buffer.capacity();
+            while (dirtyEnd > position && buffer.get(dirtyEnd - 1) == 0) {
+                dirtyEnd--;
+            }
+            for (int i = position; i < dirtyEnd; i++) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+
+        private ByteBuffer slice(int offset, int length) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(offset);
+            slice.limit(offset + length);
+            return slice.slice();
+        }
+
+        private static int crc(ByteBuffer payload) {
+            CRC32 crc32 = new CRC32();
+            crc32.update(payload);
+            return (int) crc32.getValue();
+        }
+    }
+}
@@ -4,13 +4,16 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.repositories.IAccountRepository;
 import com.revolut.challenge.domain.services.account.AccountService;
 import com.revolut.challenge.domain.services.account.IAccountService;
 import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import io.micronaut.context.annotation.Property;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.MutableHttpRequest;
 import io.micronaut.http.client.RxHttpClient;
 import io.micronaut.http.client.annotation.Client;
@@ -22,17 +25,24 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
 @MicronautTest
+@Property(name = "challenge.metrics.repositories.enabled", value = "false")  //the repository mock is stubbed directly
 class AccountControllerTest {
 
     @Inject
@@ -54,10 +64,10 @@ class AccountControllerTest {
         UUID validAccountId = UUID.randomUUID();
         AccountId accountId = AccountId.from(validAccountId);
         Account account = Account.builder().accountId(accountId).build();
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountService.findAccount(accountId)).thenReturn(Optional.of(account));
         HttpRequest<String> request = HttpRequest.GET("/accounts/" + validAccountId);
         String body = client.toBlocking().retrieve(request);
-        AccountDTO expectedResponseBody = AccountDTO.builder().currentBalance(0).accountId(validAccountId).build();
+        AccountDTO expectedResponseBody = AccountDTO.builder().currentBalance(new BigDecimal("0.00")).accountId(validAccountId).build();
         assertNotNull(body);
         assertEquals(mapper().writeValueAsString(expectedResponseBody), body);
     }
@@ -67,7 +77,7 @@ class AccountControllerTest {
         UUID validAccountId = UUID.randomUUID();
         AccountId accountId = AccountId.from(validAccountId);
         Account account = Account.builder().accountId(accountId).build();
-        when(accountRepository.findById(accountId)).thenReturn(Optional.of(account));
+        when(accountService.findAccount(accountId)).thenReturn(Optional.of(account));
         HttpRequest<String> request = HttpRequest.GET("/accounts/" + validAccountId);
         HttpResponse<Object> response = client.toBlocking().exchange(request);
         assertEquals(HttpStatus.OK, response.getStatus());
@@ -85,7 +95,7 @@ class AccountControllerTest {
 
     @Test
     public void create_account_returns_created() {
-        AccountCreationApiRequest accountCreationApiRequest = new AccountCreationApiRequest(12.5);
+        AccountCreationApiRequest accountCreationApiRequest = new AccountCreationApiRequest(new BigDecimal("12.5"));
         MutableHttpRequest<AccountCreationApiRequest> request = HttpRequest.POST("/accounts", accountCreationApiRequest);
 
         HttpResponse<Object> response = client.toBlocking().exchange(request);
@@ -97,7 +107,7 @@ class AccountControllerTest {
         AccountId createdAccountId = AccountId.from(UUID.randomUUID());
         when(accountService.createAccount(any())).thenReturn(createdAccountId);
 
-        AccountCreationApiRequest accountCreationApiRequest = new AccountCreationApiRequest(12.5);
+        AccountCreationApiRequest accountCreationApiRequest = new AccountCreationApiRequest(new BigDecimal("12.5"));
         MutableHttpRequest<AccountCreationApiRequest> request = HttpRequest.POST("/accounts", accountCreationApiRequest);
 
         String response = client.toBlocking().retrieve(request);
@@ -105,6 +115,57 @@ class AccountControllerTest {
         Assertions.assertEquals(new ObjectMapper().writeValueAsString(expectedApiResponse), response);
     }
 
+    @Test
+    public void create_account_returns_bad_request_if_amount_has_more_decimals_than_supported() {
+        AccountCreationApiRequest accountCreationApiRequest = new AccountCreationApiRequest(new BigDecimal("12.505"));
+        MutableHttpRequest<AccountCreationApiRequest> request = HttpRequest.POST("/accounts", accountCreationApiRequest);
+
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void create_accounts_returns_the_ids_created_in_request_order() throws JsonProcessingException {
+        AccountId firstAccountId = AccountId.random();
+        AccountId secondAccountId = AccountId.random();
+        when(accountService.createAccounts(Arrays.asList(Amount.builder().amount(new BigDecimal("12.5")).build(), Amount.builder().amount(BigDecimal.ONE).build())))
+                .thenReturn(Arrays.asList(firstAccountId, secondAccountId));
+        MutableHttpRequest<List<AccountCreationApiRequest>> request = HttpRequest.POST("/accounts/bulk", Arrays.asList(new AccountCreationApiRequest(new BigDecimal("12.5")),
+                                                                                                                   new AccountCreationApiRequest(BigDecimal.ONE)));
+
+        String response = client.toBlocking().retrieve(request);
+        List<AccountCreationApiResponse> expectedApiResponse = Arrays.asList(AccountCreationApiResponse.builder().accountId(firstAccountId.getId()).build(),
+                                                                             AccountCreationApiResponse.builder().accountId(secondAccountId.getId()).build());
+        Assertions.assertEquals(mapper().writeValueAsString(expectedApiResponse), response);
+    }
+
+    @Test
+    public void create_accounts_returns_bad_request_and_creates_none_if_an_amount_has_more_decimals_than_supported() {
+        MutableHttpRequest<List<AccountCreationApiRequest>> request = HttpRequest.POST("/accounts/bulk", Arrays.asList(new AccountCreationApiRequest(BigDecimal.ONE),
+                                                                                                                   new AccountCreationApiRequest(new BigDecimal("12.505"))));
+
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verify(accountService, never()).createAccounts(anyList());
+    }
+
+    @Test
+    public void create_account_returns_bad_request_if_amount_is_null() {
+        MutableHttpRequest<String> request = HttpRequest.POST("/accounts", "{\"initialAmount\":null}").contentType(MediaType.APPLICATION_JSON_TYPE);
+
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void create_accounts_returns_bad_request_and_creates_none_if_an_amount_is_null() {
+        MutableHttpRequest<String> request = HttpRequest.POST("/accounts/bulk", "[{\"initialAmount\":1},{\"initialAmount\":null}]").contentType(MediaType.APPLICATION_JSON_TYPE);
+
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verify(accountService, never()).createAccounts(anyList());
+    }
+
     private ObjectMapper mapper() {
         return new ObjectMapper();
     }
@@ -0,0 +1,68 @@
+package com.revolut.challenge.api.transfer;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+class BodyChunkDemandTest {
+
+    private static final int CHUNKS = 50;
+    private static final int OBJECTS_PER_CHUNK = 100;
+
+    @Test
+    public void objects_beyond_the_demand_are_queued_instead_of_overflowing_bounded_queues_downstream() {
+        AtomicLong chunksRequested = new AtomicLong();
+        TestSubscriber<Integer> subscriber = chunkedBody(chunksRequested).lift(new BodyChunkDemand<>()).observeOn(Schedulers.single(), false, 2).test();
+
+        subscriber.awaitDone(10, TimeUnit.SECONDS);
+
+        subscriber.assertNoErrors().assertComplete().assertValueCount(CHUNKS * OBJECTS_PER_CHUNK);
+        Assertions.assertEquals(CHUNKS, chunksRequested.get());
+    }
+
+    @Test
+    public void next_chunk_is_requested_only_once_the_queued_objects_are_consumed() {
+        AtomicLong chunksRequested = new AtomicLong();
+        TestSubscriber<Integer> subscriber = chunkedBody(chunksRequested).lift(new BodyChunkDemand<>()).test(1);
+
+        subscriber.requestMore(OBJECTS_PER_CHUNK - 1);
+        Assertions.assertEquals(1, chunksRequested.get());
+
+        subscriber.requestMore(1);
+        subscriber.assertValueCount(OBJECTS_PER_CHUNK + 1);
+        Assertions.assertEquals(2, chunksRequested.get());
+    }
+
+    /**
+     * Emits a chunk of objects per request, whatever the number requested, like the JSON body of a request.
+     */
+    private static Flowable<Integer> chunkedBody(AtomicLong chunksRequested) {
+        return Flowable.unsafeCreate(subscriber -> {
+            AtomicInteger nextObject = new AtomicInteger();
+            subscriber.onSubscribe(new Subscription() {
+                @Override
+                public void request(long n) {
+                    chunksRequested.incrementAndGet();
+                    for (int i = 0; i < OBJECTS_PER_CHUNK; i++) {
+                        subscriber.onNext(nextObject.getAndIncrement());
+                    }
+                    if (nextObject.get() == CHUNKS * OBJECTS_PER_CHUNK) {
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        });
+    }
+}
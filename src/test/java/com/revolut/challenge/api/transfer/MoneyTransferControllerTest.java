@@ -2,25 +2,43 @@ package com.revolut.challenge.api.transfer;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Strings;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
 import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
 import com.revolut.challenge.domain.services.account.InvalidAccountException;
 import com.revolut.challenge.domain.services.transfer.IMoneyTransferCreationService;
+import com.revolut.challenge.domain.services.transfer.IdempotencyKeyReusedException;
 import com.revolut.challenge.domain.services.transfer.InvalidTransferAmountException;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferCreationResult;
 import com.revolut.challenge.domain.services.transfer.MoneyTransferCreationService;
 import com.revolut.challenge.domain.services.transfer.MoneyTransferRequest;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferSettlements;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferStatusFeed;
+import com.revolut.challenge.domain.services.transfer.TransferBacklogFullException;
+import com.revolut.challenge.domain.services.transfer.TransferTimelines;
+import com.revolut.challenge.domain.services.transfer.TransferTracingConfiguration;
 import com.revolut.challenge.infra.repositories.InMemoryMoneyTransferRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.type.Argument;
+import io.micronaut.http.HttpHeaders;
 import io.micronaut.http.HttpRequest;
 import io.micronaut.http.HttpResponse;
 import io.micronaut.http.HttpStatus;
+import io.micronaut.http.MediaType;
 import io.micronaut.http.MutableHttpRequest;
 import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.RxStreamingHttpClient;
 import io.micronaut.http.client.annotation.Client;
 import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.http.client.sse.RxSseClient;
+import io.micronaut.http.sse.Event;
 import io.micronaut.test.annotation.MicronautTest;
 import io.micronaut.test.annotation.MockBean;
 import org.junit.jupiter.api.Assertions;
@@ -29,10 +47,18 @@ import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
@@ -40,20 +66,38 @@ import static org.mockito.Mockito.when;
 
 
 @MicronautTest
+@Property(name = "challenge.metrics.repositories.enabled", value = "false")  //the repository mock is stubbed directly
 class MoneyTransferControllerTest {
     @Inject
     IMoneyTransferCreationService moneyTransferCreationService;
     @Inject
     IMoneyTransferRepository moneyTransferRepository;
 
+    @Inject
+    MoneyTransferSettlements settlements;
+
+    @Inject
+    MoneyTransferStatusFeed statusFeed;
+
+    @Inject
+    TransferTimelines timelines;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
     @Inject
     @Client("/")
     private RxHttpClient client;
 
+    @Inject
+    @Client("/")
+    private RxStreamingHttpClient streamingClient;
+
     @BeforeEach
-    public void setup() throws InvalidAccountException, InvalidTransferAmountException {
+    public void setup() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
         TransferRequestId createdTransferId = TransferRequestId.from(UUID.randomUUID());
         when(moneyTransferCreationService.requestMoneyTransfer(any())).thenReturn(createdTransferId);
+        when(moneyTransferCreationService.requestMoneyTransfer(any(), any())).thenReturn(createdTransferId);
     }
 
     @Test
@@ -76,10 +120,27 @@ class MoneyTransferControllerTest {
         when(moneyTransferRepository.findById(transferId)).thenReturn(Optional.of(moneyTransfer));
         MutableHttpRequest<Object> apiRequest = HttpRequest.GET("/transfers/" + transferId.getId());
         String response = client.toBlocking().retrieve(apiRequest);
-        MoneyTransferDTO moneyTransferDTO = MoneyTransferDTO.builder().status(MoneyTransferStatus.CREATED).amount(10).beneficiaryAccountId(beneficiaryAccountId.getId()).sourceAccountId(sourceAccountId.getId()).build();
+        MoneyTransferDTO moneyTransferDTO = MoneyTransferDTO.builder().status(MoneyTransferStatus.CREATED).amount(new BigDecimal("10.00")).beneficiaryAccountId(beneficiaryAccountId.getId()).sourceAccountId(sourceAccountId.getId()).build();
         Assertions.assertEquals(new ObjectMapper().writeValueAsString(moneyTransferDTO), response);
     }
 
+    @Test
+    public void getMoneyTransfer_with_trace_returns_the_stages_reached() {
+        TransferRequestId transferId = TransferRequestId.from(UUID.randomUUID());
+        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(transferId).sourceAccountId(AccountId.from(UUID.randomUUID())).beneficiaryAccountId(AccountId.from(UUID.randomUUID()))
+                                                   .amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        timelines.start(transferId);
+        timelines.of(transferId).record(TransferStage.DEQUEUED);
+        when(moneyTransferRepository.findById(transferId)).thenReturn(Optional.of(moneyTransfer));
+
+        MoneyTransferDTO traced = client.toBlocking().retrieve(HttpRequest.GET("/transfers/" + transferId.getId() + "?trace=true"), MoneyTransferDTO.class);
+        MoneyTransferDTO untraced = client.toBlocking().retrieve(HttpRequest.GET("/transfers/" + transferId.getId()), MoneyTransferDTO.class);
+
+        Assertions.assertEquals(Arrays.asList(TransferStage.CREATED, TransferStage.DEQUEUED), new ArrayList<>(traced.getTimeline().keySet()));
+        Assertions.assertEquals(0L, traced.getTimeline().get(TransferStage.CREATED));
+        Assertions.assertNull(untraced.getTimeline());
+    }
+
     @Test
     public void getMoneyTransfer_returns_not_found_if_invalid_transferId() throws JsonProcessingException {
         MutableHttpRequest<Object> apiRequest = HttpRequest.GET("/transfers/" + UUID.randomUUID());
@@ -90,17 +151,52 @@ class MoneyTransferControllerTest {
         }
     }
 
+    @Test
+    public void getMoneyTransfer_with_waitFor_answers_once_the_transfer_is_settled() throws Exception {
+        MoneyTransfer moneyTransfer = newMoneyTransfer();
+        when(moneyTransferRepository.findById(moneyTransfer.getRequestId())).thenReturn(Optional.of(moneyTransfer));
+        Future<MoneyTransferDTO> response = client.retrieve(HttpRequest.GET("/transfers/" + moneyTransfer.getRequestId().getId() + "?waitFor=10s"), MoneyTransferDTO.class).toFuture();
+
+        while (!response.isDone()) {  //until the request is waiting
+            settlements.settled(moneyTransfer.complete(), TransferTimeline.untracked());
+            Thread.sleep(10);
+        }
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, response.get().getStatus());
+    }
+
+    @Test
+    public void getMoneyTransfer_with_waitFor_answers_the_transfer_still_created_after_the_timeout() {
+        MoneyTransfer moneyTransfer = newMoneyTransfer();
+        when(moneyTransferRepository.findById(moneyTransfer.getRequestId())).thenReturn(Optional.of(moneyTransfer));
+        MoneyTransferDTO response = client.toBlocking().retrieve(HttpRequest.GET("/transfers/" + moneyTransfer.getRequestId().getId() + "?waitFor=50ms"), MoneyTransferDTO.class);
+        Assertions.assertEquals(MoneyTransferStatus.CREATED, response.getStatus());
+    }
+
+    @Test
+    public void create_transfer_with_wait_returns_the_final_status() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
+        MoneyTransfer moneyTransfer = newMoneyTransfer().failDueToInsufficientFunds();
+        when(moneyTransferCreationService.requestMoneyTransfer(any())).thenReturn(moneyTransfer.getRequestId());
+        when(moneyTransferRepository.findById(moneyTransfer.getRequestId())).thenReturn(Optional.of(moneyTransfer));
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
+
+        MoneyTransferApiResponse response = client.toBlocking().retrieve(HttpRequest.POST("/transfers?wait=5s", transferApiRequest), MoneyTransferApiResponse.class);
+
+        Assertions.assertEquals(moneyTransfer.getRequestId().getId(), response.getTransferId());
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, response.getStatus());
+    }
+
     @Test
     public void create_transfer_returns_created_if_successful() {
-        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), 55.4);
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
         MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest);
         HttpResponse<Object> response = client.toBlocking().exchange(request);
         Assertions.assertEquals(HttpStatus.CREATED, response.getStatus());
     }
 
     @Test
-    public void create_transfer_returns_bad_Request_if_creation_fails() throws InvalidAccountException, InvalidTransferAmountException {
-        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), 55.4);
+    public void create_transfer_returns_bad_Request_if_creation_fails() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
         doThrow(InvalidAccountException.class).when(moneyTransferCreationService).requestMoneyTransfer(any());
         MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest);
         try {
@@ -111,10 +207,36 @@ class MoneyTransferControllerTest {
     }
 
     @Test
-    public void create_transfer_returns_created_transferId_if_successful() throws InvalidAccountException, InvalidTransferAmountException, JsonProcessingException {
+    public void create_transfer_returns_service_unavailable_with_retry_after_if_backlog_is_full() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
+        doThrow(new TransferBacklogFullException(10, Duration.ofSeconds(2))).when(moneyTransferCreationService).requestMoneyTransfer(any());
+        MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest);
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        Assertions.assertEquals("2", exception.getResponse().getHeaders().get(HttpHeaders.RETRY_AFTER));
+    }
+
+    @Test
+    public void create_transfer_returns_bad_Request_if_amount_has_more_decimals_than_supported() {
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.405"));
+        MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest);
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void create_transfer_returns_bad_Request_if_amount_is_null() {
+        String body = String.format("{\"sourceAccountId\":\"%s\",\"beneficiaryAccountId\":\"%s\",\"transferAmount\":null}", UUID.randomUUID(), UUID.randomUUID());
+        MutableHttpRequest<String> request = HttpRequest.POST("/transfers", body).contentType(MediaType.APPLICATION_JSON_TYPE);
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void create_transfer_returns_created_transferId_if_successful() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, JsonProcessingException {
         TransferRequestId createdTransferId = TransferRequestId.from(UUID.randomUUID());
         when(moneyTransferCreationService.requestMoneyTransfer(any())).thenReturn(createdTransferId);
-        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), 55.4);
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
         MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest);
         String response = client.toBlocking().retrieve(request);
         MoneyTransferApiResponse expectedResponseBody = MoneyTransferApiResponse.builder().transferId(createdTransferId.getId()).build();
@@ -122,10 +244,10 @@ class MoneyTransferControllerTest {
     }
 
     @Test
-    public void create_transfer_creates_money_transfer_with_correct_parameters() throws InvalidAccountException, InvalidTransferAmountException {
+    public void create_transfer_creates_money_transfer_with_correct_parameters() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
         UUID sourceAccountId = UUID.randomUUID();
         UUID beneficiaryAccountId = UUID.randomUUID();
-        double transferAmount = 55.4;
+        BigDecimal transferAmount = new BigDecimal("55.4");
         MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, transferAmount);
         MutableHttpRequest<MoneyTransferApiRequest> postRequest = HttpRequest.POST("/transfers", transferApiRequest);
         client.toBlocking().exchange(postRequest);
@@ -134,10 +256,121 @@ class MoneyTransferControllerTest {
         verify(moneyTransferCreationService).requestMoneyTransfer(expectedTransferRequest);
     }
 
-    private MoneyTransferRequest getMoneyTransferRequest(UUID sourceAccountId, UUID beneficiaryAccountId, double transferAmount) {
+    @Test
+    public void create_transfer_with_idempotency_key_passes_the_key_on() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID beneficiaryAccountId = UUID.randomUUID();
+        BigDecimal transferAmount = new BigDecimal("55.4");
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, transferAmount);
+        MutableHttpRequest<MoneyTransferApiRequest> postRequest = HttpRequest.POST("/transfers", transferApiRequest).header("Idempotency-Key", "key-1");
+        client.toBlocking().exchange(postRequest);
+
+        verify(moneyTransferCreationService).requestMoneyTransfer(getMoneyTransferRequest(sourceAccountId, beneficiaryAccountId, transferAmount), "key-1");
+    }
+
+    @Test
+    public void create_transfer_returns_unprocessable_entity_if_idempotency_key_was_used_for_another_transfer()
+            throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
+        doThrow(new IdempotencyKeyReusedException("key-2")).when(moneyTransferCreationService).requestMoneyTransfer(any(), eq("key-2"));
+        MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest).header("Idempotency-Key", "key-2");
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, exception.getStatus());
+    }
+
+    @Test
+    public void create_transfer_returns_bad_Request_if_idempotency_key_is_too_long() {
+        MoneyTransferApiRequest transferApiRequest = new MoneyTransferApiRequest(UUID.randomUUID(), UUID.randomUUID(), new BigDecimal("55.4"));
+        MutableHttpRequest<MoneyTransferApiRequest> request = HttpRequest.POST("/transfers", transferApiRequest).header("Idempotency-Key", Strings.repeat("k", 256));
+        HttpClientResponseException exception = Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().exchange(request));
+        Assertions.assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+    }
+
+    @Test
+    public void create_transfers_streams_a_result_per_request_in_order() {
+        TransferRequestId createdTransferId = TransferRequestId.from(UUID.randomUUID());
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID beneficiaryAccountId = UUID.randomUUID();
+        TransferBacklogFullException backlogFull = new TransferBacklogFullException(10, Duration.ofSeconds(2));
+        when(moneyTransferCreationService.requestMoneyTransfers(any())).thenReturn(Arrays.asList(MoneyTransferCreationResult.created(createdTransferId), MoneyTransferCreationResult.rejected(backlogFull)));
+        List<MoneyTransferApiRequest> transferApiRequests = Arrays.asList(new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("55.4")),
+                                                                          new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("55.405")),
+                                                                          new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("1")));
+
+        List<BatchTransferApiResponse> responses = streamingClient.jsonStream(HttpRequest.POST("/transfers/batch", transferApiRequests), BatchTransferApiResponse.class).toList().blockingGet();
+
+        Assertions.assertEquals(Arrays.asList(BatchTransferApiResponse.builder().index(0).transferId(createdTransferId.getId()).build(),
+                                              BatchTransferApiResponse.builder().index(1).status(HttpStatus.BAD_REQUEST.getCode()).error("Invalid Transfer Amount: 55.405").build(),
+                                              BatchTransferApiResponse.builder().index(2).status(HttpStatus.SERVICE_UNAVAILABLE.getCode()).error(backlogFull.getMessage()).build()),
+                                responses);
+        verify(moneyTransferCreationService).requestMoneyTransfers(Arrays.asList(getMoneyTransferRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("55.4")),
+                                                                                 getMoneyTransferRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("1"))));
+    }
+
+    @Test
+    public void create_transfers_rejects_a_request_without_amount_and_creates_the_others() {
+        TransferRequestId createdTransferId = TransferRequestId.from(UUID.randomUUID());
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID beneficiaryAccountId = UUID.randomUUID();
+        when(moneyTransferCreationService.requestMoneyTransfers(any())).thenReturn(Arrays.asList(MoneyTransferCreationResult.created(createdTransferId)));
+        String body = String.format("[{\"sourceAccountId\":\"%1$s\",\"beneficiaryAccountId\":\"%2$s\",\"transferAmount\":null},"
+                                    + "{\"sourceAccountId\":\"%1$s\",\"beneficiaryAccountId\":\"%2$s\",\"transferAmount\":1}]", sourceAccountId, beneficiaryAccountId);
+
+        List<BatchTransferApiResponse> responses = streamingClient.jsonStream(HttpRequest.POST("/transfers/batch", body).contentType(MediaType.APPLICATION_JSON_TYPE),
+                                                                              BatchTransferApiResponse.class).toList().blockingGet();
+
+        Assertions.assertEquals(Arrays.asList(BatchTransferApiResponse.builder().index(0).status(HttpStatus.BAD_REQUEST.getCode()).error("Missing Transfer Amount").build(),
+                                              BatchTransferApiResponse.builder().index(1).transferId(createdTransferId.getId()).build()),
+                                responses);
+    }
+
+    @Test
+    public void create_transfers_answers_each_request_with_internal_server_error_if_they_fail_to_be_saved() {
+        UUID sourceAccountId = UUID.randomUUID();
+        UUID beneficiaryAccountId = UUID.randomUUID();
+        when(moneyTransferCreationService.requestMoneyTransfers(any())).thenThrow(new IllegalStateException("Write-ahead log is closed"));
+        List<MoneyTransferApiRequest> transferApiRequests = Arrays.asList(new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("1")),
+                                                                          new MoneyTransferApiRequest(sourceAccountId, beneficiaryAccountId, new BigDecimal("55.405")));
+
+        List<BatchTransferApiResponse> responses = streamingClient.jsonStream(HttpRequest.POST("/transfers/batch", transferApiRequests), BatchTransferApiResponse.class).toList().blockingGet();
+
+        Assertions.assertEquals(Arrays.asList(BatchTransferApiResponse.builder().index(0).status(HttpStatus.INTERNAL_SERVER_ERROR.getCode()).error("Failed to create the transfer").build(),
+                                              BatchTransferApiResponse.builder().index(1).status(HttpStatus.BAD_REQUEST.getCode()).error("Invalid Transfer Amount: 55.405").build()),
+                                responses);
+    }
+
+    @Test
+    public void transfer_events_stream_the_status_changes_of_the_account_in_batches() throws Exception {
+        MoneyTransfer moneyTransfer = newMoneyTransfer();
+        UUID accountId = moneyTransfer.getSourceAccountId().getId();
+        double subscribers = meterRegistry.get("transfers.events.subscribers").gauge().value();
+        RxSseClient sseClient = (RxSseClient) streamingClient;
+        Future<Event<List<MoneyTransferEventDTO>>> firstEvent = sseClient.eventStream(HttpRequest.GET("/transfers/events?accountId=" + accountId), Argument.listOf(MoneyTransferEventDTO.class))
+                                                                         .firstOrError().toFuture();
+        while (meterRegistry.get("transfers.events.subscribers").gauge().value() == subscribers) {
+            Thread.sleep(10);
+        }
+
+        statusFeed.publish(newMoneyTransfer().complete());
+        statusFeed.publish(moneyTransfer.complete());
+        statusFeed.publish(moneyTransfer.toBuilder().requestId(TransferRequestId.from(UUID.randomUUID())).build().failDueToInsufficientFunds());
+
+        Event<List<MoneyTransferEventDTO>> event = firstEvent.get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(MoneyTransferController.TRANSFERS_EVENT, event.getName());
+        Assertions.assertEquals(Arrays.asList(MoneyTransferStatus.COMPLETED, MoneyTransferStatus.INSUFFICIENT_FUNDS),
+                                event.getData().stream().map(MoneyTransferEventDTO::getStatus).collect(Collectors.toList()));
+        Assertions.assertEquals(moneyTransfer.getRequestId().getId(), event.getData().get(0).getTransferId());
+    }
+
+    private MoneyTransfer newMoneyTransfer() {
+        return MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(AccountId.from(UUID.randomUUID()))
+                            .beneficiaryAccountId(AccountId.from(UUID.randomUUID())).amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+    }
+
+    private MoneyTransferRequest getMoneyTransferRequest(UUID sourceAccountId, UUID beneficiaryAccountId, BigDecimal transferAmount) {
         AccountId sourceAccountID = AccountId.from(sourceAccountId);
         AccountId beneficiaryAccountID = AccountId.from(beneficiaryAccountId);
-        Amount amount = Amount.builder().amount(BigDecimal.valueOf(transferAmount)).build();
+        Amount amount = Amount.builder().amount(transferAmount).build();
         return MoneyTransferRequest.builder().sourceAccountId(sourceAccountID).beneficiaryAccountId(beneficiaryAccountID).amount(amount).build();
     }
 
@@ -150,4 +383,11 @@ class MoneyTransferControllerTest {
     IMoneyTransferRepository moneyTransferRepository() {
         return mock(IMoneyTransferRepository.class);
     }
+
+    @MockBean(TransferTimelines.class)
+    TransferTimelines timelines() {
+        TransferTracingConfiguration configuration = new TransferTracingConfiguration();
+        configuration.setSampleRate(1);
+        return new TransferTimelines(configuration);
+    }
 }
\ No newline at end of file
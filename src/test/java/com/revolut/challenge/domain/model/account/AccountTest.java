@@ -26,8 +26,8 @@ class AccountTest {
     @Test
     public void credit_account_adds_to_account_current_balance() {
         Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
-        creditAccount(account, BigDecimal.TEN);
-        creditAccount(account, BigDecimal.valueOf(5));
+        account = creditAccount(account, BigDecimal.TEN);
+        account = creditAccount(account, BigDecimal.valueOf(5));
 
         Amount expectedAmount = Amount.builder().amount(BigDecimal.valueOf(15)).build();
 
@@ -42,34 +42,49 @@ class AccountTest {
 
     @Test
     public void debit_account_throws_insufficient_funds_if_requested_amount_greater_than_balance() throws InsufficientFundsException {
-        Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
-        creditAccount(account, BigDecimal.ONE);
+        Account account = creditAccount(Account.builder().accountId(AccountId.from(UUID.randomUUID())).build(), BigDecimal.ONE);
         Amount amountToDebit = Amount.builder().amount(BigDecimal.TEN).build();
         Assertions.assertThrows(InsufficientFundsException.class, () -> account.debit(amountToDebit));
     }
 
     @Test
     public void debit_account_reduces_current_balance_if_funds_current_amaount_is_Enough() throws InsufficientFundsException {
-        Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
-        creditAccount(account, BigDecimal.TEN);
+        Account account = creditAccount(Account.builder().accountId(AccountId.from(UUID.randomUUID())).build(), BigDecimal.TEN);
         Amount amountToDebit = Amount.builder().amount(BigDecimal.ONE).build();
-        account.debit(amountToDebit);
+        Account debitedAccount = account.debit(amountToDebit);
         Amount expectedAmount = Amount.builder().amount(BigDecimal.valueOf(9)).build();
-        Assertions.assertEquals(expectedAmount, account.getCurrentBalance());
+        Assertions.assertEquals(expectedAmount, debitedAccount.getCurrentBalance());
     }
 
     @Test
     public void debit_account_successful_if_request_amount_equals_current_balance() throws InsufficientFundsException {
-        Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
-        creditAccount(account, BigDecimal.TEN);
+        Account account = creditAccount(Account.builder().accountId(AccountId.from(UUID.randomUUID())).build(), BigDecimal.TEN);
         Amount amountToDebit = Amount.builder().amount(BigDecimal.TEN).build();
-        account.debit(amountToDebit);
+        Account debitedAccount = account.debit(amountToDebit);
         Amount expectedAmount = Amount.builder().amount(BigDecimal.ZERO).build();
-        Assertions.assertEquals(expectedAmount, account.getCurrentBalance());
+        Assertions.assertEquals(expectedAmount, debitedAccount.getCurrentBalance());
+    }
+
+    @Test
+    public void tryDebit_returns_the_debited_account_or_empty_if_funds_are_insufficient() {
+        Account account = creditAccount(Account.builder().accountId(AccountId.from(UUID.randomUUID())).build(), BigDecimal.TEN);
+        Assertions.assertFalse(account.tryDebit(Amount.builder().amount(BigDecimal.valueOf(11)).build()).isPresent());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(9)).build(), account.tryDebit(Amount.builder().amount(BigDecimal.ONE).build()).get().getCurrentBalance());
+    }
+
+    @Test
+    public void credit_returns_a_modified_snapshot_and_leaves_the_original_untouched() {
+        Account account = Account.builder().accountId(AccountId.from(UUID.randomUUID())).version(3).build();
+        Account creditedAccount = creditAccount(account, BigDecimal.TEN);
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.ZERO).build(), account.getCurrentBalance());
+        Assertions.assertFalse(account.isModified());
+        Assertions.assertTrue(creditedAccount.isModified());
+        Assertions.assertEquals(3, creditedAccount.getVersion());
     }
 
-    private void creditAccount(Account account, BigDecimal ten) {
+    private Account creditAccount(Account account, BigDecimal ten) {
         Amount amountToCredit = Amount.builder().amount(ten).build();
-        account.credit(amountToCredit);
+        return account.credit(amountToCredit);
     }
 }
\ No newline at end of file
@@ -62,4 +62,27 @@ class AmountTest {
         Amount negativeAmount = Amount.builder().amount(BigDecimal.valueOf(4.5)).build();
         Assertions.assertFalse(negativeAmount.isNegative());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void amount_is_converted_exactly_from_and_to_decimal() {
+        Amount amount = Amount.builder().amount(new BigDecimal("55.4")).build();
+        Assertions.assertEquals(5540, amount.getMinorUnits());
+        Assertions.assertEquals(new BigDecimal("55.40"), amount.getAmount());
+    }
+
+    @Test
+    public void amounts_with_different_decimal_scales_are_equal() {
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.TEN).build(), Amount.builder().amount(new BigDecimal("10.00")).build());
+    }
+
+    @Test
+    public void amount_with_more_decimals_than_the_scale_is_rejected() {
+        Assertions.assertThrows(ArithmeticException.class, () -> Amount.builder().amount(new BigDecimal("0.001")).build());
+    }
+
+    @Test
+    public void add_throws_on_overflow() {
+        Amount maximumAmount = Amount.ofMinorUnits(Long.MAX_VALUE);
+        Assertions.assertThrows(ArithmeticException.class, () -> maximumAmount.add(Amount.ofMinorUnits(1)));
+    }
+}
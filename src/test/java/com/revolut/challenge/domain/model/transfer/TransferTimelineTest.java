@@ -0,0 +1,40 @@
+package com.revolut.challenge.domain.model.transfer;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+
+class TransferTimelineTest {
+
+    @Test
+    public void started_timeline_has_only_reached_CREATED() {
+        TransferTimeline timeline = TransferTimeline.start();
+
+        Assertions.assertTrue(timeline.isTracked());
+        Assertions.assertTrue(timeline.hasReached(TransferStage.CREATED));
+        Assertions.assertFalse(timeline.hasReached(TransferStage.DEQUEUED));
+        Assertions.assertEquals(-1, timeline.nanosBetween(TransferStage.CREATED, TransferStage.SETTLED));
+    }
+
+    @Test
+    public void nanosBetween_measures_from_one_recorded_stage_to_the_other() {
+        TransferTimeline timeline = TransferTimeline.start();
+        timeline.record(TransferStage.DEQUEUED);
+        timeline.record(TransferStage.SETTLED);
+
+        long total = timeline.nanosBetween(TransferStage.CREATED, TransferStage.SETTLED);
+        Assertions.assertTrue(total >= 0);
+        Assertions.assertTrue(timeline.nanosBetween(TransferStage.CREATED, TransferStage.DEQUEUED) <= total);
+        Assertions.assertEquals(-1, timeline.nanosBetween(TransferStage.DEQUEUED, TransferStage.DEBITED));
+    }
+
+    @Test
+    public void untracked_timeline_ignores_what_is_recorded() {
+        TransferTimeline timeline = TransferTimeline.untracked();
+        timeline.record(TransferStage.SETTLED);
+
+        Assertions.assertFalse(timeline.isTracked());
+        Assertions.assertFalse(timeline.hasReached(TransferStage.CREATED));
+        Assertions.assertFalse(timeline.hasReached(TransferStage.SETTLED));
+    }
+}
@@ -0,0 +1,178 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+class AccountLockingServiceTest {
+
+    private MeterRegistry meterRegistry;
+    private HotAccountCredits hotAccountCredits;
+    private AccountLockConfiguration configuration;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), meterRegistry);
+        configuration = new AccountLockConfiguration();
+    }
+
+    @Test
+    void concurrent_lockAccounts_are_mutually_exclusive_with_few_stripes() throws Exception {
+        configuration.setStripes(2);
+        assertMutuallyExclusive(new AccountLockingService(configuration, hotAccountCredits, meterRegistry));
+    }
+
+    @Test
+    void concurrent_lockAccounts_are_mutually_exclusive_with_per_account_locks() throws Exception {
+        assertMutuallyExclusive(new PerAccountLockingService(hotAccountCredits, meterRegistry));
+    }
+
+    @Test
+    void tryLockAccounts_locks_none_when_one_account_is_held_by_another_thread() throws Exception {
+        assertTryLockAccountsLocksNone(new AccountLockingService(configuration, hotAccountCredits, meterRegistry));
+        assertTryLockAccountsLocksNone(new PerAccountLockingService(hotAccountCredits, meterRegistry));
+    }
+
+    @Test
+    void per_account_locks_are_removed_from_the_table_once_released() {
+        PerAccountLockingService lockingService = new PerAccountLockingService(hotAccountCredits, meterRegistry);
+        AccountId accountId = newAccountId();
+        AccountId otherAccountId = newAccountId();
+
+        lockingService.lockAccounts(accountId, otherAccountId, accountId);
+        Assertions.assertEquals(2, meterRegistry.get("accounts.lock.table.size").gauge().value());
+        lockingService.unlockAccounts(accountId, otherAccountId, accountId);
+
+        Assertions.assertEquals(0, meterRegistry.get("accounts.lock.table.size").gauge().value());
+        Assertions.assertFalse(lockingService.isLocked(accountId));
+    }
+
+    @Test
+    void hold_times_of_hot_accounts_are_recorded_per_stripe_and_per_account_and_uncontended_locks_are_only_counted() {
+        configuration.setStripes(1);
+        AccountLockingService lockingService = new AccountLockingService(configuration, hotAccountCredits, meterRegistry);
+        AccountId hotAccountId = newAccountId();
+        AccountId otherAccountId = newAccountId();
+        hotAccountCredits.promote(hotAccountId);
+
+        lockingService.lockAccounts(hotAccountId, otherAccountId);
+        lockingService.unlockAccounts(hotAccountId, otherAccountId);
+
+        Assertions.assertEquals(1, meterRegistry.get("accounts.lock.acquisitions").functionCounter().count());
+        Assertions.assertEquals(0, meterRegistry.get("accounts.lock.wait").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("accounts.lock.hold").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("accounts.lock.stripe.hold").tag("stripe", "0").functionTimer().count());
+        Assertions.assertEquals(1, meterRegistry.get("accounts.hot.lock.hold").tag("account", hotAccountId.getId().toString()).timer().count());
+    }
+
+    @Test
+    void waits_for_a_lock_held_by_another_thread_are_recorded_as_flight_recorder_events() throws Exception {
+        configuration.setStripes(1);
+        AccountLockingService lockingService = new AccountLockingService(configuration, hotAccountCredits, meterRegistry);
+        AccountId accountId = newAccountId();
+        Path dump = Files.createTempFile("account-lock-wait", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.revolut.challenge.AccountLockWait").withThreshold(Duration.ZERO);
+            recording.start();
+            ExecutorService executorService = Executors.newSingleThreadExecutor();
+            executorService.submit(() -> lockingService.lockAccount(accountId)).get();
+            Assertions.assertFalse(lockingService.tryLockAccounts(Duration.ofMillis(10), accountId));
+            executorService.submit(() -> lockingService.unlockAccount(accountId)).get();
+            executorService.shutdown();
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            Assertions.assertEquals(1, events.size());
+            Assertions.assertEquals(accountId.getId().toString(), events.get(0).getString("accountId"));
+            Assertions.assertEquals(0, events.get(0).getInt("stripe"));
+            Assertions.assertFalse(events.get(0).getBoolean("acquired"));
+            Assertions.assertTrue(events.get(0).getDuration().toNanos() > 0);
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    private void assertMutuallyExclusive(IAccountLockingService lockingService) throws Exception {
+        AccountId[] accountIds = {newAccountId(), newAccountId(), newAccountId()};
+        int[] counters = new int[accountIds.length];
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int first = thread % accountIds.length;
+            int second = (thread + 1) % accountIds.length;
+            executorService.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    lockingService.lockAccounts(accountIds[first], accountIds[second]);
+                    try {
+                        counters[first]++;
+                        counters[second]++;
+                    } finally {
+                        lockingService.unlockAccounts(accountIds[first], accountIds[second]);
+                    }
+                }
+            });
+        }
+        executorService.shutdown();
+        Assertions.assertTrue(executorService.awaitTermination(30, TimeUnit.SECONDS));
+        int total = 0;
+        for (AccountId accountId : accountIds) {
+            lockingService.lockAccount(accountId);  //publishes the counters
+            lockingService.unlockAccount(accountId);
+        }
+        for (int counter : counters) {
+            total += counter;
+        }
+        Assertions.assertEquals(8 * 10_000 * 2, total);
+    }
+
+    private void assertTryLockAccountsLocksNone(IAccountLockingService lockingService) throws Exception {
+        AccountId heldAccountId = newAccountId();
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> holder = executorService.submit(() -> {
+            lockingService.lockAccount(heldAccountId);
+            locked.countDown();
+            release.await();
+            lockingService.unlockAccount(heldAccountId);
+            return null;
+        });
+        locked.await();
+        AccountId freeAccountId = newAccountId();
+        while (lockingService.isLocked(freeAccountId)) {  //shares the stripe of the held account
+            freeAccountId = newAccountId();
+        }
+
+        Assertions.assertFalse(lockingService.tryLockAccounts(Duration.ofMillis(10), freeAccountId, heldAccountId));
+        Assertions.assertFalse(lockingService.isLocked(freeAccountId));
+
+        release.countDown();
+        holder.get();
+        executorService.shutdown();
+        Assertions.assertTrue(lockingService.tryLockAccounts(Duration.ofMillis(10), freeAccountId, heldAccountId));
+        lockingService.unlockAccounts(freeAccountId, heldAccountId);
+    }
+
+    private static AccountId newAccountId() {
+        return AccountId.from(UUID.randomUUID());
+    }
+}
@@ -4,15 +4,36 @@ import com.revolut.challenge.domain.model.account.Account;
 import com.revolut.challenge.domain.model.account.AccountId;
 import com.revolut.challenge.domain.model.account.Amount;
 import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 class AccountServiceTest {
@@ -22,6 +43,7 @@ class AccountServiceTest {
     private AccountId ACCOUNT_ID;
     private Account ACCOUNT;
     private IAccountLockingService accountLockingService;
+    private HotAccountCredits hotAccountCredits;
 
     @BeforeEach
     void setup() {
@@ -30,7 +52,8 @@ class AccountServiceTest {
         accountLockingService = mock(IAccountLockingService.class);
         accountRepository = new MockAccountRepository();
         accountRepository.save(ACCOUNT);
-        accountService = new AccountService(accountRepository, accountLockingService);
+        hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        accountService = new AccountService(accountRepository, accountLockingService, hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry());
     }
 
     @Test
@@ -86,4 +109,334 @@ class AccountServiceTest {
         Account expectedAccount = Account.builder().accountId(accountId).currentBalance(initialAmount).build();
         Assertions.assertEquals(expectedAccount, account.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void createAccounts_inserts_a_new_account_per_amount_in_order() {
+        List<AccountId> accountIds = accountService.createAccounts(Arrays.asList(Amount.builder().amount(BigDecimal.TEN).build(), Amount.builder().amount(BigDecimal.ONE).build()));
+
+        Assertions.assertEquals(2, accountIds.size());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.TEN).build(), accountRepository.findById(accountIds.get(0)).get().getCurrentBalance());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.ONE).build(), accountRepository.findById(accountIds.get(1)).get().getCurrentBalance());
+    }
+
+    @Test
+    void transfer_moves_amount_from_source_to_beneficiary() throws InvalidAccountException, InsufficientFundsException {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ONE).build());
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+
+        accountService.transfer(ACCOUNT_ID, beneficiaryId, Amount.builder().amount(BigDecimal.valueOf(4)).build());
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(6)).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(5)).build(), accountRepository.findById(beneficiaryId).get().getCurrentBalance());
+    }
+
+    @Test
+    void transfer_throws_InsufficientFunds_exception_and_leaves_both_accounts_untouched() {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ONE).build());
+        Account beneficiary = accountRepository.findById(beneficiaryId).get();
+
+        Assertions.assertThrows(InsufficientFundsException.class, () -> accountService.transfer(ACCOUNT_ID, beneficiaryId, Amount.builder().amount(BigDecimal.TEN).build()));
+        Assertions.assertEquals(ACCOUNT, accountRepository.findById(ACCOUNT_ID).get());
+        Assertions.assertEquals(beneficiary, accountRepository.findById(beneficiaryId).get());
+    }
+
+    @Test
+    void transfer_to_invalid_beneficiary_throws_InvalidAccountException_and_does_not_debit_source() throws InvalidAccountException {
+        AccountId beneficiaryId = AccountId.from(UUID.randomUUID());
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+        Account source = accountRepository.findById(ACCOUNT_ID).get();
+
+        InvalidAccountException exception = Assertions.assertThrows(InvalidAccountException.class, () -> accountService.transfer(ACCOUNT_ID, beneficiaryId, Amount.builder().amount(BigDecimal.ONE).build()));
+        Assertions.assertEquals(beneficiaryId, exception.getAccountId());
+        Assertions.assertEquals(source, accountRepository.findById(ACCOUNT_ID).get());
+    }
+
+    @Test
+    void tryTransfer_returns_the_expected_failures_and_leaves_both_accounts_untouched() {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ONE).build());
+        Account beneficiary = accountRepository.findById(beneficiaryId).get();
+        Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
+
+        Assertions.assertEquals(TransferOutcome.INSUFFICIENT_FUNDS, accountService.tryTransfer(ACCOUNT_ID, beneficiaryId, amount));
+        Assertions.assertEquals(TransferOutcome.INVALID_SOURCE_ACCOUNT, accountService.tryTransfer(AccountId.random(), beneficiaryId, amount));
+        Assertions.assertEquals(TransferOutcome.INVALID_BENEFICIARY_ACCOUNT, accountService.tryTransfer(beneficiaryId, AccountId.random(), Amount.ofMinorUnits(1)));
+        Assertions.assertEquals(ACCOUNT, accountRepository.findById(ACCOUNT_ID).get());
+        Assertions.assertEquals(beneficiary, accountRepository.findById(beneficiaryId).get());
+    }
+
+    @Test
+    void tryTransfer_returns_COMPLETED_once_both_postings_are_saved() {
+        AccountId sourceId = accountService.createAccount(Amount.builder().amount(BigDecimal.TEN).build());
+
+        Assertions.assertEquals(TransferOutcome.COMPLETED, accountService.tryTransfer(sourceId, ACCOUNT_ID, Amount.builder().amount(BigDecimal.valueOf(4)).build()));
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(6)).build(), accountRepository.findById(sourceId).get().getCurrentBalance());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(4)).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+    }
+
+    @Test
+    void tryTransfer_records_the_stages_reached_in_the_timeline() {
+        AccountId sourceId = accountService.createAccount(Amount.builder().amount(BigDecimal.TEN).build());
+        TransferTimeline completed = TransferTimeline.start();
+        TransferTimeline insufficientFunds = TransferTimeline.start();
+
+        accountService.tryTransfer(sourceId, ACCOUNT_ID, Amount.builder().amount(BigDecimal.ONE).build(), completed);
+        accountService.tryTransfer(sourceId, ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build(), insufficientFunds);
+
+        Assertions.assertTrue(completed.hasReached(TransferStage.DEBIT_LOCKED));
+        Assertions.assertTrue(completed.hasReached(TransferStage.DEBITED));
+        Assertions.assertTrue(completed.nanosBetween(TransferStage.DEBITED, TransferStage.CREDITED) >= 0);
+        Assertions.assertTrue(insufficientFunds.hasReached(TransferStage.DEBIT_LOCKED));
+        Assertions.assertFalse(insufficientFunds.hasReached(TransferStage.DEBITED));
+        Assertions.assertFalse(insufficientFunds.hasReached(TransferStage.CREDITED));
+    }
+
+    @Test
+    void tryDebitAccount_returns_the_outcome_of_the_debit() {
+        AccountId accountId = accountService.createAccount(Amount.builder().amount(BigDecimal.TEN).build());
+
+        Assertions.assertEquals(DebitOutcome.INSUFFICIENT_FUNDS, accountService.tryDebitAccount(accountId, Amount.builder().amount(BigDecimal.valueOf(11)).build()));
+        Assertions.assertEquals(DebitOutcome.INVALID_ACCOUNT, accountService.tryDebitAccount(AccountId.random(), Amount.ofMinorUnits(1)));
+        Assertions.assertEquals(DebitOutcome.DEBITED, accountService.tryDebitAccount(accountId, Amount.builder().amount(BigDecimal.TEN).build()));
+        Assertions.assertEquals(0, accountRepository.findById(accountId).get().getBalance());
+    }
+
+    @Test
+    void transferAll_nets_the_transfers_and_saves_each_account_once() throws InvalidAccountException {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ZERO).build());
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+
+        List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(moneyTransfer(ACCOUNT_ID, beneficiaryId, 3), moneyTransfer(beneficiaryId, ACCOUNT_ID, 1),
+                                                                                  moneyTransfer(ACCOUNT_ID, beneficiaryId, 2)));
+
+        Assertions.assertEquals(Arrays.asList(TransferOutcome.COMPLETED, TransferOutcome.COMPLETED, TransferOutcome.COMPLETED), outcomes);
+        Account source = accountRepository.findById(ACCOUNT_ID).get();
+        Account beneficiary = accountRepository.findById(beneficiaryId).get();
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(6)).build(), source.getCurrentBalance());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(4)).build(), beneficiary.getCurrentBalance());
+        Assertions.assertEquals(3, source.getVersion());
+        Assertions.assertEquals(2, beneficiary.getVersion());
+    }
+
+    @Test
+    void transferAll_decides_insufficient_funds_in_arrival_order() throws InvalidAccountException {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ZERO).build());
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.valueOf(5)).build());
+
+        List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(moneyTransfer(ACCOUNT_ID, beneficiaryId, 4), moneyTransfer(ACCOUNT_ID, beneficiaryId, 4),
+                                                                                  moneyTransfer(beneficiaryId, ACCOUNT_ID, 4), moneyTransfer(ACCOUNT_ID, beneficiaryId, 4)));
+
+        Assertions.assertEquals(Arrays.asList(TransferOutcome.COMPLETED, TransferOutcome.INSUFFICIENT_FUNDS, TransferOutcome.COMPLETED, TransferOutcome.COMPLETED), outcomes);
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.ONE).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(4)).build(), accountRepository.findById(beneficiaryId).get().getCurrentBalance());
+    }
+
+    @Test
+    void transferAll_reports_invalid_accounts_without_touching_the_other_transfers() throws InvalidAccountException {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ZERO).build());
+        AccountId unknownId = AccountId.from(UUID.randomUUID());
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+
+        List<TransferOutcome> outcomes = accountService.transferAll(Arrays.asList(moneyTransfer(unknownId, beneficiaryId, 1), moneyTransfer(ACCOUNT_ID, unknownId, 1),
+                                                                                  moneyTransfer(ACCOUNT_ID, beneficiaryId, 1)));
+
+        Assertions.assertEquals(Arrays.asList(TransferOutcome.INVALID_SOURCE_ACCOUNT, TransferOutcome.INVALID_BENEFICIARY_ACCOUNT, TransferOutcome.COMPLETED), outcomes);
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(9)).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+    }
+
+    @Test
+    void credits_to_hot_account_are_found_but_not_saved_until_folded() throws InvalidAccountException, InterruptedException {
+        hotAccountCredits.promote(ACCOUNT_ID);
+        when(accountLockingService.tryLockAccount(eq(ACCOUNT_ID), any())).thenReturn(true);
+
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.TEN).build(), accountService.findAccount(ACCOUNT_ID).get().getCurrentBalance());
+        Assertions.assertEquals(ACCOUNT, accountRepository.findById(ACCOUNT_ID).get());
+
+        accountService.foldPendingCredits();
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.TEN).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+        Assertions.assertEquals(0, hotAccountCredits.pendingCredits(ACCOUNT_ID));
+    }
+
+    @Test
+    void debit_of_hot_account_takes_pending_credits_when_balance_is_insufficient() throws InvalidAccountException, InsufficientFundsException {
+        AccountId beneficiaryId = accountService.createAccount(Amount.builder().amount(BigDecimal.ZERO).build());
+        hotAccountCredits.promote(ACCOUNT_ID);
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build());
+
+        accountService.transfer(ACCOUNT_ID, beneficiaryId, Amount.builder().amount(BigDecimal.valueOf(4)).build());
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(6)).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+        Assertions.assertEquals(0, hotAccountCredits.pendingCredits(ACCOUNT_ID));
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(4)).build(), accountRepository.findById(beneficiaryId).get().getCurrentBalance());
+    }
+
+    @Test
+    void failed_debit_of_hot_account_keeps_pending_credits() throws InvalidAccountException {
+        hotAccountCredits.promote(ACCOUNT_ID);
+        accountService.creditAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.ONE).build());
+
+        Assertions.assertThrows(InsufficientFundsException.class, () -> accountService.debitAccount(ACCOUNT_ID, Amount.builder().amount(BigDecimal.TEN).build()));
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.ONE).build().getMinorUnits(), hotAccountCredits.pendingCredits(ACCOUNT_ID));
+        Assertions.assertEquals(ACCOUNT, accountRepository.findById(ACCOUNT_ID).get());
+    }
+
+    @Test
+    void credit_to_hot_account_that_would_overflow_its_balance_with_the_pending_credits_returns_BALANCE_OVERFLOW() throws InvalidAccountException {
+        AccountId beneficiaryId = AccountId.random();
+        accountRepository.save(Account.builder().accountId(beneficiaryId).balance(Long.MAX_VALUE - 1).build());
+        hotAccountCredits.promote(beneficiaryId);
+        accountService.creditAccount(beneficiaryId, Amount.ofMinorUnits(1));
+        AccountId sourceId = accountService.createAccount(Amount.ofMinorUnits(10));
+
+        Assertions.assertEquals(TransferOutcome.BALANCE_OVERFLOW, accountService.tryTransfer(sourceId, beneficiaryId, Amount.ofMinorUnits(1)));
+        Assertions.assertThrows(ArithmeticException.class, () -> accountService.creditAccount(beneficiaryId, Amount.ofMinorUnits(1)));
+        Assertions.assertEquals(10, accountRepository.findById(sourceId).get().getBalance());
+        Assertions.assertEquals(Long.MAX_VALUE, accountService.findAccount(beneficiaryId).get().getBalance());
+    }
+
+    @Test
+    void concurrent_transfers_to_hot_beneficiary_conserve_money() throws InterruptedException {
+        AccountService lockingAccountService = new AccountService(accountRepository, new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry()), hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry());
+        hotAccountCredits.promote(ACCOUNT_ID);
+        AccountId[] sourceIds = new AccountId[8];
+        for (int i = 0; i < sourceIds.length; i++) {
+            sourceIds[i] = accountService.createAccount(Amount.builder().amount(BigDecimal.valueOf(1000)).build());
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(sourceIds.length);
+        for (AccountId sourceId : sourceIds) {
+            executorService.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    lockingAccountService.transfer(sourceId, ACCOUNT_ID, Amount.builder().amount(BigDecimal.ONE).build());
+                    if (i % 100 == 0) {
+                        lockingAccountService.foldPendingCredits();
+                    }
+                }
+                return null;
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(30, TimeUnit.SECONDS);
+        lockingAccountService.foldPendingCredits();
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(8000)).build(), accountRepository.findById(ACCOUNT_ID).get().getCurrentBalance());
+        for (AccountId sourceId : sourceIds) {
+            Assertions.assertEquals(Amount.builder().amount(BigDecimal.ZERO).build(), accountRepository.findById(sourceId).get().getCurrentBalance());
+        }
+    }
+
+    @Test
+    void hot_account_found_while_its_credits_are_folded_counts_each_credit_once() throws Exception {
+        MockAccountRepository slowAccountRepository = new MockAccountRepository() {
+            @Override
+            public Optional<Account> findById(AccountId accountId) {
+                LockSupport.parkNanos(10_000);  //widens the window between reading the credit cells and the account
+                return super.findById(accountId);
+            }
+        };
+        slowAccountRepository.save(ACCOUNT);
+        AccountService lockingAccountService = new AccountService(slowAccountRepository, new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry()), hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry());
+        hotAccountCredits.promote(ACCOUNT_ID);
+        AtomicLong credited = new AtomicLong();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        Future<?> creditsAndFolds = executorService.submit(() -> {
+            for (int i = 0; i < 2_000; i++) {
+                credited.incrementAndGet();
+                lockingAccountService.creditAccount(ACCOUNT_ID, Amount.ofMinorUnits(1));
+                lockingAccountService.foldPendingCredits();
+            }
+            return null;
+        });
+
+        while (!creditsAndFolds.isDone()) {
+            long balance = lockingAccountService.findAccount(ACCOUNT_ID).get().getBalance();
+            Assertions.assertTrue(balance <= credited.get(), "Found " + balance + " after " + credited.get() + " credits");
+        }
+        creditsAndFolds.get();
+        executorService.shutdown();
+        Assertions.assertEquals(credited.get(), lockingAccountService.findAccount(ACCOUNT_ID).get().getBalance());
+    }
+
+    @Test
+    void concurrent_transfers_without_locks_conserve_money() throws InterruptedException {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        AccountUpdateRetryConfiguration retryConfiguration = new AccountUpdateRetryConfiguration();
+        retryConfiguration.setMaxAttempts(Integer.MAX_VALUE);
+        AccountService optimisticAccountService = new AccountService(accountRepository, new NoOpAccountLockingService(), hotAccountCredits, retryConfiguration, meterRegistry);
+        AccountId[] accountIds = new AccountId[4];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount(Amount.builder().amount(BigDecimal.valueOf(1000)).build());
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int thread = 0; thread < 8; thread++) {
+            int source = thread % accountIds.length;
+            executorService.submit(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    optimisticAccountService.transfer(accountIds[source], accountIds[(source + 1 + i % 3) % accountIds.length], Amount.ofMinorUnits(1));
+                }
+                return null;
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(30, TimeUnit.SECONDS);
+
+        long totalBalance = 0;
+        for (AccountId accountId : accountIds) {
+            totalBalance += accountRepository.findById(accountId).get().getBalance();
+        }
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(4000)).build().getMinorUnits(), totalBalance);
+        Assertions.assertEquals(0, meterRegistry.get("accounts.update.retries.exhausted").counter().count());
+    }
+
+    @Test
+    void update_that_keeps_losing_the_version_check_gives_up_after_max_attempts() throws InvalidAccountException {
+        IAccountRepository conflictingRepository = mock(IAccountRepository.class);
+        when(conflictingRepository.findById(ACCOUNT_ID)).thenReturn(Optional.of(ACCOUNT.toBuilder().balance(1000).build()));
+        doThrow(new ConcurrentModificationException()).when(conflictingRepository).saveAll(any());
+        AccountUpdateRetryConfiguration retryConfiguration = new AccountUpdateRetryConfiguration();
+        retryConfiguration.setMaxAttempts(3);
+        AccountService optimisticAccountService = new AccountService(conflictingRepository, new NoOpAccountLockingService(), hotAccountCredits, retryConfiguration, new SimpleMeterRegistry());
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> optimisticAccountService.debitAccount(ACCOUNT_ID, Amount.ofMinorUnits(1)));
+        verify(conflictingRepository, times(3)).saveAll(any());
+    }
+
+    @Test
+    void tryTransfer_that_keeps_losing_the_version_check_returns_CONCURRENT_UPDATES_after_max_attempts() {
+        AccountId beneficiaryId = AccountId.random();
+        IAccountRepository conflictingRepository = mock(IAccountRepository.class);
+        when(conflictingRepository.findById(ACCOUNT_ID)).thenReturn(Optional.of(ACCOUNT.toBuilder().balance(1000).build()));
+        when(conflictingRepository.findById(beneficiaryId)).thenReturn(Optional.of(Account.builder().accountId(beneficiaryId).build()));
+        doThrow(new ConcurrentModificationException()).when(conflictingRepository).saveAll(any());
+        AccountUpdateRetryConfiguration retryConfiguration = new AccountUpdateRetryConfiguration();
+        retryConfiguration.setMaxAttempts(3);
+        AccountService optimisticAccountService = new AccountService(conflictingRepository, new NoOpAccountLockingService(), hotAccountCredits, retryConfiguration, new SimpleMeterRegistry());
+
+        Assertions.assertEquals(TransferOutcome.CONCURRENT_UPDATES, optimisticAccountService.tryTransfer(ACCOUNT_ID, beneficiaryId, Amount.ofMinorUnits(1)));
+        verify(conflictingRepository, times(3)).saveAll(any());
+    }
+
+    @Test
+    void transferAll_that_keeps_losing_the_version_check_returns_CONCURRENT_UPDATES_for_each_transfer_after_max_attempts() {
+        AccountId beneficiaryId = AccountId.random();
+        IAccountRepository conflictingRepository = mock(IAccountRepository.class);
+        when(conflictingRepository.findById(ACCOUNT_ID)).thenReturn(Optional.of(ACCOUNT.toBuilder().balance(1000).build()));
+        when(conflictingRepository.findById(beneficiaryId)).thenReturn(Optional.of(Account.builder().accountId(beneficiaryId).build()));
+        doThrow(new ConcurrentModificationException()).when(conflictingRepository).saveAll(any(), any(), any());
+        AccountUpdateRetryConfiguration retryConfiguration = new AccountUpdateRetryConfiguration();
+        retryConfiguration.setMaxAttempts(3);
+        AccountService optimisticAccountService = new AccountService(conflictingRepository, new NoOpAccountLockingService(), hotAccountCredits, retryConfiguration, new SimpleMeterRegistry());
+
+        List<TransferOutcome> outcomes = optimisticAccountService.transferAll(Arrays.asList(moneyTransfer(ACCOUNT_ID, beneficiaryId, 1), moneyTransfer(beneficiaryId, ACCOUNT_ID, 1)));
+
+        Assertions.assertEquals(Arrays.asList(TransferOutcome.CONCURRENT_UPDATES, TransferOutcome.CONCURRENT_UPDATES), outcomes);
+        verify(conflictingRepository, times(3)).saveAll(any(), any(), any());
+    }
+
+    private static MoneyTransfer moneyTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, int amount) {
+        return MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId)
+                            .amount(Amount.builder().amount(BigDecimal.valueOf(amount)).build()).build();
+    }
+}
@@ -0,0 +1,85 @@
+package com.revolut.challenge.domain.services.account;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+class HotAccountCreditsTest {
+
+    private HotAccountConfiguration configuration;
+    private AccountId accountId;
+
+    @BeforeEach
+    void setup() {
+        configuration = new HotAccountConfiguration();
+        accountId = AccountId.from(UUID.randomUUID());
+    }
+
+    @Test
+    void concurrent_credits_are_all_pending_and_drained_once() throws InterruptedException {
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(configuration, new SimpleMeterRegistry());
+        hotAccountCredits.promote(accountId);
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 8; i++) {
+            executorService.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    hotAccountCredits.credit(accountId, Amount.ofMinorUnits(1));
+                }
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        Assertions.assertEquals(80_000, hotAccountCredits.pendingCredits(accountId));
+        Assertions.assertEquals(80_000, hotAccountCredits.drain(accountId));
+        Assertions.assertEquals(0, hotAccountCredits.pendingCredits(accountId));
+    }
+
+    @Test
+    void configured_accounts_are_hot_from_startup() {
+        configuration.getAccounts().add(accountId.getId());
+
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(configuration, new SimpleMeterRegistry());
+
+        Assertions.assertTrue(hotAccountCredits.isHot(accountId));
+    }
+
+    @Test
+    void account_is_promoted_once_contention_reaches_threshold_when_auto_promote_is_on() {
+        configuration.setAutoPromote(true);
+        configuration.setContentionThreshold(3);
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(configuration, new SimpleMeterRegistry());
+
+        hotAccountCredits.recordContention(accountId);
+        hotAccountCredits.recordContention(accountId);
+        Assertions.assertFalse(hotAccountCredits.isHot(accountId));
+        hotAccountCredits.recordContention(accountId);
+        Assertions.assertTrue(hotAccountCredits.isHot(accountId));
+    }
+
+    @Test
+    void contention_does_not_promote_when_auto_promote_is_off() {
+        configuration.setContentionThreshold(1);
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(configuration, new SimpleMeterRegistry());
+
+        hotAccountCredits.recordContention(accountId);
+
+        Assertions.assertFalse(hotAccountCredits.isHot(accountId));
+    }
+
+    @Test
+    void credit_of_account_that_is_not_hot_throws_IllegalStateException() {
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(configuration, new SimpleMeterRegistry());
+
+        Assertions.assertThrows(IllegalStateException.class, () -> hotAccountCredits.credit(accountId, Amount.ofMinorUnits(1)));
+    }
+}
@@ -0,0 +1,185 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.AccountLockConfiguration;
+import com.revolut.challenge.domain.services.account.AccountLockingService;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.domain.services.account.MockAccountRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.UUID;
+
+
+class BatchingMoneyTransferEngineTest {
+
+    private IAccountRepository accountRepository;
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferBacklog backlog;
+    private SimpleMeterRegistry meterRegistry;
+    private BatchingMoneyTransferEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        accountRepository = new MockAccountRepository();
+        moneyTransferRepository = new MockMoneyTransferRepository();
+        engine = startEngine(40, new AccountUpdateRetryConfiguration());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void transfers_are_processed_in_batches_of_at_most_max_batch_size() throws Exception {
+        AccountId sourceAccountId = createAccount(100);
+        AccountId beneficiaryAccountId = createAccount(0);
+        List<TransferRequestId> requestIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requestIds.add(submitTransfer(sourceAccountId, beneficiaryAccountId, 1));
+        }
+
+        for (TransferRequestId requestId : requestIds) {
+            Assertions.assertEquals(MoneyTransferStatus.COMPLETED, awaitFinalStatus(requestId));
+        }
+        Assertions.assertEquals(amount(0), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(100), accountRepository.findById(beneficiaryAccountId).get().getCurrentBalance());
+        DistributionSummary batchSizes = meterRegistry.get("transfers.batch.size").summary();
+        Assertions.assertTrue(batchSizes.count() < 100);
+        Assertions.assertTrue(batchSizes.max() <= 40);
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void every_transfer_of_a_batch_gets_its_own_status() throws Exception {
+        AccountId sourceAccountId = createAccount(10);
+        AccountId beneficiaryAccountId = createAccount(0);
+
+        TransferRequestId first = submitTransfer(sourceAccountId, beneficiaryAccountId, 6);
+        TransferRequestId second = submitTransfer(sourceAccountId, beneficiaryAccountId, 6);
+        TransferRequestId third = submitTransfer(sourceAccountId, AccountId.from(UUID.randomUUID()), 1);
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, awaitFinalStatus(first));
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, awaitFinalStatus(second));
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY, awaitFinalStatus(third));
+        Assertions.assertEquals(amount(4), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void transfers_of_an_account_are_applied_in_arrival_order_across_batches() throws Exception {
+        engine.close();
+        engine = startEngine(1, new AccountUpdateRetryConfiguration());
+        AccountId firstAccountId = createAccount(1);
+        AccountId secondAccountId = createAccount(0);
+        List<TransferRequestId> requestIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            requestIds.add(submitTransfer(firstAccountId, secondAccountId, 1));
+            requestIds.add(submitTransfer(secondAccountId, firstAccountId, 1));
+        }
+
+        for (TransferRequestId requestId : requestIds) {
+            Assertions.assertEquals(MoneyTransferStatus.COMPLETED, awaitFinalStatus(requestId));
+        }
+        Assertions.assertEquals(amount(1), accountRepository.findById(firstAccountId).get().getCurrentBalance());
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void batch_that_keeps_losing_the_version_check_is_settled_once_retries_run_out() throws Exception {
+        engine.close();
+        accountRepository = new MockAccountRepository() {
+            @Override
+            public void saveAll(Collection<Account> accounts) {
+                throw new ConcurrentModificationException();
+            }
+        };
+        AccountUpdateRetryConfiguration retryConfiguration = new AccountUpdateRetryConfiguration();
+        retryConfiguration.setMaxAttempts(2);
+        engine = startEngine(40, retryConfiguration);
+        AccountId sourceAccountId = createAccount(10);
+        AccountId beneficiaryAccountId = createAccount(0);
+
+        TransferRequestId first = submitTransfer(sourceAccountId, beneficiaryAccountId, 1);
+        TransferRequestId second = submitTransfer(sourceAccountId, beneficiaryAccountId, 1);
+
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE, awaitFinalStatus(first));
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE, awaitFinalStatus(second));
+        Assertions.assertEquals(amount(10), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+        awaitEmptyBacklog();
+    }
+
+    private BatchingMoneyTransferEngine startEngine(int maxBatchSize, AccountUpdateRetryConfiguration retryConfiguration) {
+        meterRegistry = new SimpleMeterRegistry();
+        TransferProcessingConfiguration processingConfiguration = new TransferProcessingConfiguration();
+        processingConfiguration.setWorkers(2);
+        BatchingEngineConfiguration configuration = new BatchingEngineConfiguration();
+        configuration.setWindow(Duration.ofMillis(50));
+        configuration.setMaxBatchSize(maxBatchSize);
+        backlog = new MoneyTransferBacklog(processingConfiguration, meterRegistry);
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        AccountLockingService accountLockingService = new AccountLockingService(new AccountLockConfiguration(), hotAccountCredits, new SimpleMeterRegistry());
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferService moneyTransferService = new MoneyTransferService(new AccountService(accountRepository, accountLockingService, hotAccountCredits, retryConfiguration, new SimpleMeterRegistry()), moneyTransferRepository, new TransferTimelines(new TransferTracingConfiguration()), settlements);
+        return new BatchingMoneyTransferEngine(moneyTransferService, moneyTransferRepository, backlog, processingConfiguration, configuration, meterRegistry);
+    }
+
+    private AccountId createAccount(int balance) {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        accountRepository.save(Account.builder().accountId(accountId).currentBalance(amount(balance)).build());
+        return accountId;
+    }
+
+    private TransferRequestId submitTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, int amount) throws TransferBacklogFullException {
+        backlog.admit();
+        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId)
+                                                   .amount(amount(amount)).build();
+        moneyTransferRepository.save(moneyTransfer);
+        engine.onMoneyTransferCreated(MoneyTransferCreatedEvent.builder().requestId(moneyTransfer.getRequestId()).build());
+        return moneyTransfer.getRequestId();
+    }
+
+    private MoneyTransferStatus awaitFinalStatus(TransferRequestId requestId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        MoneyTransferStatus status = moneyTransferRepository.findById(requestId).get().getStatus();
+        while (status == MoneyTransferStatus.CREATED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+            status = moneyTransferRepository.findById(requestId).get().getStatus();
+        }
+        return status;
+    }
+
+    private void awaitEmptyBacklog() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (backlog.getDepth() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(0, backlog.getDepth());
+    }
+
+    private static Amount amount(int value) {
+        return Amount.builder().amount(BigDecimal.valueOf(value)).build();
+    }
+}
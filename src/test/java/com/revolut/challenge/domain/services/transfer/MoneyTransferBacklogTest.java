@@ -0,0 +1,89 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+class MoneyTransferBacklogTest {
+
+    private TransferProcessingConfiguration configuration;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        configuration = new TransferProcessingConfiguration();
+        configuration.setQueueCapacity(2);
+        configuration.setRetryAfter(Duration.ofSeconds(3));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    public void admit_rejects_transfers_beyond_capacity() throws TransferBacklogFullException {
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        backlog.admit();
+        backlog.admit();
+
+        TransferBacklogFullException exception = Assertions.assertThrows(TransferBacklogFullException.class, backlog::admit);
+        Assertions.assertEquals(Duration.ofSeconds(3), exception.getRetryAfter());
+    }
+
+    @Test
+    public void release_makes_room_for_another_transfer() throws TransferBacklogFullException {
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        backlog.admit();
+        backlog.admit();
+        backlog.release();
+
+        backlog.admit();
+        Assertions.assertEquals(2, backlog.getDepth());
+    }
+
+    @Test
+    public void wait_policy_admits_a_transfer_once_another_one_is_released() throws Exception {
+        configuration.setOverloadPolicy(OverloadPolicy.WAIT);
+        configuration.setMaxWait(Duration.ofSeconds(10));
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        backlog.admit();
+        backlog.admit();
+
+        CompletableFuture<Void> admission = CompletableFuture.runAsync(() -> {
+            try {
+                backlog.admit();
+            } catch (TransferBacklogFullException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        backlog.release();
+
+        admission.get(10, TimeUnit.SECONDS);
+        Assertions.assertEquals(2, backlog.getDepth());
+    }
+
+    @Test
+    public void wait_policy_rejects_a_transfer_after_max_wait() throws TransferBacklogFullException {
+        configuration.setOverloadPolicy(OverloadPolicy.WAIT);
+        configuration.setMaxWait(Duration.ofMillis(10));
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        backlog.admit();
+        backlog.admit();
+
+        Assertions.assertThrows(TransferBacklogFullException.class, backlog::admit);
+    }
+
+    @Test
+    public void depth_and_rejections_are_exposed_as_metrics() throws TransferBacklogFullException {
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        backlog.admit();
+        backlog.admit();
+        Assertions.assertThrows(TransferBacklogFullException.class, backlog::admit);
+
+        Assertions.assertEquals(2, meterRegistry.get("transfers.backlog.depth").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("transfers.backlog.rejected").counter().count());
+    }
+}
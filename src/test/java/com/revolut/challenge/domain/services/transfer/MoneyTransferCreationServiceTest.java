@@ -7,16 +7,25 @@ import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
 import com.revolut.challenge.domain.services.account.IAccountService;
 import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.micronaut.context.event.ApplicationEventPublisher;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -28,6 +37,7 @@ class MoneyTransferCreationServiceTest {
     private MockMoneyTransferRepository repository;
     private IAccountService accountService;
     private ApplicationEventPublisher publisher;
+    private MoneyTransferBacklog backlog;
 
     @BeforeEach
     public void setup() {
@@ -38,11 +48,15 @@ class MoneyTransferCreationServiceTest {
         accountService = mock(IAccountService.class);
         when(accountService.isAccountValid(SOURCE_ACCOUNT_ID)).thenReturn(true);
         when(accountService.isAccountValid(BENEFICIARY_ACCOUNT_ID)).thenReturn(true);
-        moneyTransferCreationService = new MoneyTransferCreationService(repository, accountService, publisher);
+        TransferProcessingConfiguration configuration = new TransferProcessingConfiguration();
+        configuration.setQueueCapacity(1);
+        backlog = new MoneyTransferBacklog(configuration, new SimpleMeterRegistry());
+        TransferIdempotencyKeys idempotencyKeys = new TransferIdempotencyKeys(new TransferIdempotencyConfiguration(), new SimpleMeterRegistry());
+        moneyTransferCreationService = new MoneyTransferCreationService(repository, accountService, publisher, backlog, idempotencyKeys, new TransferTimelines(new TransferTracingConfiguration()));
     }
 
     @Test
-    public void requestMoneyTransfer_creates_a_moneyTransfer() throws InvalidAccountException, InvalidTransferAmountException {
+    public void requestMoneyTransfer_creates_a_moneyTransfer() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
         Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
         TransferRequestId transferRequestId = moneyTransferCreationService.requestMoneyTransfer(request);
@@ -51,7 +65,7 @@ class MoneyTransferCreationServiceTest {
     }
 
     @Test
-    public void requestMoneyTransfer_creates_a_moneyTransfer_with_correct_parameters() throws InvalidAccountException, InvalidTransferAmountException {
+    public void requestMoneyTransfer_creates_a_moneyTransfer_with_correct_parameters() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException {
         Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
         TransferRequestId transferRequestId = moneyTransferCreationService.requestMoneyTransfer(request);
@@ -81,4 +95,88 @@ class MoneyTransferCreationServiceTest {
         MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(invalidAmount).build();
         Assertions.assertThrows(InvalidTransferAmountException.class, () -> moneyTransferCreationService.requestMoneyTransfer(request));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void requestMoneyTransfer_throws_TransferBacklogFullException_without_publishing_if_backlog_is_full() throws TransferBacklogFullException {
+        backlog.admit();
+        Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
+        Assertions.assertThrows(TransferBacklogFullException.class, () -> moneyTransferCreationService.requestMoneyTransfer(request));
+        verify(publisher, never()).publishEvent(any());
+    }
+
+    @Test
+    public void requestMoneyTransfer_with_repeated_idempotency_key_returns_the_first_moneyTransfer_without_validating_or_publishing_again()
+            throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
+
+        TransferRequestId transferRequestId = moneyTransferCreationService.requestMoneyTransfer(request, "key");
+        TransferRequestId repeatedTransferRequestId = moneyTransferCreationService.requestMoneyTransfer(request.toBuilder().build(), "key");
+
+        Assertions.assertEquals(transferRequestId, repeatedTransferRequestId);
+        verify(accountService, times(1)).isAccountValid(SOURCE_ACCOUNT_ID);
+        verify(publisher, times(1)).publishEvent(any());
+        Assertions.assertEquals(1, backlog.getDepth());
+    }
+
+    @Test
+    public void requestMoneyTransfer_throws_IdempotencyKeyReusedException_if_key_was_used_for_another_request() throws InvalidAccountException, InvalidTransferAmountException, TransferBacklogFullException, IdempotencyKeyReusedException {
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        moneyTransferCreationService.requestMoneyTransfer(request, "key");
+
+        MoneyTransferRequest otherRequest = request.toBuilder().amount(Amount.builder().amount(BigDecimal.ONE).build()).build();
+        Assertions.assertThrows(IdempotencyKeyReusedException.class, () -> moneyTransferCreationService.requestMoneyTransfer(otherRequest, "key"));
+    }
+
+    @Test
+    public void requestMoneyTransfer_with_idempotency_key_can_be_retried_after_a_failure() throws TransferBacklogFullException, InvalidAccountException, InvalidTransferAmountException, IdempotencyKeyReusedException {
+        backlog.admit();
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        Assertions.assertThrows(TransferBacklogFullException.class, () -> moneyTransferCreationService.requestMoneyTransfer(request, "key"));
+
+        backlog.release();
+        TransferRequestId transferRequestId = moneyTransferCreationService.requestMoneyTransfer(request, "key");
+
+        Assertions.assertTrue(repository.findById(transferRequestId).isPresent());
+    }
+
+    @Test
+    public void requestMoneyTransfers_checks_each_account_once_and_publishes_the_created_moneyTransfers_together() {
+        Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
+        MoneyTransferRequest invalidRequest = request.toBuilder().beneficiaryAccountId(AccountId.from(UUID.randomUUID())).build();
+
+        List<MoneyTransferCreationResult> results = moneyTransferCreationService.requestMoneyTransfers(Arrays.asList(request, invalidRequest));
+
+        TransferRequestId transferRequestId = results.get(0).getRequestId().get();
+        Assertions.assertTrue(repository.findById(transferRequestId).isPresent());
+        Assertions.assertTrue(results.get(1).getRejection() instanceof InvalidAccountException);
+        verify(accountService, times(1)).isAccountValid(SOURCE_ACCOUNT_ID);
+        verify(publisher).publishEvent(MoneyTransfersCreatedEvent.builder().requestIds(Collections.singletonList(transferRequestId)).build());
+    }
+
+    @Test
+    public void requestMoneyTransfers_rejects_the_requests_beyond_the_backlog_capacity() {
+        Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(amount).build();
+
+        List<MoneyTransferCreationResult> results = moneyTransferCreationService.requestMoneyTransfers(Arrays.asList(request, request, request));
+
+        Assertions.assertTrue(results.get(0).getRequestId().isPresent());
+        Assertions.assertTrue(results.get(1).getRejection() instanceof TransferBacklogFullException);
+        Assertions.assertTrue(results.get(2).getRejection() instanceof TransferBacklogFullException);
+        verify(publisher).publishEvent(argThat(event -> ((MoneyTransfersCreatedEvent) event).getRequestIds().size() == 1));
+    }
+
+    @Test
+    public void requestMoneyTransfers_publishes_nothing_if_every_request_is_rejected() {
+        MoneyTransferRequest request = MoneyTransferRequest.builder().beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).sourceAccountId(SOURCE_ACCOUNT_ID).amount(Amount.builder().amount(BigDecimal.valueOf(-10)).build()).build();
+
+        List<MoneyTransferCreationResult> results = moneyTransferCreationService.requestMoneyTransfers(Collections.singletonList(request));
+
+        Assertions.assertTrue(results.get(0).getRejection() instanceof InvalidTransferAmountException);
+        verify(publisher, never()).publishEvent(any());
+        Assertions.assertEquals(0, backlog.getDepth());
+    }
+}
@@ -1,12 +1,19 @@
 package com.revolut.challenge.domain.services.transfer;
 
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.UUID;
 
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 
@@ -14,6 +21,7 @@ class MoneyTransferProcessingServiceTest {
 
     private MoneyTransferProcessingService moneyTransferProcessingService;
     private IMoneyTransferService moneyTransferService;
+    private MoneyTransferBacklog backlog;
     private TransferRequestId TRANSFER_REQUEST_ID;
     private MoneyTransferCreatedEvent MONEY_TRANSFER_CREATED_EVENT;
 
@@ -22,12 +30,54 @@ class MoneyTransferProcessingServiceTest {
         TRANSFER_REQUEST_ID = TransferRequestId.from(UUID.randomUUID());
         MONEY_TRANSFER_CREATED_EVENT = MoneyTransferCreatedEvent.builder().requestId(TRANSFER_REQUEST_ID).build();
         moneyTransferService = mock(IMoneyTransferService.class);
-        moneyTransferProcessingService = new MoneyTransferProcessingService(moneyTransferService);
+        TransferProcessingConfiguration configuration = new TransferProcessingConfiguration();
+        configuration.setWorkers(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        backlog = new MoneyTransferBacklog(configuration, meterRegistry);
+        moneyTransferProcessingService = new MoneyTransferProcessingService(moneyTransferService, backlog, configuration, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        moneyTransferProcessingService.close();
     }
 
     @Test
     public void onMoneyTransferCreated_triggers_transfer_request() throws Throwable {
         moneyTransferProcessingService.onMoneyTransferCreated(MONEY_TRANSFER_CREATED_EVENT);
-        verify(moneyTransferService).transferMoney(TRANSFER_REQUEST_ID);
+        verify(moneyTransferService, timeout(1000)).transferMoney(TRANSFER_REQUEST_ID);
+    }
+
+    @Test
+    public void onMoneyTransferCreated_releases_the_backlog_once_processed() throws Throwable {
+        backlog.admit();
+        moneyTransferProcessingService.onMoneyTransferCreated(MONEY_TRANSFER_CREATED_EVENT);
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void onMoneyTransferCreated_releases_the_backlog_when_processing_fails() throws Throwable {
+        doThrow(new InvalidTransferRequestException(TRANSFER_REQUEST_ID)).when(moneyTransferService).transferMoney(TRANSFER_REQUEST_ID);
+        backlog.admit();
+        moneyTransferProcessingService.onMoneyTransferCreated(MONEY_TRANSFER_CREATED_EVENT);
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void onMoneyTransfersCreated_transfers_all_together_and_releases_the_backlog() throws Throwable {
+        List<TransferRequestId> requestIds = Arrays.asList(TRANSFER_REQUEST_ID, TransferRequestId.from(UUID.randomUUID()));
+        backlog.admit();
+        backlog.admit();
+        moneyTransferProcessingService.onMoneyTransfersCreated(MoneyTransfersCreatedEvent.builder().requestIds(requestIds).build());
+        verify(moneyTransferService, timeout(1000)).transferAll(requestIds);
+        awaitEmptyBacklog();
+    }
+
+    private void awaitEmptyBacklog() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (backlog.getDepth() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(0, backlog.getDepth());
     }
-}
\ No newline at end of file
+}
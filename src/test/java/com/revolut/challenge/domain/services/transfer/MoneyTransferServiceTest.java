@@ -6,21 +6,36 @@ import com.revolut.challenge.domain.model.account.InsufficientFundsException;
 import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
 import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
 import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
 import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
 import com.revolut.challenge.domain.services.account.AccountService;
 import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import com.revolut.challenge.domain.services.account.TransferOutcome;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 
 class MoneyTransferServiceTest {
@@ -32,6 +47,9 @@ class MoneyTransferServiceTest {
 
     private AccountService accountService;
     private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferSettlements settlements;
+    private TransferTimelines timelines;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     public void setup() {
@@ -39,8 +57,15 @@ class MoneyTransferServiceTest {
         BENEFICIARY_ACCOUNT_ID = AccountId.from(UUID.randomUUID());
         REQUEST_ID = TransferRequestId.from(UUID.randomUUID());
         accountService = mock(AccountService.class);
+        when(accountService.tryTransfer(any(MoneyTransfer.class), any())).thenReturn(TransferOutcome.COMPLETED);
         moneyTransferRepository = new MockMoneyTransferRepository();
-        moneyTransferService = new MoneyTransferService(accountService, moneyTransferRepository);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+        meterRegistry = new SimpleMeterRegistry();
+        settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), meterRegistry);
+        TransferTracingConfiguration tracingConfiguration = new TransferTracingConfiguration();
+        tracingConfiguration.setSampleRate(1);
+        timelines = new TransferTimelines(tracingConfiguration);
+        moneyTransferService = new MoneyTransferService(accountService, moneyTransferRepository, timelines, settlements);
     }
 
     @Test
@@ -50,72 +75,152 @@ class MoneyTransferServiceTest {
     }
 
     @Test
-    public void transferMoney_debits_source_account() throws InsufficientFundsException, InvalidAccountException, InvalidTransferRequestException {
+    public void transferMoney_transfers_amount_from_source_to_beneficiary() throws InsufficientFundsException, InvalidAccountException, InvalidTransferRequestException {
         Amount amount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(amount).build();
         moneyTransferRepository.save(request);
         moneyTransferService.transferMoney(request.getRequestId());
-        verify(accountService).debitAccount(SOURCE_ACCOUNT_ID, amount);
+        verify(accountService).tryTransfer(eq(request), any());
     }
 
     @Test
-    public void transferMoney_credits_beneficiary_account() throws InsufficientFundsException, InvalidAccountException, InvalidTransferRequestException {
+    public void transferMoney_success_updates_transferMoney_status_to_COMPLETED() throws InvalidTransferRequestException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
         moneyTransferService.transferMoney(request.getRequestId());
-        verify(accountService).creditAccount(BENEFICIARY_ACCOUNT_ID, transferAmount);
+        Optional<MoneyTransfer> transfer = moneyTransferRepository.findById(request.getRequestId());
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, transfer.get().getStatus());
     }
 
     @Test
-    public void transferMoney_success_updates_transferMoney_status_to_COMPLETED() throws InvalidTransferRequestException {
+    public void transferMoney_sets_moneyTransfer_status_to_INSUFFICIENT_FUNDS_when_failed_to_debit_source() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
+        when(accountService.tryTransfer(eq(request), any())).thenReturn(TransferOutcome.INSUFFICIENT_FUNDS);
         moneyTransferService.transferMoney(request.getRequestId());
-        Optional<MoneyTransfer> transfer = moneyTransferRepository.findById(request.getRequestId());
-        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, transfer.get().getStatus());
+        Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(request.getRequestId());
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, moneyTransfer.get().getStatus());
+        Assertions.assertEquals(1, meterRegistry.get("transfers.settled").tag("status", MoneyTransferStatus.INSUFFICIENT_FUNDS.name()).counter().count());
+        Assertions.assertEquals(0, meterRegistry.get("transfers.settled").tag("status", MoneyTransferStatus.COMPLETED.name()).counter().count());
+    }
+
+    @Test
+    public void transferMoney_times_the_stages_the_transfer_reached() throws InvalidTransferRequestException {
+        MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID)
+                                             .amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        moneyTransferRepository.save(request);
+        timelines.start(request.getRequestId());
+        moneyTransferService.transferMoney(request.getRequestId());
+
+        Assertions.assertTrue(timelines.of(request.getRequestId()).hasReached(TransferStage.SETTLED));
+        Assertions.assertEquals(1, meterRegistry.get("transfers.stage").tag("stage", "queued").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("transfers.stage").tag("stage", "total").timer().count());
+        Assertions.assertEquals(0, meterRegistry.get("transfers.stage").tag("stage", "locking").timer().count());  //the mocked account service takes no lock
     }
 
     @Test
-    public void transferMoney_does_not_credit_if_debit_source_not_completed_successfully() throws InvalidAccountException, InsufficientFundsException, InvalidTransferRequestException {
+    public void transferMoney_is_recorded_as_a_flight_recorder_event_with_the_stages_the_transfer_reached() throws Exception {
+        MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID)
+                                             .amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        moneyTransferRepository.save(request);
+        timelines.start(request.getRequestId());
+        Path dump = Files.createTempFile("money-transfer", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.revolut.challenge.MoneyTransfer").withThreshold(Duration.ZERO);
+            recording.start();
+            moneyTransferService.transferMoney(request.getRequestId());
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+            Assertions.assertEquals(1, events.size());
+            RecordedEvent event = events.get(0);
+            Assertions.assertEquals(REQUEST_ID.getId().toString(), event.getString("transferId"));
+            Assertions.assertEquals(SOURCE_ACCOUNT_ID.getId().toString(), event.getString("sourceAccountId"));
+            Assertions.assertEquals(BENEFICIARY_ACCOUNT_ID.getId().toString(), event.getString("beneficiaryAccountId"));
+            Assertions.assertEquals(MoneyTransferStatus.COMPLETED.name(), event.getString("status"));
+            Assertions.assertTrue(event.getBoolean("traced"));
+            Assertions.assertTrue(event.getLong("queued") >= 0);
+            Assertions.assertEquals(-1, event.getLong("locking"));  //the mocked account service takes no lock
+        } finally {
+            Files.delete(dump);
+        }
+    }
+
+    @Test
+    public void transferMoney_sets_moneyTransfer_status_to_FAILED_TO_CREDIT_BENEFICIARY_when_failed_to_credit_beneficiary() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
-        doThrow(InsufficientFundsException.class).when(accountService).debitAccount(SOURCE_ACCOUNT_ID, transferAmount);
+        when(accountService.tryTransfer(eq(request), any())).thenReturn(TransferOutcome.INVALID_BENEFICIARY_ACCOUNT);
         moneyTransferService.transferMoney(request.getRequestId());
-        verify(accountService, never()).creditAccount(BENEFICIARY_ACCOUNT_ID, transferAmount);
+        Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(request.getRequestId());
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY, moneyTransfer.get().getStatus());
     }
 
     @Test
-    public void transferMoney_sets_moneyTransfer_status_to_INSUFFICIENT_FUNDS_when_failed_to_debit_source() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
+    public void transferMoney_sets_moneyTransfer_status_to_FAILED_TO_DEBIT_SOURCE_when_source_account_is_invalid() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
-        doThrow(InsufficientFundsException.class).when(accountService).debitAccount(SOURCE_ACCOUNT_ID, transferAmount);
+        when(accountService.tryTransfer(eq(request), any())).thenReturn(TransferOutcome.INVALID_SOURCE_ACCOUNT);
         moneyTransferService.transferMoney(request.getRequestId());
         Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(request.getRequestId());
-        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, moneyTransfer.get().getStatus());
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE, moneyTransfer.get().getStatus());
     }
 
     @Test
-    public void transferMoney_sets_moneyTransfer_status_to_FAILED_TO_CREDIT_BENEFICIARY_when_failed_to_credit_beneficiary() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
+    public void transferMoney_sets_moneyTransfer_status_to_FAILED_TO_DEBIT_SOURCE_when_retries_on_concurrent_updates_are_exhausted() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
-        doThrow(InvalidAccountException.class).when(accountService).creditAccount(BENEFICIARY_ACCOUNT_ID, transferAmount);
+        when(accountService.tryTransfer(eq(request), any())).thenReturn(TransferOutcome.CONCURRENT_UPDATES);
         moneyTransferService.transferMoney(request.getRequestId());
         Optional<MoneyTransfer> moneyTransfer = moneyTransferRepository.findById(request.getRequestId());
-        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY, moneyTransfer.get().getStatus());
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_DEBIT_SOURCE, moneyTransfer.get().getStatus());
     }
 
     @Test
-    public void transferMoney_compensates_source_if_failed_to_credit_beneficiary() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
+    public void transferMoney_does_not_compensate_source_if_failed_to_credit_beneficiary() throws InvalidTransferRequestException, InvalidAccountException, InsufficientFundsException {
         Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
         MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
         moneyTransferRepository.save(request);
-        doThrow(InvalidAccountException.class).when(accountService).creditAccount(BENEFICIARY_ACCOUNT_ID, transferAmount);
+        when(accountService.tryTransfer(eq(request), any())).thenReturn(TransferOutcome.INVALID_BENEFICIARY_ACCOUNT);
         moneyTransferService.transferMoney(request.getRequestId());
-        verify(accountService).creditAccount(SOURCE_ACCOUNT_ID, transferAmount);
+        verify(accountService, never()).creditAccount(SOURCE_ACCOUNT_ID, transferAmount);
+        verify(accountService, never()).debitAccount(SOURCE_ACCOUNT_ID, transferAmount);
+    }
+
+    @Test
+    public void transferMoney_completes_the_requests_waiting_for_the_final_status() throws Exception {
+        Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransfer request = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
+        moneyTransferRepository.save(request);
+        CompletableFuture<Optional<MoneyTransfer>> settlement = settlements.awaitSettlement(REQUEST_ID, Duration.ofSeconds(10));
+
+        moneyTransferService.transferMoney(request.getRequestId());
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, settlement.get(1, TimeUnit.SECONDS).get().getStatus());
+    }
+
+    @Test
+    public void transferAll_settles_each_moneyTransfer_with_its_own_outcome() {
+        Amount transferAmount = Amount.builder().amount(BigDecimal.TEN).build();
+        MoneyTransfer completed = MoneyTransfer.builder().sourceAccountId(SOURCE_ACCOUNT_ID).beneficiaryAccountId(BENEFICIARY_ACCOUNT_ID).requestId(REQUEST_ID).amount(transferAmount).build();
+        MoneyTransfer insufficientFunds = completed.toBuilder().requestId(TransferRequestId.from(UUID.randomUUID())).build();
+        MoneyTransfer invalidBeneficiary = completed.toBuilder().requestId(TransferRequestId.from(UUID.randomUUID())).build();
+        moneyTransferRepository.save(completed);
+        moneyTransferRepository.save(insufficientFunds);
+        moneyTransferRepository.save(invalidBeneficiary);
+        when(accountService.transferAll(eq(Arrays.asList(completed, insufficientFunds, invalidBeneficiary)), any()))
+                .thenReturn(Arrays.asList(TransferOutcome.COMPLETED, TransferOutcome.INSUFFICIENT_FUNDS, TransferOutcome.INVALID_BENEFICIARY_ACCOUNT));
+
+        moneyTransferService.transferAll(Arrays.asList(completed.getRequestId(), TransferRequestId.from(UUID.randomUUID()), insufficientFunds.getRequestId(), invalidBeneficiary.getRequestId()));
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, moneyTransferRepository.findById(completed.getRequestId()).get().getStatus());
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, moneyTransferRepository.findById(insufficientFunds.getRequestId()).get().getStatus());
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY, moneyTransferRepository.findById(invalidBeneficiary.getRequestId()).get().getStatus());
     }
-}
\ No newline at end of file
+}
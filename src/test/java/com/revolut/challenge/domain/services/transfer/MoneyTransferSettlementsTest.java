@@ -0,0 +1,99 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferTimeline;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+
+class MoneyTransferSettlementsTest {
+
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferSettlements settlements;
+    private MoneyTransfer moneyTransfer;
+
+    @BeforeEach
+    void setup() {
+        moneyTransferRepository = new MockMoneyTransferRepository();
+        TransferProcessingConfiguration configuration = new TransferProcessingConfiguration();
+        configuration.setMaxSettlementWait(Duration.ofSeconds(5));
+        settlements = new MoneyTransferSettlements(moneyTransferRepository, newStatusFeed(), configuration, new SimpleMeterRegistry());
+        moneyTransfer = MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(AccountId.random()).beneficiaryAccountId(AccountId.random())
+                                     .amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        moneyTransferRepository.save(moneyTransfer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        settlements.shutdown();
+    }
+
+    @Test
+    void waiters_are_completed_with_the_settled_transfer_and_forgotten() throws Exception {
+        CompletableFuture<Optional<MoneyTransfer>> firstWaiter = settlements.awaitSettlement(moneyTransfer.getRequestId(), Duration.ofSeconds(10));
+        CompletableFuture<Optional<MoneyTransfer>> secondWaiter = settlements.awaitSettlement(moneyTransfer.getRequestId(), Duration.ofSeconds(10));
+        Assertions.assertFalse(firstWaiter.isDone());
+
+        settlements.settled(moneyTransfer.complete(), TransferTimeline.untracked());
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, firstWaiter.get(1, TimeUnit.SECONDS).get().getStatus());
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, secondWaiter.get(1, TimeUnit.SECONDS).get().getStatus());
+        Assertions.assertEquals(0, settlements.getWaitingTransfers());
+    }
+
+    @Test
+    void waiter_of_a_transfer_already_settled_is_completed_at_once() {
+        moneyTransferRepository.save(moneyTransfer.failDueToInsufficientFunds());
+
+        CompletableFuture<Optional<MoneyTransfer>> waiter = settlements.awaitSettlement(moneyTransfer.getRequestId(), Duration.ofSeconds(10));
+
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, waiter.getNow(Optional.empty()).get().getStatus());
+        Assertions.assertEquals(0, settlements.getWaitingTransfers());
+    }
+
+    @Test
+    void waiter_of_an_unknown_transfer_is_completed_empty() {
+        CompletableFuture<Optional<MoneyTransfer>> waiter = settlements.awaitSettlement(TransferRequestId.from(UUID.randomUUID()), Duration.ofSeconds(10));
+        Assertions.assertFalse(waiter.getNow(Optional.of(moneyTransfer)).isPresent());
+        Assertions.assertEquals(0, settlements.getWaitingTransfers());
+    }
+
+    @Test
+    void waiter_times_out_with_the_transfer_still_created_and_is_forgotten() throws Exception {
+        CompletableFuture<Optional<MoneyTransfer>> waiter = settlements.awaitSettlement(moneyTransfer.getRequestId(), Duration.ofMillis(50));
+
+        Assertions.assertEquals(MoneyTransferStatus.CREATED, waiter.get(5, TimeUnit.SECONDS).get().getStatus());
+        Assertions.assertEquals(0, settlements.getWaitingTransfers());
+    }
+
+    @Test
+    void timeout_is_capped_at_the_max_settlement_wait() throws Exception {
+        TransferProcessingConfiguration configuration = new TransferProcessingConfiguration();
+        configuration.setMaxSettlementWait(Duration.ofMillis(50));
+        MoneyTransferSettlements cappedSettlements = new MoneyTransferSettlements(moneyTransferRepository, newStatusFeed(), configuration, new SimpleMeterRegistry());
+
+        CompletableFuture<Optional<MoneyTransfer>> waiter = cappedSettlements.awaitSettlement(moneyTransfer.getRequestId(), Duration.ofHours(1));
+
+        Assertions.assertEquals(MoneyTransferStatus.CREATED, waiter.get(5, TimeUnit.SECONDS).get().getStatus());
+        cappedSettlements.shutdown();
+    }
+
+    private static MoneyTransferStatusFeed newStatusFeed() {
+        return new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,99 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+
+class MoneyTransferStatusFeedTest {
+
+    private TransferEventsConfiguration configuration;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        configuration = new TransferEventsConfiguration();
+        configuration.setBufferSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void subscriber_to_an_account_only_receives_its_transfers_in_order() {
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(configuration, meterRegistry);
+        AccountId accountId = AccountId.random();
+        MoneyTransferStatusFeed.Subscription subscription = statusFeed.subscribe(accountId);
+        MoneyTransfer debit = newMoneyTransfer(accountId, AccountId.random()).complete();
+        MoneyTransfer credit = newMoneyTransfer(AccountId.random(), accountId).failDueToInsufficientFunds();
+
+        statusFeed.publish(debit);
+        statusFeed.publish(newMoneyTransfer(AccountId.random(), AccountId.random()).complete());
+        statusFeed.publish(credit);
+
+        Assertions.assertEquals(Arrays.asList(debit, credit), subscription.poll(10));
+        Assertions.assertEquals(Collections.emptyList(), subscription.poll(10));
+    }
+
+    @Test
+    void slow_subscriber_is_told_how_many_changes_were_dropped_with_drop_policy() {
+        configuration.setSlowSubscriberPolicy(SlowSubscriberPolicy.DROP);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(configuration, meterRegistry);
+        MoneyTransferStatusFeed.Subscription slowSubscription = statusFeed.subscribe(null);
+        MoneyTransferStatusFeed.Subscription subscription = statusFeed.subscribe(null);
+
+        for (int i = 0; i < 5; i++) {
+            statusFeed.publish(newMoneyTransfer(AccountId.random(), AccountId.random()).complete());
+            subscription.poll(1);
+        }
+
+        Assertions.assertEquals(2, slowSubscription.poll(10).size());
+        Assertions.assertEquals(3, slowSubscription.takeDropped());
+        Assertions.assertEquals(0, slowSubscription.takeDropped());
+        Assertions.assertFalse(slowSubscription.isOverflowed());
+        Assertions.assertEquals(0, subscription.takeDropped());
+        Assertions.assertEquals(3, meterRegistry.get("transfers.events.dropped").counter().count());
+        Assertions.assertEquals(2, meterRegistry.get("transfers.events.subscribers").gauge().value());
+    }
+
+    @Test
+    void slow_subscriber_is_unsubscribed_once_its_buffer_overflows_with_disconnect_policy() {
+        configuration.setSlowSubscriberPolicy(SlowSubscriberPolicy.DISCONNECT);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(configuration, meterRegistry);
+        MoneyTransferStatusFeed.Subscription subscription = statusFeed.subscribe(null);
+
+        for (int i = 0; i < 5; i++) {
+            statusFeed.publish(newMoneyTransfer(AccountId.random(), AccountId.random()).complete());
+        }
+
+        Assertions.assertTrue(subscription.isOverflowed());
+        Assertions.assertEquals(2, subscription.poll(10).size());
+        Assertions.assertEquals(0, meterRegistry.get("transfers.events.subscribers").gauge().value());
+        Assertions.assertEquals(1, meterRegistry.get("transfers.events.disconnected").counter().count());
+        Assertions.assertEquals(1, meterRegistry.get("transfers.events.dropped").counter().count());
+    }
+
+    @Test
+    void closed_subscription_receives_nothing() {
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(configuration, meterRegistry);
+        MoneyTransferStatusFeed.Subscription subscription = statusFeed.subscribe(null);
+
+        subscription.close();
+        statusFeed.publish(newMoneyTransfer(AccountId.random(), AccountId.random()).complete());
+
+        Assertions.assertEquals(Collections.emptyList(), subscription.poll(10));
+    }
+
+    private static MoneyTransfer newMoneyTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId) {
+        return MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId)
+                            .amount(Amount.builder().amount(BigDecimal.TEN).build()).build();
+    }
+}
@@ -0,0 +1,46 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import io.micronaut.context.env.PropertySource;
+import io.micronaut.context.env.PropertySourcePropertyResolver;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+
+class ShardedEngineSettingsCheckTest {
+
+    @Test
+    void default_account_settings_are_accepted() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("challenge.accounts.concurrency", "pessimistic");
+        properties.put("challenge.accounts.locks.table", "striped");
+
+        new ShardedEngineSettingsCheck(resolver(properties), new HotAccountConfiguration()).onStartup(null);
+    }
+
+    @Test
+    void account_settings_the_engine_ignores_fail_the_startup() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("challenge.accounts.concurrency", "optimistic");
+        properties.put("challenge.accounts.locks.table", "per-account");
+        properties.put("challenge.repository.accounts", "wal");
+        HotAccountConfiguration hotAccountConfiguration = new HotAccountConfiguration();
+        hotAccountConfiguration.setAccounts(Collections.singletonList(UUID.randomUUID()));
+        hotAccountConfiguration.setAutoPromote(true);
+        ShardedEngineSettingsCheck check = new ShardedEngineSettingsCheck(resolver(properties), hotAccountConfiguration);
+
+        Assertions.assertEquals(Arrays.asList("challenge.accounts.concurrency=optimistic", "challenge.accounts.locks.table=per-account", "challenge.repository.accounts=wal",
+                                              "challenge.accounts.hot.accounts", "challenge.accounts.hot.auto-promote"), check.ignoredSettings());
+        Assertions.assertThrows(IllegalStateException.class, () -> check.onStartup(null));
+    }
+
+    private static PropertySourcePropertyResolver resolver(Map<String, Object> properties) {
+        return new PropertySourcePropertyResolver(PropertySource.of(properties));
+    }
+}
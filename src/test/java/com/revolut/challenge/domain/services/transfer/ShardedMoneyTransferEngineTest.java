@@ -0,0 +1,228 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.repositories.IAccountRepository;
+import com.revolut.challenge.domain.repositories.IMoneyTransferRepository;
+import com.revolut.challenge.domain.services.account.MockAccountRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+class ShardedMoneyTransferEngineTest {
+
+    private IAccountRepository accountRepository;
+    private IMoneyTransferRepository moneyTransferRepository;
+    private MoneyTransferBacklog backlog;
+    private ShardedMoneyTransferEngine engine;
+
+    @BeforeEach
+    public void setup() {
+        accountRepository = new MockAccountRepository();
+        moneyTransferRepository = new MockMoneyTransferRepository();
+        backlog = new MoneyTransferBacklog(new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        engine = newEngine();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void transfer_debits_source_credits_beneficiary_and_completes() throws InvalidTransferRequestException, InterruptedException, TransferBacklogFullException {
+        AccountId sourceAccountId = createAccount(100);
+        AccountId beneficiaryAccountId = createAccount(50);
+
+        MoneyTransfer moneyTransfer = submitTransfer(sourceAccountId, beneficiaryAccountId, 30);
+
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, awaitFinalStatus(moneyTransfer.getRequestId()));
+        Assertions.assertEquals(amount(70), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(80), accountRepository.findById(beneficiaryAccountId).get().getCurrentBalance());
+    }
+
+    @Test
+    public void transfer_fails_due_to_insufficient_funds_without_changing_balances() throws InvalidTransferRequestException, InterruptedException, TransferBacklogFullException {
+        AccountId sourceAccountId = createAccount(10);
+        AccountId beneficiaryAccountId = createAccount(0);
+
+        MoneyTransfer moneyTransfer = submitTransfer(sourceAccountId, beneficiaryAccountId, 30);
+
+        Assertions.assertEquals(MoneyTransferStatus.INSUFFICIENT_FUNDS, awaitFinalStatus(moneyTransfer.getRequestId()));
+        Assertions.assertEquals(amount(10), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(0), accountRepository.findById(beneficiaryAccountId).get().getCurrentBalance());
+    }
+
+    @Test
+    public void transfer_to_unknown_beneficiary_fails_and_refunds_source() throws InvalidTransferRequestException, InterruptedException, TransferBacklogFullException {
+        AccountId sourceAccountId = createAccount(100);
+
+        MoneyTransfer moneyTransfer = submitTransfer(sourceAccountId, AccountId.from(UUID.randomUUID()), 30);
+
+        Assertions.assertEquals(MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY, awaitFinalStatus(moneyTransfer.getRequestId()));
+        awaitBalance(sourceAccountId, amount(100));
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void source_is_refunded_even_if_the_failure_to_credit_the_beneficiary_cannot_be_saved() throws InvalidTransferRequestException, InterruptedException, TransferBacklogFullException {
+        engine.close();
+        moneyTransferRepository = new MockMoneyTransferRepository() {
+            @Override
+            public void save(MoneyTransfer moneyTransfer) {
+                if (moneyTransfer.getStatus() == MoneyTransferStatus.FAILED_TO_CREDIT_BENEFICIARY) {
+                    throw new IllegalStateException("Failed to append to the log");
+                }
+                super.save(moneyTransfer);
+            }
+        };
+        engine = newEngine();
+        AccountId sourceAccountId = createAccount(100);
+
+        submitTransfer(sourceAccountId, AccountId.from(UUID.randomUUID()), 30);
+
+        awaitEmptyBacklog();  //released once the transfer is given up on
+        Assertions.assertEquals(amount(100), accountRepository.findById(sourceAccountId).get().getCurrentBalance());
+    }
+
+    @Test
+    public void concurrent_transfers_across_shards_conserve_money() throws InterruptedException, TransferBacklogFullException {
+        AccountId[] accountIds = new AccountId[10];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = createAccount(1000);
+        }
+        List<TransferRequestId> requestIds = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        Random random = new Random();
+        for (int i = 0; i < 5000; i++) {
+            int source = random.nextInt(accountIds.length);
+            int beneficiary = (source + 1 + random.nextInt(accountIds.length - 1)) % accountIds.length;
+            MoneyTransfer moneyTransfer = newMoneyTransfer(accountIds[source], accountIds[beneficiary], 1);
+            backlog.admit();
+            moneyTransferRepository.save(moneyTransfer);
+            requestIds.add(moneyTransfer.getRequestId());
+            executorService.submit(() -> {
+                engine.onMoneyTransferCreated(MoneyTransferCreatedEvent.builder().requestId(moneyTransfer.getRequestId()).build());
+                return null;
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        for (TransferRequestId requestId : requestIds) {
+            Assertions.assertEquals(MoneyTransferStatus.COMPLETED, awaitFinalStatus(requestId));
+        }
+        long totalBalance = 0;
+        for (AccountId accountId : accountIds) {
+            totalBalance += accountRepository.findById(accountId).get().getCurrentBalance().getMinorUnits();
+        }
+        Assertions.assertEquals(amount(10 * 1000).getMinorUnits(), totalBalance);
+        awaitEmptyBacklog();
+    }
+
+    @Test
+    public void close_handles_every_transfer_submitted_before() throws InvalidTransferRequestException, TransferBacklogFullException {
+        AccountId[] accountIds = new AccountId[10];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = createAccount(1000);
+        }
+        List<TransferRequestId> requestIds = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            requestIds.add(submitTransfer(accountIds[i % accountIds.length], accountIds[(i + 1) % accountIds.length], 1).getRequestId());
+        }
+
+        engine.close();
+
+        for (TransferRequestId requestId : requestIds) {
+            Assertions.assertEquals(MoneyTransferStatus.COMPLETED, moneyTransferRepository.findById(requestId).get().getStatus());
+        }
+        for (AccountId accountId : accountIds) {
+            Assertions.assertEquals(amount(1000), accountRepository.findById(accountId).get().getCurrentBalance());
+        }
+        Assertions.assertEquals(0, backlog.getDepth());
+    }
+
+    @Test
+    public void transfers_submitted_after_close_are_rejected() throws TransferBacklogFullException {
+        AccountId sourceAccountId = createAccount(100);
+        AccountId beneficiaryAccountId = createAccount(50);
+        engine.close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> submitTransfer(sourceAccountId, beneficiaryAccountId, 30));
+        Assertions.assertEquals(0, backlog.getDepth());
+    }
+
+    private ShardedMoneyTransferEngine newEngine() {
+        ShardedEngineConfiguration configuration = new ShardedEngineConfiguration();
+        configuration.setShards(4);
+        configuration.setQueueCapacity(16);
+        MoneyTransferStatusFeed statusFeed = new MoneyTransferStatusFeed(new TransferEventsConfiguration(), new SimpleMeterRegistry());
+        MoneyTransferSettlements settlements = new MoneyTransferSettlements(moneyTransferRepository, statusFeed, new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        return new ShardedMoneyTransferEngine(accountRepository, moneyTransferRepository, backlog, new TransferTimelines(new TransferTracingConfiguration()), settlements, configuration);
+    }
+
+    private AccountId createAccount(int balance) {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        accountRepository.save(Account.builder().accountId(accountId).currentBalance(amount(balance)).build());
+        return accountId;
+    }
+
+    private MoneyTransfer submitTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, int amount) throws InvalidTransferRequestException, TransferBacklogFullException {
+        backlog.admit();
+        MoneyTransfer moneyTransfer = newMoneyTransfer(sourceAccountId, beneficiaryAccountId, amount);
+        moneyTransferRepository.save(moneyTransfer);
+        engine.onMoneyTransferCreated(MoneyTransferCreatedEvent.builder().requestId(moneyTransfer.getRequestId()).build());
+        return moneyTransfer;
+    }
+
+    private MoneyTransferStatus awaitFinalStatus(TransferRequestId requestId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        MoneyTransferStatus status = moneyTransferRepository.findById(requestId).get().getStatus();
+        while (status == MoneyTransferStatus.CREATED && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+            status = moneyTransferRepository.findById(requestId).get().getStatus();
+        }
+        return status;
+    }
+
+    private void awaitBalance(AccountId accountId, Amount expectedBalance) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!expectedBalance.equals(accountRepository.findById(accountId).get().getCurrentBalance()) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(expectedBalance, accountRepository.findById(accountId).get().getCurrentBalance());
+    }
+
+    private void awaitEmptyBacklog() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (backlog.getDepth() != 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        Assertions.assertEquals(0, backlog.getDepth());
+    }
+
+    private static MoneyTransfer newMoneyTransfer(AccountId sourceAccountId, AccountId beneficiaryAccountId, int amount) {
+        return MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(sourceAccountId).beneficiaryAccountId(beneficiaryAccountId)
+                            .amount(amount(amount)).build();
+    }
+
+    private static Amount amount(int value) {
+        return Amount.builder().amount(BigDecimal.valueOf(value)).build();
+    }
+}
@@ -0,0 +1,54 @@
+package com.revolut.challenge.domain.services.transfer;
+
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.model.transfer.TransferStage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+
+class TransferTimelinesTest {
+
+    @Test
+    public void timeline_started_for_a_transfer_is_found_under_its_id() {
+        TransferTimelines timelines = newTimelines(1, 10);
+        TransferRequestId requestId = TransferRequestId.from(UUID.randomUUID());
+
+        timelines.start(requestId);
+        timelines.of(requestId).record(TransferStage.DEQUEUED);
+
+        Assertions.assertTrue(timelines.of(requestId).hasReached(TransferStage.DEQUEUED));
+        Assertions.assertFalse(timelines.of(TransferRequestId.from(UUID.randomUUID())).isTracked());
+    }
+
+    @Test
+    public void transfers_not_sampled_have_no_timeline() {
+        TransferTimelines timelines = newTimelines(Integer.MAX_VALUE, 10);
+        TransferRequestId requestId = TransferRequestId.from(UUID.randomUUID());
+
+        timelines.start(requestId);
+
+        Assertions.assertFalse(timelines.of(requestId).isTracked());
+    }
+
+    @Test
+    public void only_the_retained_number_of_timelines_is_kept() {
+        TransferTimelines timelines = newTimelines(1, 1);
+        TransferRequestId first = TransferRequestId.from(UUID.randomUUID());
+        TransferRequestId second = TransferRequestId.from(UUID.randomUUID());
+
+        timelines.start(first);
+        timelines.start(second);
+
+        Assertions.assertFalse(timelines.of(first).isTracked());
+        Assertions.assertTrue(timelines.of(second).isTracked());
+    }
+
+    private static TransferTimelines newTimelines(int sampleRate, int retained) {
+        TransferTracingConfiguration configuration = new TransferTracingConfiguration();
+        configuration.setSampleRate(sampleRate);
+        configuration.setRetained(retained);
+        return new TransferTimelines(configuration);
+    }
+}
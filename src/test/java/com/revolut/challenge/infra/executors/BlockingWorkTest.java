@@ -0,0 +1,78 @@
+package com.revolut.challenge.infra.executors;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+
+class BlockingWorkTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private BlockingWork blockingWork;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        blockingWork = new BlockingWork("test", 1, 1, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        blockingWork.close();
+    }
+
+    @Test
+    void submit_completes_with_the_result_of_the_work_run_on_the_pool() throws Exception {
+        CompletableFuture<String> result = blockingWork.submit(() -> Thread.currentThread().getName());
+        Assertions.assertEquals("blocking-test-0", result.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void submit_fails_with_the_checked_exception_thrown_by_the_work() {
+        CompletableFuture<Object> result = blockingWork.submit(() -> {
+            throw new IOException("disk full");
+        });
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(exception.getCause() instanceof IOException);
+    }
+
+    @Test
+    void submit_fails_with_the_error_thrown_by_the_work() {
+        CompletableFuture<Object> result = blockingWork.submit(() -> {
+            throw new StackOverflowError();
+        });
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(exception.getCause() instanceof StackOverflowError);
+    }
+
+    @Test
+    void submit_fails_at_once_with_RejectedExecutionException_when_the_queue_is_full() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Boolean> running = blockingWork.submit(() -> {
+            started.countDown();
+            return release.await(10, TimeUnit.SECONDS);
+        });
+        started.await(10, TimeUnit.SECONDS);
+        CompletableFuture<Boolean> queued = blockingWork.submit(() -> true);
+
+        CompletableFuture<Boolean> rejected = blockingWork.submit(() -> true);
+
+        Assertions.assertTrue(rejected.isCompletedExceptionally());
+        ExecutionException exception = Assertions.assertThrows(ExecutionException.class, rejected::get);
+        Assertions.assertTrue(exception.getCause() instanceof RejectedExecutionException);
+        Assertions.assertEquals(1, meterRegistry.get("blocking.rejected").tag("pool", "test").counter().count());
+        release.countDown();
+        Assertions.assertTrue(running.get(10, TimeUnit.SECONDS));
+        Assertions.assertTrue(queued.get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,34 @@
+package com.revolut.challenge.infra.metrics;
+
+import io.micronaut.http.HttpRequest;
+import io.micronaut.http.client.RxHttpClient;
+import io.micronaut.http.client.annotation.Client;
+import io.micronaut.http.client.exceptions.HttpClientResponseException;
+import io.micronaut.test.annotation.MicronautTest;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.UUID;
+
+
+@MicronautTest
+class PrometheusEndpointTest {
+
+    @Inject
+    @Client("/")
+    private RxHttpClient client;
+
+    @Test
+    void scrape_returns_request_and_repository_metrics_in_the_prometheus_format() {
+        Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().retrieve(HttpRequest.GET("/accounts/" + UUID.randomUUID())));
+        Assertions.assertThrows(HttpClientResponseException.class, () -> client.toBlocking().retrieve(HttpRequest.GET("/accounts/" + UUID.randomUUID())));
+
+        String scrape = client.toBlocking().retrieve(HttpRequest.GET("/prometheus"));
+
+        Assertions.assertTrue(scrape.contains("http_server_requests_seconds_count{method=\"GET\",status=\"404\",uri=\"/accounts/{accountId}\",} 2.0"), scrape);
+        Assertions.assertTrue(scrape.contains("# TYPE http_server_requests_seconds histogram"), scrape);
+        Assertions.assertTrue(scrape.contains("repository_operations_total{operation=\"findById\",repository=\"accounts\",}"), scrape);
+        Assertions.assertTrue(scrape.contains("# TYPE repository_operation_time_seconds histogram"), scrape);
+    }
+}
@@ -9,7 +9,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.ConcurrentModificationException;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,24 +37,21 @@ class InMemoryAccountRepositoryTest {
     }
 
     @Test
-    void test_find_returns_a_copy_of_the_account() {
+    void test_find_returns_the_stored_snapshot_without_copying() {
         AccountId accountId = AccountId.from(UUID.randomUUID());
-        Account account = Account.builder().accountId(accountId).build();
-        repository.save(account);
-        Optional<Account> savedAccount = repository.findById(accountId);
-        savedAccount.get().credit(Amount.builder().amount(BigDecimal.TEN).build());
-        Assertions.assertNotEquals(savedAccount.get().getCurrentBalance(), account.getCurrentBalance());
+        repository.save(Account.builder().accountId(accountId).build());
+        Assertions.assertSame(repository.findById(accountId).get(), repository.findById(accountId).get());
     }
 
     @Test
-    void test_save_saves_a_copy_of_the_account() {
+    void test_changes_are_not_visible_until_saved() {
         AccountId accountId = AccountId.from(UUID.randomUUID());
         Account account = Account.builder().accountId(accountId).build();
         repository.save(account);
-        account.credit(Amount.builder().amount(BigDecimal.TEN).build());
+        Account creditedAccount = repository.findById(accountId).get().credit(Amount.builder().amount(BigDecimal.TEN).build());
 
         Optional<Account> savedAccount = repository.findById(accountId);
-        Assertions.assertNotEquals(savedAccount.get().getCurrentBalance(), account.getCurrentBalance());
+        Assertions.assertNotEquals(savedAccount.get().getCurrentBalance(), creditedAccount.getCurrentBalance());
     }
 
     @Test
@@ -81,13 +81,102 @@ class InMemoryAccountRepositoryTest {
         Account account = Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build();
         repository.save(account);
         Optional<Account> firstLoadedAccount = repository.findById(accountId);
-        firstLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
+        Account firstDebitedAccount = firstLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
 
         Optional<Account> secondLoadedAccount = repository.findById(accountId);
-        secondLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
+        Account secondDebitedAccount = secondLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
+
+        repository.save(firstDebitedAccount);
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(secondDebitedAccount));
+    }
+
+    @Test
+    void saveAll_saves_every_account_with_its_next_version() throws InsufficientFundsException {
+        Account source = saveAccount(BigDecimal.TEN);
+        Account beneficiary = saveAccount(BigDecimal.ZERO);
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
 
-        repository.save(firstLoadedAccount.get());
+        repository.saveAll(Arrays.asList(source.debit(amount), beneficiary.credit(amount)));
+
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(9)).build(), repository.findById(source.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(amount, repository.findById(beneficiary.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(2, repository.findById(beneficiary.getAccountId()).get().getVersion());
+    }
+
+    @Test
+    void saveAll_with_one_stale_account_throws_ConcurrencyException_and_saves_nothing() throws InsufficientFundsException {
+        Account source = saveAccount(BigDecimal.TEN);
+        Account beneficiary = saveAccount(BigDecimal.ZERO);
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
+        repository.save(beneficiary.credit(amount));
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.saveAll(Arrays.asList(source.debit(amount), beneficiary.credit(amount))));
+        Assertions.assertEquals(source, repository.findById(source.getAccountId()).get());
+    }
+
+    @Test
+    void saveAll_with_unknown_account_throws_IllegalArgumentException() {
+        Account source = saveAccount(BigDecimal.TEN);
+        Account unknown = Account.builder().accountId(AccountId.from(UUID.randomUUID())).build();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.saveAll(Arrays.asList(source, unknown)));
+    }
 
-        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(secondLoadedAccount.get()));
+    @Test
+    void insertAll_inserts_every_account_at_version_1() {
+        Account first = Account.builder().accountId(AccountId.random()).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        Account second = Account.builder().accountId(AccountId.random()).build();
+
+        repository.insertAll(Arrays.asList(first, second));
+
+        Assertions.assertEquals(first.getCurrentBalance(), repository.findById(first.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(1, repository.findById(first.getAccountId()).get().getVersion());
+        Assertions.assertEquals(1, repository.findById(second.getAccountId()).get().getVersion());
+    }
+
+    @Test
+    void insertAll_with_existing_account_throws_IllegalArgumentException_and_keeps_it() {
+        Account existing = saveAccount(BigDecimal.TEN);
+        Account replacement = Account.builder().accountId(existing.getAccountId()).build();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.insertAll(Arrays.asList(Account.builder().accountId(AccountId.random()).build(), replacement)));
+        Assertions.assertEquals(existing, repository.findById(existing.getAccountId()).get());
+    }
+
+    @Test
+    void exists_is_true_for_saved_and_inserted_accounts_only() {
+        Account saved = saveAccount(BigDecimal.TEN);
+        Account inserted = Account.builder().accountId(AccountId.random()).build();
+        repository.insertAll(Arrays.asList(inserted));
+
+        Assertions.assertTrue(repository.exists(saved.getAccountId()));
+        Assertions.assertTrue(repository.exists(inserted.getAccountId()));
+        Assertions.assertFalse(repository.exists(AccountId.random()));
+    }
+
+    @Test
+    void exists_with_bloom_filter_finds_every_account_and_turns_unknown_ones_down() {
+        AccountBloomFilterConfiguration bloomFilterConfiguration = new AccountBloomFilterConfiguration();
+        bloomFilterConfiguration.setEnabled(true);
+        bloomFilterConfiguration.setExpectedAccounts(100);
+        repository = new InMemoryAccountRepository(bloomFilterConfiguration);
+        List<Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {  //beyond the expected accounts, only the false positive rate suffers
+            accounts.add(Account.builder().accountId(AccountId.random()).build());
+        }
+        repository.insertAll(accounts.subList(0, 500));
+        accounts.subList(500, 1000).forEach(repository::save);
+
+        for (Account account : accounts) {
+            Assertions.assertTrue(repository.exists(account.getAccountId()));
+        }
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertFalse(repository.exists(AccountId.random()));
+        }
+    }
+
+    private Account saveAccount(BigDecimal balance) {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(balance).build()).build());
+        return repository.findById(accountId).get();
     }
-}
\ No newline at end of file
+}
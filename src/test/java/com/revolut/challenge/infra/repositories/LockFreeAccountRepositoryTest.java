@@ -0,0 +1,200 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+
+class LockFreeAccountRepositoryTest {
+
+    private LockFreeAccountRepository repository;
+
+    @BeforeEach
+    void setup() {
+        repository = new LockFreeAccountRepository();
+    }
+
+    @Test
+    void test_find_and_save() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        Account account = Account.builder().accountId(accountId).build();
+        repository.save(account);
+        Optional<Account> savedAccount = repository.findById(accountId);
+        Assertions.assertEquals(account, savedAccount.get());
+    }
+
+    @Test
+    void find_returns_empty_if_account_does_not_exist() {
+        Assertions.assertFalse(repository.findById(AccountId.from(UUID.randomUUID())).isPresent());
+    }
+
+    @Test
+    void test_find_returns_the_stored_snapshot_without_copying() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).build());
+        Assertions.assertSame(repository.findById(accountId).get(), repository.findById(accountId).get());
+    }
+
+    @Test
+    void save_instance_increases_its_version() throws InsufficientFundsException {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        Account account = Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        repository.save(account);
+        Account loadedAccount = repository.findById(accountId).get();
+        repository.save(loadedAccount.debit(Amount.builder().amount(BigDecimal.ONE).build()));
+        Assertions.assertEquals(2, repository.findById(accountId).get().getVersion());
+    }
+
+    @Test
+    void save_instance_does_not_increase_if_no_changes_were_made_on_instance() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).build());
+        repository.save(repository.findById(accountId).get());
+        Assertions.assertEquals(1, repository.findById(accountId).get().getVersion());
+    }
+
+    @Test
+    void save_instance_with_non_matching_version_throws_ConcurrencyException() throws InsufficientFundsException {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        Account account = Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        repository.save(account);
+        Optional<Account> firstLoadedAccount = repository.findById(accountId);
+        Account firstDebitedAccount = firstLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
+
+        Optional<Account> secondLoadedAccount = repository.findById(accountId);
+        Account secondDebitedAccount = secondLoadedAccount.get().debit(Amount.builder().amount(BigDecimal.ONE).build());
+
+        repository.save(firstDebitedAccount);
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(secondDebitedAccount));
+    }
+
+    @Test
+    void concurrent_credits_with_retries_are_not_lost() throws InterruptedException {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).build());
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executorService.submit(() -> creditWithRetry(accountId));
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        Amount expectedAmount = Amount.builder().amount(BigDecimal.valueOf(1000)).build();
+        Assertions.assertEquals(expectedAmount, repository.findById(accountId).get().getCurrentBalance());
+        Assertions.assertEquals(1001, repository.findById(accountId).get().getVersion());
+    }
+
+    @Test
+    void saveAll_with_one_stale_account_throws_ConcurrencyException_and_saves_nothing() throws InsufficientFundsException {
+        Account source = saveAccount(1000);
+        Account beneficiary = saveAccount(0);
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
+        repository.save(beneficiary.credit(amount));
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.saveAll(Arrays.asList(source.debit(amount), beneficiary.credit(amount))));
+        Assertions.assertEquals(source, repository.findById(source.getAccountId()).get());
+    }
+
+    @Test
+    void concurrent_transfers_with_retries_conserve_the_total_balance() throws InterruptedException {
+        Account[] accounts = {saveAccount(1000), saveAccount(1000), saveAccount(1000), saveAccount(1000)};
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 1000; i++) {
+            executorService.submit(() -> transferWithRetry(accounts));
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        long totalMinorUnits = Arrays.stream(accounts).mapToLong(account -> repository.findById(account.getAccountId()).get().getCurrentBalance().getMinorUnits()).sum();
+        long totalVersions = Arrays.stream(accounts).mapToLong(account -> repository.findById(account.getAccountId()).get().getVersion()).sum();
+        Assertions.assertEquals(4000 * 100, totalMinorUnits);
+        Assertions.assertEquals(4 + 2 * 1000, totalVersions);
+    }
+
+    private void transferWithRetry(Account[] accounts) {
+        SplittableRandom random = new SplittableRandom();
+        int source = random.nextInt(accounts.length);
+        int beneficiary = (source + 1 + random.nextInt(accounts.length - 1)) % accounts.length;
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
+        while (true) {
+            try {
+                Account debitedAccount = repository.findById(accounts[source].getAccountId()).get().debit(amount);
+                Account creditedAccount = repository.findById(accounts[beneficiary].getAccountId()).get().credit(amount);
+                repository.saveAll(Arrays.asList(debitedAccount, creditedAccount));
+                return;
+            } catch (ConcurrentModificationException e) {
+                //another thread won the race on one of the accounts; reload both and try again
+            } catch (InsufficientFundsException e) {
+                return;
+            }
+        }
+    }
+
+    @Test
+    void insertAll_inserts_every_account_at_version_1() throws InsufficientFundsException {
+        Account first = Account.builder().accountId(AccountId.random()).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build();
+        Account second = Account.builder().accountId(AccountId.random()).build();
+
+        repository.insertAll(Arrays.asList(first, second));
+
+        Assertions.assertEquals(1, repository.findById(second.getAccountId()).get().getVersion());
+        repository.save(repository.findById(first.getAccountId()).get().debit(Amount.builder().amount(BigDecimal.ONE).build()));
+        Assertions.assertEquals(Amount.builder().amount(BigDecimal.valueOf(9)).build(), repository.findById(first.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(2, repository.findById(first.getAccountId()).get().getVersion());
+    }
+
+    @Test
+    void insertAll_with_existing_account_throws_IllegalArgumentException_and_keeps_it() {
+        Account existing = saveAccount(10);
+        Account replacement = Account.builder().accountId(existing.getAccountId()).build();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.insertAll(Arrays.asList(replacement)));
+        Assertions.assertEquals(existing, repository.findById(existing.getAccountId()).get());
+    }
+
+    @Test
+    void exists_with_bloom_filter_is_true_for_saved_and_inserted_accounts_only() {
+        AccountBloomFilterConfiguration bloomFilterConfiguration = new AccountBloomFilterConfiguration();
+        bloomFilterConfiguration.setEnabled(true);
+        repository = new LockFreeAccountRepository(bloomFilterConfiguration);
+        Account saved = saveAccount(10);
+        Account inserted = Account.builder().accountId(AccountId.random()).build();
+        repository.insertAll(Arrays.asList(inserted));
+
+        Assertions.assertTrue(repository.exists(saved.getAccountId()));
+        Assertions.assertTrue(repository.exists(inserted.getAccountId()));
+        Assertions.assertFalse(repository.exists(AccountId.random()));
+    }
+
+    private Account saveAccount(int balance) {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.valueOf(balance)).build()).build());
+        return repository.findById(accountId).get();
+    }
+
+    private void creditWithRetry(AccountId accountId) {
+        while (true) {
+            Account account = repository.findById(accountId).get().credit(Amount.builder().amount(BigDecimal.ONE).build());
+            try {
+                repository.save(account);
+                return;
+            } catch (ConcurrentModificationException e) {
+                //another thread won the race; reload and try again
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+
+class MeteredAccountRepositoryTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private MeteredAccountRepository repository;
+
+    @BeforeEach
+    void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        repository = new MeteredAccountRepository(new InMemoryAccountRepository(), meterRegistry);
+    }
+
+    @Test
+    void every_call_is_counted_and_at_most_as_many_are_timed() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).build());
+        for (int i = 0; i < 1000; i++) {
+            repository.findById(accountId);
+        }
+
+        Assertions.assertEquals(1000, meterRegistry.get("repository.operations").tags("repository", "accounts", "operation", "findById").functionCounter().count());
+        Assertions.assertEquals(1, meterRegistry.get("repository.operations").tags("repository", "accounts", "operation", "save").functionCounter().count());
+        long timed = meterRegistry.get("repository.operation.time").tags("repository", "accounts", "operation", "findById").timer().count();
+        Assertions.assertTrue(timed > 0 && timed < 1000, "timed " + timed);
+    }
+
+    @Test
+    void concurrent_modifications_are_counted_and_rethrown() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build());
+        Account loadedAccount = repository.findById(accountId).get();
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
+        repository.save(loadedAccount.credit(amount));
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(loadedAccount.credit(amount)));
+
+        Assertions.assertEquals(1, meterRegistry.get("repository.concurrent.modifications").tags("repository", "accounts", "operation", "save").counter().count());
+    }
+
+    @Test
+    void operations_are_recorded_as_flight_recorder_events_naming_the_account_and_the_conflicts() throws Exception {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        Amount amount = Amount.builder().amount(BigDecimal.ONE).build();
+        Path dump = Files.createTempFile("repository-operation", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.revolut.challenge.RepositoryOperation").withThreshold(Duration.ZERO);
+            recording.start();
+            repository.save(Account.builder().accountId(accountId).currentBalance(Amount.builder().amount(BigDecimal.TEN).build()).build());
+            Account loadedAccount = repository.findById(accountId).get();
+            repository.save(loadedAccount.credit(amount));
+            Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(loadedAccount.credit(amount)));
+            recording.stop();
+            recording.dump(dump);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump).stream().filter(event -> accountId.getId().toString().equals(event.getString("id")))
+                                                     .collect(Collectors.toList());
+            Assertions.assertEquals(4, events.size());
+            Assertions.assertEquals(3, events.stream().filter(event -> event.getString("operation").equals("save")).count());
+            Assertions.assertEquals(1, events.stream().filter(event -> event.getBoolean("conflict")).count());
+            Assertions.assertTrue(events.stream().allMatch(event -> event.getString("repository").equals("accounts")));
+        } finally {
+            Files.delete(dump);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.revolut.challenge.infra.repositories;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.infra.wal.FsyncPolicy;
+import com.revolut.challenge.infra.wal.WalConfiguration;
+import com.revolut.challenge.infra.wal.WalStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.UUID;
+
+
+class WalAccountRepositoryTest {
+
+    @TempDir
+    Path directory;
+
+    private WalStore walStore;
+    private WalAccountRepository repository;
+
+    @BeforeEach
+    void setup() {
+        restart();
+    }
+
+    @AfterEach
+    void tearDown() {
+        walStore.close();
+    }
+
+    @Test
+    void saved_accounts_are_recovered_after_restart() throws InsufficientFundsException {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).currentBalance(amount(10)).build());
+        repository.save(repository.findById(accountId).get().debit(amount(4)));
+
+        restart();
+
+        Account recoveredAccount = repository.findById(accountId).get();
+        Assertions.assertEquals(amount(6), recoveredAccount.getCurrentBalance());
+        Assertions.assertEquals(2, recoveredAccount.getVersion());
+    }
+
+    @Test
+    void save_instance_with_non_matching_version_throws_ConcurrencyException() throws InsufficientFundsException {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).currentBalance(amount(10)).build());
+        Account firstDebitedAccount = repository.findById(accountId).get().debit(amount(1));
+        Account secondDebitedAccount = repository.findById(accountId).get().debit(amount(1));
+
+        repository.save(firstDebitedAccount);
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.save(secondDebitedAccount));
+    }
+
+    @Test
+    void save_instance_does_not_increase_if_no_changes_were_made_on_instance() {
+        AccountId accountId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(accountId).build());
+        repository.save(repository.findById(accountId).get());
+        restart();
+        Assertions.assertEquals(1, repository.findById(accountId).get().getVersion());
+    }
+
+    @Test
+    void accounts_saved_together_are_recovered_after_restart() throws InsufficientFundsException {
+        AccountId sourceId = AccountId.from(UUID.randomUUID());
+        AccountId beneficiaryId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(sourceId).currentBalance(amount(10)).build());
+        repository.save(Account.builder().accountId(beneficiaryId).build());
+        repository.saveAll(Arrays.asList(repository.findById(sourceId).get().debit(amount(4)), repository.findById(beneficiaryId).get().credit(amount(4))));
+
+        restart();
+
+        Assertions.assertEquals(amount(6), repository.findById(sourceId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(4), repository.findById(beneficiaryId).get().getCurrentBalance());
+        Assertions.assertEquals(2, repository.findById(beneficiaryId).get().getVersion());
+    }
+
+    @Test
+    void saveAll_with_one_stale_account_throws_ConcurrencyException_and_saves_nothing() throws InsufficientFundsException {
+        AccountId sourceId = AccountId.from(UUID.randomUUID());
+        AccountId beneficiaryId = AccountId.from(UUID.randomUUID());
+        repository.save(Account.builder().accountId(sourceId).currentBalance(amount(10)).build());
+        repository.save(Account.builder().accountId(beneficiaryId).build());
+        Account staleBeneficiary = repository.findById(beneficiaryId).get();
+        repository.save(staleBeneficiary.credit(amount(1)));
+
+        Assertions.assertThrows(ConcurrentModificationException.class, () -> repository.saveAll(Arrays.asList(repository.findById(sourceId).get().debit(amount(4)), staleBeneficiary.credit(amount(4)))));
+        restart();
+        Assertions.assertEquals(amount(10), repository.findById(sourceId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(1), repository.findById(beneficiaryId).get().getCurrentBalance());
+    }
+
+    @Test
+    void inserted_accounts_are_recovered_after_restart() {
+        Account first = Account.builder().accountId(AccountId.random()).currentBalance(amount(10)).build();
+        Account second = Account.builder().accountId(AccountId.random()).currentBalance(amount(3)).build();
+        repository.insertAll(Arrays.asList(first, second));
+
+        restart();
+
+        Assertions.assertEquals(amount(10), repository.findById(first.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(amount(3), repository.findById(second.getAccountId()).get().getCurrentBalance());
+        Assertions.assertEquals(1, repository.findById(second.getAccountId()).get().getVersion());
+    }
+
+    @Test
+    void recovered_accounts_exist_with_bloom_filter_after_restart() {
+        AccountId savedId = AccountId.random();
+        repository.save(Account.builder().accountId(savedId).currentBalance(amount(10)).build());
+        Account inserted = Account.builder().accountId(AccountId.random()).currentBalance(amount(3)).build();
+        repository.insertAll(Arrays.asList(inserted));
+
+        restart();
+        AccountBloomFilterConfiguration bloomFilterConfiguration = new AccountBloomFilterConfiguration();
+        bloomFilterConfiguration.setEnabled(true);
+        repository = new WalAccountRepository(walStore, bloomFilterConfiguration);
+
+        Assertions.assertTrue(repository.exists(savedId));
+        Assertions.assertTrue(repository.exists(inserted.getAccountId()));
+        Assertions.assertFalse(repository.exists(AccountId.random()));
+    }
+
+    @Test
+    void insertAll_with_an_existing_account_throws_and_inserts_nothing() {
+        AccountId existingId = AccountId.random();
+        repository.save(Account.builder().accountId(existingId).currentBalance(amount(10)).build());
+        Account inserted = Account.builder().accountId(AccountId.random()).currentBalance(amount(3)).build();
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> repository.insertAll(Arrays.asList(inserted, Account.builder().accountId(existingId).build())));
+        Assertions.assertFalse(repository.findById(inserted.getAccountId()).isPresent());
+        restart();
+
+        Assertions.assertFalse(repository.findById(inserted.getAccountId()).isPresent());
+        Assertions.assertEquals(amount(10), repository.findById(existingId).get().getCurrentBalance());
+    }
+
+    @Test
+    void saves_the_log_fails_to_append_leave_the_accounts_unchanged() throws InsufficientFundsException {
+        Account account = Account.builder().accountId(AccountId.random()).currentBalance(amount(10)).build();
+        repository.save(account);
+        Account savedAccount = repository.findById(account.getAccountId()).get();
+        walStore.getWriteAheadLog().close();
+
+        Assertions.assertThrows(IllegalStateException.class, () -> repository.save(savedAccount.debit(amount(1))));
+        Assertions.assertThrows(IllegalStateException.class, () -> repository.saveAll(Arrays.asList(savedAccount.debit(amount(1)))));
+        Account newAccount = Account.builder().accountId(AccountId.random()).currentBalance(amount(5)).build();
+        Assertions.assertThrows(IllegalStateException.class, () -> repository.insertAll(Arrays.asList(newAccount)));
+
+        Assertions.assertEquals(savedAccount, repository.findById(account.getAccountId()).get());
+        Assertions.assertFalse(repository.findById(newAccount.getAccountId()).isPresent());
+    }
+
+    @Test
+    void money_transfers_are_recovered_with_their_final_status() {
+        WalMoneyTransferRepository moneyTransferRepository = new WalMoneyTransferRepository(walStore);
+        TransferRequestId requestId = TransferRequestId.from(UUID.randomUUID());
+        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(requestId).sourceAccountId(AccountId.from(UUID.randomUUID())).beneficiaryAccountId(AccountId.from(UUID.randomUUID()))
+                                                   .amount(amount(5)).build();
+        moneyTransferRepository.save(moneyTransfer);
+        moneyTransferRepository.save(moneyTransfer.complete());
+
+        restart();
+
+        MoneyTransfer recoveredMoneyTransfer = new WalMoneyTransferRepository(walStore).findById(requestId).get();
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, recoveredMoneyTransfer.getStatus());
+        Assertions.assertEquals(moneyTransfer.complete(), recoveredMoneyTransfer);
+    }
+
+    private void restart() {
+        if (walStore != null) {
+            walStore.close();
+        }
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setSegmentSize(1024 * 1024);
+        configuration.setFsyncPolicy(FsyncPolicy.GROUP_COMMIT);
+        walStore = new WalStore(configuration);
+        repository = new WalAccountRepository(walStore);
+    }
+
+    private static Amount amount(int value) {
+        return Amount.builder().amount(BigDecimal.valueOf(value)).build();
+    }
+}
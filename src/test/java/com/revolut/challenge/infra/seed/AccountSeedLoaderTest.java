@@ -0,0 +1,90 @@
+package com.revolut.challenge.infra.seed;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.infra.repositories.InMemoryAccountRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+
+class AccountSeedLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    private InMemoryAccountRepository repository;
+    private AccountSeedConfiguration configuration;
+
+    @BeforeEach
+    void setup() {
+        repository = new InMemoryAccountRepository();
+        configuration = new AccountSeedConfiguration();
+        configuration.setThreads(4);
+        configuration.setChunkSize(3);
+    }
+
+    @Test
+    void csv_file_accounts_are_inserted_with_their_ids_and_balances() throws IOException {
+        UUID accountId = UUID.randomUUID();
+        List<String> lines = new ArrayList<>(Arrays.asList("# balances", accountId + ",100.50", ""));
+        for (int i = 0; i < 10; i++) {
+            lines.add(i + ".25");
+        }
+        Path file = Files.write(directory.resolve("accounts.csv"), lines);
+        configuration.setFile(file.toString());
+
+        long accounts = new AccountSeedLoader(repository, configuration).load();
+
+        Assertions.assertEquals(11, accounts);
+        Account account = repository.findById(AccountId.from(accountId)).get();
+        Assertions.assertEquals(Amount.builder().amount(new BigDecimal("100.50")).build(), account.getCurrentBalance());
+        Assertions.assertEquals(1, account.getVersion());
+    }
+
+    @Test
+    void binary_file_accounts_are_inserted_with_their_ids_and_balances() throws IOException {
+        UUID accountId = UUID.randomUUID();
+        ByteBuffer records = ByteBuffer.allocate(10 * 24);
+        records.putLong(accountId.getMostSignificantBits()).putLong(accountId.getLeastSignificantBits()).putLong(10050);
+        while (records.hasRemaining()) {
+            records.putLong(0).putLong(0).putLong(100);
+        }
+        Path file = Files.write(directory.resolve("accounts.bin"), records.array());
+        configuration.setFile(file.toString());
+
+        long accounts = new AccountSeedLoader(repository, configuration).load();
+
+        Assertions.assertEquals(10, accounts);
+        Assertions.assertEquals(Amount.ofMinorUnits(10050), repository.findById(AccountId.from(accountId)).get().getCurrentBalance());
+    }
+
+    @Test
+    void invalid_csv_line_fails_the_load_with_its_line_number() throws IOException {
+        Path file = Files.write(directory.resolve("accounts.csv"), Arrays.asList("1", "2", "3", "4", "12.505"));
+        configuration.setFile(file.toString());
+
+        IllegalStateException exception = Assertions.assertThrows(IllegalStateException.class, () -> new AccountSeedLoader(repository, configuration).load());
+        Assertions.assertTrue(exception.getCause().getMessage().contains("line 5"), exception.getCause().getMessage());
+    }
+
+    @Test
+    void binary_file_with_a_partial_record_fails_the_load() throws IOException {
+        Path file = Files.write(directory.resolve("accounts.bin"), new byte[24 + 8]);
+        configuration.setFile(file.toString());
+
+        Assertions.assertThrows(RuntimeException.class, () -> new AccountSeedLoader(repository, configuration).load());
+    }
+}
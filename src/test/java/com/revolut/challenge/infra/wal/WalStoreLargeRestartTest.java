@@ -0,0 +1,62 @@
+package com.revolut.challenge.infra.wal;
+
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.infra.repositories.WalAccountRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.UUID;
+
+
+/**
+ * Restarts a store holding {@code challenge.test.accounts} accounts (10 million by default) from a snapshot plus a log tail.
+ * Excluded from {@code gradlew test}; run it with {@code gradlew largeTest}.
+ */
+@Tag("large")
+class WalStoreLargeRestartTest {
+
+    private static final int NUMBER_OF_ACCOUNTS = Integer.getInteger("challenge.test.accounts", 10_000_000);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void restart_with_millions_of_accounts_recovers_every_account() {
+        WalStore walStore = open();
+        WalAccountRepository accountRepository = new WalAccountRepository(walStore);
+        AccountId firstAccountId = AccountId.from(new UUID(0, 0));
+        AccountId lastAccountId = AccountId.from(new UUID(0, NUMBER_OF_ACCOUNTS - 1));
+        for (int i = 0; i < NUMBER_OF_ACCOUNTS; i++) {
+            accountRepository.save(Account.builder().accountId(AccountId.from(new UUID(0, i))).currentBalance(amount(i)).build());
+        }
+        walStore.takeSnapshot();
+        accountRepository.save(accountRepository.findById(lastAccountId).get().credit(amount(1)));
+        walStore.close();
+        walStore = null;
+        accountRepository = null;
+
+        WalStore restartedWalStore = open();
+        WalAccountRepository restartedAccountRepository = new WalAccountRepository(restartedWalStore);
+        Assertions.assertEquals(NUMBER_OF_ACCOUNTS, restartedWalStore.getAccounts().size());
+        Assertions.assertEquals(amount(0), restartedAccountRepository.findById(firstAccountId).get().getCurrentBalance());
+        Assertions.assertEquals(amount(NUMBER_OF_ACCOUNTS), restartedAccountRepository.findById(lastAccountId).get().getCurrentBalance());
+        restartedWalStore.close();
+    }
+
+    private WalStore open() {
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setFsyncPolicy(FsyncPolicy.NONE);
+        return new WalStore(configuration);
+    }
+
+    private static Amount amount(int value) {
+        return Amount.builder().amount(BigDecimal.valueOf(value)).build();
+    }
+}
@@ -0,0 +1,272 @@
+package com.revolut.challenge.infra.wal;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.revolut.challenge.domain.model.account.Account;
+import com.revolut.challenge.domain.model.account.AccountId;
+import com.revolut.challenge.domain.model.account.Amount;
+import com.revolut.challenge.domain.model.account.InsufficientFundsException;
+import com.revolut.challenge.domain.model.transfer.MoneyTransfer;
+import com.revolut.challenge.domain.model.transfer.MoneyTransferStatus;
+import com.revolut.challenge.domain.model.transfer.TransferRequestId;
+import com.revolut.challenge.domain.services.account.AccountService;
+import com.revolut.challenge.domain.services.account.AccountUpdateRetryConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountConfiguration;
+import com.revolut.challenge.domain.services.account.HotAccountCredits;
+import com.revolut.challenge.domain.services.account.InvalidAccountException;
+import com.revolut.challenge.domain.services.account.NoOpAccountLockingService;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferBacklog;
+import com.revolut.challenge.domain.services.transfer.MoneyTransferCreatedEvent;
+import com.revolut.challenge.domain.services.transfer.TransferProcessingConfiguration;
+import com.revolut.challenge.infra.repositories.WalAccountRepository;
+import com.revolut.challenge.infra.repositories.WalMoneyTransferRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micronaut.context.event.ApplicationEventPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+
+class WalStoreTest {
+
+    private static final int SEGMENT_SIZE = 4 * 1024;
+
+    @TempDir
+    Path directory;
+
+    private WalStore walStore;
+    private WalAccountRepository accountRepository;
+    private WalMoneyTransferRepository moneyTransferRepository;
+
+    @BeforeEach
+    void setup() {
+        restart();
+    }
+
+    @AfterEach
+    void tearDown() {
+        walStore.close();
+    }
+
+    @Test
+    void restart_loads_the_snapshot_and_replays_the_log_written_after_it() {
+        AccountId[] accountIds = createAccounts(200);
+        walStore.takeSnapshot();
+        accountRepository.save(accountRepository.findById(accountIds[0]).get().credit(amount(5)));
+
+        restart();
+
+        Assertions.assertEquals(200, walStore.getAccounts().size());
+        Account account = accountRepository.findById(accountIds[0]).get();
+        Assertions.assertEquals(amount(5), account.getCurrentBalance());
+        Assertions.assertEquals(2, account.getVersion());
+    }
+
+    @Test
+    void snapshot_deletes_the_log_segments_it_covers() throws IOException {
+        createAccounts(200);
+        long segmentsBeforeSnapshot = countSegments();
+
+        walStore.takeSnapshot();
+
+        Assertions.assertTrue(segmentsBeforeSnapshot > 1);
+        Assertions.assertEquals(1, countSegments());
+    }
+
+    @Test
+    void snapshot_taken_while_accounts_are_credited_loses_no_credit() throws IOException, InterruptedException {
+        AccountId[] accountIds = createAccounts(4);
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        for (int i = 0; i < 400; i++) {
+            AccountId accountId = accountIds[i % accountIds.length];
+            executorService.submit(() -> creditWithRetry(accountId));
+            if (i % 100 == 0) {
+                executorService.submit(walStore::takeSnapshot);
+            }
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+
+        restart();
+
+        for (AccountId accountId : accountIds) {
+            Account account = accountRepository.findById(accountId).get();
+            Assertions.assertEquals(amount(100), account.getCurrentBalance());
+            Assertions.assertEquals(101, account.getVersion());
+        }
+    }
+
+    @Test
+    void snapshot_taken_while_a_save_is_between_its_append_and_its_map_update_keeps_the_save() throws InterruptedException {
+        MoneyTransfer moneyTransfer = newMoneyTransfer();
+        CountDownLatch appended = new CountDownLatch(1);
+        CountDownLatch applied = new CountDownLatch(1);
+        Thread save = new Thread(() -> walStore.append(WalRecords.encode(moneyTransfer), () -> {
+            appended.countDown();
+            Uninterruptibles.awaitUninterruptibly(applied);
+            walStore.getMoneyTransfers().put(moneyTransfer.getRequestId(), moneyTransfer);
+        }));
+        save.start();
+        appended.await();
+        Thread snapshot = new Thread(walStore::takeSnapshot);
+        snapshot.start();
+        while (snapshot.isAlive() && snapshot.getState() != Thread.State.WAITING) {  //until it either waits for the save or is done
+            Thread.onSpinWait();
+        }
+        applied.countDown();
+        save.join();
+        snapshot.join();
+
+        restart();
+
+        Assertions.assertEquals(moneyTransfer, moneyTransferRepository.findById(moneyTransfer.getRequestId()).get());
+    }
+
+    @Test
+    void snapshot_keeps_only_money_transfers_still_created() {
+        MoneyTransfer createdMoneyTransfer = newMoneyTransfer();
+        MoneyTransfer completedMoneyTransfer = newMoneyTransfer();
+        moneyTransferRepository.save(createdMoneyTransfer);
+        moneyTransferRepository.save(completedMoneyTransfer);
+        moneyTransferRepository.save(completedMoneyTransfer.complete());
+        walStore.takeSnapshot();
+
+        restart();
+
+        Assertions.assertEquals(createdMoneyTransfer, moneyTransferRepository.findById(createdMoneyTransfer.getRequestId()).get());
+        Assertions.assertFalse(moneyTransferRepository.findById(completedMoneyTransfer.getRequestId()).isPresent());
+    }
+
+    @Test
+    void restart_replays_money_transfers_saved_together() {
+        MoneyTransfer firstMoneyTransfer = newMoneyTransfer();
+        MoneyTransfer secondMoneyTransfer = newMoneyTransfer();
+        moneyTransferRepository.saveAll(Arrays.asList(firstMoneyTransfer, secondMoneyTransfer));
+
+        restart();
+
+        Assertions.assertEquals(firstMoneyTransfer, moneyTransferRepository.findById(firstMoneyTransfer.getRequestId()).get());
+        Assertions.assertEquals(secondMoneyTransfer, moneyTransferRepository.findById(secondMoneyTransfer.getRequestId()).get());
+    }
+
+    @Test
+    void restart_replays_postings_with_the_money_transfers_they_settle() {
+        AccountId[] accountIds = createAccounts(2);
+        accountRepository.save(accountRepository.findById(accountIds[0]).get().credit(amount(5)));
+        MoneyTransfer moneyTransfer = MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(accountIds[0])
+                                                   .beneficiaryAccountId(accountIds[1]).amount(amount(2)).build();
+        moneyTransferRepository.save(moneyTransfer);
+        accountRepository.saveAll(Arrays.asList(accountRepository.findById(accountIds[0]).get().tryDebit(amount(2)).get(),
+                                                accountRepository.findById(accountIds[1]).get().credit(amount(2))),
+                                  Collections.singletonList(moneyTransfer.complete()), Collections.emptyMap());
+
+        restart();
+
+        Assertions.assertEquals(amount(3), accountRepository.findById(accountIds[0]).get().getCurrentBalance());
+        Assertions.assertEquals(amount(2), accountRepository.findById(accountIds[1]).get().getCurrentBalance());
+        Assertions.assertEquals(MoneyTransferStatus.COMPLETED, moneyTransferRepository.findById(moneyTransfer.getRequestId()).get().getStatus());
+    }
+
+    @Test
+    void credits_to_hot_account_completed_before_a_crash_are_folded_into_its_balance_on_restart() throws InvalidAccountException, InsufficientFundsException {
+        AccountId[] accountIds = createAccounts(2);
+        accountRepository.save(accountRepository.findById(accountIds[0]).get().credit(amount(10)));
+        HotAccountCredits hotAccountCredits = new HotAccountCredits(new HotAccountConfiguration(), new SimpleMeterRegistry());
+        hotAccountCredits.promote(accountIds[1]);
+        AccountService accountService = new AccountService(accountRepository, new NoOpAccountLockingService(), hotAccountCredits, new AccountUpdateRetryConfiguration(), new SimpleMeterRegistry());
+        accountService.transfer(accountIds[0], accountIds[1], amount(3));
+        accountService.foldPendingCredits();
+        accountService.transfer(accountIds[0], accountIds[1], amount(2));
+        walStore.takeSnapshot();
+        accountService.creditAccount(accountIds[1], amount(1));
+
+        restart();  //the credit cells are lost
+        restart();
+
+        Assertions.assertEquals(amount(5), accountRepository.findById(accountIds[0]).get().getCurrentBalance());
+        Assertions.assertEquals(amount(6), accountRepository.findById(accountIds[1]).get().getCurrentBalance());
+    }
+
+    @Test
+    void money_transfers_recovered_still_created_are_submitted_again() {
+        MoneyTransfer createdMoneyTransfer = newMoneyTransfer();
+        MoneyTransfer completedMoneyTransfer = newMoneyTransfer();
+        moneyTransferRepository.save(createdMoneyTransfer);
+        moneyTransferRepository.save(completedMoneyTransfer);
+        moneyTransferRepository.save(completedMoneyTransfer.complete());
+
+        restart();
+        MoneyTransferBacklog backlog = new MoneyTransferBacklog(new TransferProcessingConfiguration(), new SimpleMeterRegistry());
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+        Assertions.assertEquals(1, new WalTransferRecovery(walStore, backlog, eventPublisher).resubmit());
+        verify(eventPublisher).publishEvent(MoneyTransferCreatedEvent.builder().requestId(createdMoneyTransfer.getRequestId()).build());
+        Assertions.assertEquals(1, backlog.getDepth());
+    }
+
+    private AccountId[] createAccounts(int numberOfAccounts) {
+        AccountId[] accountIds = new AccountId[numberOfAccounts];
+        for (int i = 0; i < numberOfAccounts; i++) {
+            accountIds[i] = AccountId.from(UUID.randomUUID());
+            accountRepository.save(Account.builder().accountId(accountIds[i]).currentBalance(amount(0)).build());
+        }
+        return accountIds;
+    }
+
+    private void creditWithRetry(AccountId accountId) {
+        while (true) {
+            try {
+                accountRepository.save(accountRepository.findById(accountId).get().credit(amount(1)));
+                return;
+            } catch (ConcurrentModificationException e) {
+                //lost the race on this account; reload and retry
+            }
+        }
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".wal")).count();
+        }
+    }
+
+    private void restart() {
+        if (walStore != null) {
+            walStore.close();
+        }
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setSegmentSize(SEGMENT_SIZE);
+        configuration.setFsyncPolicy(FsyncPolicy.NONE);
+        walStore = new WalStore(configuration);
+        accountRepository = new WalAccountRepository(walStore);
+        moneyTransferRepository = new WalMoneyTransferRepository(walStore);
+    }
+
+    private static MoneyTransfer newMoneyTransfer() {
+        return MoneyTransfer.builder().requestId(TransferRequestId.from(UUID.randomUUID())).sourceAccountId(AccountId.from(UUID.randomUUID()))
+                            .beneficiaryAccountId(AccountId.from(UUID.randomUUID())).amount(amount(1)).build();
+    }
+
+    private static Amount amount(int value) {
+        return Amount.builder().amount(BigDecimal.valueOf(value)).build();
+    }
+}
@@ -0,0 +1,161 @@
+package com.revolut.challenge.infra.wal;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appended_records_are_replayed_in_order_after_reopening() throws IOException {
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.GROUP_COMMIT, 1024 * 1024, new ArrayList<>())) {
+            writeAheadLog.append(bytes("first"));
+            writeAheadLog.append(bytes("second"));
+        }
+        List<String> replayed = new ArrayList<>();
+        open(FsyncPolicy.GROUP_COMMIT, 1024 * 1024, replayed).close();
+        Assertions.assertEquals(listOf("first", "second"), replayed);
+    }
+
+    @Test
+    void records_roll_over_to_new_segments() throws IOException {
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.INTERVAL, 64, new ArrayList<>())) {
+            for (int i = 0; i < 20; i++) {
+                writeAheadLog.append(bytes("record-" + i));
+            }
+        }
+        List<String> replayed = new ArrayList<>();
+        open(FsyncPolicy.INTERVAL, 64, replayed).close();
+        Assertions.assertEquals(20, replayed.size());
+        Assertions.assertEquals("record-19", replayed.get(19));
+        Assertions.assertTrue(segmentFiles().size() > 1);
+    }
+
+    @Test
+    void reopening_from_a_position_replays_only_the_records_written_after_it() throws IOException {
+        long position;
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.INTERVAL, 64, new ArrayList<>())) {
+            for (int i = 0; i < 10; i++) {
+                writeAheadLog.append(bytes("record-" + i));
+            }
+            position = writeAheadLog.getWrittenLsn();
+            writeAheadLog.append(bytes("record-10"));
+            writeAheadLog.truncateBefore(position);
+        }
+        List<String> replayed = new ArrayList<>();
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setSegmentSize(64);
+        WriteAheadLog.open(configuration, position, record -> replayed.add(string(record))).close();
+        Assertions.assertEquals(listOf("record-10"), replayed);
+        Assertions.assertTrue(segmentFiles().size() <= 2);
+    }
+
+    @Test
+    void torn_record_at_the_tail_is_discarded_and_appending_continues_after_the_last_valid_record() throws IOException {
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.GROUP_COMMIT, 1024, new ArrayList<>())) {
+            writeAheadLog.append(bytes("kept"));
+            writeAheadLog.append(bytes("torn"));
+        }
+        corruptByteAt(segmentFiles().get(0), 8 + 4 + 8 + 1);
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.GROUP_COMMIT, 1024, new ArrayList<>())) {
+            writeAheadLog.append(bytes("appended"));
+        }
+        List<String> replayed = new ArrayList<>();
+        open(FsyncPolicy.GROUP_COMMIT, 1024, replayed).close();
+        Assertions.assertEquals(listOf("kept", "appended"), replayed);
+    }
+
+    @Test
+    void group_commit_acknowledges_appends_only_once_durable() throws IOException, InterruptedException {
+        WriteAheadLog writeAheadLog = open(FsyncPolicy.GROUP_COMMIT, 1024 * 1024, new ArrayList<>());
+        ExecutorService executorService = Executors.newFixedThreadPool(8);
+        List<String> failures = new ArrayList<>();
+        for (int i = 0; i < 800; i++) {
+            executorService.submit(() -> {
+                long lsn = writeAheadLog.append(bytes("concurrent"));
+                if (writeAheadLog.getDurableLsn() < lsn) {
+                    synchronized (failures) {
+                        failures.add("acknowledged before durable: " + lsn);
+                    }
+                }
+            });
+        }
+        executorService.shutdown();
+        executorService.awaitTermination(10, TimeUnit.SECONDS);
+        writeAheadLog.close();
+
+        List<String> replayed = new ArrayList<>();
+        open(FsyncPolicy.GROUP_COMMIT, 1024 * 1024, replayed).close();
+        Assertions.assertEquals(new ArrayList<>(), failures);
+        Assertions.assertEquals(800, replayed.size());
+    }
+
+    @Test
+    void record_larger_than_a_segment_is_rejected() throws IOException {
+        try (WriteAheadLog writeAheadLog = open(FsyncPolicy.NONE, 32, new ArrayList<>())) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> writeAheadLog.append(new byte[64]));
+        }
+    }
+
+    private WriteAheadLog open(FsyncPolicy fsyncPolicy, int segmentSize, List<String> replayed) throws IOException {
+        WalConfiguration configuration = new WalConfiguration();
+        configuration.setDirectory(directory.toString());
+        configuration.setSegmentSize(segmentSize);
+        configuration.setFsyncPolicy(fsyncPolicy);
+        configuration.setGroupCommitWindow(Duration.ofMillis(1));
+        return WriteAheadLog.open(configuration, record -> replayed.add(string(record)));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private void corruptByteAt(Path file, long position) throws IOException {
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.seek(position);
+            int original = randomAccessFile.read();
+            randomAccessFile.seek(position);
+            randomAccessFile.write(original ^ 0xFF);
+        }
+    }
+
+    private static List<String> listOf(String... values) {
+        List<String> list = new ArrayList<>();
+        for (String value : values) {
+            list.add(value);
+        }
+        return list;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(ByteBuffer record) {
+        byte[] bytes = new byte[record.remaining()];
+        record.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}